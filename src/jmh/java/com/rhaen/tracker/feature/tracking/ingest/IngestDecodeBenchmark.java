@@ -0,0 +1,83 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-batch decode cost: JSON (Jackson + Bean Validation + columns) vs {@link PointBatchCodec}.
+ * Body sizes are printed at setup so bytes/point can be compared with the same batch.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngestDecodeBenchmark {
+
+    @Param({"50", "500"})
+    int points;
+
+    private ObjectMapper mapper;
+    private Validator validator;
+    private byte[] json;
+    private byte[] binary;
+    private Instant now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        now = Instant.now();
+
+        List<TrackingDtos.LocationPoint> batch = new ArrayList<>(points);
+        Instant start = now.minusSeconds(points);
+        for (int i = 0; i < points; i++) {
+            batch.add(new TrackingDtos.LocationPoint(
+                    UUID.randomUUID(),
+                    41.311081 + i * 0.00003,
+                    69.240562 + i * 0.00002,
+                    start.plusSeconds(i),
+                    4.5f + (i % 5),
+                    1.4f,
+                    (float) (i % 360),
+                    "fused",
+                    false));
+        }
+        json = mapper.writeValueAsBytes(new TrackingDtos.IngestPointsRequest(batch));
+        binary = PointBatchCodec.encode(PointColumns.fromDtos(batch));
+
+        System.out.printf("%n%d points: json %d B (%.1f B/point), binary %d B (%.1f B/point)%n",
+                points, json.length, (double) json.length / points, binary.length, (double) binary.length / points);
+    }
+
+    @Benchmark
+    public PointColumns json() throws Exception {
+        TrackingDtos.IngestPointsRequest req = mapper.readValue(json, TrackingDtos.IngestPointsRequest.class);
+        if (!validator.validate(req).isEmpty()) {
+            throw new IllegalStateException("invalid batch");
+        }
+        return PointColumns.fromDtos(req.points());
+    }
+
+    @Benchmark
+    public PointColumns binary() {
+        return PointBatchCodec.decode(binary, now);
+    }
+}
@@ -0,0 +1,74 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One update fanned out to N subscribers: Jackson per emitter (what SseEmitter.event().data(payload)
+ * costs through the message converters) vs {@link SseFrame} encoded once and copied to each.
+ * The sink stands in for the response stream. Per-update time should be flat in N for the frame,
+ * only the byte copies grow. Run with {@code ./gradlew jmh} (add {@code -prof gc} for allocation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SseFanOutBenchmark {
+
+    @Param({"1", "50", "200"})
+    int subscribers;
+
+    private ObjectMapper mapper;
+    private LastLocationEvent event;
+    private ByteArrayOutputStream sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        event = new LastLocationEvent(UUID.randomUUID(), UUID.randomUUID(), "ACTIVE", true, false,
+                Instant.parse("2026-01-29T10:00:00Z"), 41.311158, 69.279737, 4.5f, 1.25f, 182.0f);
+        sink = new ByteArrayOutputStream(512);
+    }
+
+    @Benchmark
+    public int serializePerSubscriber() throws IOException {
+        int written = 0;
+        for (int i = 0; i < subscribers; i++) {
+            sink.reset();
+            sink.write("event:update\ndata:".getBytes(StandardCharsets.UTF_8));
+            mapper.writeValue(sink, event);
+            sink.write("\n\n".getBytes(StandardCharsets.UTF_8));
+            written += sink.size();
+        }
+        return written;
+    }
+
+    @Benchmark
+    public int preEncodedFrame() throws IOException {
+        SseFrame frame = SseFrame.event("update", event, mapper);
+        byte[] bytes = (byte[]) frame.build().iterator().next().getData();
+        int written = 0;
+        for (int i = 0; i < subscribers; i++) {
+            sink.reset();
+            sink.write(bytes);
+            written += sink.size();
+        }
+        return written;
+    }
+}
@@ -0,0 +1,133 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrackSimplifier} (sequential, fork-join RDP and Visvalingam-Whyatt) vs the previous
+ * recursive RDP over LatLon lists that projected every point on every level.
+ * Run with {@code ./gradlew jmh} (add {@code -prof gc} for allocation per call).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimplifierBenchmark {
+
+    private static final double EPSILON_M = 10.0;
+    private static final int VW_TARGET = 2_000;
+
+    @Param({"10000", "100000", "1000000"})
+    int points;
+
+    private double[] lat;
+    private double[] lon;
+    private List<PolylineEncoder.LatLon> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 1 Hz random walk around Tashkent, ~1-15 m steps with slowly drifting heading
+        Random random = new Random(42);
+        lat = new double[points];
+        lon = new double[points];
+        list = new ArrayList<>(points);
+        double la = 41.311, lo = 69.240, heading = 0;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.2;
+            double step = 1 + random.nextDouble() * 14;
+            la += Math.cos(heading) * step / 111_320;
+            lo += Math.sin(heading) * step / 83_600;
+            lat[i] = la;
+            lon[i] = lo;
+            list.add(new PolylineEncoder.LatLon(la, lo));
+        }
+    }
+
+    @Benchmark
+    public boolean[] rdp() {
+        return TrackSimplifier.rdp(lat, lon, points, EPSILON_M, false);
+    }
+
+    @Benchmark
+    public boolean[] rdpParallel() {
+        return TrackSimplifier.rdp(lat, lon, points, EPSILON_M, true);
+    }
+
+    @Benchmark
+    public boolean[] visvalingam() {
+        return TrackSimplifier.visvalingam(lat, lon, points, VW_TARGET);
+    }
+
+    @Benchmark
+    public List<PolylineEncoder.LatLon> recursiveList() {
+        return LegacyRdp.simplify(list, EPSILON_M);
+    }
+
+    /** The previous implementation, kept here as the baseline */
+    private static final class LegacyRdp {
+        private static final double R = 6371000.0;
+
+        static List<PolylineEncoder.LatLon> simplify(List<PolylineEncoder.LatLon> pts, double eps) {
+            int n = pts.size();
+            boolean[] keep = new boolean[n];
+            keep[0] = true;
+            keep[n - 1] = true;
+            rdp(pts, 0, n - 1, eps, keep, pts.getFirst().lat());
+            List<PolylineEncoder.LatLon> out = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (keep[i]) out.add(pts.get(i));
+            }
+            return out;
+        }
+
+        private static void rdp(List<PolylineEncoder.LatLon> pts, int start, int end, double eps,
+                                boolean[] keep, double lat0) {
+            if (end <= start + 1) return;
+            double[] a = project(pts.get(start), lat0);
+            double[] b = project(pts.get(end), lat0);
+            double maxDist = -1;
+            int index = -1;
+            for (int i = start + 1; i < end; i++) {
+                double[] p = project(pts.get(i), lat0);
+                double d = distance(p[0], p[1], a[0], a[1], b[0], b[1]);
+                if (d > maxDist) {
+                    maxDist = d;
+                    index = i;
+                }
+            }
+            if (maxDist > eps && index != -1) {
+                keep[index] = true;
+                rdp(pts, start, index, eps, keep, lat0);
+                rdp(pts, index, end, eps, keep, lat0);
+            }
+        }
+
+        // allocates per point like the old GeoMath.XY record
+        private static double[] project(PolylineEncoder.LatLon p, double lat0) {
+            return new double[]{
+                    Math.toRadians(p.lon()) * Math.cos(Math.toRadians(lat0)) * R,
+                    Math.toRadians(p.lat()) * R};
+        }
+
+        private static double distance(double px, double py, double ax, double ay, double bx, double by) {
+            double dx = bx - ax;
+            double dy = by - ay;
+            double t = (dx == 0 && dy == 0) ? 0
+                    : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / (dx * dx + dy * dy)));
+            double ex = px - (ax + t * dx);
+            double ey = py - (ay + t * dy);
+            return Math.sqrt(ex * ex + ey * ey);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import com.rhaen.tracker.common.util.GeoUtils;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory part of a summary rebuild once rows are read: JTS points + LatLon lists (previous
+ * implementation) vs {@link TrackAccumulator} into {@link TrackCoords} and the array RDP/encoder.
+ * Row decoding is simulated from plain arrays, so the difference is the per-point objects only.
+ * Run with {@code ./gradlew jmh} (add {@code -prof gc} for bytes allocated per rebuild).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SummaryRebuildBenchmark {
+
+    @Param({"50000", "500000"})
+    int points;
+
+    private double[] lat;
+    private double[] lon;
+    private long[] tsMicros;
+    private float[] speed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lat = new double[points];
+        lon = new double[points];
+        tsMicros = new long[points];
+        speed = new float[points];
+        long start = System.currentTimeMillis() * 1000 - points * 100_000L;
+        for (int i = 0; i < points; i++) {
+            lat[i] = 41.2 + i * 2e-6 + Math.sin(i / 50.0) * 1e-4;
+            lon[i] = 69.2 + i * 2e-6 + Math.cos(i / 70.0) * 1e-4;
+            tsMicros[i] = start + i * 100_000L;
+            speed[i] = i % 3 == 0 ? Float.NaN : 1.5f;
+        }
+    }
+
+    @Benchmark
+    public String entities() {
+        // what the entity path materialized: one JTS Point per row, then one LatLon per row
+        List<Point> rows = new ArrayList<>();
+        for (int i = 0; i < points; i++) {
+            rows.add(GeoUtils.point(lon[i], lat[i]));
+        }
+        List<PolylineEncoder.LatLon> latlons = new ArrayList<>(rows.size());
+        for (Point p : rows) {
+            latlons.add(new PolylineEncoder.LatLon(p.getY(), p.getX()));
+        }
+        double distance = 0;
+        for (int i = 1; i < latlons.size(); i++) {
+            var a = latlons.get(i - 1);
+            var b = latlons.get(i);
+            distance += GeoMath.haversineMeters(a.lat(), a.lon(), b.lat(), b.lon());
+        }
+        return PolylineEncoder.encode(RdpSimplifier.simplify(latlons, 10.0)) + distance;
+    }
+
+    @Benchmark
+    public String streamed() {
+        TrackCoords coords = new TrackCoords(5_000);
+        TrackAccumulator acc = new TrackAccumulator(coords);
+        for (int i = 0; i < points; i++) {
+            acc.add(lat[i], lon[i], tsMicros[i], speed[i]);
+        }
+        return PolylineEncoder.encode(coords, RdpSimplifier.simplify(coords, 10.0)) + acc.toStats().distanceM();
+    }
+}
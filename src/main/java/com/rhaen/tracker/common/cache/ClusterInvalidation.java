@@ -0,0 +1,54 @@
+package com.rhaen.tracker.common.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Invalidation of an in-process cache across nodes over one Redis pub/sub channel.
+ * The local eviction runs at once and again after commit, so a concurrent miss cannot keep the
+ * pre-commit row; other nodes are only told once the change is committed.
+ * A failed publish is logged and left to the other nodes' TTL expiry.
+ */
+@Slf4j
+public class ClusterInvalidation {
+
+    private final StringRedisTemplate redis;
+    private final String channel;
+
+    public ClusterInvalidation(StringRedisTemplate redis, String channel) {
+        this.redis = redis;
+        this.channel = channel;
+    }
+
+    /** @param message what the other nodes' listeners on the channel decode into the same eviction */
+    public void invalidate(Runnable evict, String message) {
+        evict.run();
+        afterCommit(() -> {
+            evict.run();
+            publish(message);
+        });
+    }
+
+    private void publish(String message) {
+        try {
+            redis.convertAndSend(channel, message);
+        } catch (Exception ex) {
+            log.warn("Cache invalidation publish on {} failed: {}", channel, ex.toString());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
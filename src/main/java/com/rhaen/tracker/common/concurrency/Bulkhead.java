@@ -0,0 +1,96 @@
+package com.rhaen.tracker.common.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded concurrency for one resource: maxConcurrent permits, at most maxWaiting queued callers,
+ * each waiting up to maxWaitMs. A disabled bulkhead only passes calls through.
+ * Metrics (tag name): tracker.bulkhead.active/waiting gauges, tracker.bulkhead.wait timer,
+ * tracker.bulkhead.rejected.total counter.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final BulkheadProperties.Limits limits;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public Bulkhead(String name, BulkheadProperties.Limits limits, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.limits = limits;
+        this.permits = new Semaphore(limits.maxConcurrent(), true);
+
+        Gauge.builder("tracker.bulkhead.active", permits, p -> limits.maxConcurrent() - p.availablePermits())
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("tracker.bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .tag("name", name)
+                .register(meterRegistry);
+        waitTimer = Timer.builder("tracker.bulkhead.wait")
+                .description("Time spent waiting for a bulkhead permit")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        rejected = Counter.builder("tracker.bulkhead.rejected.total")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /** @throws BulkheadFullException when too many callers wait or the wait times out */
+    public void acquire() {
+        if (!limits.enabled()) return;
+
+        if (permits.tryAcquire()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (permits.getQueueLength() >= limits.maxWaiting()) {
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(limits.maxWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        }
+    }
+
+    public void release() {
+        if (limits.enabled()) permits.release();
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            release();
+        }
+    }
+
+    public void run(Runnable action) {
+        acquire();
+        try {
+            action.run();
+        } finally {
+            release();
+        }
+    }
+}
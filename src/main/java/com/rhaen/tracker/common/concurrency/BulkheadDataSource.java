@@ -0,0 +1,76 @@
+package com.rhaen.tracker.common.concurrency;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DataSource wrapper holding a db bulkhead permit for the lifetime of each borrowed connection.
+ * Bulkheads are resolved lazily (the DataSource is created before the meter registry).
+ */
+class BulkheadDataSource extends DelegatingDataSource {
+
+    private final ObjectProvider<Bulkheads> bulkheads;
+
+    BulkheadDataSource(DataSource target, ObjectProvider<Bulkheads> bulkheads) {
+        super(target);
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkhead db = bulkheads.getObject().db();
+        db.acquire();
+        try {
+            return guarded(super.getConnection(), db);
+        } catch (SQLException | RuntimeException ex) {
+            db.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Bulkhead db = bulkheads.getObject().db();
+        db.acquire();
+        try {
+            return guarded(super.getConnection(username, password), db);
+        } catch (SQLException | RuntimeException ex) {
+            db.release();
+            throw ex;
+        }
+    }
+
+    private static Connection guarded(Connection target, Bulkhead db) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                BulkheadDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        if (released.compareAndSet(false, true)) {
+                            try {
+                                target.close();
+                            } finally {
+                                db.release();
+                            }
+                        }
+                        return null;
+                    }
+                    if ("unwrap".equals(method.getName()) && args[0] instanceof Class<?> type && type.isInstance(proxy)) {
+                        return proxy;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
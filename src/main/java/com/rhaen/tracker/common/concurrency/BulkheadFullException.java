@@ -0,0 +1,9 @@
+package com.rhaen.tracker.common.concurrency;
+
+import com.rhaen.tracker.common.exception.ServiceUnavailableException;
+
+public class BulkheadFullException extends ServiceUnavailableException {
+    public BulkheadFullException(String name) {
+        super("Server busy (" + name + " bulkhead full), retry later");
+    }
+}
@@ -0,0 +1,33 @@
+package com.rhaen.tracker.common.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Semaphore bulkheads in front of the DB pool and Redis, so that (virtual) request threads queue
+ * in a bounded, measured place and are rejected fast instead of piling up in the pool.
+ * Off unless enabled; application.yml ties both to spring.threads.virtual.enabled, since platform
+ * request threads are already bounded by the Tomcat pool and a bulkhead would only add 503s there.
+ */
+@ConfigurationProperties(prefix = "app.concurrency.bulkhead")
+public record BulkheadProperties(
+        Limits db,
+        Limits redis
+) {
+    public BulkheadProperties {
+        if (db == null) db = new Limits(false, 0, 0, 0);
+        if (redis == null) redis = new Limits(false, 0, 0, 0);
+    }
+
+    /**
+     * @param maxConcurrent permits (db: normally the Hikari pool size)
+     * @param maxWaiting    callers allowed to wait for a permit, more are rejected immediately
+     * @param maxWaitMs     how long a waiting caller waits before rejection
+     */
+    public record Limits(boolean enabled, int maxConcurrent, int maxWaiting, long maxWaitMs) {
+        public Limits {
+            if (maxConcurrent <= 0) maxConcurrent = 10;
+            if (maxWaiting < 0) maxWaiting = 0;
+            if (maxWaitMs <= 0) maxWaitMs = 1000;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.rhaen.tracker.common.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class Bulkheads {
+
+    private final Bulkhead db;
+    private final Bulkhead redis;
+
+    public Bulkheads(BulkheadProperties props, MeterRegistry meterRegistry) {
+        this.db = new Bulkhead("db", props.db(), meterRegistry);
+        this.redis = new Bulkhead("redis", props.redis(), meterRegistry);
+    }
+
+    /** Held from DataSource.getConnection() until Connection.close() (see BulkheadDataSource) */
+    public Bulkhead db() {
+        return db;
+    }
+
+    public Bulkhead redis() {
+        return redis;
+    }
+}
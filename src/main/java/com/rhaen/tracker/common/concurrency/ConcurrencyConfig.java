@@ -0,0 +1,28 @@
+package com.rhaen.tracker.common.concurrency;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    /** Wraps the pool when app.concurrency.bulkhead.db.enabled=true (static: BeanPostProcessor) */
+    @Bean
+    static BeanPostProcessor bulkheadDataSourcePostProcessor(Environment env, ObjectProvider<Bulkheads> bulkheads) {
+        boolean enabled = env.getProperty("app.concurrency.bulkhead.db.enabled", Boolean.class, false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource ds && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource(ds, bulkheads);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -3,6 +3,8 @@ package com.rhaen.tracker.common.exception;
 import com.rhaen.tracker.common.response.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -22,8 +24,11 @@ public class GlobalExceptionHandler {
 
         @ExceptionHandler(TrackerException.class)
         public ResponseEntity<ApiResponse<Void>> handleTrackerException(TrackerException ex) {
-                return ResponseEntity.status(ex.getStatus())
-                                .body(new ApiResponse<>(Instant.now(), ex.getMessage(), null));
+                var response = ResponseEntity.status(ex.getStatus());
+                if (ex instanceof TooManyRequestsException tmr && tmr.getRetryAfterSeconds() > 0) {
+                        response.header(HttpHeaders.RETRY_AFTER, String.valueOf(tmr.getRetryAfterSeconds()));
+                }
+                return response.body(new ApiResponse<>(Instant.now(), ex.getMessage(), null));
         }
 
         @ExceptionHandler(AccessDeniedException.class)
@@ -64,6 +69,11 @@ public class GlobalExceptionHandler {
                                         .body(new ApiResponse<>(Instant.now(), "Stream error", null));
                 }
 
+                // e.g. BulkheadFullException wrapped by the JDBC/JPA transaction layer
+                if (NestedExceptionUtils.getMostSpecificCause(ex) instanceof TrackerException te) {
+                        return handleTrackerException(te);
+                }
+
                 log.error("Unhandled error at {}: {}", request.getRequestURI(), ex.getMessage(), ex);
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                 .body(new ApiResponse<>(Instant.now(), "An unexpected error occurred", null));
@@ -1,9 +1,19 @@
 package com.rhaen.tracker.common.exception;
 
+import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
+@Getter
 public class TooManyRequestsException extends TrackerException {
+    /** Seconds the client should wait before retrying (Retry-After header), 0 = unknown */
+    private final long retryAfterSeconds;
+
     public TooManyRequestsException(String message) {
+        this(message, 0);
+    }
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
         super(message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 }
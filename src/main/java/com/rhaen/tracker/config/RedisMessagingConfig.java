@@ -0,0 +1,36 @@
+package com.rhaen.tracker.config;
+
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationBus;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationBusProperties;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisMessagingConfig {
+
+    @Bean
+    RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                SessionMetaCache sessionMetaCache,
+                                                                VectorTileService vectorTileService,
+                                                                SessionResponseCache sessionResponseCache,
+                                                                LastLocationBus lastLocationBus,
+                                                                LastLocationBusProperties lastLocationBusProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(sessionMetaCache, new ChannelTopic(SessionMetaCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(vectorTileService, new ChannelTopic(VectorTileService.INVALIDATION_CHANNEL));
+        container.addMessageListener(sessionResponseCache,
+                new ChannelTopic(SessionResponseCache.INVALIDATION_CHANNEL));
+        if (lastLocationBusProperties.enabled()) {
+            container.addMessageListener(lastLocationBus, new ChannelTopic(LastLocationBus.CHANNEL));
+            container.addMessageListener(lastLocationBus, new ChannelTopic(LastLocationBus.FILTER_CHANNEL));
+        }
+        return container;
+    }
+}
@@ -1,11 +1,19 @@
 package com.rhaen.tracker.config;
 
+import com.rhaen.tracker.common.concurrency.BulkheadProperties;
 import com.rhaen.tracker.feature.tracking.expiry.SessionExpiryProperties;
 import com.rhaen.tracker.feature.tracking.history.TrackingHistoryProperties;
+import com.rhaen.tracker.feature.tracking.ingest.IngestDedupProperties;
 import com.rhaen.tracker.feature.tracking.ingest.TrackingIngestProperties;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationBusProperties;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationProperties;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationStreamProperties;
 import com.rhaen.tracker.feature.tracking.retention.RetentionProperties;
+import com.rhaen.tracker.feature.tracking.session.SessionCacheProperties;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCacheProperties;
 import com.rhaen.tracker.feature.tracking.summary.TrackingSummaryProperties;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileProperties;
+import com.rhaen.tracker.feature.tracking.ws.IngestWebSocketProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,10 +21,18 @@ import org.springframework.context.annotation.Configuration;
 @EnableConfigurationProperties({
         CorsProperties.class,
         LastLocationProperties.class,
+        LastLocationStreamProperties.class,
+        LastLocationBusProperties.class,
         TrackingSummaryProperties.class,
         TrackingHistoryProperties.class,
         SessionExpiryProperties.class,
         TrackingIngestProperties.class,
-        RetentionProperties.class
+        RetentionProperties.class,
+        SessionCacheProperties.class,
+        SessionResponseCacheProperties.class,
+        IngestWebSocketProperties.class,
+        IngestDedupProperties.class,
+        BulkheadProperties.class,
+        VectorTileProperties.class
 })
 public class TrackingRealtimeConfig {}
@@ -0,0 +1,39 @@
+package com.rhaen.tracker.config;
+
+import com.rhaen.tracker.feature.tracking.ws.IngestHandshakeInterceptor;
+import com.rhaen.tracker.feature.tracking.ws.IngestWebSocketHandler;
+import com.rhaen.tracker.feature.tracking.ws.IngestWebSocketProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    public static final String INGEST_PATH = "/ws/v1/tracking/ingest";
+
+    private final IngestWebSocketHandler ingestHandler;
+    private final IngestHandshakeInterceptor ingestHandshakeInterceptor;
+    private final CorsProperties corsProperties;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(ingestHandler, INGEST_PATH)
+                .addInterceptors(ingestHandshakeInterceptor)
+                .setAllowedOriginPatterns(corsProperties.allowedOrigins().toArray(String[]::new));
+    }
+
+    @Bean
+    ServletServerContainerFactoryBean webSocketContainer(IngestWebSocketProperties props) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(props.maxFrameBytes());
+        container.setMaxBinaryMessageBufferSize(props.maxFrameBytes());
+        return container;
+    }
+}
@@ -5,14 +5,20 @@ import com.rhaen.tracker.feature.admin.dto.AdminDtos;
 import com.rhaen.tracker.feature.admin.query.AdminQueryService;
 import com.rhaen.tracker.feature.admin.command.AdminCommandService;
 import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import com.rhaen.tracker.feature.tracking.history.SessionPointStream;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
@@ -27,6 +33,7 @@ public class AdminController {
 
     private final AdminQueryService adminQueryService;
     private final AdminCommandService adminCommandService;
+    private final SessionResponseCache responseCache;
 
     @GetMapping("/users")
     @Operation(summary = "Users list", description = "List users with pagination.")
@@ -64,19 +71,76 @@ public class AdminController {
     }
 
     @GetMapping("/sessions/{sessionId}/points")
-    @Operation(summary = "Session points", description = "Returns raw points with optional window + downsample.")
-    public ApiResponse<List<TrackingDtos.PointRow>> sessionPoints(
+    @Operation(summary = "Session points",
+            description = "Returns raw points with optional window + downsample. Finished sessions carry a strong ETag (If-None-Match -> 304).")
+    public ResponseEntity<byte[]> sessionPoints(
             @PathVariable UUID sessionId,
             @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z") @RequestParam(required = false) Instant from,
             @Parameter(description = "To timestamp (UTC)", example = "2026-01-29T11:00:00Z") @RequestParam(required = false) Instant to,
-            @Parameter(description = "Max points to return", example = "2000") @RequestParam(required = false) Integer max) {
-        return ApiResponse.ok(adminQueryService.getSessionPoints(sessionId, from, to, max));
+            @Parameter(description = "Max points to return", example = "2000") @RequestParam(required = false) Integer max,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        var key = new SessionResponseCache.Key("admin-points", sessionId, from + "|" + to + "|" + max, true);
+        return responseCache.respond(key, null, ifNoneMatch,
+                () -> adminQueryService.getSessionPoints(sessionId, from, to, max));
+    }
+
+    @GetMapping(value = "/sessions/{sessionId}/points/stream", produces = SessionPointStream.NDJSON_VALUE)
+    @Operation(summary = "Session points (stream)",
+            description = "Streams raw points as NDJSON, no size limit. Last line is {\"next\": cursor|null}.")
+    public ResponseEntity<StreamingResponseBody> sessionPointsStream(
+            @PathVariable UUID sessionId,
+            @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z") @RequestParam(required = false) Instant from,
+            @Parameter(description = "To timestamp (UTC)", example = "2026-01-29T11:00:00Z") @RequestParam(required = false) Instant to,
+            @Parameter(description = "Continuation token from the previous page's last line") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (omit to stream everything)", example = "50000") @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok()
+                .contentType(SessionPointStream.NDJSON)
+                .body(adminQueryService.streamSessionPoints(sessionId, from, to, cursor, limit));
+    }
+
+    @GetMapping("/sessions/{sessionId}/track")
+    @Operation(summary = "Session track (zoom levels)",
+            description = "Precomputed simplified track segments at the level nearest to toleranceM or one pixel at zoom.")
+    public ApiResponse<TrackingDtos.TrackResponse> sessionTrack(
+            @PathVariable UUID sessionId,
+            @Parameter(description = "Map zoom level (web mercator)", example = "14") @RequestParam(required = false) Integer zoom,
+            @Parameter(description = "Tolerance in meters (overrides zoom)", example = "8") @RequestParam(required = false) Double toleranceM,
+            @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z") @RequestParam(required = false) Instant from,
+            @Parameter(description = "To timestamp (UTC)", example = "2026-01-29T11:00:00Z") @RequestParam(required = false) Instant to) {
+        return ApiResponse.ok(adminQueryService.getSessionTrack(sessionId, zoom, toleranceM, from, to));
+    }
+
+    @GetMapping(value = "/tiles/{z}/{x}/{y}.mvt", produces = VectorTileService.MVT_VALUE)
+    @Operation(summary = "Track tiles",
+            description = "Mapbox Vector Tile, layer \"tracks\": finished session tracks at the tile's resolution.")
+    public ResponseEntity<byte[]> trackTile(
+            @PathVariable int z, @PathVariable int x, @PathVariable int y,
+            @Parameter(description = "Only this user's sessions") @RequestParam(required = false) UUID userId,
+            @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z") @RequestParam(required = false) Instant from,
+            @Parameter(description = "To timestamp (UTC)", example = "2026-01-29T11:00:00Z") @RequestParam(required = false) Instant to) {
+        return ResponseEntity.ok()
+                .contentType(VectorTileService.MVT)
+                .body(adminQueryService.getTrackTile(z, x, y, userId, from, to));
+    }
+
+    @GetMapping(value = "/tiles/live/{z}/{x}/{y}.mvt", produces = VectorTileService.MVT_VALUE)
+    @Operation(summary = "Live tiles",
+            description = "Mapbox Vector Tile, layer \"live\": last points of active sessions.")
+    public ResponseEntity<byte[]> liveTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        return ResponseEntity.ok()
+                .contentType(VectorTileService.MVT)
+                .body(adminQueryService.getLiveTile(z, x, y));
     }
 
     @GetMapping("/sessions/{sessionId}/summary")
-    @Operation(summary = "Session summary", description = "Returns precomputed session summary.")
-    public ApiResponse<AdminDtos.SessionSummaryResponse> sessionSummary(@PathVariable UUID sessionId) {
-        return ApiResponse.ok(adminQueryService.getSessionSummary(sessionId));
+    @Operation(summary = "Session summary",
+            description = "Returns precomputed session summary. Finished sessions carry a strong ETag (If-None-Match -> 304).")
+    public ResponseEntity<byte[]> sessionSummary(
+            @PathVariable UUID sessionId,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // a queued rebuild is reported as PENDING/FAILED: only READY is cached
+        return responseCache.respond(new SessionResponseCache.Key("admin-summary", sessionId, ""), null, ifNoneMatch,
+                () -> adminQueryService.getSessionSummary(sessionId), summary -> "READY".equals(summary.status()));
     }
 
     @GetMapping("/sessions")
@@ -4,8 +4,12 @@ import com.rhaen.tracker.common.response.ApiResponse;
 import com.rhaen.tracker.feature.admin.dto.AdminDtos;
 import com.rhaen.tracker.feature.admin.query.AdminQueryService;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationBroadcaster;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationBus;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationFilter;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationStreamProperties;
 import com.rhaen.tracker.security.jwt.StreamTokenService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -13,11 +17,18 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequiredArgsConstructor
@@ -27,6 +38,7 @@ import java.time.Instant;
 public class AdminStreamController {
 
     private final LastLocationBroadcaster broadcaster;
+    private final LastLocationBus lastLocationBus;
     private final AdminQueryService adminQueryService;
     private final StreamTokenService streamTokenService;
 
@@ -38,18 +50,34 @@ public class AdminStreamController {
     }
 
     @GetMapping(value = "/last-locations", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    @Operation(summary = "SSE stream", description = "Stream last location updates in real-time. Use access_token query param (short-lived stream token).")
-    public SseEmitter streamLastLocations() {
-        SseEmitter emitter = broadcaster.subscribe();
-
-        try {
-            var init = adminQueryService.listLastLocations();
-            var payload = new AdminDtos.StreamInitResponse(Instant.now().toString(), init);
-            emitter.send(SseEmitter.event()
-                    .name("init")
-                    .data(payload));
-        } catch (Exception ignored) {}
+    @Operation(summary = "SSE stream", description = "Stream last location updates in real-time. Use access_token query param (short-lived stream token). "
+            + "With bbox and/or userIds only matching users are sent (init included), plus the update that takes a user out of the bbox.")
+    public SseEmitter streamLastLocations(
+            @Parameter(description = "When this client falls behind: DROP_OLDEST, COALESCE (latest per user) or DISCONNECT")
+            @RequestParam(required = false) LastLocationStreamProperties.Overflow overflow,
+            @Parameter(description = "Conflation tick in ms: one \"updates\" frame with the latest point per changed user; "
+                    + "default 0 = every \"update\" as it comes", example = "1000")
+            @RequestParam(required = false) Long tickMs,
+            @Parameter(description = "Only users inside minLon,minLat,maxLon,maxLat", example = "69.1,41.2,69.4,41.4")
+            @RequestParam(required = false) String bbox,
+            @Parameter(description = "Only these users (max 1000)")
+            @RequestParam(required = false) List<UUID> userIds) {
+        return broadcaster.subscribe(overflow, tickMs, LastLocationFilter.of(bbox, userIds),
+                (subscriptionId, filter) -> new AdminDtos.StreamInitResponse(
+                        Instant.now().toString(), subscriptionId, adminQueryService.listLastLocations(filter)));
+    }
 
-        return emitter;
+    @PutMapping("/last-locations/{subscriptionId}/filter")
+    @Operation(summary = "Change stream filter",
+            description = "Replaces bbox/userIds of an open stream (subscriptionId from its init event); "
+                    + "the stream then gets a new init for the new filter. {} = whole fleet.")
+    public ApiResponse<Void> updateFilter(@PathVariable String subscriptionId,
+                                          @RequestBody AdminDtos.StreamFilterRequest req) {
+        var bbox = req.bbox();
+        var area = bbox == null ? null
+                : LastLocationFilter.Area.of(bbox.minLat(), bbox.minLon(), bbox.maxLat(), bbox.maxLon());
+        lastLocationBus.updateFilter(subscriptionId, new LastLocationFilter(area,
+                req.userIds() == null ? null : Set.copyOf(req.userIds())));
+        return ApiResponse.ok(null);
     }
 }
@@ -2,6 +2,11 @@ package com.rhaen.tracker.feature.admin.command;
 
 import com.rhaen.tracker.common.audit.AuditService;
 import com.rhaen.tracker.common.exception.NotFoundException;
+import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
+import com.rhaen.tracker.feature.tracking.persistence.SummaryBbox;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import com.rhaen.tracker.feature.user.persistence.UserEntity;
 import com.rhaen.tracker.feature.user.persistence.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +23,10 @@ public class AdminCommandService {
         private final UserRepository userRepository;
         private final AuditService auditService;
         private final com.rhaen.tracker.feature.tracking.realtime.LastLocationCache lastLocationCache;
+        private final SessionMetaCache sessionMetaCache;
+        private final SessionResponseCache sessionResponseCache;
+        private final SessionSummaryRepository summaryRepository;
+        private final VectorTileService vectorTiles;
 
         @Transactional
         public void updateUserRole(UUID adminId, UUID userId, String role) {
@@ -40,9 +49,18 @@ public class AdminCommandService {
         public void deleteUser(UUID adminId, UUID userId) {
                 UserEntity user = userRepository.findById(userId)
                                 .orElseThrow(() -> new NotFoundException("User not found: " + userId));
+                // read before the cascade removes the summaries: where the user's tracks are drawn
+                SummaryBbox drawn = summaryRepository.findUserBbox(userId);
 
                 userRepository.delete(user);
                 lastLocationCache.remove(userId);
+                // sessions are removed by ON DELETE CASCADE
+                sessionMetaCache.invalidateUser(userId);
+                sessionResponseCache.invalidateUser(userId);
+                if (!drawn.isEmpty()) {
+                        // one union bbox instead of one message per session (evicts a bit more)
+                        vectorTiles.invalidateTracks(drawn.minLat(), drawn.minLon(), drawn.maxLat(), drawn.maxLon());
+                }
 
                 auditService.logUserAction(
                                 adminId,
@@ -58,7 +58,8 @@ public class AdminDtos {
                         @Schema(description = "Max speed m/s") Double maxSpeedMps,
                         @Schema(description = "Points count") Integer pointsCount,
                         @Schema(description = "Bounding box") Bbox bbox,
-                        @Schema(description = "Raw points pruned timestamp (optional)") Instant rawPointsPrunedAt) {
+                        @Schema(description = "Raw points pruned timestamp (optional)") Instant rawPointsPrunedAt,
+                        @Schema(description = "READY, PENDING (rebuild queued, fields empty or stale) or FAILED") String status) {
         }
 
         public record LastLocationRow(
@@ -82,7 +83,13 @@ public class AdminDtos {
 
         public record StreamInitResponse(
                         @Schema(description = "Server timestamp (UTC)") String serverTs,
-                        @Schema(description = "Initial items") List<LastLocationRow> items) {
+                        @Schema(description = "Id for changing this stream's filter") String subscriptionId,
+                        @Schema(description = "Initial items (matching the filter)") List<LastLocationRow> items) {
+        }
+
+        public record StreamFilterRequest(
+                        @Schema(description = "Only users inside this box (optional)") Bbox bbox,
+                        @Schema(description = "Only these users (optional, max 1000)") List<UUID> userIds) {
         }
 
         public record AuditLogRow(
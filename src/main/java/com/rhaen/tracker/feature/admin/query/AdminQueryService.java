@@ -9,12 +9,16 @@ import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationCache;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationFilter;
+import com.rhaen.tracker.feature.tracking.summary.SummaryJobQueue;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import com.rhaen.tracker.feature.user.persistence.UserRepository;
 import org.springframework.data.domain.Page;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
@@ -27,7 +31,9 @@ public class AdminQueryService {
         private final UserRepository userRepository;
         private final TrackingSessionRepository sessionRepository;
         private final SessionSummaryRepository sessionSummaryRepository;
+        private final SummaryJobQueue summaryJobQueue;
         private final SessionHistoryService sessionHistoryService;
+        private final VectorTileService vectorTileService;
         private final LastLocationCache lastLocationCache;
         private final AdminAuditLogRepository auditLogRepository;
 
@@ -53,7 +59,16 @@ public class AdminQueryService {
         }
 
         public List<AdminDtos.LastLocationRow> listLastLocations() {
-                return lastLocationCache.getAll().stream()
+                return listLastLocations(LastLocationFilter.ALL);
+        }
+
+        /** A user filter reads only those users from Redis; the area is applied to what was read */
+        public List<AdminDtos.LastLocationRow> listLastLocations(LastLocationFilter filter) {
+                var snapshots = filter.userIds() != null
+                                ? lastLocationCache.getAll(filter.userIds())
+                                : lastLocationCache.getAll();
+                return snapshots.stream()
+                                .filter(snap -> filter.matches(snap.userId(), snap.lat(), snap.lon()))
                                 .map(snap -> new AdminDtos.LastLocationRow(
                                                 snap.userId(),
                                                 snap.sessionId(),
@@ -112,9 +127,17 @@ public class AdminQueryService {
         }
 
         public AdminDtos.SessionSummaryResponse getSessionSummary(UUID sessionId) {
-                var summary = sessionSummaryRepository.findById(sessionId)
-                                .orElseThrow(() -> new NotFoundException(
-                                                "Summary not found for session: " + sessionId));
+                // Finalize is queued (summary_jobs): report it instead of 404 until the worker is done
+                String status = summaryJobQueue.find(sessionId)
+                                .map(job -> job.failed() ? "FAILED" : "PENDING")
+                                .orElse("READY");
+                var found = sessionSummaryRepository.findById(sessionId);
+                if (found.isEmpty() && !"READY".equals(status)) {
+                        return new AdminDtos.SessionSummaryResponse(sessionId, null, null, null, null, null, null,
+                                        null, null, null, status);
+                }
+                var summary = found.orElseThrow(() -> new NotFoundException(
+                                "Summary not found for session: " + sessionId));
                 var bbox = new AdminDtos.Bbox(
                                 summary.getBboxMinLat(),
                                 summary.getBboxMinLon(),
@@ -130,7 +153,8 @@ public class AdminQueryService {
                                 summary.getMaxSpeedMps(),
                                 summary.getPointsCount(),
                                 bbox,
-                                summary.getRawPointsPrunedAt());
+                                summary.getRawPointsPrunedAt(),
+                                status);
         }
 
         public List<TrackingDtos.PointRow> getSessionPoints(UUID sessionId,
@@ -140,6 +164,30 @@ public class AdminQueryService {
                 return sessionHistoryService.getSessionPoints(sessionId, from, to, max);
         }
 
+        public StreamingResponseBody streamSessionPoints(UUID sessionId,
+                        Instant from,
+                        Instant to,
+                        String cursor,
+                        Integer limit) {
+                return sessionHistoryService.streamSessionPoints(sessionId, from, to, cursor, limit);
+        }
+
+        public TrackingDtos.TrackResponse getSessionTrack(UUID sessionId,
+                        Integer zoom,
+                        Double toleranceM,
+                        Instant from,
+                        Instant to) {
+                return sessionHistoryService.getSessionTrack(sessionId, zoom, toleranceM, from, to);
+        }
+
+        public byte[] getTrackTile(int z, int x, int y, UUID userId, Instant from, Instant to) {
+                return vectorTileService.tracks(z, x, y, userId, from, to);
+        }
+
+        public byte[] getLiveTile(int z, int x, int y) {
+                return vectorTileService.live(z, x, y);
+        }
+
         public Page<AdminDtos.AuditLogRow> listAuditLogs(int page, int size) {
                 int pageNumber = Math.max(0, page);
                 int pageSize = Math.min(100, Math.max(1, size));
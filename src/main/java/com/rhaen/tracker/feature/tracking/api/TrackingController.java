@@ -3,7 +3,12 @@ package com.rhaen.tracker.feature.tracking.api;
 import com.rhaen.tracker.common.response.ApiResponse;
 import com.rhaen.tracker.feature.tracking.command.TrackingCommandService;
 import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import com.rhaen.tracker.feature.tracking.history.SessionPointStream;
+import com.rhaen.tracker.feature.tracking.ingest.PointBatchCodec;
+import com.rhaen.tracker.feature.tracking.ingest.PointColumns;
+import com.rhaen.tracker.feature.tracking.ingest.TrackingIngestProperties;
 import com.rhaen.tracker.feature.tracking.query.TrackingQueryService;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -11,9 +16,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
@@ -28,6 +36,8 @@ public class TrackingController {
 
     private final TrackingCommandService trackingCommandService;
     private final TrackingQueryService trackingQueryService;
+    private final SessionResponseCache responseCache;
+    private final TrackingIngestProperties ingestProps;
 
     @PostMapping("/sessions/start")
     @Operation(summary = "Start tracking session", description = "Creates a new ACTIVE session for the user.")
@@ -37,7 +47,7 @@ public class TrackingController {
     }
 
     @PostMapping("/sessions/{sessionId}/stop")
-    @Operation(summary = "Stop tracking session", description = "Stops an ACTIVE session and finalizes summary.")
+    @Operation(summary = "Stop tracking session", description = "Stops an ACTIVE session and queues its summary rebuild (written asynchronously by the summary workers).")
     public ApiResponse<Void> stop(@PathVariable UUID sessionId,
                                   @AuthenticationPrincipal Jwt jwt,
                                   @RequestBody TrackingDtos.StopSessionRequest req) {
@@ -52,14 +62,24 @@ public class TrackingController {
                                       @AuthenticationPrincipal Jwt jwt,
                                       @Valid @RequestBody TrackingDtos.IngestPointsRequest req) {
         UUID userId = UUID.fromString(jwt.getClaimAsString("uid"));
-        int inserted = trackingCommandService.ingestPoints(sessionId, userId, req);
-        int accepted = req.points().size();
-        return ApiResponse.ok(new TrackingDtos.IngestResponse(accepted, inserted));
+        return ApiResponse.ok(trackingCommandService.ingestPoints(sessionId, userId, req));
+    }
+
+    @PostMapping(path = "/sessions/{sessionId}/points", consumes = PointBatchCodec.MEDIA_TYPE)
+    @Operation(summary = "Ingest tracking points (binary)",
+            description = "Same as JSON ingest, body in the compact " + PointBatchCodec.MEDIA_TYPE + " format.")
+    public ApiResponse<TrackingDtos.IngestResponse> ingestBinary(@PathVariable UUID sessionId,
+                                                                 @AuthenticationPrincipal Jwt jwt,
+                                                                 @RequestBody byte[] body) {
+        UUID userId = UUID.fromString(jwt.getClaimAsString("uid"));
+        PointColumns points = PointBatchCodec.decode(body, Instant.now(), ingestProps.maxBatchSize());
+        return ApiResponse.ok(trackingCommandService.ingestColumns(sessionId, userId, points));
     }
 
     @GetMapping("/sessions/{sessionId}/points")
-    @Operation(summary = "My session points", description = "Returns raw points with optional window + downsample.")
-    public ApiResponse<TrackingDtos.PointsResponse> sessionPoints(
+    @Operation(summary = "My session points",
+            description = "Returns raw points with optional window + downsample. Finished sessions carry a strong ETag (If-None-Match -> 304).")
+    public ResponseEntity<byte[]> sessionPoints(
             @PathVariable UUID sessionId,
             @AuthenticationPrincipal Jwt jwt,
             @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z")
@@ -71,20 +91,68 @@ public class TrackingController {
             @Parameter(description = "Downsample points", example = "true")
             @RequestParam(defaultValue = "true") boolean downsample,
             @Parameter(description = "Simplify epsilon in meters", example = "8")
-            @RequestParam(defaultValue = "8") double simplifyEpsM) {
+            @RequestParam(defaultValue = "8") double simplifyEpsM,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UUID userId = UUID.fromString(jwt.getClaimAsString("uid"));
+        List<String> roles = jwt.getClaimAsStringList("roles");
+        boolean isAdmin = roles != null && roles.contains("ADMIN");
+        var key = new SessionResponseCache.Key("points", sessionId,
+                from + "|" + to + "|" + max + "|" + downsample + "|" + simplifyEpsM, true);
+        return responseCache.respond(key, new SessionResponseCache.Access(userId, isAdmin), ifNoneMatch,
+                () -> trackingQueryService.getSessionPoints(
+                        sessionId,
+                        userId,
+                        isAdmin,
+                        from,
+                        to,
+                        max,
+                        downsample,
+                        simplifyEpsM
+                ));
+    }
+
+    @GetMapping(value = "/sessions/{sessionId}/points/stream", produces = SessionPointStream.NDJSON_VALUE)
+    @Operation(summary = "My session points (stream)",
+            description = "Streams raw points as NDJSON, no size limit. Last line is {\"next\": cursor|null}.")
+    public ResponseEntity<StreamingResponseBody> sessionPointsStream(
+            @PathVariable UUID sessionId,
+            @AuthenticationPrincipal Jwt jwt,
+            @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z")
+            @RequestParam(required = false) Instant from,
+            @Parameter(description = "To timestamp (UTC)", example = "2026-01-29T11:00:00Z")
+            @RequestParam(required = false) Instant to,
+            @Parameter(description = "Continuation token from the previous page's last line")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (omit to stream everything)", example = "50000")
+            @RequestParam(required = false) Integer limit) {
+        UUID userId = UUID.fromString(jwt.getClaimAsString("uid"));
+        List<String> roles = jwt.getClaimAsStringList("roles");
+        boolean isAdmin = roles != null && roles.contains("ADMIN");
+        return ResponseEntity.ok()
+                .contentType(SessionPointStream.NDJSON)
+                .body(trackingQueryService.streamSessionPoints(sessionId, userId, isAdmin, from, to, cursor, limit));
+    }
+
+    @GetMapping("/sessions/{sessionId}/track")
+    @Operation(summary = "My session track (zoom levels)",
+            description = "Precomputed simplified track at the level nearest to toleranceM or one pixel at zoom, "
+                    + "as encoded polyline segments overlapping [from, to]. Available once the session is finalized.")
+    public ApiResponse<TrackingDtos.TrackResponse> sessionTrack(
+            @PathVariable UUID sessionId,
+            @AuthenticationPrincipal Jwt jwt,
+            @Parameter(description = "Map zoom level (web mercator)", example = "14")
+            @RequestParam(required = false) Integer zoom,
+            @Parameter(description = "Tolerance in meters (overrides zoom)", example = "8")
+            @RequestParam(required = false) Double toleranceM,
+            @Parameter(description = "From timestamp (UTC)", example = "2026-01-29T10:00:00Z")
+            @RequestParam(required = false) Instant from,
+            @Parameter(description = "To timestamp (UTC)", example = "2026-01-29T11:00:00Z")
+            @RequestParam(required = false) Instant to) {
         UUID userId = UUID.fromString(jwt.getClaimAsString("uid"));
         List<String> roles = jwt.getClaimAsStringList("roles");
         boolean isAdmin = roles != null && roles.contains("ADMIN");
-        return ApiResponse.ok(trackingQueryService.getSessionPoints(
-                sessionId,
-                userId,
-                isAdmin,
-                from,
-                to,
-                max,
-                downsample,
-                simplifyEpsM
-        ));
+        return ApiResponse.ok(trackingQueryService.getSessionTrack(sessionId, userId, isAdmin, zoom, toleranceM,
+                from, to));
     }
 
     @GetMapping("/sessions")
@@ -5,34 +5,40 @@ import com.rhaen.tracker.common.exception.BadRequestException;
 import com.rhaen.tracker.common.exception.ConflictException;
 import com.rhaen.tracker.common.exception.ForbiddenException;
 import com.rhaen.tracker.common.exception.NotFoundException;
+import com.rhaen.tracker.common.exception.ServiceUnavailableException;
 import com.rhaen.tracker.common.exception.TooManyRequestsException;
 import com.rhaen.tracker.common.util.GeoUtils;
 import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import com.rhaen.tracker.feature.tracking.ingest.IngestWriteBehindBuffer;
+import com.rhaen.tracker.feature.tracking.ingest.PointColumns;
+import com.rhaen.tracker.feature.tracking.ingest.RecentEventIdFilter;
 import com.rhaen.tracker.feature.tracking.ingest.RedisRateLimiter;
 import com.rhaen.tracker.feature.tracking.ingest.TrackingIngestProperties;
 import com.rhaen.tracker.feature.tracking.ingest.TrackingPointIngestRepository;
+import com.rhaen.tracker.feature.tracking.persistence.SessionMeta;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationCache;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationSnapshot;
-import com.rhaen.tracker.feature.tracking.summary.SessionSummaryService;
+import com.rhaen.tracker.feature.tracking.session.SessionLastPointUpdater;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.summary.SummaryJobQueue;
 import com.rhaen.tracker.feature.user.persistence.UserEntity;
 import com.rhaen.tracker.feature.user.persistence.UserRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 
 import java.time.Instant;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -40,14 +46,19 @@ public class TrackingCommandService {
 
     private final UserRepository userRepository;
     private final TrackingSessionRepository sessionRepository;
+    private final SessionMetaCache sessionMetaCache;
+    private final SessionLastPointUpdater lastPointUpdater;
 
     private final LastLocationCache lastLocationCache;
-    private final SessionSummaryService sessionSummaryService;
+    private final SummaryJobQueue summaryJobQueue;
+    private final TransactionTemplate transactionTemplate;
 
     // Step 8 deps
     private final TrackingIngestProperties ingestProps;
     private final RedisRateLimiter rateLimiter;
     private final TrackingPointIngestRepository ingestRepository;
+    private final Optional<IngestWriteBehindBuffer> writeBehindBuffer;
+    private final RecentEventIdFilter recentEventIdFilter;
     private final AuditService auditService;
 
     private final MeterRegistry meterRegistry;
@@ -58,6 +69,8 @@ public class TrackingCommandService {
     private Counter ingestRequestsCounter;
     private Counter pointsAcceptedCounter;
     private Counter pointsInsertedCounter;
+    private Counter pointsDuplicateCounter;
+    private Counter pointsFilteredCounter;
 
     private Timer ingestTimer;
 
@@ -93,8 +106,17 @@ public class TrackingCommandService {
                 session.getStatus().name());
     }
 
-    @Transactional
     public void stopSession(UUID sessionId, UUID userId, TrackingDtos.StopSessionRequest req) {
+        // Write-behind: summary must see points still sitting in the buffer.
+        // Waited for before the transaction, so no connection (and DB bulkhead permit) is held meanwhile
+        writeBehindBuffer.ifPresent(b -> b.awaitSession(sessionId, ingestProps.writeBehind().stopAwaitMs()));
+        transactionTemplate.executeWithoutResult(status -> stop(sessionId, userId, req));
+    }
+
+    private void stop(UUID sessionId, UUID userId, TrackingDtos.StopSessionRequest req) {
+        sessionRepository.lockForStatusChange(sessionId);
+        // Coalesced last point must be in the row before the entity is loaded
+        lastPointUpdater.flush(sessionId);
         TrackingSessionEntity session = requireOwnedSession(sessionId, userId);
 
         if (session.getStatus() != TrackingSessionEntity.Status.ACTIVE) {
@@ -116,9 +138,11 @@ public class TrackingCommandService {
         session.setStatus(TrackingSessionEntity.Status.STOPPED);
         session.setUpdatedAt(Instant.now());
         sessionRepository.save(session);
+        sessionMetaCache.invalidate(sessionId);
+        recentEventIdFilter.forget(sessionId);
 
-        // Summary rebuild AFTER session has final stop_time/status/stop_point
-        sessionSummaryService.buildOrRebuild(session);
+        // Summary rebuild AFTER session has final stop_time/status/stop_point: queued, runs after commit
+        summaryJobQueue.enqueue(sessionId);
 
         // Update Redis last_location (active=false)
         var p = (session.getStopPoint() != null) ? session.getStopPoint() : session.getLastPoint();
@@ -144,21 +168,39 @@ public class TrackingCommandService {
     }
 
     /**
-     * Returns: inserted rows count (DB level).
-     * NOTE: accepted points = req.points().size()
+     * Returns: accepted = req.points().size(), inserted = rows inserted (DB level).
+     * In write-behind mode points are only queued here, so inserted = 0 and queued = unique points.
      */
-    @Transactional
-    public int ingestPoints(UUID sessionId, UUID userId, TrackingDtos.IngestPointsRequest req) {
-        TrackingSessionEntity session = requireOwnedSession(sessionId, userId);
+    public TrackingDtos.IngestResponse ingestPoints(UUID sessionId, UUID userId, TrackingDtos.IngestPointsRequest req) {
+        return ingestColumns(sessionId, userId, PointColumns.fromDtos(req.points()));
+    }
 
-        if (session.getStatus() != TrackingSessionEntity.Status.ACTIVE) {
-            throw new BadRequestException("Session is not ACTIVE: " + session.getStatus());
+    /**
+     * Shared by JSON and binary ({@link com.rhaen.tracker.feature.tracking.ingest.PointBatchCodec}) ingest.
+     * Write-behind: no transaction, so the request borrows no connection (a cache hit needs none at all);
+     * the cached status decides and the writers' insert skips sessions that stopped meanwhile.
+     */
+    public TrackingDtos.IngestResponse ingestColumns(UUID sessionId, UUID userId, PointColumns points) {
+        if (writeBehindBuffer.isPresent()) {
+            return ingest(sessionId, userId, points);
+        }
+        return transactionTemplate.execute(status -> ingest(sessionId, userId, points));
+    }
+
+    private TrackingDtos.IngestResponse ingest(UUID sessionId, UUID userId, PointColumns points) {
+        // Hot path: ownership/status from in-process cache, no entity load
+        SessionMeta session = sessionMetaCache.get(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        requireOwner(sessionId, session.userId(), userId);
+
+        if (session.status() != TrackingSessionEntity.Status.ACTIVE) {
+            throw new BadRequestException("Session is not ACTIVE: " + session.status());
         }
 
         Timer.Sample sample = Timer.start(meterRegistry);
         ingestRequestsCounter.increment();
 
-        int rawCount = req.points().size();
+        int rawCount = points.size();
         pointsAcceptedCounter.increment(rawCount);
 
         try {
@@ -177,67 +219,74 @@ public class TrackingCommandService {
                         "SESSION",
                         sessionId,
                         Map.of("current", rl.current(), "attemptedPoints", rawCount));
-                throw new TooManyRequestsException("Rate limit exceeded (points/min). Current=" + rl.current());
+                throw new TooManyRequestsException("Rate limit exceeded (points/min). Current=" + rl.current(),
+                        rl.retryAfterSeconds());
             }
 
-            // Dedupe inside the same batch by eventId (keep first occurrence)
-            Map<UUID, TrackingPointIngestRepository.IngestPointRow> unique = req.points().stream()
-                    .collect(Collectors.toMap(
-                            TrackingDtos.LocationPoint::eventId,
-                            p -> new TrackingPointIngestRepository.IngestPointRow(
-                                    p.eventId(),
-                                    p.lat(),
-                                    p.lon(),
-                                    p.deviceTimestamp(),
-                                    p.accuracyM(),
-                                    p.speedMps(),
-                                    p.headingDeg(),
-                                    p.provider(),
-                                    Boolean.TRUE.equals(p.mock())),
-                            (first, second) -> first));
-
-            List<TrackingPointIngestRepository.IngestPointRow> rows = unique.values().stream().toList();
-            if (rows.isEmpty())
-                return 0;
+            // Dedupe inside the same batch by eventId (keep first occurrence),
+            // then drop ids this session already sent (retried batches); counted apart
+            PointColumns inBatch = points.dedupeByEventId();
+            PointColumns unique = recentEventIdFilter.dropSeen(sessionId, inBatch);
+            int duplicates = rawCount - inBatch.size();
+            int filtered = inBatch.size() - unique.size();
+            pointsDuplicateCounter.increment(duplicates);
+            pointsFilteredCounter.increment(filtered);
+            if (unique.size() == 0)
+                return new TrackingDtos.IngestResponse(rawCount, 0, 0, duplicates, filtered);
 
             Instant receivedAt = Instant.now();
 
-            // Insert points with ON CONFLICT DO NOTHING (no crash on duplicates)
-            int inserted = ingestRepository.insertBatch(session.getId(), receivedAt, rows);
-
-            // Find earliest + latest by device timestamp
-            var earliest = rows.stream()
-                    .min(Comparator.comparing(TrackingPointIngestRepository.IngestPointRow::deviceTimestamp))
-                    .orElseThrow();
-
-            var latest = rows.stream()
-                    .max(Comparator.comparing(TrackingPointIngestRepository.IngestPointRow::deviceTimestamp))
-                    .orElseThrow();
+            int inserted = 0;
+            int queued = 0;
+            if (writeBehindBuffer.isPresent()) {
+                // Write-behind: background writers insert the points, request only enqueues them
+                // (the buffer remembers the eventIds once they are inserted)
+                if (!writeBehindBuffer.get().offer(sessionId, receivedAt, unique)) {
+                    throw new ServiceUnavailableException("Ingest buffer is full, retry later");
+                }
+                queued = unique.size();
+            } else {
+                // Insert points with ON CONFLICT DO NOTHING (no crash on duplicates); the insert also
+                // skips the session once its row is not ACTIVE
+                inserted = ingestRepository.insertColumns(sessionId, receivedAt, unique);
+                // Cached status can be stale (stopped on another node): only a short insert can mean that
+                if (inserted < unique.size() && !sessionRepository.isActive(sessionId)) {
+                    sessionMetaCache.invalidate(sessionId);
+                    throw new BadRequestException("Session is not ACTIVE");
+                }
+                recentEventIdFilter.remember(sessionId, unique);
+            }
+            // Find latest (+ earliest only while start_point is still empty) by device timestamp
+            int latest = unique.indexOfLatest();
+            SessionLastPointUpdater.LastPoint start = null;
+            if (!session.hasStartPoint()) {
+                int earliest = unique.indexOfEarliest();
+                start = new SessionLastPointUpdater.LastPoint(
+                        unique.lon(earliest), unique.lat(earliest), unique.deviceTimestamp(earliest));
+            }
 
-            // Update session "last known"
-            if (session.getStartPoint() == null) {
-                session.setStartPoint(GeoUtils.point(earliest.lon(), earliest.lat()));
+            // Update session "last known" (coalesced, written by background flush)
+            lastPointUpdater.record(sessionId, start,
+                    new SessionLastPointUpdater.LastPoint(unique.lon(latest), unique.lat(latest), unique.deviceTimestamp(latest)));
+            if (start != null) {
+                sessionMetaCache.markStartPoint(sessionId);
             }
-            session.setLastPoint(GeoUtils.point(latest.lon(), latest.lat()));
-            session.setLastPointAt(latest.deviceTimestamp());
-            session.setUpdatedAt(Instant.now());
-            sessionRepository.save(session);
 
             // Update Redis last_location (active=true)
             lastLocationCache.upsert(new LastLocationSnapshot(
-                    session.getUser().getId(),
-                    session.getId(),
-                    session.getStatus().name(),
+                    session.userId(),
+                    sessionId,
+                    session.status().name(),
                     true,
-                    latest.lat(),
-                    latest.lon(),
-                    latest.deviceTimestamp(),
-                    latest.accuracyM(),
-                    latest.speedMps(),
-                    latest.headingDeg()));
+                    unique.lat(latest),
+                    unique.lon(latest),
+                    unique.deviceTimestamp(latest),
+                    unique.accuracyM(latest),
+                    unique.speedMps(latest),
+                    unique.headingDeg(latest)));
 
             pointsInsertedCounter.increment(inserted);
-            return inserted;
+            return new TrackingDtos.IngestResponse(rawCount, inserted, queued, duplicates, filtered);
         } finally {
             sample.stop(ingestTimer);
         }
@@ -251,6 +300,10 @@ public class TrackingCommandService {
         ingestRequestsCounter = Counter.builder("tracker.ingest.requests.total").register(meterRegistry);
         pointsAcceptedCounter = Counter.builder("tracker.ingest.points.accepted.total").register(meterRegistry);
         pointsInsertedCounter = Counter.builder("tracker.ingest.points.inserted.total").register(meterRegistry);
+        // duplicate ratio = duplicate.total / accepted.total
+        pointsDuplicateCounter = Counter.builder("tracker.ingest.points.duplicate.total").register(meterRegistry);
+        // retried points dropped by the recent eventId filter, before the insert
+        pointsFilteredCounter = Counter.builder("tracker.ingest.points.filtered.total").register(meterRegistry);
 
         ingestTimer = Timer.builder("tracker.ingest.duration")
                 .description("Ingest processing duration")
@@ -261,8 +314,12 @@ public class TrackingCommandService {
     private TrackingSessionEntity requireOwnedSession(UUID sessionId, UUID userId) {
         TrackingSessionEntity session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        requireOwner(sessionId, session.getUser().getId(), userId);
+        return session;
+    }
 
-        if (!session.getUser().getId().equals(userId)) {
+    private void requireOwner(UUID sessionId, UUID ownerId, UUID userId) {
+        if (!ownerId.equals(userId)) {
             auditService.logUserAction(
                     userId,
                     "AUTHORIZATION_FAILED",
@@ -271,6 +328,5 @@ public class TrackingCommandService {
                     Map.of("reason", "session_not_owned"));
             throw new ForbiddenException("Session does not belong to user");
         }
-        return session;
     }
 }
@@ -55,9 +55,11 @@ public class TrackingDtos {
             Instant deviceTimestamp,
 
             @PositiveOrZero(message = "accuracyM must be >= 0")
+            @Max(value = 10_000, message = "accuracyM must be <= 10000")
             @Schema(description = "Accuracy meters (optional)")
             Float accuracyM,
             @PositiveOrZero(message = "speedMps must be >= 0")
+            @Max(value = 1_000, message = "speedMps must be <= 1000")
             @Schema(description = "Speed m/s (optional)")
             Float speedMps,
             @Min(value = 0, message = "headingDeg must be >= 0")
@@ -79,7 +81,13 @@ public class TrackingDtos {
             @Schema(description = "Points accepted in request")
             int accepted,
             @Schema(description = "Points inserted into DB")
-            int inserted
+            int inserted,
+            @Schema(description = "Points queued for asynchronous insert (write-behind mode)")
+            int queued,
+            @Schema(description = "Points dropped because their eventId came earlier in this same batch")
+            int duplicates,
+            @Schema(description = "Points dropped because this session sent their eventId in a recent batch (a retry)")
+            int filtered
     ) {}
 
     public record PointRow(
@@ -106,6 +114,28 @@ public class TrackingDtos {
             long total
     ) {}
 
+    public record TrackSegment(
+            @Schema(description = "Segment index within the level (device time order)")
+            int index,
+            @Schema(description = "Device timestamp of the first point (UTC)")
+            Instant startTs,
+            @Schema(description = "Device timestamp of the last point (UTC)")
+            Instant endTs,
+            @Schema(description = "Points in the polyline")
+            int points,
+            @Schema(description = "Encoded polyline; ends where the next segment starts")
+            String polyline
+    ) {}
+
+    public record TrackResponse(
+            @Schema(description = "Pyramid level used (0 = finest), null when nothing matched")
+            Integer level,
+            @Schema(description = "Simplification tolerance of the level in meters")
+            Double epsilonM,
+            @Schema(description = "Segments overlapping the requested window")
+            List<TrackSegment> segments
+    ) {}
+
     public record SessionRow(
             @Schema(description = "Session id")
             UUID sessionId,
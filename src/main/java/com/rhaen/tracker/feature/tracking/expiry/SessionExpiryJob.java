@@ -4,7 +4,9 @@ import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationCache;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationSnapshot;
-import com.rhaen.tracker.feature.tracking.summary.SessionSummaryService;
+import com.rhaen.tracker.feature.tracking.session.SessionLastPointUpdater;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.summary.SummaryJobQueue;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
@@ -23,8 +25,10 @@ import java.time.temporal.ChronoUnit;
 public class SessionExpiryJob {
 
     private final TrackingSessionRepository sessionRepository;
-    private final SessionSummaryService sessionSummaryService;
+    private final SummaryJobQueue summaryJobQueue;
     private final LastLocationCache lastLocationCache;
+    private final SessionMetaCache sessionMetaCache;
+    private final SessionLastPointUpdater lastPointUpdater;
     private final SessionExpiryProperties props;
     private final MeterRegistry meterRegistry;
 
@@ -38,6 +42,9 @@ public class SessionExpiryJob {
     @Scheduled(fixedDelayString = "${app.tracking.session.sweep-interval-seconds:60}000")
     @Transactional
     public void sweep() {
+        // Coalesced last_point_at values must be in the table before the cutoff queries
+        lastPointUpdater.flushAll();
+
         Instant now = Instant.now();
 
         // 1) last_point_at bor ACTIVE sessionlar
@@ -70,9 +77,10 @@ public class SessionExpiryJob {
 
         session.setUpdatedAt(now);
         sessionRepository.save(session);
+        sessionMetaCache.invalidate(session.getId());
 
-        // Summary finalize (polyline/distance/duration/bbox)
-        sessionSummaryService.buildOrRebuild(session);
+        // Summary finalize (polyline/distance/duration/bbox): queued, workers rebuild after the sweep commits
+        summaryJobQueue.enqueue(session.getId());
 
         // Redis last_location: active=false, status=EXPIRED
         if (p != null) {
@@ -4,16 +4,19 @@ import com.rhaen.tracker.common.exception.BadRequestException;
 import com.rhaen.tracker.common.exception.ForbiddenException;
 import com.rhaen.tracker.common.exception.NotFoundException;
 import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
-import com.rhaen.tracker.feature.tracking.persistence.TrackingPointEntity;
-import com.rhaen.tracker.feature.tracking.persistence.TrackingPointRepository;
+import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryEntity;
+import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
-import com.rhaen.tracker.feature.tracking.summary.GeoMath;
+import com.rhaen.tracker.feature.tracking.summary.SessionTrackLodStore;
+import com.rhaen.tracker.feature.tracking.summary.TrackPyramid;
+import com.rhaen.tracker.feature.tracking.summary.TrackSimplifier;
 import lombok.RequiredArgsConstructor;
-import org.locationtech.jts.geom.Point;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -22,9 +25,18 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class SessionHistoryService {
 
+    // simplify (RDP) path: rows fetched from the DB per requested point
+    private static final int SIMPLIFY_OVERSAMPLE = 4;
+    // web mercator ground resolution at the equator, zoom 0, 256 px tiles
+    private static final double METERS_PER_PIXEL_Z0 = 156_543.03392;
+    private static final int MAX_ZOOM = 24;
+
     private final TrackingSessionRepository sessionRepository;
-    private final TrackingPointRepository pointRepository;
     private final TrackingHistoryProperties props;
+    private final SessionPointStream pointStream;
+    private final SessionPointSampler pointSampler;
+    private final SessionSummaryRepository summaryRepository;
+    private final SessionTrackLodStore lodStore;
 
     public List<TrackingDtos.PointRow> getSessionPoints(UUID sessionId, Instant from, Instant to, Integer maxPoints) {
         // session mavjudligini tekshir
@@ -33,36 +45,10 @@ public class SessionHistoryService {
 
         int max = (maxPoints == null || maxPoints <= 0) ? props.defaultMaxPoints() : maxPoints;
 
-        // window yo‘q bo‘lsa umumiy count
-        long count = (from != null && to != null)
-                ? pointRepository.countBySessionIdAndDeviceTimestampBetween(sessionId, from, to)
-                : pointRepository.countBySessionId(sessionId);
-
-        if (count > props.hardLimitPoints()) {
-            throw new BadRequestException("Too many points (" + count + "). Use /summary polyline instead.");
-        }
-
-        List<TrackingPointEntity> points = (from != null && to != null)
-                ? pointRepository.findBySessionIdAndDeviceTimestampBetweenOrderByDeviceTimestampAsc(sessionId, from, to)
-                : pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId);
-
-        if (points.isEmpty())
-            return List.of();
-        if (points.size() <= max)
-            return map(points);
-
-        // downsample
-        int step = (int) Math.ceil(points.size() / (double) max);
-        List<TrackingPointEntity> sampled = new ArrayList<>(max + 2);
-
-        for (int i = 0; i < points.size(); i += step) {
-            sampled.add(points.get(i));
-        }
-        if (sampled.getLast() != points.getLast()) {
-            sampled.add(points.getLast());
-        }
-
-        return map(sampled);
+        // downsample DB ichida: faqat ~max ta row qaytadi, count ham shu query'da
+        SessionPointSampler.Sample sample = pointSampler.everyNth(sessionId, from, to, max);
+        checkHardLimit(sample.total());
+        return sample.points();
     }
 
     public TrackingDtos.PointsResponse getSessionPointsForUser(UUID sessionId,
@@ -81,159 +67,153 @@ public class SessionHistoryService {
         }
 
         int max = resolveMax(maxPoints);
-        long total = countPointsByRange(sessionId, from, to);
-
-        if (total > props.hardLimitPoints()) {
-            throw new BadRequestException("Too many points (" + total + "). Use /summary polyline instead.");
+        SessionPointSampler.Sample sample;
+        if (!downsample) {
+            sample = pointSampler.first(sessionId, from, to, max);
+        } else if (simplifyEpsM > 0) {
+            // RDP needs more than max points to see the shape, but still a bounded number of them
+            sample = pointSampler.everyNth(sessionId, from, to, max * SIMPLIFY_OVERSAMPLE);
+        } else {
+            sample = pointSampler.everyNth(sessionId, from, to, max);
         }
+        long total = sample.total();
+        checkHardLimit(total);
 
-        List<TrackingPointEntity> points = findPointsByRange(sessionId, from, to);
-        if (points.isEmpty()) {
-            return new TrackingDtos.PointsResponse(List.of(), false, total);
-        }
-
-        List<TrackingPointEntity> selected = points;
-        if (downsample) {
-            if (simplifyEpsM > 0) {
-                selected = simplifyRdp(points, simplifyEpsM);
-            }
-            if (selected.size() > max) {
-                selected = downsampleByStep(selected, max);
-            }
-        } else if (selected.size() > max) {
-            selected = selected.subList(0, max);
+        List<TrackingDtos.PointRow> selected = sample.points();
+        if (downsample && simplifyEpsM > 0 && !selected.isEmpty()) {
+            selected = simplify(selected, simplifyEpsM, max);
         }
 
         boolean truncated = total > max;
-        return new TrackingDtos.PointsResponse(map(selected), truncated, total);
+        return new TrackingDtos.PointsResponse(selected, truncated, total);
     }
 
-    private long countPointsByRange(UUID sessionId, Instant from, Instant to) {
-        if (from == null && to == null) {
-            return pointRepository.countBySessionId(sessionId);
-        }
-        if (from != null && to != null) {
-            return pointRepository.countBySessionIdAndDeviceTimestampBetween(sessionId, from, to);
-        }
-        if (from != null) {
-            return pointRepository.countBySessionIdAndDeviceTimestampGreaterThanEqual(sessionId, from);
-        }
-        return pointRepository.countBySessionIdAndDeviceTimestampLessThanEqual(sessionId, to);
+    /** Precomputed track (session_track_lod) for admins, see {@link #getSessionTrackForUser} */
+    public TrackingDtos.TrackResponse getSessionTrack(UUID sessionId, Integer zoom, Double toleranceM,
+            Instant from, Instant to) {
+        sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        return readTrack(sessionId, zoom, toleranceM, from, to);
     }
 
-    private List<TrackingPointEntity> findPointsByRange(UUID sessionId, Instant from, Instant to) {
-        if (from == null && to == null) {
-            return pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId);
-        }
-        if (from != null && to != null) {
-            return pointRepository.findBySessionIdAndDeviceTimestampBetweenOrderByDeviceTimestampAsc(sessionId, from,
-                    to);
-        }
-        if (from != null) {
-            return pointRepository.findBySessionIdAndDeviceTimestampGreaterThanEqualOrderByDeviceTimestampAsc(sessionId,
-                    from);
+    /**
+     * Precomputed track at the level nearest to {@code toleranceM} (or to one pixel at {@code zoom}),
+     * only the segments overlapping [from, to]. Built when the summary is, so not for active sessions.
+     */
+    public TrackingDtos.TrackResponse getSessionTrackForUser(UUID sessionId,
+            UUID userId,
+            boolean isAdmin,
+            Integer zoom,
+            Double toleranceM,
+            Instant from,
+            Instant to) {
+        TrackingSessionEntity session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+
+        if (!isAdmin && !session.getUser().getId().equals(userId)) {
+            throw new ForbiddenException("Session does not belong to user");
         }
-        return pointRepository.findBySessionIdAndDeviceTimestampLessThanEqualOrderByDeviceTimestampAsc(sessionId, to);
+        return readTrack(sessionId, zoom, toleranceM, from, to);
+    }
+
+    /** Streaming (NDJSON) variant for admins: no count query, no hard limit */
+    public StreamingResponseBody streamSessionPoints(UUID sessionId, Instant from, Instant to, String cursor,
+            Integer limit) {
+        sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        return pointStream.ndjson(sessionId, from, to, cursor, limit);
     }
 
-    private List<TrackingDtos.PointRow> map(List<TrackingPointEntity> points) {
-        return points.stream().map(p -> {
-            Point g = p.getPoint();
-            double lon = g.getX();
-            double lat = g.getY();
-            return new TrackingDtos.PointRow(
-                    p.getDeviceTimestamp(),
-                    lat,
-                    lon,
-                    p.getAccuracyM(),
-                    p.getSpeedMps(),
-                    p.getHeadingDeg());
-        }).toList();
+    public StreamingResponseBody streamSessionPointsForUser(UUID sessionId,
+            UUID userId,
+            boolean isAdmin,
+            Instant from,
+            Instant to,
+            String cursor,
+            Integer limit) {
+        TrackingSessionEntity session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+
+        if (!isAdmin && !session.getUser().getId().equals(userId)) {
+            throw new ForbiddenException("Session does not belong to user");
+        }
+        return pointStream.ndjson(sessionId, from, to, cursor, limit);
     }
 
-    private int resolveMax(Integer maxPoints) {
-        int max = (maxPoints == null || maxPoints <= 0) ? props.defaultMaxPoints() : maxPoints;
-        return Math.min(max, props.hardLimitPoints());
+    private TrackingDtos.TrackResponse readTrack(UUID sessionId, Integer zoom, Double toleranceM,
+            Instant from, Instant to) {
+        SessionSummaryEntity summary = summaryRepository.findById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Track not built yet: " + sessionId));
+
+        List<TrackingDtos.TrackSegment> segments = new ArrayList<>();
+        Integer level = null;
+        Double epsilonM = null;
+        for (TrackPyramid.Segment s : lodStore.find(sessionId, resolveTolerance(zoom, toleranceM, summary), from, to)) {
+            level = s.level();
+            epsilonM = s.epsilonM();
+            segments.add(new TrackingDtos.TrackSegment(s.index(), instant(s.startMicros()), instant(s.endMicros()),
+                    s.pointsCount(), s.polyline()));
+        }
+        return new TrackingDtos.TrackResponse(level, epsilonM, segments);
     }
 
-    private List<TrackingPointEntity> downsampleByStep(List<TrackingPointEntity> points, int max) {
-        if (max <= 0 || points.size() <= max)
-            return points;
-        int step = (int) Math.ceil(points.size() / (double) max);
-        List<TrackingPointEntity> out = new ArrayList<>(max + 2);
-        for (int i = 0; i < points.size(); i += step) {
-            out.add(points.get(i));
+    // explicit tolerance wins; zoom means one screen pixel at the track's latitude; neither = finest level
+    private static double resolveTolerance(Integer zoom, Double toleranceM, SessionSummaryEntity summary) {
+        if (toleranceM != null) {
+            if (toleranceM < 0 || toleranceM.isNaN()) {
+                throw new BadRequestException("toleranceM must not be negative");
+            }
+            return toleranceM;
         }
-        if (out.getLast() != points.getLast()) {
-            out.add(points.getLast());
+        if (zoom == null)
+            return 0;
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new BadRequestException("zoom must be between 0 and " + MAX_ZOOM);
         }
-        return out;
+        double lat = summary.getBboxMinLat() != null && summary.getBboxMaxLat() != null
+                ? (summary.getBboxMinLat() + summary.getBboxMaxLat()) / 2
+                : 0;
+        return METERS_PER_PIXEL_Z0 * Math.cos(Math.toRadians(lat)) / (1L << zoom);
     }
 
-    private List<TrackingPointEntity> simplifyRdp(List<TrackingPointEntity> points, double epsilonMeters) {
-        if (points == null || points.size() < 3)
-            return points;
+    private static Instant instant(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
 
-        int n = points.size();
-        double lat0 = points.getFirst().getPoint().getY();
+    private void checkHardLimit(long total) {
+        if (total > props.hardLimitPoints()) {
+            throw new BadRequestException("Too many points (" + total + "). Use /summary polyline instead.");
+        }
+    }
 
-        boolean[] keep = new boolean[n];
-        keep[0] = true;
-        keep[n - 1] = true;
+    private int resolveMax(Integer maxPoints) {
+        int max = (maxPoints == null || maxPoints <= 0) ? props.defaultMaxPoints() : maxPoints;
+        return Math.min(max, props.hardLimitPoints());
+    }
 
-        rdp(points, 0, n - 1, epsilonMeters, keep, lat0);
+    // RDP first; if the shape still needs more than max points, Visvalingam-Whyatt drops the least visible ones
+    private List<TrackingDtos.PointRow> simplify(List<TrackingDtos.PointRow> points, double epsilonMeters, int max) {
+        List<TrackingDtos.PointRow> out = select(points,
+                TrackSimplifier.rdp(lats(points), lons(points), points.size(), epsilonMeters));
+        if (out.size() <= max)
+            return out;
+        return select(out, TrackSimplifier.visvalingam(lats(out), lons(out), out.size(), max));
+    }
 
-        List<TrackingPointEntity> out = new ArrayList<>();
-        for (int i = 0; i < n; i++) {
+    private static List<TrackingDtos.PointRow> select(List<TrackingDtos.PointRow> points, boolean[] keep) {
+        List<TrackingDtos.PointRow> out = new ArrayList<>();
+        for (int i = 0; i < keep.length; i++) {
             if (keep[i])
                 out.add(points.get(i));
         }
         return out;
     }
 
-    private void rdp(List<TrackingPointEntity> points, int start, int end, double eps, boolean[] keep, double lat0) {
-        if (end <= start + 1)
-            return;
-
-        double maxDist = -1;
-        int index = -1;
-
-        var aPoint = points.get(start).getPoint();
-        var bPoint = points.get(end).getPoint();
-        var a = GeoMath.project(aPoint.getY(), aPoint.getX(), lat0);
-        var b = GeoMath.project(bPoint.getY(), bPoint.getX(), lat0);
-
-        for (int i = start + 1; i < end; i++) {
-            var pPoint = points.get(i).getPoint();
-            var p = GeoMath.project(pPoint.getY(), pPoint.getX(), lat0);
-            double d = perpendicularDistance(p.x(), p.y(), a.x(), a.y(), b.x(), b.y());
-            if (d > maxDist) {
-                maxDist = d;
-                index = i;
-            }
-        }
-
-        if (maxDist > eps && index != -1) {
-            keep[index] = true;
-            rdp(points, start, index, eps, keep, lat0);
-            rdp(points, index, end, eps, keep, lat0);
-        }
+    private static double[] lats(List<TrackingDtos.PointRow> points) {
+        return points.stream().mapToDouble(TrackingDtos.PointRow::lat).toArray();
     }
 
-    private double perpendicularDistance(double px, double py, double ax, double ay, double bx, double by) {
-        double dx = bx - ax;
-        double dy = by - ay;
-        if (dx == 0 && dy == 0) {
-            double ex = px - ax;
-            double ey = py - ay;
-            return Math.sqrt(ex * ex + ey * ey);
-        }
-        double t = ((px - ax) * dx + (py - ay) * dy) / (dx * dx + dy * dy);
-        t = Math.max(0, Math.min(1, t));
-        double cx = ax + t * dx;
-        double cy = ay + t * dy;
-        double ex = px - cx;
-        double ey = py - cy;
-        return Math.sqrt(ex * ex + ey * ey);
+    private static double[] lons(List<TrackingDtos.PointRow> points) {
+        return points.stream().mapToDouble(TrackingDtos.PointRow::lon).toArray();
     }
 }
@@ -0,0 +1,107 @@
+package com.rhaen.tracker.feature.tracking.history;
+
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Picks history points inside Postgres, so only the selected rows (about {@code max}) leave the
+ * database whatever the session length. The range total comes back from the same statement: a
+ * count over idx_points_session_device_ts, then a row_number() pass over the range that keeps
+ * the wanted row numbers. Ranges above {@code hardLimitPoints} are not scanned at all, only counted.
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionPointSampler {
+
+    private final JdbcTemplate jdbc;
+    private final TrackingHistoryProperties props;
+
+    /** Selected points in device time order and the number of points in the whole range */
+    public record Sample(List<TrackingDtos.PointRow> points, long total) {}
+
+    /** Every ceil(total / max)-th point plus the last one (same selection as the old in-memory step) */
+    public Sample everyNth(UUID sessionId, Instant from, Instant to, int max) {
+        return query(sessionId, from, to,
+                "(r.rn - 1) % GREATEST(1, CEIL(n.total / ?::numeric))::bigint = 0 OR r.rn = n.total", max);
+    }
+
+    /** The first {@code max} points of the range */
+    public Sample first(UUID sessionId, Instant from, Instant to, int max) {
+        return query(sessionId, from, to, "r.rn <= ?", max);
+    }
+
+    private Sample query(UUID sessionId, Instant from, Instant to, String keep, int max) {
+        StringBuilder range = new StringBuilder();
+        List<Object> rangeArgs = new ArrayList<>();
+        rangeArgs.add(sessionId);
+        if (from != null) {
+            range.append(" AND device_timestamp >= ?");
+            rangeArgs.add(from.atOffset(ZoneOffset.UTC));
+        }
+        if (to != null) {
+            range.append(" AND device_timestamp <= ?");
+            rangeArgs.add(to.atOffset(ZoneOffset.UTC));
+        }
+
+        // LEFT JOIN keeps the total row for an empty (or over the limit) range;
+        // lat/lon are extracted only for the kept rows
+        String sql = """
+                WITH n AS (
+                    SELECT count(*) AS total
+                      FROM tracking_points
+                     WHERE session_id = ?%1$s
+                )
+                SELECT n.total, p.device_timestamp,
+                       ST_Y(p.point::geometry) AS lat, ST_X(p.point::geometry) AS lon,
+                       p.accuracy_m, p.speed_mps, p.heading_deg
+                  FROM n
+                  LEFT JOIN LATERAL (
+                        SELECT r.*
+                          FROM (SELECT device_timestamp, point, accuracy_m, speed_mps, heading_deg,
+                                       row_number() OVER (ORDER BY device_timestamp, id) AS rn
+                                  FROM tracking_points
+                                 WHERE session_id = ?%1$s) r
+                         WHERE n.total <= ? AND (%2$s)
+                  ) p ON true
+                 ORDER BY p.rn
+                """.formatted(range, keep);
+
+        List<Object> args = new ArrayList<>(rangeArgs);
+        args.addAll(rangeArgs);
+        args.add(props.hardLimitPoints());
+        args.add(max);
+
+        List<TrackingDtos.PointRow> points = new ArrayList<>();
+        long[] total = {0};
+        jdbc.query(sql, rs -> {
+            total[0] = rs.getLong("total");
+            OffsetDateTime ts = rs.getObject("device_timestamp", OffsetDateTime.class);
+            if (ts != null) {
+                points.add(new TrackingDtos.PointRow(
+                        ts.toInstant(),
+                        rs.getDouble("lat"),
+                        rs.getDouble("lon"),
+                        nullableFloat(rs, "accuracy_m"),
+                        nullableFloat(rs, "speed_mps"),
+                        nullableFloat(rs, "heading_deg")));
+            }
+        }, args.toArray());
+        return new Sample(points, total[0]);
+    }
+
+    private static Float nullableFloat(ResultSet rs, String column) throws SQLException {
+        float v = rs.getFloat(column);
+        return rs.wasNull() ? null : v;
+    }
+}
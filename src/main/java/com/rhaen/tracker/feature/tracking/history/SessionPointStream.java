@@ -0,0 +1,189 @@
+package com.rhaen.tracker.feature.tracking.history;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Session points as NDJSON, read through a forward-only cursor and written row by row, so heap use
+ * does not depend on session size (no hard limit here). One JSON object per line, same fields as
+ * {@code PointRow}; the last line is always {@code {"next": token|null}}.
+ * <p>
+ * Keyset paging on (device_timestamp, id): with {@code limit}, {@code next} is an opaque token to
+ * pass back as {@code cursor}; it stays valid while points are inserted or pruned meanwhile.
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionPointStream {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    private static final int DEFAULT_FETCH_SIZE = 5_000;
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final TrackingHistoryProperties props;
+
+    /**
+     * Validates the arguments now (errors become a normal 400) and returns the body that streams later
+     * on the async request thread. The DB connection is held while the client reads.
+     */
+    public StreamingResponseBody ndjson(UUID sessionId, Instant from, Instant to, String cursor, Integer limit) {
+        Keyset after = cursor != null && !cursor.isBlank() ? Keyset.decode(cursor) : null;
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be positive");
+        }
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT id, device_timestamp,
+                       ST_Y(point::geometry) AS lat, ST_X(point::geometry) AS lon,
+                       accuracy_m, speed_mps, heading_deg
+                  FROM tracking_points
+                 WHERE session_id = ?
+                """);
+        List<Object> args = new ArrayList<>();
+        args.add(sessionId);
+        if (from != null) {
+            sql.append(" AND device_timestamp >= ?");
+            args.add(from.atOffset(ZoneOffset.UTC));
+        }
+        if (to != null) {
+            sql.append(" AND device_timestamp <= ?");
+            args.add(to.atOffset(ZoneOffset.UTC));
+        }
+        if (after != null) {
+            sql.append(" AND (device_timestamp, id) > (?, ?)");
+            args.add(after.ts().atOffset(ZoneOffset.UTC));
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY device_timestamp, id");
+        if (limit != null) {
+            // one extra row tells whether there is a next page
+            sql.append(" LIMIT ?");
+            args.add(limit + 1);
+        }
+
+        return out -> {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true); // Postgres only honours the fetch size inside a transaction
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null)) {
+                RowWriter writer = new RowWriter(json, limit);
+                tx.executeWithoutResult(status -> jdbc.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql.toString(),
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize());
+                    for (int i = 0; i < args.size(); i++) {
+                        ps.setObject(i + 1, args.get(i));
+                    }
+                    return ps;
+                }, writer::row));
+                writer.finish();
+            }
+        };
+    }
+
+    private int fetchSize() {
+        return props.streamFetchSize() > 0 ? props.streamFetchSize() : DEFAULT_FETCH_SIZE;
+    }
+
+    private static final class RowWriter {
+        private final JsonGenerator json;
+        private final Integer limit;
+        private int written;
+        private boolean more;
+        private Keyset last;
+
+        RowWriter(JsonGenerator json, Integer limit) {
+            this.json = json;
+            this.limit = limit;
+        }
+
+        void row(ResultSet rs) throws SQLException {
+            if (limit != null && written == limit) {
+                more = true;
+                return;
+            }
+            Instant ts = rs.getObject("device_timestamp", OffsetDateTime.class).toInstant();
+            long id = rs.getLong("id");
+            try {
+                json.writeStartObject();
+                json.writeStringField("ts", ts.toString());
+                json.writeNumberField("lat", rs.getDouble("lat"));
+                json.writeNumberField("lon", rs.getDouble("lon"));
+                writeNullableFloat("accuracyM", rs, "accuracy_m");
+                writeNullableFloat("speedMps", rs, "speed_mps");
+                writeNullableFloat("headingDeg", rs, "heading_deg");
+                json.writeEndObject();
+                json.writeRaw('\n');
+            } catch (IOException e) {
+                // client went away: abort the query, the transaction rolls back
+                throw new UncheckedIOException(e);
+            }
+            written++;
+            last = new Keyset(ts, id);
+        }
+
+        void finish() throws IOException {
+            json.writeStartObject();
+            json.writeStringField("next", more ? last.encode() : null);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        private void writeNullableFloat(String field, ResultSet rs, String column) throws SQLException, IOException {
+            float v = rs.getFloat(column);
+            if (rs.wasNull()) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, v);
+            }
+        }
+    }
+
+    /** Continuation point: last (device_timestamp, id) sent, base64url of "epochMicros:id" */
+    record Keyset(Instant ts, long id) {
+
+        String encode() {
+            long micros = ChronoUnit.MICROS.between(Instant.EPOCH, ts);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((micros + ":" + id).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static Keyset decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+                int sep = raw.indexOf(':');
+                long micros = Long.parseLong(raw.substring(0, sep));
+                return new Keyset(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor: " + token);
+            }
+        }
+    }
+}
@@ -5,5 +5,6 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "app.tracking.history")
 public record TrackingHistoryProperties(
         int defaultMaxPoints,
-        int hardLimitPoints
+        int hardLimitPoints,
+        int streamFetchSize
 ) {}
@@ -0,0 +1,24 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Cross-batch eventId dedup (before the insert).
+ * windowPoints: recent eventIds remembered per session; maxSessions/idleSeconds bound the memory.
+ * Heap is about 32 B per window point per session (two generations of 16 B ids at load factor 0.5),
+ * so the defaults cap it near 10_000 * 128 * 32 B = 40 MB. 128 keeps at least the last 64 ids, more than
+ * one full batch at the default max-batch-size (50).
+ */
+@ConfigurationProperties(prefix = "app.tracking.ingest.dedup")
+public record IngestDedupProperties(
+        boolean enabled,
+        int windowPoints,
+        long maxSessions,
+        long idleSeconds
+) {
+    public IngestDedupProperties {
+        if (windowPoints <= 0) windowPoints = 128;
+        if (maxSessions <= 0) maxSessions = 10_000;
+        if (idleSeconds <= 0) idleSeconds = 600;
+    }
+}
@@ -0,0 +1,319 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded in-memory ingest buffer (write-behind mode).
+ * Request thread only enqueues validated points; dedicated writers drain the queue and insert
+ * rows from many sessions in one grouped batch. Capacity is counted in points.
+ * The queue is not durable: points a client got 200 for are lost if the node crashes before they
+ * are flushed (a clean shutdown drains it).
+ * Points are queued only when the ingest transaction commits. A flush that fails because the DB is
+ * unreachable puts them back (still holding capacity, so an outage turns into 503s instead of
+ * silently lost points). Any other failure is treated as bad data: the group is retried one request
+ * at a time and a request still failing after maxAttempts is dropped (logged, counted), so one bad
+ * row cannot block every writer. The insert itself skips sessions that are no longer ACTIVE.
+ * Their eventIds go to {@link RecentEventIdFilter} once inserted: until then a retried batch is
+ * queued again and settled by ON CONFLICT.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.tracking.ingest.write-behind", name = "enabled", havingValue = "true")
+public class IngestWriteBehindBuffer {
+
+    private static final Comparator<TrackingPointIngestRepository.SessionPointRow> INSERT_ORDER =
+            Comparator.comparing(TrackingPointIngestRepository.SessionPointRow::sessionId)
+                    .thenComparing(r -> r.point().deviceTimestamp());
+
+    private final TrackingPointIngestRepository ingestRepository;
+    private final RecentEventIdFilter recentEventIdFilter;
+    private final TrackingIngestProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private final LinkedBlockingDeque<PendingBatch> queue = new LinkedBlockingDeque<>();
+    private final ConcurrentHashMap<UUID, SessionPending> pendingBySession = new ConcurrentHashMap<>();
+
+    private Semaphore capacity;
+    private ExecutorService writers;
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    private Counter rejectedPoints;
+    private Counter insertedPoints;
+    private Counter retriedPoints;
+    private Counter droppedPoints;
+    private Timer flushTimer;
+    private DistributionSummary flushSize;
+
+    @PostConstruct
+    void start() {
+        var cfg = props.writeBehind();
+        capacity = new Semaphore(cfg.capacityPoints());
+
+        Gauge.builder("tracker.ingest.buffer.points", this, IngestWriteBehindBuffer::queuedPoints)
+                .description("Points waiting in write-behind buffer")
+                .register(meterRegistry);
+        Gauge.builder("tracker.ingest.buffer.capacity", cfg, c -> (double) c.capacityPoints())
+                .register(meterRegistry);
+        rejectedPoints = meterRegistry.counter("tracker.ingest.buffer.rejected.total");
+        insertedPoints = meterRegistry.counter("tracker.ingest.points.inserted.total");
+        retriedPoints = meterRegistry.counter("tracker.ingest.buffer.retried.total");
+        droppedPoints = meterRegistry.counter("tracker.ingest.buffer.dropped.total");
+        flushTimer = Timer.builder("tracker.ingest.flush.duration")
+                .description("Write-behind flush duration")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        flushSize = DistributionSummary.builder("tracker.ingest.flush.points")
+                .description("Points per write-behind flush")
+                .register(meterRegistry);
+
+        accepting = true;
+        running = true;
+        writers = Executors.newFixedThreadPool(cfg.writers(), Thread.ofPlatform().name("ingest-writer-", 0).factory());
+        for (int i = 0; i < cfg.writers(); i++) {
+            writers.submit(this::writerLoop);
+        }
+    }
+
+    /**
+     * Reserves capacity now; inside a transaction the points are queued only after commit
+     * (released on rollback), so a failed request never leaves rows behind.
+     * @return false if buffer is full (caller should reply 503) or shutting down
+     */
+    public boolean offer(UUID sessionId, Instant receivedAt, PointColumns points) {
+        int size = points.size();
+        if (size == 0) return true;
+        if (!accepting || !capacity.tryAcquire(size)) {
+            rejectedPoints.increment(size);
+            return false;
+        }
+        PendingBatch batch = new PendingBatch(sessionId, receivedAt, points, points.toRows(), new AtomicInteger());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(batch);
+                    } else {
+                        capacity.release(size);
+                    }
+                }
+            });
+        } else {
+            enqueue(batch);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the points of the session queued so far are flushed (stop calls it before its
+     * transaction opens, so no connection is held while waiting)
+     */
+    public boolean awaitSession(UUID sessionId, long timeoutMs) {
+        SessionPending pending = pendingBySession.get(sessionId);
+        if (pending == null) return true;
+        try {
+            if (pending.flushed.await(timeoutMs, TimeUnit.MILLISECONDS)) return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        log.warn("Write-behind points of session {} not flushed within {} ms", sessionId, timeoutMs);
+        return false;
+    }
+
+    public double queuedPoints() {
+        return props.writeBehind().capacityPoints() - capacity.availablePermits();
+    }
+
+    private void writerLoop() {
+        var cfg = props.writeBehind();
+        List<PendingBatch> drained = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingBatch first = queue.poll(cfg.flushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                // Under load the queue grows between flushes, so batches grow with it
+                drained.add(first);
+                int points = first.rows().size();
+                PendingBatch next;
+                while (points < cfg.flushBatchPoints() && (next = queue.poll()) != null) {
+                    drained.add(next);
+                    points += next.rows().size();
+                }
+                if (!flush(drained, points)) {
+                    // Back off before the failed group goes again
+                    Thread.sleep(cfg.flushIntervalMs());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.error("Write-behind writer loop error", ex);
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    /** @return false if an insert failed and batches went back to the head of the queue */
+    private boolean flush(List<PendingBatch> batches, int points) {
+        List<TrackingPointIngestRepository.SessionPointRow> rows = new ArrayList<>(points);
+        for (PendingBatch b : batches) {
+            for (var r : b.rows()) {
+                rows.add(new TrackingPointIngestRepository.SessionPointRow(b.sessionId(), b.receivedAt(), r));
+            }
+        }
+        // Group by session so each session's rows hit the same index pages together
+        rows.sort(INSERT_ORDER);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            insertedPoints.increment(ingestRepository.insertRows(rows));
+            flushSize.record(points);
+        } catch (Exception ex) {
+            sample.stop(flushTimer);
+            return failed(batches, points, ex);
+        }
+        sample.stop(flushTimer);
+        capacity.release(points);
+        for (PendingBatch b : batches) {
+            recentEventIdFilter.remember(b.sessionId(), b.points());
+            flushed(b);
+        }
+        return true;
+    }
+
+    /**
+     * Clients already got 200: keep the points (and their capacity) and try again, ON CONFLICT DO NOTHING
+     * makes a retry safe. Only a failure that is not the DB being unreachable counts as an attempt.
+     */
+    private boolean failed(List<PendingBatch> batches, int points, Exception ex) {
+        if (unreachable(ex)) {
+            log.warn("Write-behind flush of {} points failed, will retry: {}", points, ex.toString());
+            putBack(batches, points);
+            return false;
+        }
+        if (batches.size() > 1) {
+            // Isolate the bad rows: every request's points on their own
+            log.warn("Write-behind flush of {} points from {} requests failed, retrying one by one: {}",
+                    points, batches.size(), ex.toString());
+            boolean ok = true;
+            for (PendingBatch b : batches) {
+                ok &= flush(List.of(b), b.rows().size());
+            }
+            return ok;
+        }
+        PendingBatch batch = batches.get(0);
+        if (batch.attempts().incrementAndGet() < props.writeBehind().maxAttempts()) {
+            log.warn("Write-behind insert of {} points of session {} failed (attempt {}), will retry: {}",
+                    points, batch.sessionId(), batch.attempts().get(), ex.toString());
+            putBack(batches, points);
+            return false;
+        }
+        log.error("Write-behind: dropping {} points of session {} after {} failed inserts",
+                points, batch.sessionId(), batch.attempts().get(), ex);
+        droppedPoints.increment(points);
+        capacity.release(points);
+        flushed(batch);
+        return true;
+    }
+
+    private void putBack(List<PendingBatch> batches, int points) {
+        retriedPoints.increment(points);
+        for (int i = batches.size() - 1; i >= 0; i--) {
+            queue.addFirst(batches.get(i));
+        }
+    }
+
+    private static boolean unreachable(Exception ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof DataAccessResourceFailureException;
+    }
+
+    private void enqueue(PendingBatch batch) {
+        pendingBySession.compute(batch.sessionId(), (id, p) -> {
+            SessionPending next = p != null ? p : new SessionPending();
+            next.points += batch.rows().size();
+            return next;
+        });
+        queue.add(batch);
+    }
+
+    private void flushed(PendingBatch batch) {
+        pendingBySession.computeIfPresent(batch.sessionId(), (id, p) -> {
+            p.points -= batch.rows().size();
+            if (p.points > 0) return p;
+            p.flushed.countDown();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        accepting = false;
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(props.writeBehind().shutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+            log.warn("Write-behind writers did not finish within {}s", props.writeBehind().shutdownTimeoutSeconds());
+            writers.shutdownNow();
+        }
+
+        // Batches enqueued while writers were stopping, or still failing: last attempt
+        List<PendingBatch> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        int points = rest.stream().mapToInt(b -> b.rows().size()).sum();
+        if (!rest.isEmpty() && !flush(rest, points)) {
+            int left = queue.stream().mapToInt(b -> b.rows().size()).sum();
+            log.error("Write-behind shutdown: dropping {} points that could not be inserted", left);
+            droppedPoints.increment(left);
+            queue.clear();
+        }
+    }
+
+    /** Points of one session waiting in the queue; the latch opens when they are all inserted */
+    private static final class SessionPending {
+        private final CountDownLatch flushed = new CountDownLatch(1);
+        private int points;
+    }
+
+    private record PendingBatch(
+            UUID sessionId,
+            Instant receivedAt,
+            PointColumns points,
+            List<TrackingPointIngestRepository.IngestPointRow> rows,
+            AtomicInteger attempts // failed inserts of this request on its own
+    ) {}
+}
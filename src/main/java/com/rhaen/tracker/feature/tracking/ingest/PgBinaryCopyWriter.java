@@ -0,0 +1,101 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Minimal writer for PostgreSQL binary COPY format (COPY ... FROM STDIN (FORMAT binary)).
+ * Only the column types used by tracking_points stage table are supported.
+ */
+final class PgBinaryCopyWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    /** 2000-01-01T00:00:00Z (Postgres epoch) in unix microseconds */
+    private static final long PG_EPOCH_MICROS = 946_684_800_000_000L;
+
+    private final DataOutputStream out;
+
+    PgBinaryCopyWriter(OutputStream target) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        out.write(SIGNATURE);
+        out.writeInt(0); // flags
+        out.writeInt(0); // header extension length
+    }
+
+    void startRow(int columns) throws IOException {
+        out.writeShort(columns);
+    }
+
+    void writeUuid(UUID value) throws IOException {
+        writeUuid(value.getMostSignificantBits(), value.getLeastSignificantBits());
+    }
+
+    void writeUuid(long msb, long lsb) throws IOException {
+        out.writeInt(16);
+        out.writeLong(msb);
+        out.writeLong(lsb);
+    }
+
+    void writeTimestamptz(Instant value) throws IOException {
+        writeTimestamptzMicros(PointColumns.toMicros(value));
+    }
+
+    /** @param unixMicros microseconds since 1970-01-01T00:00:00Z */
+    void writeTimestamptzMicros(long unixMicros) throws IOException {
+        out.writeInt(8);
+        out.writeLong(unixMicros - PG_EPOCH_MICROS);
+    }
+
+    void writeFloat8(double value) throws IOException {
+        out.writeInt(8);
+        out.writeDouble(value);
+    }
+
+    void writeFloat4(Float value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(4);
+        out.writeFloat(value);
+    }
+
+    /** NaN is written as NULL (PointColumns' "absent" marker) */
+    void writeFloat4OrNull(float value) throws IOException {
+        if (Float.isNaN(value)) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(4);
+        out.writeFloat(value);
+    }
+
+    void writeText(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    void writeBool(boolean value) throws IOException {
+        out.writeInt(1);
+        out.writeByte(value ? 1 : 0);
+    }
+
+    /** Writes the file trailer and ends the COPY (closing the underlying stream) */
+    @Override
+    public void close() throws IOException {
+        out.writeShort(-1);
+        out.close();
+    }
+}
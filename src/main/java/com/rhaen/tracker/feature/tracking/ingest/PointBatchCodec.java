@@ -0,0 +1,289 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.common.exception.BadRequestException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary point batch ({@value #MEDIA_TYPE}), decoded straight into {@link PointColumns}.
+ * <pre>
+ * u8       version (1)
+ * uvarint  provider count, then per provider: uvarint length + UTF-8 bytes (max 16)
+ * uvarint  point count
+ * svarint  base timestamp (epoch ms)
+ * per point:
+ *   u8       flags: 0x01 accuracy, 0x02 speed, 0x04 heading, 0x08 provider, 0x10 mock
+ *   16 B     eventId (big-endian msb, lsb)
+ *   svarint  timestamp delta ms (from previous point, first from base)
+ *   svarint  lat E7 delta, lon E7 delta (from previous point, first from 0)
+ *   uvarint  accuracy (0.1 m)     if flag 0x01, max 100000 (10 km)
+ *   uvarint  speed (0.01 m/s)     if flag 0x02, max 100000 (1000 m/s)
+ *   uvarint  heading (0.1 deg)    if flag 0x04, max 3600
+ *   uvarint  provider index       if flag 0x08
+ * </pre>
+ * svarint = zigzag + LEB128 varint. A typical 1 Hz point is ~25 bytes vs ~230 bytes of JSON.
+ */
+public final class PointBatchCodec {
+
+    public static final String MEDIA_TYPE = "application/x-tracker-points";
+
+    static final int VERSION = 1;
+
+    private static final int F_ACCURACY = 0x01;
+    private static final int F_SPEED = 0x02;
+    private static final int F_HEADING = 0x04;
+    private static final int F_PROVIDER = 0x08;
+    private static final int F_MOCK = 0x10;
+
+    private static final int MIN_POINT_BYTES = 1 + 16 + 3;
+    private static final int MAX_PROVIDER_BYTES = 16;
+    private static final int MAX_PROVIDERS = 32;
+    private static final long MAX_ACCURACY_DM = 100_000;
+    private static final long MAX_SPEED_CMPS = 100_000;
+    private static final long MAX_HEADING_DDEG = 3600;
+
+    private PointBatchCodec() {}
+
+    /**
+     * Decodes and validates a batch (same rules as LocationPoint bean validation).
+     * @param maxPoints declared point counts above this are rejected before anything is allocated
+     * @throws BadRequestException on malformed or invalid input
+     */
+    public static PointColumns decode(byte[] body, Instant now, int maxPoints) {
+        Reader r = new Reader(body);
+        int version = r.u8();
+        if (version != VERSION) {
+            throw new BadRequestException("Unsupported points format version: " + version);
+        }
+
+        int providerCount = r.count(MAX_PROVIDERS, "provider count");
+        List<String> providers = new ArrayList<>(providerCount);
+        for (int i = 0; i < providerCount; i++) {
+            int len = r.count(MAX_PROVIDER_BYTES, "provider length");
+            providers.add(r.utf8(len));
+        }
+
+        long declared = r.uvarint();
+        if (Long.compareUnsigned(declared, maxPoints) > 0) {
+            throw new BadRequestException("Too many points in one request: " + Long.toUnsignedString(declared)
+                    + ". Max is " + maxPoints);
+        }
+        int count = (int) declared;
+        if (count > r.remaining() / MIN_POINT_BYTES) {
+            throw new BadRequestException("Invalid point count: " + count);
+        }
+        if (count == 0) {
+            throw new BadRequestException("points must not be empty");
+        }
+
+        long nowMicros = PointColumns.toMicros(now);
+        PointColumns c = new PointColumns(count, providers);
+        long tsMs = r.svarint();
+        long latE7 = 0;
+        long lonE7 = 0;
+        for (int i = 0; i < count; i++) {
+            int flags = r.u8();
+            c.eventIdMsb[i] = r.i64();
+            c.eventIdLsb[i] = r.i64();
+
+            try {
+                tsMs = Math.addExact(tsMs, r.svarint());
+                latE7 = Math.addExact(latE7, r.svarint());
+                lonE7 = Math.addExact(lonE7, r.svarint());
+                c.deviceTsMicros[i] = Math.multiplyExact(tsMs, 1_000L);
+            } catch (ArithmeticException ex) {
+                throw new BadRequestException("Point " + i + ": timestamp or coordinate delta overflows");
+            }
+            if (latE7 < -900_000_000L || latE7 > 900_000_000L || lonE7 < -1_800_000_000L || lonE7 > 1_800_000_000L) {
+                throw new BadRequestException("Point " + i + ": coordinates out of range");
+            }
+            if (c.deviceTsMicros[i] > nowMicros) {
+                throw new BadRequestException("Point " + i + ": deviceTimestamp cannot be in future");
+            }
+            c.lat[i] = latE7 / 1e7;
+            c.lon[i] = lonE7 / 1e7;
+
+            // unsigned compare: a varint >= 2^63 reads as a negative long
+            if ((flags & F_ACCURACY) != 0) {
+                long accuracy = r.uvarint();
+                if (Long.compareUnsigned(accuracy, MAX_ACCURACY_DM) > 0) {
+                    throw new BadRequestException("Point " + i + ": accuracyM must be <= 10000");
+                }
+                c.accuracyM[i] = accuracy / 10f;
+            } else {
+                c.accuracyM[i] = Float.NaN;
+            }
+            if ((flags & F_SPEED) != 0) {
+                long speed = r.uvarint();
+                if (Long.compareUnsigned(speed, MAX_SPEED_CMPS) > 0) {
+                    throw new BadRequestException("Point " + i + ": speedMps must be <= 1000");
+                }
+                c.speedMps[i] = speed / 100f;
+            } else {
+                c.speedMps[i] = Float.NaN;
+            }
+            if ((flags & F_HEADING) != 0) {
+                long heading = r.uvarint();
+                if (Long.compareUnsigned(heading, MAX_HEADING_DDEG) > 0) {
+                    throw new BadRequestException("Point " + i + ": headingDeg must be <= 360");
+                }
+                c.headingDeg[i] = heading / 10f;
+            } else {
+                c.headingDeg[i] = Float.NaN;
+            }
+            c.providerIdx[i] = (flags & F_PROVIDER) != 0
+                    ? (short) r.count(providerCount - 1, "provider index")
+                    : -1;
+            c.mock[i] = (flags & F_MOCK) != 0;
+        }
+
+        if (r.remaining() != 0) {
+            throw new BadRequestException("Trailing bytes after " + count + " points");
+        }
+        return c;
+    }
+
+    /** Reference encoder (clients, tests, benchmarks). Lat/lon are rounded to E7, timestamps to ms. */
+    public static byte[] encode(PointColumns c) {
+        Writer w = new Writer(32 + c.size() * 28);
+        w.u8(VERSION);
+        w.uvarint(c.providers.size());
+        for (String p : c.providers) {
+            byte[] b = p.getBytes(StandardCharsets.UTF_8);
+            w.uvarint(b.length);
+            w.bytes(b);
+        }
+        w.uvarint(c.size());
+
+        long baseMs = c.size() > 0 ? Math.floorDiv(c.deviceTsMicros[0], 1_000L) : 0;
+        w.svarint(baseMs);
+        long prevMs = baseMs;
+        long prevLat = 0;
+        long prevLon = 0;
+        for (int i = 0; i < c.size(); i++) {
+            boolean hasAccuracy = !Float.isNaN(c.accuracyM[i]);
+            boolean hasSpeed = !Float.isNaN(c.speedMps[i]);
+            boolean hasHeading = !Float.isNaN(c.headingDeg[i]);
+            boolean hasProvider = c.providerIdx[i] >= 0;
+            w.u8((hasAccuracy ? F_ACCURACY : 0) | (hasSpeed ? F_SPEED : 0) | (hasHeading ? F_HEADING : 0)
+                    | (hasProvider ? F_PROVIDER : 0) | (c.mock[i] ? F_MOCK : 0));
+            w.i64(c.eventIdMsb[i]);
+            w.i64(c.eventIdLsb[i]);
+
+            long ms = Math.floorDiv(c.deviceTsMicros[i], 1_000L);
+            long lat = Math.round(c.lat[i] * 1e7);
+            long lon = Math.round(c.lon[i] * 1e7);
+            w.svarint(ms - prevMs);
+            w.svarint(lat - prevLat);
+            w.svarint(lon - prevLon);
+            prevMs = ms;
+            prevLat = lat;
+            prevLon = lon;
+
+            if (hasAccuracy) w.uvarint(Math.round(c.accuracyM[i] * 10));
+            if (hasSpeed) w.uvarint(Math.round(c.speedMps[i] * 100));
+            if (hasHeading) w.uvarint(Math.round(c.headingDeg[i] * 10));
+            if (hasProvider) w.uvarint(c.providerIdx[i]);
+        }
+        return w.toByteArray();
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int remaining() {
+            return buf.length - pos;
+        }
+
+        int u8() {
+            need(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        long i64() {
+            need(8);
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        long uvarint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new BadRequestException("Malformed varint at byte " + pos);
+        }
+
+        long svarint() {
+            long v = uvarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        int count(int max, String what) {
+            long v = uvarint();
+            if (v < 0 || v > max) {
+                throw new BadRequestException("Invalid " + what + ": " + v);
+            }
+            return (int) v;
+        }
+
+        String utf8(int len) {
+            need(len);
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        private void need(int n) {
+            if (remaining() < n) {
+                throw new BadRequestException("Truncated points body at byte " + pos);
+            }
+        }
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+        Writer(int size) {
+            super(size);
+        }
+
+        void u8(int v) {
+            write(v);
+        }
+
+        void i64(long v) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (v >>> shift));
+            }
+        }
+
+        void uvarint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void svarint(long v) {
+            uvarint((v << 1) ^ (v >> 63));
+        }
+
+        void bytes(byte[] b) {
+            write(b, 0, b.length);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+/**
+ * Column-oriented point batch (one primitive array per field) shared by JSON and binary ingest.
+ * Absent optional floats are NaN, absent provider is -1.
+ */
+public final class PointColumns {
+
+    private final int size;
+    final long[] eventIdMsb;
+    final long[] eventIdLsb;
+    final long[] deviceTsMicros;
+    final double[] lat;
+    final double[] lon;
+    final float[] accuracyM;
+    final float[] speedMps;
+    final float[] headingDeg;
+    final short[] providerIdx;
+    final List<String> providers;
+    final boolean[] mock;
+
+    PointColumns(int size, List<String> providers) {
+        this.size = size;
+        this.eventIdMsb = new long[size];
+        this.eventIdLsb = new long[size];
+        this.deviceTsMicros = new long[size];
+        this.lat = new double[size];
+        this.lon = new double[size];
+        this.accuracyM = new float[size];
+        this.speedMps = new float[size];
+        this.headingDeg = new float[size];
+        this.providerIdx = new short[size];
+        this.providers = providers;
+        this.mock = new boolean[size];
+    }
+
+    public static PointColumns fromDtos(List<TrackingDtos.LocationPoint> points) {
+        PointColumns c = new PointColumns(points.size(), new ArrayList<>(4));
+        for (int i = 0; i < points.size(); i++) {
+            TrackingDtos.LocationPoint p = points.get(i);
+            c.eventIdMsb[i] = p.eventId().getMostSignificantBits();
+            c.eventIdLsb[i] = p.eventId().getLeastSignificantBits();
+            c.deviceTsMicros[i] = toMicros(p.deviceTimestamp());
+            c.lat[i] = p.lat();
+            c.lon[i] = p.lon();
+            c.accuracyM[i] = p.accuracyM() != null ? p.accuracyM() : Float.NaN;
+            c.speedMps[i] = p.speedMps() != null ? p.speedMps() : Float.NaN;
+            c.headingDeg[i] = p.headingDeg() != null ? p.headingDeg() : Float.NaN;
+            c.providerIdx[i] = providerIndex(c.providers, p.provider());
+            c.mock[i] = Boolean.TRUE.equals(p.mock());
+        }
+        return c;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UUID eventId(int i) {
+        return new UUID(eventIdMsb[i], eventIdLsb[i]);
+    }
+
+    public Instant deviceTimestamp(int i) {
+        long micros = deviceTsMicros[i];
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    public long deviceTimestampMicros(int i) {
+        return deviceTsMicros[i];
+    }
+
+    public double lat(int i) {
+        return lat[i];
+    }
+
+    public double lon(int i) {
+        return lon[i];
+    }
+
+    public Float accuracyM(int i) {
+        return boxed(accuracyM[i]);
+    }
+
+    public Float speedMps(int i) {
+        return boxed(speedMps[i]);
+    }
+
+    public Float headingDeg(int i) {
+        return boxed(headingDeg[i]);
+    }
+
+    public String provider(int i) {
+        return providerIdx[i] < 0 ? null : providers.get(providerIdx[i]);
+    }
+
+    public boolean mock(int i) {
+        return mock[i];
+    }
+
+    public int indexOfEarliest() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (deviceTsMicros[i] < deviceTsMicros[best]) best = i;
+        }
+        return best;
+    }
+
+    public int indexOfLatest() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (deviceTsMicros[i] > deviceTsMicros[best]) best = i;
+        }
+        return best;
+    }
+
+    /** Keeps the first occurrence of each eventId; returns this when there are no duplicates */
+    public PointColumns dedupeByEventId() {
+        Set<UUID> seen = new HashSet<>(size * 2);
+        return retain(i -> seen.add(eventId(i)));
+    }
+
+    /** Keeps points matching the predicate (in order); returns this when all are kept */
+    public PointColumns retain(IntPredicate keep) {
+        int[] kept = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep.test(i)) kept[n++] = i;
+        }
+        if (n == size) return this;
+
+        PointColumns c = new PointColumns(n, providers);
+        for (int j = 0; j < n; j++) {
+            int i = kept[j];
+            c.eventIdMsb[j] = eventIdMsb[i];
+            c.eventIdLsb[j] = eventIdLsb[i];
+            c.deviceTsMicros[j] = deviceTsMicros[i];
+            c.lat[j] = lat[i];
+            c.lon[j] = lon[i];
+            c.accuracyM[j] = accuracyM[i];
+            c.speedMps[j] = speedMps[i];
+            c.headingDeg[j] = headingDeg[i];
+            c.providerIdx[j] = providerIdx[i];
+            c.mock[j] = mock[i];
+        }
+        return c;
+    }
+
+    /** Row view for the write-behind buffer */
+    public List<TrackingPointIngestRepository.IngestPointRow> toRows() {
+        List<TrackingPointIngestRepository.IngestPointRow> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new TrackingPointIngestRepository.IngestPointRow(
+                    eventId(i), lat[i], lon[i], deviceTimestamp(i),
+                    accuracyM(i), speedMps(i), headingDeg(i), provider(i), mock[i]));
+        }
+        return rows;
+    }
+
+    static long toMicros(Instant ts) {
+        return Math.addExact(Math.multiplyExact(ts.getEpochSecond(), 1_000_000L), ts.getNano() / 1_000);
+    }
+
+    static short providerIndex(List<String> providers, String provider) {
+        if (provider == null) return -1;
+        // provider is a short label (gps/network/fused); a batch never has more than a few
+        int idx = providers.indexOf(provider);
+        if (idx < 0) {
+            idx = providers.size();
+            providers.add(provider);
+        }
+        return (short) idx;
+    }
+
+    private static Float boxed(float v) {
+        return Float.isNaN(v) ? null : v;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Drops eventIds a session already sent (mobile retries resend whole batches) before they reach
+ * ON CONFLICT. Node-local and exact: a miss (other node, evicted session, old id) only costs
+ * the usual conflict probe, a hit is always a real duplicate.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecentEventIdFilter {
+
+    private final IngestDedupProperties props;
+
+    private Cache<UUID, RecentEventIds> sessions;
+
+    @PostConstruct
+    void init() {
+        sessions = Caffeine.newBuilder()
+                .maximumSize(props.maxSessions())
+                .expireAfterAccess(Duration.ofSeconds(props.idleSeconds()))
+                .build();
+    }
+
+    /** @return points whose eventId was not seen recently for this session (this when none were) */
+    public PointColumns dropSeen(UUID sessionId, PointColumns points) {
+        if (!props.enabled()) return points;
+
+        RecentEventIds seen = sessions.getIfPresent(sessionId);
+        if (seen == null) return points;
+        return points.retain(i -> !seen.contains(points.eventIdMsb[i], points.eventIdLsb[i]));
+    }
+
+    /**
+     * Remembers stored/queued points. Inside a transaction only after commit: a rolled back insert
+     * must not turn the client's retry into a "duplicate".
+     */
+    public void remember(UUID sessionId, PointColumns points) {
+        if (!props.enabled() || points.size() == 0) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(sessionId, points);
+                }
+            });
+        } else {
+            add(sessionId, points);
+        }
+    }
+
+    public void forget(UUID sessionId) {
+        sessions.invalidate(sessionId);
+    }
+
+    private void add(UUID sessionId, PointColumns points) {
+        RecentEventIds seen = sessions.get(sessionId, id -> new RecentEventIds(props.windowPoints()));
+        for (int i = 0; i < points.size(); i++) {
+            seen.add(points.eventIdMsb[i], points.eventIdLsb[i]);
+        }
+    }
+}
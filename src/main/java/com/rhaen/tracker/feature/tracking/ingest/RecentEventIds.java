@@ -0,0 +1,76 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Exact set of roughly the last {@code capacity} eventIds of one session.
+ * Two generations of open-addressing tables (full 128-bit ids, no false positives): when the
+ * current generation is full it becomes the previous one and the oldest generation is dropped.
+ * The nil UUID (0, 0) marks an empty slot and is never reported as seen.
+ */
+final class RecentEventIds {
+
+    private final int generationSize;
+    private final int mask;
+
+    private long[] currentMsb;
+    private long[] currentLsb;
+    private long[] previousMsb;
+    private long[] previousLsb;
+    private int currentSize;
+
+    RecentEventIds(int capacity) {
+        this.generationSize = Math.max(16, capacity / 2);
+        // load factor <= 0.5
+        int tableSize = Integer.highestOneBit(generationSize * 2 - 1) << 1;
+        this.mask = tableSize - 1;
+        this.currentMsb = new long[tableSize];
+        this.currentLsb = new long[tableSize];
+        this.previousMsb = new long[tableSize];
+        this.previousLsb = new long[tableSize];
+    }
+
+    synchronized boolean contains(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) return false;
+        return find(currentMsb, currentLsb, msb, lsb) || find(previousMsb, previousLsb, msb, lsb);
+    }
+
+    synchronized void add(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) return;
+        if (find(currentMsb, currentLsb, msb, lsb)) return;
+
+        if (currentSize == generationSize) {
+            long[] m = previousMsb;
+            long[] l = previousLsb;
+            Arrays.fill(m, 0);
+            Arrays.fill(l, 0);
+            previousMsb = currentMsb;
+            previousLsb = currentLsb;
+            currentMsb = m;
+            currentLsb = l;
+            currentSize = 0;
+        }
+
+        int i = slot(msb, lsb);
+        while (currentMsb[i] != 0 || currentLsb[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        currentMsb[i] = msb;
+        currentLsb[i] = lsb;
+        currentSize++;
+    }
+
+    private boolean find(long[] msbs, long[] lsbs, long msb, long lsb) {
+        int i = slot(msb, lsb);
+        while (msbs[i] != 0 || lsbs[i] != 0) {
+            if (msbs[i] == msb && lsbs[i] == lsb) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private int slot(long msb, long lsb) {
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -1,6 +1,12 @@
 package com.rhaen.tracker.feature.tracking.ingest;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.rhaen.tracker.common.concurrency.BulkheadFullException;
+import com.rhaen.tracker.common.concurrency.Bulkheads;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
 import lombok.RequiredArgsConstructor;
@@ -10,10 +16,14 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -24,8 +34,15 @@ public class RedisRateLimiter {
     private final TrackingIngestProperties props;
     private final CircuitBreakerFactory<?, ?> circuitBreakerFactory;
     private final Optional<CircuitBreakerRegistry> circuitBreakerRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Bulkheads bulkheads;
     private CircuitBreaker redisCircuitBreaker;
 
+    // Local tier: per-user leased quota (idle users drop out after two windows)
+    private Cache<UUID, UserBucket> buckets;
+    private Counter localHits;
+    private Counter leaseRequests;
+
     // returns [allowed(1/0), current]
     private static final DefaultRedisScript<List> SCRIPT = new DefaultRedisScript<>(
             """
@@ -47,6 +64,67 @@ public class RedisRateLimiter {
             List.class
     );
 
+    // Lease from the same fixed-window counter: takes up to `want` points (at least `need`),
+    // after giving back the unused rest of an expired lease. returns [granted, current]
+    private static final DefaultRedisScript<List> LEASE_SCRIPT = new DefaultRedisScript<>(
+            """
+            local key = KEYS[1]
+            local ttl = tonumber(ARGV[1])
+            local limit = tonumber(ARGV[2])
+            local want = tonumber(ARGV[3])
+            local need = tonumber(ARGV[4])
+            local giveback = tonumber(ARGV[5])
+
+            local current = tonumber(redis.call('GET', key) or '0')
+            current = math.max(0, current - giveback)
+
+            local grant = math.min(want, limit - current)
+            if grant < need then
+              redis.call('SET', key, current, 'EX', ttl)
+              return {0, current + need}
+            end
+
+            current = current + grant
+            redis.call('SET', key, current, 'EX', ttl)
+            return {grant, current}
+            """,
+            List.class
+    );
+
+    // GCRA (sliding, one key per user): stores the theoretical arrival time (TAT, micros, Redis clock).
+    // A request of n points fits if TAT + n*interval - tolerance <= now. Leases take up to `want`
+    // points (at least `need`) after giving back an expired lease's rest.
+    // returns [granted, retryAfterMs, current(points ahead of steady rate)]
+    private static final DefaultRedisScript<List> GCRA_SCRIPT = new DefaultRedisScript<>(
+            """
+            local key = KEYS[1]
+            local interval = tonumber(ARGV[1])
+            local tolerance = tonumber(ARGV[2])
+            local want = tonumber(ARGV[3])
+            local need = tonumber(ARGV[4])
+            local giveback = tonumber(ARGV[5])
+
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000000 + tonumber(t[2])
+
+            local tat = tonumber(redis.call('GET', key) or '0') - giveback * interval
+            if tat < now then tat = now end
+
+            local grant = math.min(want, math.floor((now + tolerance - tat) / interval))
+            if grant < need then
+              if giveback > 0 then
+                redis.call('SET', key, string.format('%.0f', tat), 'PX', math.ceil((tat - now) / 1000) + 1000)
+              end
+              return {0, math.ceil((tat + need * interval - tolerance - now) / 1000), math.ceil((tat - now) / interval)}
+            end
+
+            local newTat = tat + grant * interval
+            redis.call('SET', key, string.format('%.0f', newTat), 'PX', math.ceil((newTat - now) / 1000) + 1000)
+            return {grant, 0, math.ceil((newTat - now) / interval)}
+            """,
+            List.class
+    );
+
     @PostConstruct
     void initCircuitBreaker() {
         redisCircuitBreaker = circuitBreakerFactory.create("redis");
@@ -54,43 +132,207 @@ public class RedisRateLimiter {
                 .getEventPublisher()
                 .onStateTransition(event ->
                         log.warn("Redis circuit breaker state changed: {}", event.getStateTransition())));
+
+        buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofSeconds(Math.max(1, props.windowSeconds()) * 2))
+                .build();
+        localHits = meterRegistry.counter("tracker.ratelimit.local.hits.total");
+        leaseRequests = meterRegistry.counter("tracker.ratelimit.lease.requests.total");
     }
 
     public RateLimitResult consumePoints(UUID userId, int points) {
+        if (props.localTier().enabled()) {
+            return consumeLocal(userId, points);
+        }
+        if (props.rateLimitAlgorithm() == TrackingIngestProperties.RateLimitAlgorithm.GCRA) {
+            Grant grant = gcra(userId, points, points, 0);
+            return grant == null ? new RateLimitResult(true, -1) : grant.toResult();
+        }
+
         long window = props.windowSeconds();
         long minuteBucket = Instant.now().getEpochSecond() / window;
 
         String key = "rl:points:" + userId + ":" + minuteBucket;
 
-        List<?> res;
+        List<?> res = runOnRedis(() -> redis.execute(
+                SCRIPT,
+                List.of(key),
+                String.valueOf(window + 5),          // ttl a little > window
+                String.valueOf(props.pointsPerMinute()),
+                String.valueOf(points)
+        ));
+
+        if (res == null || res.size() < 2) {
+            // Redis down bo‘lsa MVP’da “allow” qilish mumkin (fail-open).
+            return new RateLimitResult(true, -1);
+        }
+
+        boolean allowed = ((Number) res.get(0)).intValue() == 1;
+        long current = ((Number) res.get(1)).longValue();
+        return new RateLimitResult(allowed, current, allowed ? 0 : untilWindowEndMs(window, minuteBucket));
+    }
+
+    /**
+     * Two-tier path: spend the node-local lease without touching Redis (lock-free CAS);
+     * only an empty/expired lease takes the per-user refill lock and one Redis round trip.
+     */
+    private RateLimitResult consumeLocal(UUID userId, int points) {
+        long window = props.windowSeconds();
+        boolean gcra = props.rateLimitAlgorithm() == TrackingIngestProperties.RateLimitAlgorithm.GCRA;
+        // GCRA has no window buckets, its leases are bounded by lease TTL only
+        long epoch = gcra ? 0 : Instant.now().getEpochSecond() / window;
+        UserBucket bucket = buckets.get(userId, id -> new UserBucket());
+
+        Lease lease = bucket.lease;
+        if (lease != null && lease.tryConsume(epoch, points, System.nanoTime())) {
+            localHits.increment();
+            return new RateLimitResult(true, lease.redisCurrent);
+        }
+
+        bucket.refill.lock();
+        try {
+            // another request may have refilled while we waited
+            lease = bucket.lease;
+            if (lease != null && lease.tryConsume(epoch, points, System.nanoTime())) {
+                localHits.increment();
+                return new RateLimitResult(true, lease.redisCurrent);
+            }
+
+            // unused rest of the same window's lease goes back to the shared counter
+            long giveback = (lease != null && lease.window == epoch) ? lease.drain() : 0;
+            bucket.lease = null;
+
+            var tier = props.localTier();
+            long want = Math.max(points, tier.leasePoints(props.pointsPerMinute()));
+
+            leaseRequests.increment();
+            Grant grant = gcra
+                    ? gcra(userId, want, points, giveback)
+                    : fixedWindowLease(userId, epoch, want, points, giveback);
+
+            if (grant == null) {
+                // fail-open, no lease is cached so the next request retries Redis (or the open breaker)
+                return new RateLimitResult(true, -1);
+            }
+            if (grant.granted() == 0) {
+                return grant.toResult();
+            }
+
+            long expiresAt = System.nanoTime() + Duration.ofMillis(tier.leaseTtlMs()).toNanos();
+            bucket.lease = new Lease(epoch, expiresAt, grant.granted() - points, grant.current());
+            return grant.toResult();
+        } finally {
+            bucket.refill.unlock();
+        }
+    }
+
+    private Grant fixedWindowLease(UUID userId, long minuteBucket, long want, long need, long giveback) {
+        long window = props.windowSeconds();
+        List<?> res = runOnRedis(() -> redis.execute(
+                LEASE_SCRIPT,
+                List.of("rl:points:" + userId + ":" + minuteBucket),
+                String.valueOf(window + 5),
+                String.valueOf(props.pointsPerMinute()),
+                String.valueOf(want),
+                String.valueOf(need),
+                String.valueOf(giveback)
+        ));
+        if (res == null || res.size() < 2) return null;
+
+        long granted = ((Number) res.get(0)).longValue();
+        long current = ((Number) res.get(1)).longValue();
+        return new Grant(granted, current, granted == 0 ? untilWindowEndMs(window, minuteBucket) : 0);
+    }
+
+    private Grant gcra(UUID userId, long want, long need, long giveback) {
+        double intervalMicros = props.windowSeconds() * 1_000_000d / props.pointsPerMinute();
+        double toleranceMicros = props.burstPoints() * intervalMicros;
+        List<?> res = runOnRedis(() -> redis.execute(
+                GCRA_SCRIPT,
+                List.of("rl:gcra:" + userId),
+                String.valueOf(intervalMicros),
+                String.valueOf(toleranceMicros),
+                String.valueOf(want),
+                String.valueOf(need),
+                String.valueOf(giveback)
+        ));
+        if (res == null || res.size() < 3) return null;
+
+        return new Grant(
+                ((Number) res.get(0)).longValue(),
+                ((Number) res.get(2)).longValue(),
+                ((Number) res.get(1)).longValue());
+    }
+
+    private static long untilWindowEndMs(long window, long bucket) {
+        return Math.max(0, (bucket + 1) * window * 1000 - System.currentTimeMillis());
+    }
+
+    private List<?> runOnRedis(Supplier<List<?>> call) {
         try {
-            res = redisCircuitBreaker.run(
-                    () -> redis.execute(
-                            SCRIPT,
-                            List.of(key),
-                            String.valueOf(window + 5),          // ttl a little > window
-                            String.valueOf(props.pointsPerMinute()),
-                            String.valueOf(points)
-                    ),
+            // bulkhead outside the breaker: a local rejection is not a Redis failure
+            return bulkheads.redis().call(() -> redisCircuitBreaker.run(
+                    call,
                     throwable -> {
                         log.warn("Redis circuit breaker fallback triggered, applying fail-open policy: {}", throwable.toString());
                         return null;
                     }
-            );
+            ));
+        } catch (BulkheadFullException ex) {
+            log.debug("Redis bulkhead full, applying fail-open policy");
+            return null;
         } catch (Exception ex) {
             log.warn("Redis rate limiter execution failed, applying fail-open policy", ex);
-            return new RateLimitResult(true, -1);
+            return null;
         }
+    }
 
-        if (res == null || res.size() < 2) {
-            // Redis down bo‘lsa MVP’da “allow” qilish mumkin (fail-open).
-            return new RateLimitResult(true, -1);
+    /** retryAfterMs: exact wait until the request would fit (0 when allowed or unknown) */
+    public record RateLimitResult(boolean allowed, long current, long retryAfterMs) {
+        public RateLimitResult(boolean allowed, long current) {
+            this(allowed, current, 0);
         }
 
-        boolean allowed = ((Number) res.get(0)).intValue() == 1;
-        long current = ((Number) res.get(1)).longValue();
-        return new RateLimitResult(allowed, current);
+        public long retryAfterSeconds() {
+            return (retryAfterMs + 999) / 1000;
+        }
+    }
+
+    private record Grant(long granted, long current, long retryAfterMs) {
+        RateLimitResult toResult() {
+            return new RateLimitResult(granted > 0, current, retryAfterMs);
+        }
+    }
+
+    private static final class UserBucket {
+        final ReentrantLock refill = new ReentrantLock();
+        volatile Lease lease;
     }
 
-    public record RateLimitResult(boolean allowed, long current) {}
+    private static final class Lease {
+        final long window;
+        final long expiresAtNanos;
+        final long redisCurrent;
+        final AtomicLong remaining;
+
+        Lease(long window, long expiresAtNanos, long remaining, long redisCurrent) {
+            this.window = window;
+            this.expiresAtNanos = expiresAtNanos;
+            this.redisCurrent = redisCurrent;
+            this.remaining = new AtomicLong(remaining);
+        }
+
+        boolean tryConsume(long currentWindow, int points, long nowNanos) {
+            if (window != currentWindow || nowNanos - expiresAtNanos > 0) return false;
+            while (true) {
+                long r = remaining.get();
+                if (r < points) return false;
+                if (remaining.compareAndSet(r, r - points)) return true;
+            }
+        }
+
+        long drain() {
+            return remaining.getAndSet(0);
+        }
+    }
 }
@@ -6,5 +6,73 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public record TrackingIngestProperties(
         int maxBatchSize,
         long pointsPerMinute,
-        long windowSeconds
-) {}
+        long windowSeconds,
+        RateLimitAlgorithm rateLimitAlgorithm,
+        long burstPoints,
+        WriteBehind writeBehind,
+        InsertStrategy insertStrategy,
+        int copyThreshold,
+        LocalTier localTier
+) {
+    public TrackingIngestProperties {
+        if (writeBehind == null) {
+            writeBehind = new WriteBehind(false, 0, 0, 0, 0, 0, 0, 0);
+        }
+        if (insertStrategy == null) {
+            insertStrategy = InsertStrategy.AUTO;
+        }
+        if (rateLimitAlgorithm == null) {
+            rateLimitAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+        }
+        // a whole batch must always fit into the GCRA burst
+        burstPoints = Math.max(burstPoints, maxBatchSize);
+        if (localTier == null) {
+            localTier = new LocalTier(false, 0, 1, 0);
+        }
+    }
+
+    /**
+     * Node-local rate limit tier: quota is leased from Redis in chunks and spent in memory.
+     * Lease size = pointsPerMinute * maxErrorRatio / nodes, so quota parked in other nodes' leases
+     * (a user can be limited early by at most that much per window) stays within maxErrorRatio.
+     */
+    public record LocalTier(
+            boolean enabled,
+            double maxErrorRatio,
+            int nodes,
+            long leaseTtlMs
+    ) {
+        public long leasePoints(long limit) {
+            return Math.max(1, (long) (limit * maxErrorRatio / Math.max(1, nodes)));
+        }
+    }
+
+    /**
+     * FIXED_WINDOW: INCRBY per epochSecond/window bucket (up to 2x limit at window edges).
+     * GCRA: one theoretical-arrival-time per user, steady rate plus burstPoints, exact retry-after.
+     */
+    public enum RateLimitAlgorithm { FIXED_WINDOW, GCRA }
+
+    /** BATCH: JDBC batch INSERT, COPY: binary COPY into temp stage table, AUTO: COPY from copyThreshold rows */
+    public enum InsertStrategy { BATCH, COPY, AUTO }
+
+    /**
+     * Optional write-behind mode: points are buffered in memory (lost on a crash) and inserted by background
+     * writers. maxAttempts: failed inserts of one request (other than the DB being unreachable) before its
+     * points are dropped.
+     */
+    public record WriteBehind(
+            boolean enabled,
+            int capacityPoints,
+            int writers,
+            int flushBatchPoints,
+            long flushIntervalMs,
+            long stopAwaitMs,
+            long shutdownTimeoutSeconds,
+            int maxAttempts
+    ) {
+        public WriteBehind {
+            if (maxAttempts <= 0) maxAttempts = 5;
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package com.rhaen.tracker.feature.tracking.ingest;
 
 import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -15,24 +24,121 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class TrackingPointIngestRepository {
 
-    private final JdbcTemplate jdbc;
+    // The point goes in only if its (session_id, event_id) is new: tracking_points' own unique key
+    // contains the partition key (device_timestamp), tracking_point_events (V14) does not; its rows are
+    // partitioned by the session's start day (V16), so they are taken from the session row.
+    // Only while the session is ACTIVE: the key share lock is the one the FK check takes anyway,
+    // and makes the insert wait for a stop in progress (FOR UPDATE) and then see STOPPED
+    private static final String INSERT_SQL = """
+            WITH new_event AS (
+              INSERT INTO tracking_point_events (session_id, event_id, session_start)
+              SELECT s.id, ?::uuid, s.start_time
+                FROM tracking_sessions s
+               WHERE s.id = ? AND s.status = 'ACTIVE'
+                 FOR KEY SHARE
+              ON CONFLICT DO NOTHING
+              RETURNING session_id, event_id
+            )
+            INSERT INTO tracking_points
+              (session_id, event_id, device_timestamp, received_at, point, accuracy_m, speed_mps, heading_deg, provider, is_mock)
+            SELECT session_id, event_id, ?::timestamptz, ?::timestamptz, ST_SetSRID(ST_MakePoint(?, ?), 4326)::geography,
+                   ?::real, ?::real, ?::real, ?::varchar, ?::boolean
+              FROM new_event
+            ON CONFLICT (session_id, event_id, device_timestamp) DO NOTHING
+            """;
 
-    public int insertBatch(UUID sessionId, Instant receivedAt, List<IngestPointRow> rows) {
-        if (rows.isEmpty()) return 0;
+    // Temp table: per-connection, not WAL-logged, emptied on commit
+    private static final String CREATE_STAGE_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS tracking_points_stage (
+              session_id       UUID             NOT NULL,
+              event_id         UUID             NOT NULL,
+              device_timestamp TIMESTAMPTZ      NOT NULL,
+              received_at      TIMESTAMPTZ      NOT NULL,
+              lon              DOUBLE PRECISION NOT NULL,
+              lat              DOUBLE PRECISION NOT NULL,
+              accuracy_m       REAL,
+              speed_mps        REAL,
+              heading_deg      REAL,
+              provider         VARCHAR(16),
+              is_mock          BOOLEAN          NOT NULL
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_SQL = """
+            COPY tracking_points_stage
+              (session_id, event_id, device_timestamp, received_at, lon, lat, accuracy_m, speed_mps, heading_deg, provider, is_mock)
+            FROM STDIN (FORMAT binary)
+            """;
 
-        String sql = """
+    // Same event-first and ACTIVE rules; an eventId staged twice (two requests in one write-behind flush)
+    // keeps one row
+    private static final String MOVE_STAGE_SQL = """
+            WITH active AS (
+              SELECT s.id, s.start_time
+                FROM tracking_sessions s
+               WHERE s.id IN (SELECT session_id FROM tracking_points_stage) AND s.status = 'ACTIVE'
+                 FOR KEY SHARE
+            ), new_event AS (
+              INSERT INTO tracking_point_events (session_id, event_id, session_start)
+              SELECT DISTINCT st.session_id, st.event_id, a.start_time
+                FROM tracking_points_stage st
+                JOIN active a ON a.id = st.session_id
+              ON CONFLICT DO NOTHING
+              RETURNING session_id, event_id
+            )
             INSERT INTO tracking_points
               (session_id, event_id, device_timestamp, received_at, point, accuracy_m, speed_mps, heading_deg, provider, is_mock)
-            VALUES
-              (?, ?, ?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326)::geography, ?, ?, ?, ?, ?)
-            ON CONFLICT (session_id, event_id) DO NOTHING
+            SELECT session_id, event_id, device_timestamp, received_at,
+                   ST_SetSRID(ST_MakePoint(lon, lat), 4326)::geography,
+                   accuracy_m, speed_mps, heading_deg, provider, is_mock
+              FROM (SELECT DISTINCT ON (s.session_id, s.event_id) s.*
+                      FROM tracking_points_stage s
+                      JOIN new_event e ON e.session_id = s.session_id AND e.event_id = s.event_id
+                     ORDER BY s.session_id, s.event_id, s.received_at, s.device_timestamp) first_seen
+             ORDER BY session_id, device_timestamp
+            ON CONFLICT (session_id, event_id, device_timestamp) DO NOTHING
             """;
 
-        int[][] counts = jdbc.batchUpdate(sql, rows, 500, (PreparedStatement ps, IngestPointRow r) -> {
-            ps.setObject(1, sessionId);
-            ps.setObject(2, r.eventId());
+    private static final int STAGE_COLUMNS = 11;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final TrackingIngestProperties props;
+
+    /** Columnar single-session insert (binary and JSON ingest), binds straight from the arrays */
+    public int insertColumns(UUID sessionId, Instant receivedAt, PointColumns points) {
+        if (points.size() == 0) return 0;
+
+        return useCopy(points.size())
+                ? copyColumns(sessionId, receivedAt, points)
+                : batchColumns(sessionId, receivedAt, points);
+    }
+
+    /**
+     * Multi-session insert (write-behind writers group rows from many requests into one call).
+     * Rows of sessions that are no longer ACTIVE are skipped like duplicates.
+     */
+    public int insertRows(List<SessionPointRow> rows) {
+        if (rows.isEmpty()) return 0;
+
+        return useCopy(rows.size()) ? copyInsert(rows) : batchInsert(rows);
+    }
+
+    private boolean useCopy(int rows) {
+        return switch (props.insertStrategy()) {
+            case BATCH -> false;
+            case COPY -> true;
+            case AUTO -> rows >= props.copyThreshold();
+        };
+    }
+
+    int batchInsert(List<SessionPointRow> rows) {
+        int[][] counts = jdbc.batchUpdate(INSERT_SQL, rows, 500, (PreparedStatement ps, SessionPointRow row) -> {
+            IngestPointRow r = row.point();
+            ps.setObject(1, r.eventId());
+            ps.setObject(2, row.sessionId());
             OffsetDateTime deviceTs = r.deviceTimestamp().atOffset(ZoneOffset.UTC);
-            OffsetDateTime receivedTs = receivedAt.atOffset(ZoneOffset.UTC);
+            OffsetDateTime receivedTs = row.receivedAt().atOffset(ZoneOffset.UTC);
             ps.setObject(3, deviceTs);
             ps.setObject(4, receivedTs);
 
@@ -56,6 +162,114 @@ public class TrackingPointIngestRepository {
         return inserted;
     }
 
+    int batchColumns(UUID sessionId, Instant receivedAt, PointColumns c) {
+        OffsetDateTime receivedTs = receivedAt.atOffset(ZoneOffset.UTC);
+        int[] counts = jdbc.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setObject(1, c.eventId(i));
+                ps.setObject(2, sessionId);
+                ps.setObject(3, c.deviceTimestamp(i).atOffset(ZoneOffset.UTC));
+                ps.setObject(4, receivedTs);
+
+                ps.setDouble(5, c.lon[i]);
+                ps.setDouble(6, c.lat[i]);
+
+                setReal(ps, 7, c.accuracyM[i]);
+                setReal(ps, 8, c.speedMps[i]);
+                setReal(ps, 9, c.headingDeg[i]);
+
+                ps.setString(10, c.provider(i));
+                ps.setBoolean(11, c.mock[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return c.size();
+            }
+        });
+
+        int inserted = 0;
+        for (int n : counts) {
+            if (n > 0) inserted += n;
+        }
+        return inserted;
+    }
+
+    private static void setReal(PreparedStatement ps, int index, float value) throws SQLException {
+        if (Float.isNaN(value)) ps.setNull(index, java.sql.Types.REAL); else ps.setFloat(index, value);
+    }
+
+    /**
+     * Binary COPY into a temp stage table, then one INSERT ... SELECT of the rows with a new eventId.
+     * Runs in a transaction (joins the caller's one) because the stage table is emptied on commit.
+     */
+    int copyInsert(List<SessionPointRow> rows) {
+        return copy(w -> {
+            for (SessionPointRow row : rows) {
+                IngestPointRow r = row.point();
+                w.startRow(STAGE_COLUMNS);
+                w.writeUuid(row.sessionId());
+                w.writeUuid(r.eventId());
+                w.writeTimestamptz(r.deviceTimestamp());
+                w.writeTimestamptz(row.receivedAt());
+                w.writeFloat8(r.lon());
+                w.writeFloat8(r.lat());
+                w.writeFloat4(r.accuracyM());
+                w.writeFloat4(r.speedMps());
+                w.writeFloat4(r.headingDeg());
+                w.writeText(r.provider());
+                w.writeBool(r.isMock());
+            }
+        });
+    }
+
+    int copyColumns(UUID sessionId, Instant receivedAt, PointColumns c) {
+        long receivedMicros = PointColumns.toMicros(receivedAt);
+        return copy(w -> {
+            for (int i = 0; i < c.size(); i++) {
+                w.startRow(STAGE_COLUMNS);
+                w.writeUuid(sessionId);
+                w.writeUuid(c.eventIdMsb[i], c.eventIdLsb[i]);
+                w.writeTimestamptzMicros(c.deviceTsMicros[i]);
+                w.writeTimestamptzMicros(receivedMicros);
+                w.writeFloat8(c.lon[i]);
+                w.writeFloat8(c.lat[i]);
+                w.writeFloat4OrNull(c.accuracyM[i]);
+                w.writeFloat4OrNull(c.speedMps[i]);
+                w.writeFloat4OrNull(c.headingDeg[i]);
+                w.writeText(c.provider(i));
+                w.writeBool(c.mock[i]);
+            }
+        });
+    }
+
+    private int copy(StageRows stageRows) {
+        Integer inserted = transactionTemplate.execute(status -> jdbc.execute((ConnectionCallback<Integer>) con -> {
+            // One COPY per transaction, ON COMMIT DELETE ROWS leaves the stage empty for the next one
+            try (Statement st = con.createStatement()) {
+                st.execute(CREATE_STAGE_SQL);
+            }
+
+            PGConnection pg = con.unwrap(PGConnection.class);
+            try (PgBinaryCopyWriter w = new PgBinaryCopyWriter(new PGCopyOutputStream(pg, COPY_SQL))) {
+                stageRows.writeTo(w);
+            } catch (IOException e) {
+                throw new UncheckedIOException("COPY into tracking_points_stage failed", e);
+            }
+
+            try (Statement st = con.createStatement()) {
+                return st.executeUpdate(MOVE_STAGE_SQL);
+            }
+        }));
+        return inserted == null ? 0 : inserted;
+    }
+
+    @FunctionalInterface
+    private interface StageRows {
+        void writeTo(PgBinaryCopyWriter w) throws IOException;
+    }
+
     public record IngestPointRow(
             UUID eventId,
             double lat,
@@ -67,4 +281,10 @@ public class TrackingPointIngestRepository {
             String provider,
             boolean isMock
     ) {}
+
+    public record SessionPointRow(
+            UUID sessionId,
+            Instant receivedAt,
+            IngestPointRow point
+    ) {}
 }
@@ -0,0 +1,14 @@
+package com.rhaen.tracker.feature.tracking.persistence;
+
+import java.util.UUID;
+
+/** Minimal session view for the ingest hot path (ownership + status checks) */
+public record SessionMeta(
+        UUID userId,
+        TrackingSessionEntity.Status status,
+        boolean hasStartPoint
+) {
+    public SessionMeta withStartPoint() {
+        return hasStartPoint ? this : new SessionMeta(userId, status, true);
+    }
+}
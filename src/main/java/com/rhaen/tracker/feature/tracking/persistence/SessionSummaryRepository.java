@@ -1,8 +1,18 @@
 package com.rhaen.tracker.feature.tracking.persistence;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.UUID;
 
 public interface SessionSummaryRepository extends JpaRepository<SessionSummaryEntity, UUID> {
+
+    /** Union of the bboxes of a user's summaries (where their tracks are drawn on the map) */
+    @Query("""
+select new com.rhaen.tracker.feature.tracking.persistence.SummaryBbox(
+       min(ss.bboxMinLat), min(ss.bboxMinLon), max(ss.bboxMaxLat), max(ss.bboxMaxLon))
+from SessionSummaryEntity ss
+where ss.session.user.id = :userId
+""")
+    SummaryBbox findUserBbox(UUID userId);
 }
@@ -0,0 +1,13 @@
+package com.rhaen.tracker.feature.tracking.persistence;
+
+/** Bounding box over one or more session summaries; all null when none has a track */
+public record SummaryBbox(
+        Double minLat,
+        Double minLon,
+        Double maxLat,
+        Double maxLon
+) {
+    public boolean isEmpty() {
+        return minLat == null;
+    }
+}
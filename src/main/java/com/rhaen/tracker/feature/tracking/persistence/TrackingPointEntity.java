@@ -10,7 +10,7 @@ import java.util.UUID;
 @Entity
 @Table(name = "tracking_points",
         uniqueConstraints = {
-                @UniqueConstraint(name = "uk_points_session_event", columnNames = {"session_id","event_id"})
+                @UniqueConstraint(name = "uk_points_session_event_ts", columnNames = {"session_id","event_id","device_timestamp"})
         },
         indexes = {
                 @Index(name = "idx_points_session_device_ts", columnList = "session_id,device_timestamp"),
@@ -40,4 +40,32 @@ where (:userId is null or s.user.id = :userId)
     Page<TrackingSessionEntity> findByStatusAndLastPointAtIsNullAndStartTimeBefore(
             TrackingSessionEntity.Status status, Instant cutoff, Pageable pageable
     );
+
+    @Query("""
+select new com.rhaen.tracker.feature.tracking.persistence.SessionMeta(
+       s.user.id, s.status, case when s.startPoint is null then false else true end)
+from TrackingSessionEntity s
+where s.id = :id
+""")
+    Optional<SessionMeta> findMetaById(UUID id);
+
+    /**
+     * Ingest race path only: the insert already skips non-ACTIVE sessions, so this is asked just when it
+     * wrote fewer rows than it was given (DB-level duplicates, or a stop the cached status has not seen).
+     */
+    @Query(value = """
+SELECT EXISTS (SELECT 1 FROM tracking_sessions WHERE id = :id AND status = 'ACTIVE')
+""", nativeQuery = true)
+    boolean isActive(UUID id);
+
+    /**
+     * Stop path, before anything else touches the row. FOR UPDATE, because the ingest insert's
+     * ACTIVE check is a key share lock (the one its FK check takes anyway) that FOR NO KEY UPDATE
+     * would not wait for: in-flight inserts finish first, later ones wait and then see the new status.
+     * The coalesced flushes wait the same way instead of interleaving with the change.
+     */
+    @Query(value = """
+SELECT status FROM tracking_sessions WHERE id = :id FOR UPDATE
+""", nativeQuery = true)
+    Optional<String> lockForStatusChange(UUID id);
 }
@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -52,4 +53,24 @@ public class TrackingQueryService {
                 simplifyEpsM
         );
     }
+
+    public StreamingResponseBody streamSessionPoints(UUID sessionId,
+                                                     UUID userId,
+                                                     boolean isAdmin,
+                                                     Instant from,
+                                                     Instant to,
+                                                     String cursor,
+                                                     Integer limit) {
+        return sessionHistoryService.streamSessionPointsForUser(sessionId, userId, isAdmin, from, to, cursor, limit);
+    }
+
+    public TrackingDtos.TrackResponse getSessionTrack(UUID sessionId,
+                                                      UUID userId,
+                                                      boolean isAdmin,
+                                                      Integer zoom,
+                                                      Double toleranceM,
+                                                      Instant from,
+                                                      Instant to) {
+        return sessionHistoryService.getSessionTrackForUser(sessionId, userId, isAdmin, zoom, toleranceM, from, to);
+    }
 }
@@ -1,71 +1,349 @@
 package com.rhaen.tracker.feature.tracking.realtime;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
+/**
+ * Admin SSE fan-out. Publishing (ingest thread, inside its transaction) encodes the frame once and only
+ * puts it on every subscriber's bounded queue; a dedicated sender pool writes the same bytes to each
+ * emitter, so a slow browser delays nothing but its own stream. Full queues follow the subscriber's
+ * overflow policy.
+ * <p>
+ * Subscribers with a tick get updates conflated: one {@link LastLocationConflator} per distinct tick
+ * keeps the latest update per user and emits a single "updates" frame per tick, so traffic follows
+ * the number of users that moved, not the ingest rate. Tick 0 streams each "update" as it comes.
+ * <p>
+ * A subscriber may filter by area and/or users ({@link LastLocationFilter}) and change the filter while
+ * connected; {@link SubscriptionIndex} hands each update only to the subscribers it can concern, and
+ * each update is still encoded once however many filtered frames carry it.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class LastLocationBroadcaster {
+
+    // frames per turn before a busy subscriber goes to the back of the pool queue
+    private static final int DRAIN_BATCH = 64;
+    private static final String SUBSCRIBER_TAG = "subscriber";
+    // subscribers past app.tracking.stream.metered-subscribers share these tags' meters (never removed)
+    private static final Tags UNMETERED_TAGS = Tags.of(SUBSCRIBER_TAG, "other");
+    private static final long MIN_TICK_MS = 100;
+    private static final long MAX_TICK_MS = 10_000;
+
+    private final LastLocationStreamProperties props;
+    private final ObjectMapper objectMapper;
     private final MeterRegistry meterRegistry;
 
-    private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<SseSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, SseSubscriber> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TickGroup> ticks = new ConcurrentHashMap<>();
+    // the per-subscriber meters registered in subscribe(), removed by reference in close()
+    private final ConcurrentHashMap<String, List<Meter>> subscriberMeters = new ConcurrentHashMap<>();
+
+    private ExecutorService senders;
+    private ScheduledExecutorService ticker;
+    private SubscriptionIndex index;
+
+    private Counter sentBytes;
+    private DistributionSummary tickUsers;
+
+    /** Subscribers sharing a tick share its conflator and its encoded frame */
+    private static final class TickGroup {
+        final LastLocationConflator conflator = new LastLocationConflator();
+        ScheduledFuture<?> flush;
+        int members;
+    }
+
+    @PostConstruct
+    void start() {
+        senders = Executors.newFixedThreadPool(props.senders(), Thread.ofPlatform().name("sse-sender-", 0).factory());
+        ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("sse-tick").factory());
+
+        Gauge.builder("tracker.sse.connections", subscribers, list -> (double) list.size())
+                .description("Active SSE connections")
+                .register(meterRegistry);
+        sentBytes = meterRegistry.counter("tracker.sse.sent.bytes.total");
+        tickUsers = DistributionSummary.builder("tracker.sse.tick.users")
+                .description("Users in one conflated updates frame")
+                .register(meterRegistry);
+        index = new SubscriptionIndex(DistributionSummary.builder("tracker.sse.route.candidates")
+                .description("Subscribers an update is tested against")
+                .register(meterRegistry));
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+    }
 
-    public SseEmitter subscribe() {
+    /**
+     * @param overflow policy for this subscriber, the configured default when null
+     * @param tickMs   conflation tick (100..10000 ms, 0 = every update), the configured default when null
+     * @param filter   what this subscriber sees, changeable with {@link #updateFilter}
+     * @param init     first frame ("init") from the subscription id and the current filter; evaluated after
+     *                 registration so no update is missed, and again after each filter change
+     */
+    public SseEmitter subscribe(LastLocationStreamProperties.Overflow overflow, Long tickMs, LastLocationFilter filter,
+                                BiFunction<String, LastLocationFilter, ?> init) {
         // 0L => timeout yo‘q (server/proxyga bog‘liq).
-        SseEmitter emitter = new SseEmitter(0L);
+        return subscribe(new SseEmitter(0L), overflow, tickMs, filter, init);
+    }
 
-        emitters.add(emitter);
+    SseEmitter subscribe(SseEmitter emitter, LastLocationStreamProperties.Overflow overflow, Long tickMs,
+                         LastLocationFilter filter, BiFunction<String, LastLocationFilter, ?> init) {
+        long tick = tick(tickMs != null ? tickMs : props.tickMs());
+        // also the handle for filter updates, possibly relayed from another node: unique and unguessable
+        String id = UUID.randomUUID().toString();
+        // one series set per open stream, up to the cap; the rest are counted together
+        boolean metered = subscriberMeters.size() < props.meteredSubscribers();
+        Tags tags = metered ? Tags.of(SUBSCRIBER_TAG, id) : UNMETERED_TAGS;
+        Counter overflowDrops = meterRegistry.counter("tracker.sse.dropped.total", tags.and("reason", "overflow"));
+        Counter coalesced = meterRegistry.counter("tracker.sse.dropped.total", tags.and("reason", "coalesced"));
+        Timer sendTimer = Timer.builder("tracker.sse.send.duration")
+                .description("Time to write one frame to a subscriber")
+                .tags(tags)
+                .register(meterRegistry);
+        SseSubscriber subscriber = new SseSubscriber(
+                id,
+                emitter,
+                overflow != null ? overflow : props.overflow(),
+                props.queueCapacity(),
+                tick,
+                overflowDrops,
+                coalesced,
+                sendTimer,
+                filter != null ? filter : LastLocationFilter.ALL,
+                f -> init.apply(id, f));
+        if (metered) {
+            Gauge depth = Gauge.builder("tracker.sse.queue.depth", subscriber, SseSubscriber::depth)
+                    .description("Frames waiting for a subscriber")
+                    .tags(tags)
+                    .register(meterRegistry);
+            subscriberMeters.put(id, List.of(overflowDrops, coalesced, sendTimer, depth));
+        }
 
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError(e -> emitters.remove(emitter));
+        if (tick > 0) joinTick(tick);
+        index.add(subscriber);
+        byId.put(id, subscriber);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
 
+        queueInit(subscriber);
+        if (subscriber.release()) {
+            schedule(subscriber);
+        }
         return emitter;
     }
 
-    public void broadcastUpdate(Object payload) {
-        // payload: Map yoki DTO bo‘lishi mumkin
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name("update")
-                        .data(payload));
-            } catch (Exception ex) {
-                emitters.remove(emitter);
+    /**
+     * New area/users for an open stream: frames queued for the old filter are dropped and a fresh "init"
+     * for the new one follows.
+     * @return false if the subscription is not on this node
+     */
+    public boolean updateFilter(String subscriptionId, LastLocationFilter filter) {
+        SseSubscriber subscriber = byId.get(subscriptionId);
+        if (subscriber == null) return false;
+        index.update(subscriber, filter);
+        subscriber.clear();
+        queueInit(subscriber);
+        if (subscriber.claim()) {
+            schedule(subscriber);
+        }
+        return true;
+    }
+
+    public void broadcastUpdate(LastLocationEvent event) {
+        if (subscribers.isEmpty()) return;
+        for (TickGroup group : ticks.values()) {
+            group.conflator.offer(event);
+        }
+        List<SseSubscriber> to = index.route(event, 0);
+        if (to.isEmpty()) return;
+        try {
+            SseFrame frame = SseFrame.event("update", event, objectMapper);
+            for (SseSubscriber subscriber : to) {
+                offer(subscriber, frame, event.userId());
             }
+        } catch (JsonProcessingException ex) {
+            log.warn("SSE update of user {} not encodable: {}", event.userId(), ex.toString());
         }
     }
 
-    /** Proxy/LoadBalancer SSE connection’ni o‘chirib qo‘ymasligi uchun heartbeat */
+    /** Proxy/LoadBalancer SSE connection’ni o‘chirib qo‘ymasligi uchun heartbeat (comment frame) */
     @Scheduled(fixedDelay = 25_000)
     public void heartbeat() {
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name("ping")
-                        .data(Instant.now().toString()));
-            } catch (Exception ex) {
-                emitters.remove(emitter);
+        publish(SseFrame.HEARTBEAT, null, s -> true);
+    }
+
+    public int connections() {
+        return subscribers.size();
+    }
+
+    /**
+     * One "updates" frame per subscriber of this tick with what changed since the last tick, as far as
+     * its filter goes. Unfiltered subscribers get everything, so they share one frame.
+     */
+    private void flush(long tickMs, LastLocationConflator conflator) {
+        List<LastLocationEvent> events = conflator.drain();
+        if (events.isEmpty()) return;
+        tickUsers.record(events.size());
+        try {
+            List<byte[]> all = new ArrayList<>(events.size());
+            Map<SseSubscriber, List<byte[]>> frames = new LinkedHashMap<>();
+            for (LastLocationEvent event : events) {
+                byte[] json = objectMapper.writeValueAsBytes(event);
+                all.add(json);
+                for (SseSubscriber subscriber : index.route(event, tickMs)) {
+                    if (subscriber.filter().unfiltered()) continue;
+                    frames.computeIfAbsent(subscriber, s -> new ArrayList<>()).add(json);
+                }
             }
+            Predicate<SseSubscriber> unfiltered = s -> s.tickMs() == tickMs && s.filter().unfiltered();
+            if (subscribers.stream().anyMatch(unfiltered)) {
+                publish(SseFrame.array("updates", all), null, unfiltered);
+            }
+            frames.forEach((subscriber, items) -> offer(subscriber, SseFrame.array("updates", items), null));
+        } catch (Exception ex) {
+            log.warn("SSE updates frame of tick {} ms failed: {}", tickMs, ex.toString());
         }
     }
 
-    @PostConstruct
-    void registerMetrics() {
-        Gauge.builder("tracker.sse.connections", emitters, list -> (double) list.size())
-                .description("Active SSE connections")
-                .register(meterRegistry);
+    private void publish(SseFrame frame, Object key, Predicate<SseSubscriber> to) {
+        for (SseSubscriber subscriber : subscribers) {
+            if (to.test(subscriber)) offer(subscriber, frame, key);
+        }
     }
 
-    public int connections() {
-        return emitters.size();
+    private void offer(SseSubscriber subscriber, SseFrame frame, Object key) {
+        if (!subscriber.offer(frame, key)) {
+            disconnect(subscriber);
+        } else if (subscriber.claim()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void queueInit(SseSubscriber subscriber) {
+        try {
+            subscriber.offerFirst(SseFrame.event("init", subscriber.init(), objectMapper));
+        } catch (Exception ex) {
+            // stream still works, the dashboard just starts empty
+            log.debug("SSE init snapshot failed: {}", ex.toString());
+        }
+    }
+
+    private void schedule(SseSubscriber subscriber) {
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException ex) {
+            // shutting down
+        }
+    }
+
+    private void drain(SseSubscriber subscriber) {
+        SseFrame frame;
+        for (int i = 0; i < DRAIN_BATCH && (frame = subscriber.poll()) != null; i++) {
+            if (!send(subscriber, frame)) return;
+        }
+        if (subscriber.release()) {
+            schedule(subscriber);
+        }
+    }
+
+    private boolean send(SseSubscriber subscriber, SseFrame frame) {
+        long start = System.nanoTime();
+        try {
+            subscriber.emitter().send(frame);
+        } catch (Exception ex) {
+            close(subscriber);
+            return false;
+        }
+        subscriber.sendTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        sentBytes.increment(frame.size());
+        return true;
+    }
+
+    /** Overflow with DISCONNECT: the client reconnects and starts over from a fresh init */
+    private void disconnect(SseSubscriber subscriber) {
+        close(subscriber);
+        try {
+            subscriber.emitter().complete();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void close(SseSubscriber subscriber) {
+        if (!subscribers.remove(subscriber)) return;
+        byId.remove(subscriber.id());
+        index.remove(subscriber);
+        subscriber.close();
+        if (subscriber.tickMs() > 0) leaveTick(subscriber.tickMs());
+        List<Meter> meters = subscriberMeters.remove(subscriber.id());
+        if (meters != null) meters.forEach(meterRegistry::remove);
+    }
+
+    private void joinTick(long tickMs) {
+        ticks.compute(tickMs, (t, group) -> {
+            if (group == null) {
+                TickGroup created = new TickGroup();
+                created.flush = ticker.scheduleAtFixedRate(() -> flush(t, created.conflator),
+                        t, t, TimeUnit.MILLISECONDS);
+                group = created;
+            }
+            group.members++;
+            return group;
+        });
+    }
+
+    private void leaveTick(long tickMs) {
+        ticks.computeIfPresent(tickMs, (t, group) -> {
+            if (--group.members > 0) return group;
+            group.flush.cancel(false);
+            return null;
+        });
+    }
+
+    // distinct ticks each cost a timer: whole 100 ms steps within bounds
+    private static long tick(long requestedMs) {
+        if (requestedMs < 0) {
+            throw new BadRequestException("tickMs must be 0 or positive");
+        }
+        if (requestedMs == 0) return 0;
+        long clamped = Math.clamp(requestedMs, MIN_TICK_MS, MAX_TICK_MS);
+        return Math.round(clamped / (double) MIN_TICK_MS) * MIN_TICK_MS;
     }
 }
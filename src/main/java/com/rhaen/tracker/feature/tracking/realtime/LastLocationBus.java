@@ -0,0 +1,180 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries last-location updates between nodes so every admin stream sees every user, whichever node
+ * ingested the points. Updates go to the local {@link LastLocationBroadcaster} at once; the latest one
+ * per user is also published every batchMs as one compact message ({@link LastLocationBusCodec}) on
+ * Redis pub/sub, and other nodes hand it to their own broadcaster, i.e. only to their local subscribers.
+ * <p>
+ * Pub/sub is fire-and-forget on purpose: a lost update is superseded by the user's next one, and a
+ * reconnecting stream starts from the Redis snapshot ("init") anyway.
+ * <p>
+ * Stream filter changes travel the other way: the request may land on any node, the stream lives on one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LastLocationBus implements MessageListener {
+
+    public static final String CHANNEL = "tracker:lastloc:bus";
+    public static final String FILTER_CHANNEL = "tracker:lastloc:filters";
+    private static final byte[] CHANNEL_BYTES = CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private final LastLocationBroadcaster broadcaster;
+    private final StringRedisTemplate redis;
+    private final LastLocationBusProperties props;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    private final UUID nodeId = UUID.randomUUID();
+    private final LastLocationConflator outbox = new LastLocationConflator();
+
+    private ScheduledExecutorService flusher;
+
+    private Counter published;
+    private Counter publishedEvents;
+    private Counter publishedBytes;
+    private Counter publishErrors;
+    private Counter received;
+    private Counter receivedEvents;
+    private Counter decodeErrors;
+    private DistributionSummary batchEvents;
+    private Timer lag;
+
+    record FilterUpdate(String subscriptionId, LastLocationFilter filter) {}
+
+    @PostConstruct
+    void start() {
+        published = meterRegistry.counter("tracker.sse.bus.messages.total", "direction", "out");
+        received = meterRegistry.counter("tracker.sse.bus.messages.total", "direction", "in");
+        publishedEvents = meterRegistry.counter("tracker.sse.bus.events.total", "direction", "out");
+        receivedEvents = meterRegistry.counter("tracker.sse.bus.events.total", "direction", "in");
+        publishedBytes = meterRegistry.counter("tracker.sse.bus.bytes.total", "direction", "out");
+        publishErrors = meterRegistry.counter("tracker.sse.bus.errors.total", "op", "publish");
+        decodeErrors = meterRegistry.counter("tracker.sse.bus.errors.total", "op", "decode");
+        batchEvents = DistributionSummary.builder("tracker.sse.bus.batch.events")
+                .description("Users in one published bus message")
+                .register(meterRegistry);
+        // includes clock skew between nodes
+        lag = Timer.builder("tracker.sse.bus.lag")
+                .description("Time from publishing a bus message on one node to receiving it on another")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        if (!props.enabled()) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("lastloc-bus").factory());
+        flusher.scheduleWithFixedDelay(this::flush, props.batchMs(), props.batchMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher == null) return;
+        flusher.shutdownNow();
+        // last batch of this node, so other nodes do not keep a stale position
+        flush();
+    }
+
+    /** Local streams now, other nodes with the next batch. Called on the ingest thread: never blocks on Redis */
+    public void publish(LastLocationEvent event) {
+        broadcaster.broadcastUpdate(event);
+        if (props.enabled()) outbox.offer(event);
+    }
+
+    /** Sends what changed since the last flush, latest per user, maxBatch users per message */
+    void flush() {
+        List<LastLocationEvent> events = outbox.drain();
+        for (int from = 0; from < events.size(); from += props.maxBatch()) {
+            List<LastLocationEvent> chunk = events.subList(from, Math.min(events.size(), from + props.maxBatch()));
+            try {
+                byte[] message = LastLocationBusCodec.encode(nodeId, System.currentTimeMillis(), chunk);
+                redis.execute((RedisCallback<Long>) connection -> connection.publish(CHANNEL_BYTES, message));
+                published.increment();
+                publishedEvents.increment(chunk.size());
+                publishedBytes.increment(message.length);
+                batchEvents.record(chunk.size());
+            } catch (Exception ex) {
+                // other nodes miss these positions until the users move again
+                publishErrors.increment();
+                log.warn("Last-location bus publish of {} users failed: {}", chunk.size(), ex.toString());
+            }
+        }
+    }
+
+    /**
+     * Applies the filter to the stream if it is connected here, otherwise hands it to the other nodes.
+     * @return false if relayed: whether some node has the stream is not known
+     */
+    public boolean updateFilter(String subscriptionId, LastLocationFilter filter) {
+        if (broadcaster.updateFilter(subscriptionId, filter)) return true;
+        if (props.enabled()) {
+            try {
+                redis.convertAndSend(FILTER_CHANNEL, objectMapper.writeValueAsString(
+                        new FilterUpdate(subscriptionId, filter)));
+            } catch (Exception ex) {
+                log.warn("Stream filter relay for {} failed: {}", subscriptionId, ex.toString());
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (FILTER_CHANNEL.equals(new String(message.getChannel(), StandardCharsets.UTF_8))) {
+            onFilterUpdate(message.getBody());
+            return;
+        }
+        LastLocationBusCodec.Batch batch;
+        try {
+            batch = LastLocationBusCodec.decode(message.getBody());
+        } catch (IllegalArgumentException ex) {
+            decodeErrors.increment();
+            log.warn("Dropping last-location bus message: {}", ex.getMessage());
+            return;
+        }
+        // own messages come back too; local subscribers already have them
+        if (batch.nodeId().equals(nodeId)) return;
+
+        lag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - batch.sentAtMs())));
+        received.increment();
+        receivedEvents.increment(batch.events().size());
+        batch.events().forEach(broadcaster::broadcastUpdate);
+    }
+
+    private void onFilterUpdate(byte[] body) {
+        try {
+            FilterUpdate update = objectMapper.readValue(body, FilterUpdate.class);
+            // every node gets it, the one holding the stream applies it
+            broadcaster.updateFilter(update.subscriptionId(), update.filter());
+        } catch (Exception ex) {
+            log.warn("Dropping stream filter update: {}", ex.toString());
+        }
+    }
+
+    UUID nodeId() {
+        return nodeId;
+    }
+}
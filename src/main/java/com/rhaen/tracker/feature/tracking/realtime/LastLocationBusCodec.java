@@ -0,0 +1,169 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary batch of {@link LastLocationEvent}s exchanged between nodes (big-endian).
+ * <pre>
+ * u8       version (1)
+ * 16 B     sender node id
+ * i64      sent at (epoch ms)
+ * u8       status count, then per status: u8 length + US-ASCII bytes
+ * u16      event count
+ * per event:
+ *   u16      flags: 0x01 active, 0x02 stale, 0x04 session, 0x08 status, 0x10 ts, 0x20 position,
+ *                   0x40 accuracy, 0x80 speed, 0x100 heading
+ *   16 B     userId
+ *   16 B     sessionId          if flag 0x04
+ *   u8       status index       if flag 0x08
+ *   i64      ts (epoch ms)      if flag 0x10
+ *   i32 x2   lat, lon E7        if flag 0x20
+ *   f32      accuracy, speed, heading, each if its flag is set
+ * </pre>
+ * A moving user is ~63 bytes vs ~260 bytes of the SSE JSON. Lat/lon lose digits past 1 cm (E7, as in
+ * the point batch format), timestamps past the millisecond.
+ */
+final class LastLocationBusCodec {
+
+    static final int VERSION = 1;
+    static final int MAX_EVENTS = 0xFFFF;
+
+    private static final int F_ACTIVE = 0x01;
+    private static final int F_STALE = 0x02;
+    private static final int F_SESSION = 0x04;
+    private static final int F_STATUS = 0x08;
+    private static final int F_TS = 0x10;
+    private static final int F_POSITION = 0x20;
+    private static final int F_ACCURACY = 0x40;
+    private static final int F_SPEED = 0x80;
+    private static final int F_HEADING = 0x100;
+
+    private static final int MAX_EVENT_BYTES = 2 + 16 + 16 + 1 + 8 + 8 + 12;
+
+    /** One decoded message */
+    record Batch(UUID nodeId, long sentAtMs, List<LastLocationEvent> events) {}
+
+    private LastLocationBusCodec() {}
+
+    static byte[] encode(UUID nodeId, long sentAtMs, List<LastLocationEvent> events) {
+        if (events.size() > MAX_EVENTS) {
+            throw new IllegalArgumentException("Too many events in one batch: " + events.size());
+        }
+        // a handful of distinct statuses (ACTIVE, STOPPED, ...): sent once, referenced by index
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        for (LastLocationEvent e : events) {
+            if (e.status() != null) statuses.putIfAbsent(e.status(), statuses.size());
+        }
+        if (statuses.size() > 0xFF) {
+            throw new IllegalArgumentException("Too many distinct statuses: " + statuses.size());
+        }
+
+        int header = 1 + 16 + 8 + 1 + 2 + statuses.keySet().stream().mapToInt(s -> 1 + s.length()).sum();
+        ByteBuffer buf = ByteBuffer.allocate(header + events.size() * MAX_EVENT_BYTES);
+        buf.put((byte) VERSION);
+        uuid(buf, nodeId);
+        buf.putLong(sentAtMs);
+        buf.put((byte) statuses.size());
+        for (String status : statuses.keySet()) {
+            byte[] b = status.getBytes(StandardCharsets.US_ASCII);
+            buf.put((byte) b.length);
+            buf.put(b);
+        }
+        buf.putShort((short) events.size());
+
+        for (LastLocationEvent e : events) {
+            boolean position = e.lat() != null && e.lon() != null;
+            buf.putShort((short) ((e.active() ? F_ACTIVE : 0) | (e.stale() ? F_STALE : 0)
+                    | (e.sessionId() != null ? F_SESSION : 0) | (e.status() != null ? F_STATUS : 0)
+                    | (e.ts() != null ? F_TS : 0) | (position ? F_POSITION : 0)
+                    | (e.accuracyM() != null ? F_ACCURACY : 0) | (e.speedMps() != null ? F_SPEED : 0)
+                    | (e.headingDeg() != null ? F_HEADING : 0)));
+            uuid(buf, e.userId());
+            if (e.sessionId() != null) uuid(buf, e.sessionId());
+            if (e.status() != null) buf.put(statuses.get(e.status()).byteValue());
+            if (e.ts() != null) buf.putLong(e.ts().toEpochMilli());
+            if (position) {
+                buf.putInt((int) Math.round(e.lat() * 1e7));
+                buf.putInt((int) Math.round(e.lon() * 1e7));
+            }
+            if (e.accuracyM() != null) buf.putFloat(e.accuracyM());
+            if (e.speedMps() != null) buf.putFloat(e.speedMps());
+            if (e.headingDeg() != null) buf.putFloat(e.headingDeg());
+        }
+        byte[] out = new byte[buf.position()];
+        buf.flip().get(out);
+        return out;
+    }
+
+    /** @throws IllegalArgumentException on a malformed or foreign-version message */
+    static Batch decode(byte[] body) {
+        ByteBuffer buf = ByteBuffer.wrap(body);
+        try {
+            int version = buf.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported bus message version: " + version);
+            }
+            UUID nodeId = uuid(buf);
+            long sentAtMs = buf.getLong();
+            String[] statuses = new String[buf.get() & 0xFF];
+            for (int i = 0; i < statuses.length; i++) {
+                byte[] b = new byte[buf.get() & 0xFF];
+                buf.get(b);
+                statuses[i] = new String(b, StandardCharsets.US_ASCII);
+            }
+
+            int count = buf.getShort() & 0xFFFF;
+            List<LastLocationEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int flags = buf.getShort() & 0xFFFF;
+                UUID userId = uuid(buf);
+                UUID sessionId = (flags & F_SESSION) != 0 ? uuid(buf) : null;
+                String status = (flags & F_STATUS) != 0 ? statuses[buf.get() & 0xFF] : null;
+                Instant ts = (flags & F_TS) != 0 ? Instant.ofEpochMilli(buf.getLong()) : null;
+                Double lat = null;
+                Double lon = null;
+                if ((flags & F_POSITION) != 0) {
+                    lat = buf.getInt() / 1e7;
+                    lon = buf.getInt() / 1e7;
+                }
+                events.add(new LastLocationEvent(
+                        userId,
+                        sessionId,
+                        status,
+                        (flags & F_ACTIVE) != 0,
+                        (flags & F_STALE) != 0,
+                        ts,
+                        lat,
+                        lon,
+                        (flags & F_ACCURACY) != 0 ? buf.getFloat() : null,
+                        (flags & F_SPEED) != 0 ? buf.getFloat() : null,
+                        (flags & F_HEADING) != 0 ? buf.getFloat() : null));
+            }
+            if (buf.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after " + count + " events");
+            }
+            return new Batch(nodeId, sentAtMs, events);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Truncated bus message", ex);
+        }
+    }
+
+    private static void uuid(ByteBuffer buf, UUID id) {
+        buf.putLong(id.getMostSignificantBits());
+        buf.putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID uuid(ByteBuffer buf) {
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+}
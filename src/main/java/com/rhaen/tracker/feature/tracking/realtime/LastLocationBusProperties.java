@@ -0,0 +1,20 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Cross-node last-location fan-out. Each node publishes the latest update per user once every batchMs
+ * (at most maxBatch users per message); disabled means a single node, updates only reach local streams.
+ */
+@ConfigurationProperties(prefix = "app.tracking.stream.bus")
+public record LastLocationBusProperties(
+        Boolean enabled,
+        long batchMs,
+        int maxBatch
+) {
+    public LastLocationBusProperties {
+        if (enabled == null) enabled = true;
+        if (batchMs <= 0) batchMs = 50;
+        if (maxBatch <= 0) maxBatch = 500;
+    }
+}
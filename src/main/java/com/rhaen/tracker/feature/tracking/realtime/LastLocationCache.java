@@ -1,6 +1,7 @@
 package com.rhaen.tracker.feature.tracking.realtime;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.concurrency.Bulkheads;
 import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -20,18 +21,21 @@ public class LastLocationCache {
     private final StringRedisTemplate redis;
     private final ObjectMapper objectMapper;
     private final LastLocationProperties props;
-    private final LastLocationBroadcaster broadcaster;
+    private final LastLocationBus bus;
+    private final Bulkheads bulkheads;
 
     public void upsert(LastLocationSnapshot snap) {
         try {
             String key = KEY_PREFIX + snap.userId();
             String json = objectMapper.writeValueAsString(snap);
 
-            redis.opsForValue().set(key, json, Duration.ofMinutes(props.ttlMinutes()));
-            redis.opsForSet().add(USERS_SET, snap.userId().toString());
+            bulkheads.redis().run(() -> {
+                redis.opsForValue().set(key, json, Duration.ofMinutes(props.ttlMinutes()));
+                redis.opsForSet().add(USERS_SET, snap.userId().toString());
+            });
 
-            // 🔴 realtime push (admin stream)
-            broadcaster.broadcastUpdate(toAdminPayload(snap));
+            // 🔴 realtime push (admin stream, every node)
+            bus.publish(toAdminPayload(snap));
         } catch (Exception e) {
             // cache failure should not break ingest
         }
@@ -94,6 +98,28 @@ public class LastLocationCache {
         return result;
     }
 
+    /** Only the given users (a filtered admin stream), one MGET */
+    public List<LastLocationSnapshot> getAll(Collection<UUID> userIds) {
+        if (userIds.isEmpty())
+            return List.of();
+
+        List<String> keys = userIds.stream().map(id -> KEY_PREFIX + id).toList();
+        List<String> jsons = redis.opsForValue().multiGet(keys);
+        if (jsons == null)
+            return List.of();
+
+        List<LastLocationSnapshot> result = new ArrayList<>(jsons.size());
+        for (String json : jsons) {
+            if (json == null)
+                continue;
+            try {
+                result.add(objectMapper.readValue(json, LastLocationSnapshot.class));
+            } catch (Exception ignore) {
+            }
+        }
+        return result;
+    }
+
     /** Computed flag: ACTIVE but last update is old */
     public boolean isStale(LastLocationSnapshot snap) {
         if (!snap.active())
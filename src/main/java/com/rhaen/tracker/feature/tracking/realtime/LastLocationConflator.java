@@ -0,0 +1,34 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest update per user since the last tick. Ingest overwrites (any rate), the tick drains:
+ * a tick frame carries one entry per user that changed, however many batches that user sent.
+ */
+final class LastLocationConflator {
+
+    private final ConcurrentHashMap<UUID, LastLocationEvent> latest = new ConcurrentHashMap<>();
+
+    void offer(LastLocationEvent event) {
+        // batches of one user can be handled out of order on different threads
+        latest.merge(event.userId(), event, (old, next) ->
+                old.ts() != null && next.ts() != null && next.ts().isBefore(old.ts()) ? old : next);
+    }
+
+    /** Removes and returns what changed; an update arriving meanwhile goes to the next tick */
+    List<LastLocationEvent> drain() {
+        if (latest.isEmpty()) return List.of();
+        List<LastLocationEvent> events = new ArrayList<>(latest.size());
+        for (UUID userId : latest.keySet()) {
+            LastLocationEvent event = latest.remove(userId);
+            if (event != null) events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,78 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.common.exception.BadRequestException;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * What one admin stream wants to see: users inside an area and/or a set of users (both: users of the
+ * set while inside the area). No area and no users is the whole fleet.
+ */
+public record LastLocationFilter(Area area, Set<UUID> userIds) {
+
+    public static final LastLocationFilter ALL = new LastLocationFilter(null, null);
+
+    static final int MAX_USER_IDS = 1000;
+
+    public LastLocationFilter {
+        if (userIds != null && userIds.size() > MAX_USER_IDS) {
+            throw new BadRequestException("userIds must have at most " + MAX_USER_IDS + " entries");
+        }
+        userIds = userIds == null || userIds.isEmpty() ? null : Set.copyOf(userIds);
+    }
+
+    /** @param bbox "minLon,minLat,maxLon,maxLat" (GeoJSON order), or null */
+    public static LastLocationFilter of(String bbox, Collection<UUID> userIds) {
+        return new LastLocationFilter(bbox == null || bbox.isBlank() ? null : Area.parse(bbox),
+                userIds == null ? null : Set.copyOf(userIds));
+    }
+
+    public boolean unfiltered() {
+        return area == null && userIds == null;
+    }
+
+    public boolean matches(UUID userId, Double lat, Double lon) {
+        if (userIds != null && !userIds.contains(userId)) return false;
+        return area == null || area.contains(lat, lon);
+    }
+
+    /** WGS84 box, edges included; no antimeridian crossing */
+    public record Area(double minLat, double minLon, double maxLat, double maxLon) {
+
+        public Area {
+            if (!(minLat >= -90 && maxLat <= 90 && minLon >= -180 && maxLon <= 180)) { // NaN too
+                throw new BadRequestException("bbox out of range");
+            }
+            if (minLat > maxLat || minLon > maxLon) {
+                throw new BadRequestException("bbox min must not exceed max");
+            }
+        }
+
+        public static Area of(Double minLat, Double minLon, Double maxLat, Double maxLon) {
+            if (minLat == null || minLon == null || maxLat == null || maxLon == null) {
+                throw new BadRequestException("bbox needs minLat, minLon, maxLat and maxLon");
+            }
+            return new Area(minLat, minLon, maxLat, maxLon);
+        }
+
+        static Area parse(String bbox) {
+            String[] parts = bbox.split(",");
+            if (parts.length != 4) {
+                throw new BadRequestException("bbox must be minLon,minLat,maxLon,maxLat");
+            }
+            try {
+                return new Area(Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[0].trim()),
+                        Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[2].trim()));
+            } catch (NumberFormatException ex) {
+                throw new BadRequestException("bbox must be minLon,minLat,maxLon,maxLat");
+            }
+        }
+
+        public boolean contains(Double lat, Double lon) {
+            return lat != null && lon != null
+                    && lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Admin SSE fan-out: each subscriber has its own queue of queueCapacity frames, drained by a pool
+ * of senders threads. overflow and tickMs are the defaults when a subscriber does not pick its own.
+ * tickMs 0 (default) streams every "update" as it comes; a tick sends one conflated "updates" frame
+ * instead, which existing clients do not listen for, so it is opt-in per subscriber.
+ * meteredSubscribers caps the streams with their own subscriber-tagged meters; the rest share one tag.
+ */
+@ConfigurationProperties(prefix = "app.tracking.stream")
+public record LastLocationStreamProperties(
+        int senders,
+        int queueCapacity,
+        Overflow overflow,
+        Long tickMs,
+        Integer meteredSubscribers
+) {
+    public LastLocationStreamProperties {
+        if (senders <= 0) senders = 2;
+        if (queueCapacity <= 0) queueCapacity = 256;
+        if (overflow == null) overflow = Overflow.COALESCE;
+        if (tickMs == null) tickMs = 0L;
+        if (meteredSubscribers == null || meteredSubscribers < 0) meteredSubscribers = 50;
+    }
+
+    /** What a full subscriber queue does with the next frame */
+    public enum Overflow {
+        /** drop the oldest queued frame */
+        DROP_OLDEST,
+        /** keep only the newest queued update per user, then drop the oldest */
+        COALESCE,
+        /** close the stream; the client reconnects and gets a fresh init */
+        DISCONNECT
+    }
+}
@@ -0,0 +1,106 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A complete SSE frame, encoded once and written as-is to every subscriber.
+ * It is an {@link SseEmitter.SseEventBuilder} only so {@code emitter.send(frame)} accepts it: the single
+ * byte[] part goes out through ByteArrayHttpMessageConverter, with no Jackson pass per subscriber.
+ */
+final class SseFrame implements SseEmitter.SseEventBuilder {
+
+    /** Keep-alive comment line; EventSource ignores it */
+    static final SseFrame HEARTBEAT = new SseFrame("ping", ":ping\n\n".getBytes(StandardCharsets.UTF_8));
+
+    private final String name;
+    private final int size;
+    private final Set<ResponseBodyEmitter.DataWithMediaType> parts;
+
+    SseFrame(String name, byte[] bytes) {
+        this.name = name;
+        this.size = bytes.length;
+        this.parts = Set.of(new ResponseBodyEmitter.DataWithMediaType(bytes, MediaType.TEXT_EVENT_STREAM));
+    }
+
+    /** {@code event:<name>\ndata:<json>\n\n}, what SseEmitter.event().name(name).data(data) would write */
+    static SseFrame event(String name, Object data, ObjectMapper objectMapper) throws JsonProcessingException {
+        return json(name, objectMapper.writeValueAsBytes(data));
+    }
+
+    /** A JSON array frame from items each encoded once, so differently filtered frames reuse the bytes */
+    static SseFrame array(String name, List<byte[]> items) {
+        int length = 2 + Math.max(0, items.size() - 1);
+        for (byte[] item : items) length += item.length;
+        byte[] json = new byte[length];
+        int pos = 0;
+        json[pos++] = '[';
+        for (byte[] item : items) {
+            if (pos > 1) json[pos++] = ',';
+            System.arraycopy(item, 0, json, pos, item.length);
+            pos += item.length;
+        }
+        json[pos] = ']';
+        return json(name, json);
+    }
+
+    private static SseFrame json(String name, byte[] json) {
+        byte[] head = ("event:" + name + "\ndata:").getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[head.length + json.length + 2];
+        System.arraycopy(head, 0, frame, 0, head.length);
+        System.arraycopy(json, 0, frame, head.length, json.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return new SseFrame(name, frame);
+    }
+
+    String name() {
+        return name;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @Override
+    public Set<ResponseBodyEmitter.DataWithMediaType> build() {
+        return parts;
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder comment(String comment) {
+        throw new UnsupportedOperationException("Pre-encoded frame");
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder name(String name) {
+        throw new UnsupportedOperationException("Pre-encoded frame");
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder id(String id) {
+        throw new UnsupportedOperationException("Pre-encoded frame");
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder reconnectTime(long reconnectTimeMillis) {
+        throw new UnsupportedOperationException("Pre-encoded frame");
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder data(Object object) {
+        throw new UnsupportedOperationException("Pre-encoded frame");
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder data(Object object, MediaType mediaType) {
+        throw new UnsupportedOperationException("Pre-encoded frame");
+    }
+}
@@ -0,0 +1,162 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * One admin SSE connection: a bounded queue of frames and the overflow policy that keeps it bounded.
+ * Publishers only enqueue; at most one sender drains a subscriber at a time ({@link #claim()}),
+ * so frames reach the emitter in order and a slow client only backs up its own queue.
+ * <p>
+ * The filter can change while the stream is open; {@link SubscriptionIndex} routes updates by it.
+ */
+final class SseSubscriber {
+
+    private final String id;
+    private final SseEmitter emitter;
+    private final LastLocationStreamProperties.Overflow overflow;
+    private final int capacity;
+    private final long tickMs;
+    private final Counter overflowDrops;
+    private final Counter coalesced;
+    private final Timer sendTimer;
+    private final Function<LastLocationFilter, ?> init;
+
+    private volatile LastLocationFilter filter;
+    // users last sent inside the filter area: their update leaving it is sent too, so the marker goes away
+    private final Set<UUID> visible = ConcurrentHashMap.newKeySet();
+
+    // insertion order is send order; keyed by user id when coalescing, by sequence otherwise
+    private final LinkedHashMap<Object, SseFrame> pending = new LinkedHashMap<>();
+    private long sequence;
+    private boolean closed;
+
+    // held by the subscribe call until the init frame is queued
+    private final AtomicBoolean draining = new AtomicBoolean(true);
+
+    SseSubscriber(String id, SseEmitter emitter, LastLocationStreamProperties.Overflow overflow, int capacity,
+                  long tickMs, Counter overflowDrops, Counter coalesced, Timer sendTimer,
+                  LastLocationFilter filter, Function<LastLocationFilter, ?> init) {
+        this.id = id;
+        this.emitter = emitter;
+        this.overflow = overflow;
+        this.capacity = capacity;
+        this.tickMs = tickMs;
+        this.overflowDrops = overflowDrops;
+        this.coalesced = coalesced;
+        this.sendTimer = sendTimer;
+        this.filter = filter;
+        this.init = init;
+    }
+
+    /**
+     * @param key frames with the same non-null key coalesce (user id of an update)
+     * @return false if the queue is full and the policy is DISCONNECT
+     */
+    synchronized boolean offer(SseFrame frame, Object key) {
+        if (closed) return true;
+        boolean coalesce = overflow == LastLocationStreamProperties.Overflow.COALESCE && key != null;
+        if (!coalesce) key = sequence++;
+        if (coalesce && pending.remove(key) != null) {
+            coalesced.increment();
+        }
+        if (pending.size() >= capacity) {
+            overflowDrops.increment();
+            if (overflow == LastLocationStreamProperties.Overflow.DISCONNECT) return false;
+            pending.pollFirstEntry();
+        }
+        pending.put(key, frame);
+        return true;
+    }
+
+    /** Ahead of everything queued so far (init snapshot), never dropped for capacity */
+    synchronized void offerFirst(SseFrame frame) {
+        if (closed) return;
+        pending.putFirst(sequence++, frame);
+    }
+
+    synchronized SseFrame poll() {
+        Map.Entry<Object, SseFrame> next = pending.pollFirstEntry();
+        return next != null ? next.getValue() : null;
+    }
+
+    synchronized int depth() {
+        return pending.size();
+    }
+
+    /** Drops queued frames (made for a filter that no longer applies); the stream stays open */
+    synchronized void clear() {
+        pending.clear();
+    }
+
+    synchronized void close() {
+        closed = true;
+        pending.clear();
+    }
+
+    /** @return true if the caller became the (only) sender and must drain */
+    boolean claim() {
+        return draining.compareAndSet(false, true);
+    }
+
+    /** Sender done for now; @return true if frames arrived meanwhile and the caller drains again */
+    boolean release() {
+        draining.set(false);
+        return depth() > 0 && claim();
+    }
+
+    String id() {
+        return id;
+    }
+
+    /** 0: every update as it comes, otherwise one conflated frame per tick */
+    long tickMs() {
+        return tickMs;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    Timer sendTimer() {
+        return sendTimer;
+    }
+
+    LastLocationFilter filter() {
+        return filter;
+    }
+
+    /** Only through {@link SubscriptionIndex#update}, which re-indexes the subscriber */
+    void filter(LastLocationFilter filter) {
+        this.filter = filter;
+        visible.clear();
+    }
+
+    /** Snapshot for the "init" frame under the current filter */
+    Object init() {
+        return init.apply(filter);
+    }
+
+    /** @return true if the user was not visible yet */
+    boolean show(UUID userId) {
+        return visible.add(userId);
+    }
+
+    /** @return true if the user was visible */
+    boolean hide(UUID userId) {
+        return visible.remove(userId);
+    }
+
+    Set<UUID> visible() {
+        return visible;
+    }
+}
@@ -0,0 +1,186 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Routes an update to the subscribers whose filter can match it, without testing every subscriber:
+ * <ul>
+ *   <li>user-set filters are indexed by user id,</li>
+ *   <li>area filters by the {@value #CELL_DEG}° grid cells they overlap (a larger area than
+ *       {@value #MAX_CELLS} cells is tested against every update, like an unfiltered stream; those are
+ *       kept per tick, so a tick only walks its own),</li>
+ *   <li>an area subscriber that was sent a user inside its area also gets the update taking the
+ *       user out of it, so the client can drop the marker.</li>
+ * </ul>
+ * Registration changes are serialized; routing runs concurrently on ingest and tick threads.
+ * A subscriber's visible users and its viewer entries change together under its visible set's monitor,
+ * so a route racing a remove or filter change cannot leave it behind as a viewer.
+ */
+final class SubscriptionIndex {
+
+    static final double CELL_DEG = 0.25; // ~28 km: a city is a handful of cells
+    static final int MAX_CELLS = 1024;
+
+    private final ConcurrentHashMap<Long, Set<SseSubscriber>> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Set<SseSubscriber>> byUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<SseSubscriber>> everywhere = new ConcurrentHashMap<>(); // by tick
+    private final ConcurrentHashMap<UUID, Set<SseSubscriber>> viewers = new ConcurrentHashMap<>();
+    // the filter each subscriber is indexed under
+    private final ConcurrentHashMap<SseSubscriber, LastLocationFilter> registered = new ConcurrentHashMap<>();
+
+    private final DistributionSummary candidates;
+
+    SubscriptionIndex(DistributionSummary candidates) {
+        this.candidates = candidates;
+    }
+
+    synchronized void add(SseSubscriber subscriber) {
+        register(subscriber, subscriber.filter());
+    }
+
+    synchronized void remove(SseSubscriber subscriber) {
+        unregister(subscriber, subscriber.filter());
+    }
+
+    synchronized void update(SseSubscriber subscriber, LastLocationFilter filter) {
+        unregister(subscriber, subscriber.filter());
+        subscriber.filter(filter);
+        register(subscriber, filter);
+    }
+
+    /**
+     * Subscribers of the given tick that get this update; also records which users each area
+     * subscriber now sees.
+     */
+    List<SseSubscriber> route(LastLocationEvent event, long tickMs) {
+        Set<SseSubscriber> all = everywhere.getOrDefault(tickMs, Set.of());
+        Set<SseSubscriber> indexed = new HashSet<>();
+        addAll(indexed, byUser.get(event.userId()), tickMs, all);
+        addAll(indexed, viewers.get(event.userId()), tickMs, all);
+        if (event.lat() != null && event.lon() != null) {
+            addAll(indexed, cells.get(cell(event.lat(), event.lon())), tickMs, all);
+        }
+
+        List<SseSubscriber> to = new ArrayList<>();
+        int tested = indexed.size();
+        for (SseSubscriber subscriber : all) {
+            // a subscriber re-indexed meanwhile may be in both
+            if (indexed.contains(subscriber)) continue;
+            tested++;
+            if (deliver(subscriber, event)) to.add(subscriber);
+        }
+        for (SseSubscriber subscriber : indexed) {
+            if (deliver(subscriber, event)) to.add(subscriber);
+        }
+        candidates.record(tested);
+        return to;
+    }
+
+    private boolean deliver(SseSubscriber subscriber, LastLocationEvent event) {
+        LastLocationFilter filter = subscriber.filter();
+        UUID userId = event.userId();
+        if (filter.userIds() != null && !filter.userIds().contains(userId)) return false;
+        if (filter.area() == null) return true;
+
+        Set<UUID> visible = subscriber.visible();
+        if (filter.area().contains(event.lat(), event.lon())) {
+            synchronized (visible) {
+                // removed or re-filtered since the filter was read: unregister has already forgotten it
+                if (registered.get(subscriber) == filter && subscriber.show(userId)) {
+                    viewers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+                }
+            }
+            return true;
+        }
+        synchronized (visible) {
+            if (!subscriber.hide(userId)) return false;
+            forget(userId, subscriber);
+        }
+        return true;
+    }
+
+    private void register(SseSubscriber subscriber, LastLocationFilter filter) {
+        if (filter.userIds() != null) {
+            for (UUID userId : filter.userIds()) {
+                byUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            }
+        } else if (filter.area() != null && cellCount(filter.area()) <= MAX_CELLS) {
+            forEachCell(filter.area(), cell ->
+                    cells.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        } else {
+            everywhere.computeIfAbsent(subscriber.tickMs(), t -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        registered.put(subscriber, filter);
+    }
+
+    private void unregister(SseSubscriber subscriber, LastLocationFilter filter) {
+        if (filter.userIds() != null) {
+            for (UUID userId : filter.userIds()) {
+                removeFrom(byUser, userId, subscriber);
+            }
+        } else if (filter.area() != null && cellCount(filter.area()) <= MAX_CELLS) {
+            forEachCell(filter.area(), cell -> removeFrom(cells, cell, subscriber));
+        } else {
+            removeFrom(everywhere, subscriber.tickMs(), subscriber);
+        }
+        synchronized (subscriber.visible()) {
+            registered.remove(subscriber);
+            for (UUID userId : subscriber.visible()) {
+                forget(userId, subscriber);
+            }
+        }
+    }
+
+    private void forget(UUID userId, SseSubscriber subscriber) {
+        removeFrom(viewers, userId, subscriber);
+    }
+
+    private static <K> void removeFrom(ConcurrentHashMap<K, Set<SseSubscriber>> index, K key,
+                                       SseSubscriber subscriber) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static void addAll(Set<SseSubscriber> to, Set<SseSubscriber> from, long tickMs,
+                               Set<SseSubscriber> everywhere) {
+        if (from == null) return;
+        for (SseSubscriber subscriber : from) {
+            if (subscriber.tickMs() == tickMs && !everywhere.contains(subscriber)) to.add(subscriber);
+        }
+    }
+
+    static long cell(double lat, double lon) {
+        return (row(lat) << 32) | column(lon);
+    }
+
+    private static long row(double lat) {
+        return (long) Math.floor((lat + 90) / CELL_DEG);
+    }
+
+    private static long column(double lon) {
+        return (long) Math.floor((lon + 180) / CELL_DEG);
+    }
+
+    private static long cellCount(LastLocationFilter.Area area) {
+        return (row(area.maxLat()) - row(area.minLat()) + 1) * (column(area.maxLon()) - column(area.minLon()) + 1);
+    }
+
+    private static void forEachCell(LastLocationFilter.Area area, LongConsumer action) {
+        for (long r = row(area.minLat()); r <= row(area.maxLat()); r++) {
+            for (long c = column(area.minLon()); c <= column(area.maxLon()); c++) {
+                action.accept((r << 32) | c);
+            }
+        }
+    }
+}
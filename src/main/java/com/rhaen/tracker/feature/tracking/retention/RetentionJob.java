@@ -1,5 +1,7 @@
 package com.rhaen.tracker.feature.tracking.retention;
 
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
@@ -7,12 +9,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -20,15 +24,22 @@ public class RetentionJob {
 
     private final JdbcTemplate jdbc;
     private final RetentionProperties props;
+    private final SessionMetaCache sessionMetaCache;
+    private final SessionResponseCache sessionResponseCache;
+    private final TrackingPointPartitions partitions;
     private final MeterRegistry meterRegistry;
 
     private Counter archivedSessions;
     private Counter prunedPoints;
+    private Counter droppedPartitions;
+    private Counter prunedEvents;
 
     @PostConstruct
     void init() {
         archivedSessions = meterRegistry.counter("tracker.retention.sessions.archived.total");
         prunedPoints = meterRegistry.counter("tracker.retention.points.pruned.total");
+        droppedPartitions = meterRegistry.counter("tracker.retention.partitions.dropped.total");
+        prunedEvents = meterRegistry.counter("tracker.retention.events.pruned.total");
 
         if (props.runAtStartup()) {
             // startup’da bir marta ishlatish (test/qa)
@@ -41,7 +52,10 @@ public class RetentionJob {
         runOnce();
     }
 
-    @Transactional
+    /**
+     * Not one transaction: every step is a short statement of its own, and partition DDL must not
+     * hold locks for the length of the whole sweep.
+     */
     public void runOnce() {
         Instant now = Instant.now();
 
@@ -52,10 +66,21 @@ public class RetentionJob {
         int archived = archiveSessions(archiveCutoff, props.batchSessions());
         if (archived > 0) archivedSessions.increment(archived);
 
-        // 2) mark summaries as pruned (only for old sessions)
-        markSummariesPruned(pruneCutoff, props.batchSessions());
-
-        // 3) delete raw points older than pruneCutoff (batch loop)
+        // 2) mark summaries as pruned (only for old sessions), all of them before any partition goes
+        int marked;
+        do {
+            marked = markSummariesPruned(pruneCutoff, props.batchSessions());
+        } while (marked == props.batchSessions());
+
+        // 3) day partitions: create ahead, drop whole days older than pruneCutoff
+        LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        partitions.createAhead(TrackingPointPartitions.Table.POINTS, today, props.partitionPremakeDays());
+        partitions.createAhead(TrackingPointPartitions.Table.EVENTS, today, props.partitionPremakeDays());
+        int dropped = partitions.dropBefore(pruneCutoff);
+        int droppedEventDays = partitions.dropIdleEventDays(today);
+        if (dropped + droppedEventDays > 0) droppedPartitions.increment(dropped + droppedEventDays);
+
+        // 4) late points in the default partition are deleted row-wise (batch loop)
         int deleted;
         int totalDeleted = 0;
         do {
@@ -64,6 +89,17 @@ public class RetentionJob {
         } while (deleted > 0);
 
         if (totalDeleted > 0) prunedPoints.increment(totalDeleted);
+
+        // 5) dedup keys of stopped sessions in the default partition (day partitions went in step 3)
+        int totalEvents = 0;
+        do {
+            deleted = pruneEventsBatch(props.batchPoints());
+            totalEvents += deleted;
+        } while (deleted > 0);
+        if (totalEvents > 0) prunedEvents.increment(totalEvents);
+
+        // cached points responses may now list removed rows; which sessions is not known
+        if (dropped > 0 || totalDeleted > 0) sessionResponseCache.clear();
     }
 
     private int archiveSessions(Instant cutoff, int batch) {
@@ -81,12 +117,13 @@ public class RetentionJob {
                 ORDER BY stop_time ASC
                 LIMIT ?
              )
+            RETURNING id
             """;
         OffsetDateTime cutoffTs = cutoff.atOffset(ZoneOffset.UTC);
-        return jdbc.update(sql, ps -> {
-            ps.setObject(1, cutoffTs);
-            ps.setInt(2, batch);
-        });
+        List<UUID> ids = jdbc.queryForList(sql, UUID.class, cutoffTs, batch);
+        sessionMetaCache.invalidateAll(ids);
+        sessionResponseCache.invalidateAll(ids);
+        return ids.size();
     }
 
     private int markSummariesPruned(Instant cutoff, int batch) {
@@ -98,28 +135,29 @@ public class RetentionJob {
              WHERE ss.session_id IN (
                SELECT s.id
                  FROM tracking_sessions s
+                 JOIN session_summary pending ON pending.session_id = s.id
                 WHERE s.stop_time IS NOT NULL
                   AND s.stop_time < ?
                   AND s.status IN ('STOPPED','EXPIRED','ARCHIVED')
+                  AND pending.raw_points_pruned_at IS NULL
                 ORDER BY s.stop_time ASC
                 LIMIT ?
              )
-               AND ss.raw_points_pruned_at IS NULL
+            RETURNING ss.session_id
             """;
         OffsetDateTime cutoffTs = cutoff.atOffset(ZoneOffset.UTC);
-        return jdbc.update(sql, ps -> {
-            ps.setObject(1, cutoffTs);
-            ps.setInt(2, batch);
-        });
+        List<UUID> ids = jdbc.queryForList(sql, UUID.class, cutoffTs, batch);
+        sessionResponseCache.invalidateAll(ids); // summary.updated_at moved: new ETag
+        return ids.size();
     }
 
     private int prunePointsBatch(Instant cutoff, int batchPoints) {
-        // Batch delete by id (LIMIT supported via subquery)
+        // Batch delete by id (LIMIT supported via subquery); day partitions are dropped whole instead
         String sql = """
-            DELETE FROM tracking_points
+            DELETE FROM tracking_points_default
              WHERE id IN (
                SELECT id
-                 FROM tracking_points
+                 FROM tracking_points_default
                 WHERE device_timestamp < ?
                 ORDER BY device_timestamp ASC
                 LIMIT ?
@@ -131,4 +169,19 @@ public class RetentionJob {
             ps.setInt(2, batchPoints);
         });
     }
+
+    private int pruneEventsBatch(int batchPoints) {
+        // no more points can arrive for a non-ACTIVE session, its keys can go right away
+        String sql = """
+            DELETE FROM tracking_point_events_default
+             WHERE (session_id, event_id) IN (
+               SELECT e.session_id, e.event_id
+                 FROM tracking_point_events_default e
+                 JOIN tracking_sessions s ON s.id = e.session_id
+                WHERE s.status <> 'ACTIVE'
+                LIMIT ?
+             )
+            """;
+        return jdbc.update(sql, ps -> ps.setInt(1, batchPoints));
+    }
 }
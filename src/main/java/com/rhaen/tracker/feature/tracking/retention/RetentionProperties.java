@@ -9,5 +9,6 @@ public record RetentionProperties(
         long sweepIntervalSeconds,
         int batchSessions,
         int batchPoints,
-        boolean runAtStartup
+        boolean runAtStartup,
+        int partitionPremakeDays
 ) {}
@@ -0,0 +1,159 @@
+package com.rhaen.tracker.feature.tracking.retention;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Daily RANGE partitions of tracking_points (V9, by device_timestamp) and tracking_point_events
+ * (V16, by the session's start): {table}_pYYYYMMDD covers one UTC day.
+ * Partitions are created ahead of time; point days are dropped whole once they fall past the prune cutoff,
+ * event key days once no session started that day is still ACTIVE.
+ * Each DDL runs in its own short transaction with a lock timeout, so a busy table only delays
+ * the step to the next sweep instead of stalling ingest.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TrackingPointPartitions {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String LIST_SQL = """
+            SELECT c.relname
+              FROM pg_inherits i
+              JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = ?::regclass
+            """;
+
+    // a session only starts "now", so a past day with no ACTIVE session cannot get one later
+    private static final String ACTIVE_DAYS_SQL = """
+            SELECT DISTINCT (start_time AT TIME ZONE 'UTC')::date
+              FROM tracking_sessions
+             WHERE status = 'ACTIVE'
+            """;
+
+    public enum Table {
+        POINTS("tracking_points", "device_timestamp"),
+        EVENTS("tracking_point_events", "session_start");
+
+        final String parent;
+        final String column;
+
+        Table(String parent, String column) {
+            this.parent = parent;
+            this.column = column;
+        }
+
+        String prefix() {
+            return parent + "_p";
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+
+    /** Day partitions currently attached, oldest first */
+    public List<LocalDate> days(Table table) {
+        return jdbc.queryForList(LIST_SQL, String.class, table.parent).stream()
+                .filter(name -> name.startsWith(table.prefix()))
+                .map(name -> LocalDate.parse(name.substring(table.prefix().length()), SUFFIX))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Creates missing partitions for {@code today .. today + daysAhead}.
+     * Built as a plain table and then attached (ATTACH only needs SHARE UPDATE EXCLUSIVE on the parent,
+     * so inserts keep flowing); rows of that day already sitting in the default partition are moved first.
+     */
+    public int createAhead(Table table, LocalDate today, int daysAhead) {
+        Set<LocalDate> existing = new HashSet<>(days(table));
+        int created = 0;
+        for (int i = 0; i <= daysAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            if (existing.contains(day)) continue;
+            try {
+                inShortTx("""
+                        CREATE TABLE IF NOT EXISTS %1$s (LIKE %4$s INCLUDING DEFAULTS INCLUDING CONSTRAINTS);
+                        WITH moved AS (
+                          DELETE FROM %4$s_default
+                           WHERE %5$s >= '%2$s' AND %5$s < '%3$s'
+                          RETURNING *
+                        )
+                        INSERT INTO %1$s SELECT * FROM moved;
+                        ALTER TABLE %4$s ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s')
+                        """.formatted(name(table, day), start(day), start(day.plusDays(1)), table.parent, table.column));
+                created++;
+            } catch (DataAccessException ex) {
+                log.warn("Could not create partition {}: {}", name(table, day), ex.getMostSpecificCause().getMessage());
+                break;
+            }
+        }
+        return created;
+    }
+
+    /** Detaches and drops every points day partition that ends at or before {@code cutoff} */
+    public int dropBefore(Instant cutoff) {
+        int dropped = 0;
+        for (LocalDate day : days(Table.POINTS)) {
+            if (start(day.plusDays(1)).isAfter(cutoff)) break;
+            if (!drop(Table.POINTS, day)) break;
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Detaches and drops every event key day partition before {@code today} on which no still-ACTIVE session
+     * started: the ingest insert skips non-ACTIVE sessions, so their keys are never read again.
+     */
+    public int dropIdleEventDays(LocalDate today) {
+        Set<LocalDate> active = new HashSet<>(jdbc.queryForList(ACTIVE_DAYS_SQL, LocalDate.class));
+        int dropped = 0;
+        for (LocalDate day : days(Table.EVENTS)) {
+            if (!day.isBefore(today)) break;
+            if (active.contains(day)) continue;
+            if (!drop(Table.EVENTS, day)) break;
+            dropped++;
+        }
+        return dropped;
+    }
+
+    private boolean drop(Table table, LocalDate day) {
+        try {
+            inShortTx("ALTER TABLE %2$s DETACH PARTITION %1$s; DROP TABLE %1$s".formatted(name(table, day), table.parent));
+            return true;
+        } catch (DataAccessException ex) {
+            log.warn("Could not drop partition {}: {}", name(table, day), ex.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+
+    private void inShortTx(String ddl) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbc.execute("SET LOCAL lock_timeout = '5s'");
+            jdbc.execute(ddl);
+        });
+    }
+
+    static String name(Table table, LocalDate day) {
+        return table.prefix() + day.format(SUFFIX);
+    }
+
+    private static Instant start(LocalDate day) {
+        return day.atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,9 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.tracking.session-cache")
+public record SessionCacheProperties(
+        long maxSize,
+        long ttlSeconds
+) {}
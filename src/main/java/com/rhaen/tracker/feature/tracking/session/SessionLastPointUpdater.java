@@ -0,0 +1,191 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces "last known" session updates (start_point, last_point, last_point_at).
+ * Ingest only records the newest point in memory; dirty sessions are written every
+ * app.tracking.session.last-point-flush-ms with one multi-row UPDATE ... FROM (VALUES ...),
+ * so a hot session row is rewritten once per interval instead of once per batch.
+ * Stop flushes its session before loading it, expiry sweep flushes everything first. Both flush inside
+ * the caller's transaction (no second connection); entries come back if it rolls back.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SessionLastPointUpdater {
+
+    private static final int FLUSH_CHUNK = 500;
+
+    private static final String UPDATE_SQL_HEAD = """
+            UPDATE tracking_sessions s
+               SET start_point   = COALESCE(s.start_point,
+                                            CASE WHEN v.start_lon IS NULL THEN NULL
+                                                 ELSE ST_SetSRID(ST_MakePoint(v.start_lon, v.start_lat), 4326)::geography END),
+                   last_point    = CASE WHEN s.last_point_at IS NULL OR v.last_point_at >= s.last_point_at
+                                        THEN ST_SetSRID(ST_MakePoint(v.last_lon, v.last_lat), 4326)::geography
+                                        ELSE s.last_point END,
+                   last_point_at = GREATEST(s.last_point_at, v.last_point_at),
+                   updated_at    = now()
+              FROM (VALUES
+            """;
+
+    private static final String UPDATE_SQL_ROW = "(?::uuid, ?::float8, ?::float8, ?::float8, ?::float8, ?::timestamptz)";
+
+    // status guard: a late flush must not touch a stopped/expired session
+    private static final String UPDATE_SQL_TAIL = """
+                   ) AS v(id, start_lon, start_lat, last_lon, last_lat, last_point_at)
+             WHERE s.id = v.id
+               AND s.status = 'ACTIVE'
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<UUID, Pending> pending = new ConcurrentHashMap<>();
+
+    private TransactionTemplate flushTx;
+    private Counter flushedSessions;
+    private Timer flushTimer;
+
+    @PostConstruct
+    void init() {
+        // Scheduled flush only; stop/sweep flush inside their own transaction
+        flushTx = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("tracker.session.lastpoint.pending", pending, Map::size)
+                .description("Sessions with unflushed last point")
+                .register(meterRegistry);
+        flushedSessions = meterRegistry.counter("tracker.session.lastpoint.flushed.total");
+        flushTimer = Timer.builder("tracker.session.lastpoint.flush.duration")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param start earliest point of the batch, null when the session already has start_point
+     * @param last  latest point of the batch
+     */
+    public void record(UUID sessionId, LastPoint start, LastPoint last) {
+        pending.merge(sessionId, new Pending(start, last), Pending::merge);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.session.last-point-flush-ms:500}")
+    public void flushAll() {
+        if (pending.isEmpty()) return;
+
+        List<Map.Entry<UUID, Pending>> batch = new ArrayList<>(pending.size());
+        for (UUID id : pending.keySet()) {
+            Pending p = pending.remove(id);
+            if (p != null) batch.add(Map.entry(id, p));
+        }
+        // Same row lock order on every node, concurrent flushes cannot deadlock
+        batch.sort(Map.Entry.comparingByKey());
+        write(batch);
+    }
+
+    /** Flushes one session (called before stop loads the entity) */
+    public void flush(UUID sessionId) {
+        Pending p = pending.remove(sessionId);
+        if (p != null) write(List.of(Map.entry(sessionId, p)));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushAll();
+    }
+
+    private void write(List<Map.Entry<UUID, Pending>> batch) {
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        for (int from = 0; from < batch.size(); from += FLUSH_CHUNK) {
+            List<Map.Entry<UUID, Pending>> chunk = batch.subList(from, Math.min(batch.size(), from + FLUSH_CHUNK));
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                if (joined) {
+                    putBackOnRollback(chunk);
+                    jdbc.update(buildSql(chunk.size()), args(chunk));
+                } else {
+                    flushTx.executeWithoutResult(status -> jdbc.update(buildSql(chunk.size()), args(chunk)));
+                }
+                flushedSessions.increment(chunk.size());
+            } catch (Exception ex) {
+                // Caller's transaction is broken now, let it fail (entries come back on its rollback)
+                if (joined) throw ex;
+                // Put back for the next tick; merge keeps the newest point if ingest wrote meanwhile
+                log.warn("Last point flush failed for {} sessions, will retry: {}", chunk.size(), ex.toString());
+                putBack(chunk);
+            } finally {
+                sample.stop(flushTimer);
+            }
+        }
+    }
+
+    private void putBackOnRollback(List<Map.Entry<UUID, Pending>> chunk) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) putBack(chunk);
+            }
+        });
+    }
+
+    private void putBack(List<Map.Entry<UUID, Pending>> chunk) {
+        chunk.forEach(e -> pending.merge(e.getKey(), e.getValue(), Pending::merge));
+    }
+
+    private static String buildSql(int rows) {
+        StringBuilder sql = new StringBuilder(UPDATE_SQL_HEAD);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "  " : ", ").append(UPDATE_SQL_ROW).append('\n');
+        }
+        return sql.append(UPDATE_SQL_TAIL).toString();
+    }
+
+    private static Object[] args(List<Map.Entry<UUID, Pending>> chunk) {
+        Object[] args = new Object[chunk.size() * 6];
+        int i = 0;
+        for (Map.Entry<UUID, Pending> e : chunk) {
+            Pending p = e.getValue();
+            args[i++] = e.getKey();
+            args[i++] = p.start() != null ? p.start().lon() : null;
+            args[i++] = p.start() != null ? p.start().lat() : null;
+            args[i++] = p.last().lon();
+            args[i++] = p.last().lat();
+            args[i++] = p.last().at().atOffset(ZoneOffset.UTC);
+        }
+        return args;
+    }
+
+    public record LastPoint(double lon, double lat, Instant at) {}
+
+    private record Pending(LastPoint start, LastPoint last) {
+        Pending merge(Pending newer) {
+            LastPoint s = start == null ? newer.start
+                    : newer.start == null || !newer.start.at().isBefore(start.at()) ? start : newer.start;
+            LastPoint l = newer.last.at().isBefore(last.at()) ? last : newer.last;
+            return new Pending(s, l);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rhaen.tracker.common.cache.ClusterInvalidation;
+import com.rhaen.tracker.feature.tracking.persistence.SessionMeta;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * In-process cache of session ownership/status for the ingest path (saves a DB round trip per batch).
+ * Status changes invalidate the entry locally and on other nodes via Redis pub/sub ({@link ClusterInvalidation}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SessionMetaCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "tracker:session-meta:invalidate";
+
+    private static final String SESSIONS_PREFIX = "s:"; // s:{id},{id}...
+    private static final String USER_PREFIX = "u:";     // u:{userId}
+
+    private final TrackingSessionRepository sessionRepository;
+    private final StringRedisTemplate redis;
+    private final SessionCacheProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<UUID, SessionMeta> cache;
+    private ClusterInvalidation invalidation;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(props.maxSize())
+                .expireAfterWrite(Duration.ofSeconds(props.ttlSeconds()))
+                .build();
+        invalidation = new ClusterInvalidation(redis, INVALIDATION_CHANNEL);
+
+        hits = meterRegistry.counter("tracker.session.cache.hits.total");
+        misses = meterRegistry.counter("tracker.session.cache.misses.total");
+        Gauge.builder("tracker.session.cache.size", this, c -> c.cache.estimatedSize())
+                .register(meterRegistry);
+    }
+
+    /** Cached meta, loaded from DB on miss. Empty if the session does not exist (not cached). */
+    public Optional<SessionMeta> get(UUID sessionId) {
+        SessionMeta meta = cache.getIfPresent(sessionId);
+        if (meta != null) {
+            hits.increment();
+            return Optional.of(meta);
+        }
+
+        misses.increment();
+        Optional<SessionMeta> loaded = sessionRepository.findMetaById(sessionId);
+        loaded.ifPresent(m -> cache.put(sessionId, m));
+        return loaded;
+    }
+
+    /** start_point is never cleared, so this only needs to be local */
+    public void markStartPoint(UUID sessionId) {
+        cache.asMap().computeIfPresent(sessionId, (id, m) -> m.withStartPoint());
+    }
+
+    public void invalidate(UUID sessionId) {
+        invalidateAll(List.of(sessionId));
+    }
+
+    public void invalidateAll(Collection<UUID> sessionIds) {
+        if (sessionIds.isEmpty()) return;
+        String message = SESSIONS_PREFIX + sessionIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+        invalidation.invalidate(() -> cache.invalidateAll(sessionIds), message);
+    }
+
+    /** User deleted: drop all of the user's sessions */
+    public void invalidateUser(UUID userId) {
+        invalidation.invalidate(() -> evictUser(userId), USER_PREFIX + userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(USER_PREFIX)) {
+                evictUser(UUID.fromString(body.substring(USER_PREFIX.length())));
+            } else if (body.startsWith(SESSIONS_PREFIX)) {
+                for (String id : body.substring(SESSIONS_PREFIX.length()).split(",")) {
+                    cache.invalidate(UUID.fromString(id));
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring malformed session cache invalidation: {}", body);
+        }
+    }
+
+    private void evictUser(UUID userId) {
+        cache.asMap().values().removeIf(m -> m.userId().equals(userId));
+    }
+}
@@ -0,0 +1,295 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rhaen.tracker.common.cache.ClusterInvalidation;
+import com.rhaen.tracker.common.exception.ForbiddenException;
+import com.rhaen.tracker.common.response.ApiResponse;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Pre-serialized JSON of finished-session reads (summary, points) with strong ETags.
+ * Once a session is STOPPED/EXPIRED/ARCHIVED and its summary is written, these responses only change when
+ * the summary is rebuilt, retention archives the session or prunes its points, or the owner is deleted;
+ * each of those invalidates here and on other nodes via Redis pub/sub. A hit costs no query and no
+ * serialization, a matching If-None-Match not even the body. Everything else is served uncached.
+ * The ETag is derived from the session status and session_summary.updated_at, so a miss with a matching
+ * If-None-Match is answered 304 after the version query alone, without loading the body.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SessionResponseCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "tracker:session-responses:invalidate";
+
+    private static final String SESSIONS_PREFIX = "s:"; // s:{id},{id}...
+    private static final String USER_PREFIX = "u:";     // u:{userId}
+    private static final String ALL = "*";
+
+    private static final Set<TrackingSessionEntity.Status> FINISHED = EnumSet.of(
+            TrackingSessionEntity.Status.STOPPED,
+            TrackingSessionEntity.Status.EXPIRED,
+            TrackingSessionEntity.Status.ARCHIVED);
+
+    private static final String VERSION_SQL = """
+            SELECT s.user_id, s.status, ss.updated_at
+              FROM tracking_sessions s
+              LEFT JOIN session_summary ss ON ss.session_id = s.id
+             WHERE s.id = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate redis;
+    private final SessionResponseCacheProperties props;
+    private final MeterRegistry meterRegistry;
+
+    // bumped by every invalidation: a load that overlapped one is served but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<Key, Entry> cache;
+    private ClusterInvalidation invalidation;
+    private CacheControl immutableControl;
+    private CacheControl revalidateControl;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter notModified;
+
+    /**
+     * @param variant    the request parameters that shape the body (window, max, ...)
+     * @param revalidate the body can lose rows to retention within the max-age (raw points): clients must
+     *                   revalidate on every use instead of treating it as immutable
+     */
+    public record Key(String endpoint, UUID sessionId, String variant, boolean revalidate) {
+        public Key(String endpoint, UUID sessionId, String variant) {
+            this(endpoint, sessionId, variant, false);
+        }
+    }
+
+    /** Caller of a per-user endpoint (null for admin endpoints): hits are checked against the owner */
+    public record Access(UUID userId, boolean admin) {}
+
+    record Version(UUID ownerId, TrackingSessionEntity.Status status, Instant summaryUpdatedAt) {
+        boolean immutable() {
+            return summaryUpdatedAt != null && FINISHED.contains(status);
+        }
+    }
+
+    record Entry(String etag, UUID ownerId, byte[] body) {}
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(props.maxBytes())
+                .weigher((Key k, Entry e) -> e.body().length + 128)
+                .expireAfterWrite(Duration.ofSeconds(props.ttlSeconds()))
+                .build();
+        invalidation = new ClusterInvalidation(redis, INVALIDATION_CHANNEL);
+        immutableControl = CacheControl.maxAge(Duration.ofSeconds(props.maxAgeSeconds())).cachePrivate().immutable();
+        revalidateControl = CacheControl.noCache().cachePrivate();
+
+        hits = meterRegistry.counter("tracker.response.cache.hits.total");
+        misses = meterRegistry.counter("tracker.response.cache.misses.total");
+        notModified = meterRegistry.counter("tracker.response.not_modified.total");
+        Gauge.builder("tracker.response.cache.size", this, c -> c.cache.estimatedSize())
+                .register(meterRegistry);
+    }
+
+    public <T> ResponseEntity<byte[]> respond(Key key, Access access, String ifNoneMatch, Supplier<T> load) {
+        return respond(key, access, ifNoneMatch, load, body -> true);
+    }
+
+    /**
+     * {@code ApiResponse.ok(load.get())} as JSON bytes; cached with an ETag and immutable (or, for
+     * {@link Key#revalidate()}, no-cache) Cache-Control when the session is finished and {@code cacheable}
+     * accepts the body. Only accepted bodies ever carry the ETag, so a matching If-None-Match skips the load.
+     */
+    public <T> ResponseEntity<byte[]> respond(Key key, Access access, String ifNoneMatch,
+                                              Supplier<T> load, Predicate<? super T> cacheable) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            checkOwner(access, entry.ownerId());
+            hits.increment();
+            return respond(key, entry, ifNoneMatch);
+        }
+
+        misses.increment();
+        long loadedAt = generation.get();
+        Optional<Version> version = readVersion(key.sessionId());
+        if (version.isPresent() && version.get().immutable()) {
+            String etag = etag(key, version.get());
+            if (matches(ifNoneMatch, etag)) {
+                checkOwner(access, version.get().ownerId());
+                return notModified(key, etag);
+            }
+        }
+        T body = load.get(); // not found / forbidden are thrown here
+        byte[] bytes = serialize(body);
+        if (version.isEmpty() || !version.get().immutable() || !cacheable.test(body)) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(bytes);
+        }
+
+        entry = new Entry(etag(key, version.get()), version.get().ownerId(), bytes);
+        if (generation.get() == loadedAt) {
+            cache.put(key, entry);
+        }
+        return respond(key, entry, ifNoneMatch);
+    }
+
+    public void invalidate(UUID sessionId) {
+        invalidateAll(List.of(sessionId));
+    }
+
+    public void invalidateAll(Collection<UUID> sessionIds) {
+        if (sessionIds.isEmpty()) return;
+        Set<UUID> ids = new HashSet<>(sessionIds);
+        String message = SESSIONS_PREFIX + ids.stream().map(UUID::toString).collect(Collectors.joining(","));
+        invalidation.invalidate(() -> evictSessions(ids), message);
+    }
+
+    /** User deleted: drop all of the user's sessions */
+    public void invalidateUser(UUID userId) {
+        invalidation.invalidate(() -> evictUser(userId), USER_PREFIX + userId);
+    }
+
+    /** Points removed without knowing the sessions (retention partition drops) */
+    public void clear() {
+        invalidation.invalidate(this::evictAll, ALL);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (ALL.equals(body)) {
+                evictAll();
+            } else if (body.startsWith(USER_PREFIX)) {
+                evictUser(UUID.fromString(body.substring(USER_PREFIX.length())));
+            } else if (body.startsWith(SESSIONS_PREFIX)) {
+                Set<UUID> ids = new HashSet<>();
+                for (String id : body.substring(SESSIONS_PREFIX.length()).split(",")) {
+                    ids.add(UUID.fromString(id));
+                }
+                evictSessions(ids);
+            }
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring malformed response cache invalidation: {}", body);
+        }
+    }
+
+    private ResponseEntity<byte[]> respond(Key key, Entry entry, String ifNoneMatch) {
+        if (matches(ifNoneMatch, entry.etag())) {
+            return notModified(key, entry.etag());
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.etag())
+                .cacheControl(cacheControl(key))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.body());
+    }
+
+    private ResponseEntity<byte[]> notModified(Key key, String etag) {
+        notModified.increment();
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl(key))
+                .build();
+    }
+
+    private CacheControl cacheControl(Key key) {
+        return key.revalidate() ? revalidateControl : immutableControl;
+    }
+
+    private static void checkOwner(Access access, UUID ownerId) {
+        if (access != null && !access.admin() && !ownerId.equals(access.userId())) {
+            throw new ForbiddenException("Session does not belong to user");
+        }
+    }
+
+    private Optional<Version> readVersion(UUID sessionId) {
+        return jdbc.query(VERSION_SQL, (rs, i) -> {
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            return new Version(
+                    rs.getObject("user_id", UUID.class),
+                    TrackingSessionEntity.Status.valueOf(rs.getString("status")),
+                    updatedAt != null ? updatedAt.toInstant() : null);
+        }, sessionId).stream().findFirst();
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(ApiResponse.ok(body));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Response serialization failed", ex);
+        }
+    }
+
+    /** Strong: the same status, summary version and request always serialize to the same body */
+    static String etag(Key key, Version version) {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, version.summaryUpdatedAt());
+        return "\"" + version.status().name().toLowerCase() + "-" + Long.toString(micros, 36) + "-"
+                + Integer.toHexString((key.endpoint() + "|" + key.variant()).hashCode()) + "\"";
+    }
+
+    /** If-None-Match uses the weak comparison, so a W/ prefix is ignored */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(ALL) || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private void evictSessions(Set<UUID> ids) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> ids.contains(k.sessionId()));
+    }
+
+    private void evictUser(UUID userId) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(e -> e.ownerId().equals(userId));
+    }
+
+    private void evictAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
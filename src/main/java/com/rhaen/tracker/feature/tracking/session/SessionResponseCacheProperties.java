@@ -0,0 +1,10 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.tracking.response-cache")
+public record SessionResponseCacheProperties(
+        long maxBytes,
+        long ttlSeconds,
+        long maxAgeSeconds
+) {}
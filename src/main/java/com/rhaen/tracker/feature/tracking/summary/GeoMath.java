@@ -2,7 +2,7 @@ package com.rhaen.tracker.feature.tracking.summary;
 
 public final class GeoMath {
 
-    private static final double R = 6371000.0; // meters
+    static final double R = 6371000.0; // meters
 
     private GeoMath() {}
 
@@ -18,13 +18,4 @@ public final class GeoMath {
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
         return R * c;
     }
-
-    /** Equirectangular projection (approx) for RDP distance computations */
-    public static XY project(double lat, double lon, double lat0) {
-        double x = Math.toRadians(lon) * Math.cos(Math.toRadians(lat0)) * R;
-        double y = Math.toRadians(lat) * R;
-        return new XY(x, y);
-    }
-
-    public record XY(double x, double y) {}
 }
@@ -29,6 +29,46 @@ public final class PolylineEncoder {
         return result.toString();
     }
 
+    /** Encodes the points whose keep flag is set (all when keep is null), no intermediate list */
+    public static String encode(TrackCoords points, boolean[] keep) {
+        long lastLat = 0;
+        long lastLon = 0;
+        StringBuilder result = new StringBuilder();
+
+        for (int i = 0; i < points.size(); i++) {
+            if (keep != null && !keep[i]) continue;
+            long lat = Math.round(points.lat(i) * 1e5);
+            long lon = Math.round(points.lon(i) * 1e5);
+
+            encodeSigned(lat - lastLat, result);
+            encodeSigned(lon - lastLon, result);
+
+            lastLat = lat;
+            lastLon = lon;
+        }
+        return result.toString();
+    }
+
+    /** Encodes points[indices[0..count)] in that order */
+    public static String encode(TrackCoords points, int[] indices, int count) {
+        long lastLat = 0;
+        long lastLon = 0;
+        StringBuilder result = new StringBuilder(count * 8);
+
+        for (int k = 0; k < count; k++) {
+            int i = indices[k];
+            long lat = Math.round(points.lat(i) * 1e5);
+            long lon = Math.round(points.lon(i) * 1e5);
+
+            encodeSigned(lat - lastLat, result);
+            encodeSigned(lon - lastLon, result);
+
+            lastLat = lat;
+            lastLon = lon;
+        }
+        return result.toString();
+    }
+
     private static void encodeSigned(long value, StringBuilder sb) {
         long s = value << 1;
         if (value < 0) s = ~s;
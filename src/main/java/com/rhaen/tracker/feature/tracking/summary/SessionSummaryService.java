@@ -1,143 +1,125 @@
 package com.rhaen.tracker.feature.tracking.summary;
 
+import com.rhaen.tracker.common.util.GeoUtils;
 import com.rhaen.tracker.feature.tracking.persistence.*;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import lombok.RequiredArgsConstructor;
-import org.locationtech.jts.geom.Point;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SessionSummaryService {
 
-    private final TrackingPointRepository pointRepository;
     private final SessionSummaryRepository summaryRepository;
     private final TrackingSummaryProperties props;
-
+    private final SessionTrackReader trackReader;
+    private final SessionTrackLodStore lodStore;
+    private final VectorTileService vectorTiles;
+    private final SessionResponseCache responseCache;
+
+    /**
+     * Aggregates and coordinates come from one pass over the stored points, streamed into primitive arrays
+     * ({@link SessionTrackReader}), heap stays ~24 B/point. The polylines and the pyramid need every
+     * coordinate anyway, so the aggregates cost no extra read here.
+     */
     @Transactional
     public void buildOrRebuild(TrackingSessionEntity session) {
         UUID sessionId = session.getId();
-
-        List<TrackingPointEntity> points = pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId);
-
-        SessionSummaryEntity summary = summaryRepository.findById(sessionId)
-                .orElseGet(() -> SessionSummaryEntity.builder()
-                        .session(session)
-                        .build());
-
-        if (points.isEmpty()) {
-            summary.setPointsCount(0);
-            summary.setDistanceM(0d);
-            summary.setDurationS(0);
-            summary.setAvgSpeedMps(0d);
-            summary.setMaxSpeedMps(0d);
-            summary.setPolyline("");
-            summary.setSimplifiedPolyline("");
-            summary.setUpdatedAt(Instant.now());
-            summaryRepository.save(summary);
-            return;
+        responseCache.invalidate(sessionId); // cached summary/points responses and their ETags
+        SessionTrackReader.Track track = trackReader.readTrack(sessionId);
+        if (track.stats() == null) {
+            writeEmpty(session);
+        } else {
+            write(session, track.stats(), track.coords());
         }
+    }
 
-        // Convert to LatLon list
-        List<PolylineEncoder.LatLon> latlons = new ArrayList<>(points.size());
-        double minLat =  90, minLon =  180;
-        double maxLat = -90, maxLon = -180;
-
-        Double maxSpeed = null;
+    private void writeEmpty(TrackingSessionEntity session) {
+        SessionSummaryEntity summary = findOrCreate(session);
+        invalidateTiles(summary);
+        summary.setPointsCount(0);
+        summary.setDistanceM(0d);
+        summary.setDurationS(0);
+        summary.setAvgSpeedMps(0d);
+        summary.setMaxSpeedMps(0d);
+        summary.setPolyline("");
+        summary.setSimplifiedPolyline("");
+        summary.setUpdatedAt(Instant.now());
+        summaryRepository.save(summary);
+        lodStore.replace(session.getId(), List.of());
+    }
 
-        for (TrackingPointEntity p : points) {
-            Point g = p.getPoint();
-            double lon = g.getX();
-            double lat = g.getY();
-            latlons.add(new PolylineEncoder.LatLon(lat, lon));
+    private void write(TrackingSessionEntity session, TrackStats stats, TrackCoords coords) {
+        SessionSummaryEntity summary = findOrCreate(session);
+        invalidateTiles(summary); // where the track was drawn before
 
-            if (lat < minLat) minLat = lat;
-            if (lon < minLon) minLon = lon;
-            if (lat > maxLat) maxLat = lat;
-            if (lon > maxLon) maxLon = lon;
+        int durationS = durationSeconds(session);
+        summary.setPointsCount(coords.size());
+        summary.setDistanceM(stats.distanceM());
+        summary.setDurationS(durationS);
+        summary.setAvgSpeedMps(durationS > 0 ? stats.distanceM() / durationS : 0d);
+        // If speed_mps wasn't provided, max speed is estimated from segments
+        summary.setMaxSpeedMps(stats.effectiveMaxSpeedMps());
 
-            if (p.getSpeedMps() != null) {
-                maxSpeed = (maxSpeed == null) ? (double) p.getSpeedMps() : Math.max(maxSpeed, p.getSpeedMps());
-            }
-        }
+        summary.setStartPoint(GeoUtils.point(stats.firstLon(), stats.firstLat()));
+        summary.setEndPoint(GeoUtils.point(stats.lastLon(), stats.lastLat()));
 
-        // Distance (haversine sum)
-        double distance = 0;
-        for (int i = 1; i < latlons.size(); i++) {
-            var a = latlons.get(i - 1);
-            var b = latlons.get(i);
-            distance += GeoMath.haversineMeters(a.lat(), a.lon(), b.lat(), b.lon());
-        }
-
-        Instant start = session.getStartTime();
-        Instant stop = session.getStopTime() != null ? session.getStopTime() : Instant.now();
-        int durationS = (int) Math.max(0, ChronoUnit.SECONDS.between(start, stop));
-
-        double avgSpeed = durationS > 0 ? distance / durationS : 0d;
-
-        // If speed_mps wasn't provided, estimate max speed from segments
-        if (maxSpeed == null) {
-            double estimatedMax = 0d;
-            for (int i = 1; i < points.size(); i++) {
-                Instant t1 = points.get(i - 1).getDeviceTimestamp();
-                Instant t2 = points.get(i).getDeviceTimestamp();
-                long dt = Math.max(1, ChronoUnit.SECONDS.between(t1, t2));
-                var a = latlons.get(i - 1);
-                var b = latlons.get(i);
-                double d = GeoMath.haversineMeters(a.lat(), a.lon(), b.lat(), b.lon());
-                estimatedMax = Math.max(estimatedMax, d / dt);
-            }
-            maxSpeed = estimatedMax;
-        }
+        summary.setBboxMinLat(stats.minLat());
+        summary.setBboxMinLon(stats.minLon());
+        summary.setBboxMaxLat(stats.maxLat());
+        summary.setBboxMaxLon(stats.maxLon());
 
         // Downsample for full polyline if too many points
-        List<PolylineEncoder.LatLon> polylinePts = downsample(latlons, props.maxPolylinePoints());
-
-        String polyline = PolylineEncoder.encode(polylinePts);
-
+        summary.setPolyline(PolylineEncoder.encode(coords, downsample(coords.size(), props.maxPolylinePoints())));
         // Simplified polyline (RDP) -> encode
-        List<PolylineEncoder.LatLon> simplified = RdpSimplifier.simplify(latlons, props.simplifyEpsilonM());
-        String simplifiedPolyline = PolylineEncoder.encode(simplified);
+        summary.setSimplifiedPolyline(PolylineEncoder.encode(coords,
+                RdpSimplifier.simplify(coords, props.simplifyEpsilonM())));
 
-        // Start/end points
-        Point startPoint = points.getFirst().getPoint();
-        Point endPoint = points.getLast().getPoint();
-
-        summary.setPointsCount(points.size());
-        summary.setDistanceM(distance);
-        summary.setDurationS(durationS);
-        summary.setAvgSpeedMps(avgSpeed);
-        summary.setMaxSpeedMps(maxSpeed);
+        summary.setUpdatedAt(Instant.now());
 
-        summary.setStartPoint(startPoint);
-        summary.setEndPoint(endPoint);
+        summaryRepository.save(summary);
 
-        summary.setBboxMinLat(minLat);
-        summary.setBboxMinLon(minLon);
-        summary.setBboxMaxLat(maxLat);
-        summary.setBboxMaxLon(maxLon);
+        // Zoom level pyramid for map viewers
+        var lod = props.lod();
+        lodStore.replace(session.getId(), TrackPyramid.build(coords, lod.epsilonsM(), lod.segmentPoints()));
+        invalidateTiles(summary);
+    }
 
-        summary.setPolyline(polyline);
-        summary.setSimplifiedPolyline(simplifiedPolyline);
+    private void invalidateTiles(SessionSummaryEntity summary) {
+        if (summary.getBboxMinLat() == null) return;
+        vectorTiles.invalidateTracks(summary.getBboxMinLat(), summary.getBboxMinLon(),
+                summary.getBboxMaxLat(), summary.getBboxMaxLon());
+    }
 
-        summary.setUpdatedAt(Instant.now());
+    private SessionSummaryEntity findOrCreate(TrackingSessionEntity session) {
+        return summaryRepository.findById(session.getId())
+                .orElseGet(() -> SessionSummaryEntity.builder()
+                        .session(session)
+                        .build());
+    }
 
-        summaryRepository.save(summary);
+    private static int durationSeconds(TrackingSessionEntity session) {
+        Instant start = session.getStartTime();
+        Instant stop = session.getStopTime() != null ? session.getStopTime() : Instant.now();
+        return (int) Math.max(0, ChronoUnit.SECONDS.between(start, stop));
     }
 
-    private List<PolylineEncoder.LatLon> downsample(List<PolylineEncoder.LatLon> pts, int max) {
-        if (max <= 0 || pts.size() <= max) return pts;
-        int n = pts.size();
+    /** Every step-th point plus the last one; null (= all points) when under the limit */
+    static boolean[] downsample(int n, int max) {
+        if (max <= 0 || n <= max) return null;
         int step = (int) Math.ceil(n / (double) max);
-        List<PolylineEncoder.LatLon> out = new ArrayList<>(max + 2);
-        for (int i = 0; i < n; i += step) out.add(pts.get(i));
-        if (!out.getLast().equals(pts.get(n - 1))) out.add(pts.get(n - 1));
-        return out;
+        boolean[] keep = new boolean[n];
+        for (int i = 0; i < n; i += step) keep[i] = true;
+        keep[n - 1] = true;
+        return keep;
     }
 }
@@ -0,0 +1,88 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * session_track_lod rows ({@link TrackPyramid}): replaced with the summary, read by map viewers.
+ * A read picks one level with a single indexed statement, no points are touched.
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionTrackLodStore {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO session_track_lod
+                (session_id, level, seg_index, epsilon_m, start_ts, end_ts, points_count, polyline)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Called in the transaction that writes the summary; an empty list just clears the session */
+    public void replace(UUID sessionId, List<TrackPyramid.Segment> segments) {
+        jdbc.update("DELETE FROM session_track_lod WHERE session_id = ?", sessionId);
+        if (segments.isEmpty()) return;
+        jdbc.batchUpdate(INSERT_SQL, segments, 500, (ps, s) -> {
+            ps.setObject(1, sessionId);
+            ps.setInt(2, s.level());
+            ps.setInt(3, s.index());
+            ps.setDouble(4, s.epsilonM());
+            ps.setObject(5, timestamp(s.startMicros()));
+            ps.setObject(6, timestamp(s.endMicros()));
+            ps.setInt(7, s.pointsCount());
+            ps.setString(8, s.polyline());
+        });
+    }
+
+    /**
+     * Segments of the coarsest level whose tolerance is still within {@code toleranceM}
+     * (the finest level when none is), overlapping [from, to]; empty when the pyramid is not built.
+     */
+    public List<TrackPyramid.Segment> find(UUID sessionId, double toleranceM, Instant from, Instant to) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT level, epsilon_m, seg_index, start_ts, end_ts, points_count, polyline
+                  FROM session_track_lod
+                 WHERE session_id = ?
+                   AND level = COALESCE((SELECT max(level)
+                                           FROM session_track_lod
+                                          WHERE session_id = ? AND epsilon_m <= ?), 0)
+                """);
+        List<Object> args = new ArrayList<>(List.of(sessionId, sessionId, toleranceM));
+        if (from != null) {
+            sql.append(" AND end_ts >= ?");
+            args.add(from.atOffset(ZoneOffset.UTC));
+        }
+        if (to != null) {
+            sql.append(" AND start_ts <= ?");
+            args.add(to.atOffset(ZoneOffset.UTC));
+        }
+        sql.append(" ORDER BY seg_index");
+
+        return jdbc.query(sql.toString(), (rs, i) -> new TrackPyramid.Segment(
+                rs.getInt("level"),
+                rs.getDouble("epsilon_m"),
+                rs.getInt("seg_index"),
+                micros(rs.getObject("start_ts", OffsetDateTime.class)),
+                micros(rs.getObject("end_ts", OffsetDateTime.class)),
+                rs.getInt("points_count"),
+                rs.getString("polyline")), args.toArray());
+    }
+
+    private static OffsetDateTime timestamp(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+
+    private static long micros(OffsetDateTime ts) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, ts.toInstant());
+    }
+}
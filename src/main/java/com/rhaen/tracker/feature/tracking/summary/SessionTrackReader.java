@@ -0,0 +1,61 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.UUID;
+
+/**
+ * Streams a session's points (device time order) through a forward-only cursor straight into
+ * primitive arrays: no entities, no JTS geometries, no per-point objects. Postgres only uses a
+ * server-side cursor (fetch size) inside a transaction, so callers must be {@code @Transactional}.
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionTrackReader {
+
+    private static final int DEFAULT_FETCH_SIZE = 5_000;
+
+    private static final String TRACK_SQL = """
+            SELECT ST_Y(point::geometry) AS lat,
+                   ST_X(point::geometry) AS lon,
+                   (EXTRACT(EPOCH FROM device_timestamp) * 1000000)::bigint AS ts_us,
+                   speed_mps
+              FROM tracking_points
+             WHERE session_id = ?
+             ORDER BY device_timestamp
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TrackingSummaryProperties props;
+
+    /** Aggregates and coordinates in one pass; stats is null when the session has no points */
+    public Track readTrack(UUID sessionId) {
+        TrackCoords coords = new TrackCoords(fetchSize());
+        TrackAccumulator acc = new TrackAccumulator(coords);
+        stream(TRACK_SQL, sessionId, rs -> {
+            float speed = rs.getFloat(4);
+            acc.add(rs.getDouble(1), rs.getDouble(2), rs.getLong(3), rs.wasNull() ? Float.NaN : speed);
+        });
+        return new Track(acc.toStats(), coords);
+    }
+
+    private void stream(String sql, UUID sessionId, RowCallbackHandler row) {
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize());
+            ps.setObject(1, sessionId);
+            return ps;
+        }, row);
+    }
+
+    private int fetchSize() {
+        return props.rebuildFetchSize() > 0 ? props.rebuildFetchSize() : DEFAULT_FETCH_SIZE;
+    }
+
+    public record Track(TrackStats stats, TrackCoords coords) {}
+}
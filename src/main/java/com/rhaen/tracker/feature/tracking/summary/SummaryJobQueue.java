@@ -0,0 +1,165 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable summary finalize queue (summary_jobs, one row per session).
+ * Enqueue joins the caller's transaction, so a job exists exactly when the stop/expiry committed.
+ * Claiming leases a row (available_at = now + lease) under FOR UPDATE SKIP LOCKED: concurrent
+ * workers never get the same session, and a job of a crashed worker is picked up once the lease ends.
+ * The worker extends the lease while it rebuilds. An enqueue that finds the session's row (the job is
+ * pending or running) sets requeue: claiming clears it, so a set flag means the running rebuild may have
+ * read the state from before that enqueue, and completing puts the job back instead of deleting it.
+ * A job whose last allowed attempt failed gets failed_at and stays in the table (never claimed again)
+ * for inspection.
+ */
+@Component
+@RequiredArgsConstructor
+public class SummaryJobQueue {
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO summary_jobs (session_id) VALUES (?)
+            ON CONFLICT (session_id) DO UPDATE SET requeue = true
+            """;
+
+    private static final String CLAIM_SQL = """
+            UPDATE summary_jobs j
+               SET attempts = j.attempts + 1,
+                   available_at = now() + make_interval(secs => ?),
+                   requeue = false
+             WHERE j.session_id = (
+                    SELECT session_id
+                      FROM summary_jobs
+                     WHERE available_at <= now() AND failed_at IS NULL
+                     ORDER BY available_at
+                     LIMIT 1
+                     FOR UPDATE SKIP LOCKED)
+            RETURNING j.session_id, j.attempts
+            """;
+
+    private static final String EXTEND_SQL = """
+            UPDATE summary_jobs
+               SET available_at = now() + make_interval(secs => ?)
+             WHERE session_id = ? AND failed_at IS NULL
+            """;
+
+    private static final String COMPLETE_SQL = """
+            DELETE FROM summary_jobs WHERE session_id = ? AND NOT requeue
+            """;
+
+    // a fresh job again: the next run reads the state the enqueue committed
+    private static final String RERUN_SQL = """
+            UPDATE summary_jobs
+               SET requeue = false, attempts = 0, available_at = now(), last_error = NULL
+             WHERE session_id = ? AND requeue
+            """;
+
+    private static final String FAIL_EXHAUSTED_SQL = """
+            UPDATE summary_jobs
+               SET failed_at = now()
+             WHERE failed_at IS NULL AND last_error IS NOT NULL AND attempts >= ?
+            """;
+
+    private static final String FAIL_SQL = """
+            UPDATE summary_jobs
+               SET available_at = now() + make_interval(secs => ?), last_error = ?,
+                   failed_at = CASE WHEN ? THEN now() END
+             WHERE session_id = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TrackingSummaryProperties props;
+
+    // wakes idle workers right after an enqueue committed on this node (others poll)
+    private final Semaphore signal = new Semaphore(0);
+
+    /** Racing callers (stop vs expiry, retried requests) end up with one job, re-run if it was already claimed */
+    public void enqueue(UUID sessionId) {
+        jdbc.update(ENQUEUE_SQL, sessionId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            signal.release();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                signal.release();
+            }
+        });
+    }
+
+    /**
+     * Leases the oldest due job; empty when there is none (or all are leased).
+     * attempts > maxAttempts: the last attempt never reported back (worker died), see {@link Claim#exhausted}
+     */
+    public Optional<Claim> claim() {
+        return jdbc.query(CLAIM_SQL,
+                        (rs, i) -> new Claim(rs.getObject("session_id", UUID.class), rs.getInt("attempts")),
+                        props.jobs().leaseSeconds())
+                .stream().findFirst();
+    }
+
+    /** Keeps a running rebuild's lease from running out */
+    public void extendLease(UUID sessionId) {
+        jdbc.update(EXTEND_SQL, props.jobs().leaseSeconds(), sessionId);
+    }
+
+    /**
+     * Called in the transaction that wrote the summary. The DELETE locks the row, so an enqueue racing it
+     * either committed first (requeue is seen, the job is put back) or waits and inserts a new job.
+     */
+    public void complete(UUID sessionId) {
+        if (jdbc.update(COMPLETE_SQL, sessionId) == 0) {
+            jdbc.update(RERUN_SQL, sessionId);
+        }
+    }
+
+    /**
+     * Marks jobs failed that already used up max-attempts without failed_at (they failed before the column
+     * existed, or the limit was lowered since). Run once when the workers start.
+     */
+    public int failExhausted() {
+        return jdbc.update(FAIL_EXHAUSTED_SQL, props.jobs().maxAttempts());
+    }
+
+    /** Back off exponentially; the attempt that reaches maxAttempts marks the job failed for good */
+    public void fail(UUID sessionId, int attempts, String error) {
+        long backoffMs = props.jobs().retryBackoffMs() << Math.min(10, Math.max(0, attempts - 1));
+        jdbc.update(FAIL_SQL, backoffMs / 1000.0, error, attempts >= props.jobs().maxAttempts(), sessionId);
+    }
+
+    public Optional<Job> find(UUID sessionId) {
+        return jdbc.query("SELECT attempts, last_error, failed_at FROM summary_jobs WHERE session_id = ?",
+                        (rs, i) -> new Job(rs.getInt("attempts"), rs.getString("last_error"),
+                                rs.getObject("failed_at") != null),
+                        sessionId)
+                .stream().findFirst();
+    }
+
+    /** Blocks until an enqueue on this node committed or the timeout passed */
+    boolean awaitWork(long timeoutMs) throws InterruptedException {
+        return signal.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    void wakeAll(int workers) {
+        signal.release(workers);
+    }
+
+    public record Claim(UUID sessionId, int attempts) {
+        boolean exhausted(int maxAttempts) {
+            return attempts > maxAttempts;
+        }
+    }
+
+    /** failed: failed_at is set (gave up after maxAttempts), last_error says why */
+    public record Job(int attempts, String lastError, boolean failed) {}
+}
@@ -0,0 +1,161 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed pool draining {@link SummaryJobQueue}. Each worker claims one job, rebuilds the summary and
+ * deletes the job in the same transaction; a failed rebuild rolls back and the job is retried later.
+ * Width (app.tracking.summary.jobs.workers) bounds how many rebuilds hold a DB connection at once.
+ * While a rebuild runs its lease is extended every third of leaseSeconds, so a long rebuild is not
+ * claimed a second time by another worker.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SummaryJobWorkers {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final SummaryJobQueue queue;
+    private final SessionSummaryService summaryService;
+    private final TrackingSessionRepository sessionRepository;
+    private final TrackingSummaryProperties props;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    private TransactionTemplate rebuildTx;
+    private ExecutorService workers;
+    private ScheduledExecutorService leases;
+    private volatile boolean running;
+
+    private Counter completedCounter;
+    private Counter failedCounter;
+    private Timer rebuildTimer;
+
+    @PostConstruct
+    void start() {
+        rebuildTx = new TransactionTemplate(transactionManager);
+
+        completedCounter = meterRegistry.counter("tracker.summary.jobs.completed.total");
+        failedCounter = meterRegistry.counter("tracker.summary.jobs.failed.total");
+        rebuildTimer = Timer.builder("tracker.summary.rebuild.duration")
+                .description("Summary rebuild duration (queued finalize)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        try {
+            int marked = queue.failExhausted();
+            if (marked > 0) log.info("Marked {} exhausted summary jobs failed", marked);
+        } catch (Exception ex) {
+            // the claim path marks them once they come due
+            log.warn("Could not mark exhausted summary jobs failed: {}", ex.toString());
+        }
+
+        int width = Math.max(1, props.jobs().workers());
+        running = true;
+        leases = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("summary-lease").factory());
+        workers = Executors.newFixedThreadPool(width, Thread.ofPlatform().name("summary-worker-", 0).factory());
+        for (int i = 0; i < width; i++) {
+            workers.submit(this::workerLoop);
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            try {
+                if (!runOne()) {
+                    queue.awaitWork(props.jobs().pollIntervalMs());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                // DB unreachable while claiming: back off one poll interval
+                log.warn("Summary worker loop error: {}", ex.toString());
+                sleepQuietly(props.jobs().pollIntervalMs());
+            }
+        }
+    }
+
+    /** @return false when there was no due job */
+    boolean runOne() {
+        var claim = queue.claim();
+        if (claim.isEmpty()) return false;
+        var job = claim.get();
+        if (job.exhausted(props.jobs().maxAttempts())) {
+            // the last attempt's worker died before reporting: nothing left to retry
+            failedCounter.increment();
+            queue.fail(job.sessionId(), job.attempts(), "Lease expired on attempt " + (job.attempts() - 1));
+            return true;
+        }
+
+        long heartbeatSeconds = Math.max(1, props.jobs().leaseSeconds() / 3);
+        ScheduledFuture<?> heartbeat = leases.scheduleAtFixedRate(() -> extendLease(job.sessionId()),
+                heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            rebuildTx.executeWithoutResult(status -> {
+                // session deleted meanwhile: ON DELETE CASCADE already removed the job row
+                sessionRepository.findById(job.sessionId()).ifPresent(summaryService::buildOrRebuild);
+                queue.complete(job.sessionId());
+            });
+            completedCounter.increment();
+        } catch (Exception ex) {
+            log.warn("Summary rebuild of session {} failed (attempt {}): {}",
+                    job.sessionId(), job.attempts(), ex.toString());
+            failedCounter.increment();
+            queue.fail(job.sessionId(), job.attempts(), ex.toString());
+        } finally {
+            heartbeat.cancel(false);
+            sample.stop(rebuildTimer);
+        }
+        return true;
+    }
+
+    private void extendLease(UUID sessionId) {
+        try {
+            queue.extendLease(sessionId);
+        } catch (Exception ex) {
+            // next beat tries again; the lease still has two thirds left
+            log.warn("Lease extension of summary job {} failed: {}", sessionId, ex.toString());
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        queue.wakeAll(props.jobs().workers());
+        workers.shutdown();
+        // unfinished jobs stay in summary_jobs; their lease runs out and another node (or restart) picks them up
+        if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Summary workers did not finish within {}s", SHUTDOWN_TIMEOUT_SECONDS);
+            workers.shutdownNow();
+        }
+        leases.shutdownNow();
+    }
+}
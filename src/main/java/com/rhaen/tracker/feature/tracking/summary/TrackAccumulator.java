@@ -0,0 +1,69 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import java.time.Instant;
+
+/**
+ * One pass over points in device time order: count, haversine distance, bbox, max reported speed,
+ * max estimated speed (segment distance / whole seconds, at least 1) and first/last point.
+ * Optionally appends the coordinates to a {@link TrackCoords} for the polylines.
+ */
+final class TrackAccumulator {
+
+    private final TrackCoords coords;
+
+    private long count;
+    private double distance;
+    private double minLat = 90, minLon = 180;
+    private double maxLat = -90, maxLon = -180;
+    private Double maxSpeed;
+    private double maxEst;
+    private double firstLat, firstLon;
+    private long firstMicros;
+    private double lastLat, lastLon;
+    private long lastMicros;
+
+    /** @param coords receives every point, null for aggregates only */
+    TrackAccumulator(TrackCoords coords) {
+        this.coords = coords;
+    }
+
+    /** @param speedMps device speed, NaN when absent */
+    void add(double lat, double lon, long tsMicros, float speedMps) {
+        if (count == 0) {
+            firstLat = lat;
+            firstLon = lon;
+            firstMicros = tsMicros;
+        } else {
+            double d = GeoMath.haversineMeters(lastLat, lastLon, lat, lon);
+            distance += d;
+            long seconds = Math.max(1, (tsMicros - lastMicros) / 1_000_000L);
+            maxEst = Math.max(maxEst, d / seconds);
+        }
+
+        if (lat < minLat) minLat = lat;
+        if (lon < minLon) minLon = lon;
+        if (lat > maxLat) maxLat = lat;
+        if (lon > maxLon) maxLon = lon;
+
+        if (!Float.isNaN(speedMps)) {
+            maxSpeed = maxSpeed == null ? (double) speedMps : Math.max(maxSpeed, speedMps);
+        }
+
+        lastLat = lat;
+        lastLon = lon;
+        lastMicros = tsMicros;
+        count++;
+        if (coords != null) coords.add(lat, lon, tsMicros);
+    }
+
+    /** null when no point was added */
+    TrackStats toStats() {
+        if (count == 0) return null;
+        return new TrackStats(count, distance, minLat, minLon, maxLat, maxLon, maxSpeed, maxEst,
+                firstLat, firstLon, instant(firstMicros), lastLat, lastLon, instant(lastMicros));
+    }
+
+    private static Instant instant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+}
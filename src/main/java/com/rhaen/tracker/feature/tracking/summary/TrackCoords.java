@@ -0,0 +1,66 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import java.util.Arrays;
+
+/**
+ * Growable lat/lon/timestamp arrays of a track in device time order: 24 bytes per point instead of
+ * an entity + JTS Point + LatLon record, so a 500k-point session stays around 12 MB.
+ */
+public final class TrackCoords {
+
+    private double[] lat;
+    private double[] lon;
+    private long[] tsMicros;
+    private int size;
+
+    public TrackCoords(int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        this.lat = new double[cap];
+        this.lon = new double[cap];
+        this.tsMicros = new long[cap];
+    }
+
+    public void add(double latValue, double lonValue) {
+        add(latValue, lonValue, 0L);
+    }
+
+    /** @param ts device timestamp in epoch microseconds */
+    public void add(double latValue, double lonValue, long ts) {
+        if (size == lat.length) {
+            int cap = lat.length + (lat.length >> 1);
+            lat = Arrays.copyOf(lat, cap);
+            lon = Arrays.copyOf(lon, cap);
+            tsMicros = Arrays.copyOf(tsMicros, cap);
+        }
+        lat[size] = latValue;
+        lon[size] = lonValue;
+        tsMicros[size] = ts;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double lat(int i) {
+        return lat[i];
+    }
+
+    public double lon(int i) {
+        return lon[i];
+    }
+
+    /** Device timestamp in epoch microseconds (0 when added without one) */
+    public long tsMicros(int i) {
+        return tsMicros[i];
+    }
+
+    /** Backing arrays, valid up to {@link #size()} (for {@link TrackSimplifier}) */
+    double[] latArray() {
+        return lat;
+    }
+
+    double[] lonArray() {
+        return lon;
+    }
+}
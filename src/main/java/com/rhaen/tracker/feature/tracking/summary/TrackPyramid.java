@@ -0,0 +1,75 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the multi-resolution track (session_track_lod rows) from a finished track.
+ * <p>
+ * The track is cut into chunks of {@code segmentPoints} source points; neighbouring chunks share
+ * their boundary point, so segments join up and a boundary is never simplified away. Inside a chunk
+ * level 0 is RDP over the source points with the smallest tolerance, and every next level runs RDP
+ * with its own tolerance over the points the previous level kept. Later levels only look at what is
+ * left, so the whole pyramid costs little more than level 0 (deviation from the source stays below
+ * the sum of the tolerances so far, in practice close to the last one).
+ */
+public final class TrackPyramid {
+
+    private TrackPyramid() {}
+
+    public record Segment(
+            int level,
+            double epsilonM,
+            int index,
+            long startMicros,
+            long endMicros,
+            int pointsCount,
+            String polyline
+    ) {}
+
+    /** @param epsilonsM tolerances in meters, ordered here from finest to coarsest */
+    public static List<Segment> build(TrackCoords coords, List<Double> epsilonsM, int segmentPoints) {
+        int n = coords.size();
+        if (n == 0 || epsilonsM.isEmpty()) return List.of();
+        double[] eps = epsilonsM.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        int chunk = Math.max(2, segmentPoints);
+
+        List<Segment> out = new ArrayList<>();
+        int index = 0;
+        for (int start = 0; ; start += chunk, index++) {
+            int end = Math.min(start + chunk, n - 1);
+            addChunk(coords, start, end, eps, index, out);
+            if (end >= n - 1) break;
+        }
+        out.sort((a, b) -> a.level() != b.level()
+                ? Integer.compare(a.level(), b.level())
+                : Integer.compare(a.index(), b.index()));
+        return out;
+    }
+
+    private static void addChunk(TrackCoords coords, int start, int end, double[] eps, int index,
+                                 List<Segment> out) {
+        int count = end - start + 1;
+        int[] idx = new int[count];
+        for (int k = 0; k < count; k++) idx[k] = start + k;
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+
+        long startMicros = coords.tsMicros(start);
+        long endMicros = coords.tsMicros(end);
+        for (int level = 0; level < eps.length; level++) {
+            for (int k = 0; k < count; k++) {
+                lat[k] = coords.lat(idx[k]);
+                lon[k] = coords.lon(idx[k]);
+            }
+            boolean[] keep = TrackSimplifier.rdp(lat, lon, count, eps[level], false);
+            int kept = 0;
+            for (int k = 0; k < count; k++) {
+                if (keep[k]) idx[kept++] = idx[k];
+            }
+            count = kept;
+            out.add(new Segment(level, eps[level], index, startMicros, endMicros, count,
+                    PolylineEncoder.encode(coords, idx, count)));
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Track simplification on primitive lat/lon arrays (device time order), shared by summary and history.
+ * Points are projected once (equirectangular around the first latitude) into x/y arrays; after that
+ * nothing is allocated per point. Both modes return a keep flag per point, first and last always kept.
+ * <ul>
+ *   <li>{@link #rdp}: Ramer-Douglas-Peucker with an explicit stack (no recursion depth limit);
+ *       inputs from {@link #PARALLEL_MIN_POINTS} split into fork-join tasks, result is identical.</li>
+ *   <li>{@link #visvalingam}: Visvalingam-Whyatt, removes the smallest effective triangle area
+ *       until {@code targetPoints} are left.</li>
+ * </ul>
+ */
+public final class TrackSimplifier {
+
+    /** Inputs at least this large run RDP on the common fork-join pool */
+    public static final int PARALLEL_MIN_POINTS = 200_000;
+
+    // ranges shorter than this are finished sequentially inside a task
+    private static final int FORK_THRESHOLD = 50_000;
+
+    private TrackSimplifier() {}
+
+    public static boolean[] rdp(double[] lat, double[] lon, int n, double epsilonMeters) {
+        return rdp(lat, lon, n, epsilonMeters, n >= PARALLEL_MIN_POINTS);
+    }
+
+    public static boolean[] rdp(double[] lat, double[] lon, int n, double epsilonMeters, boolean parallel) {
+        boolean[] keep = new boolean[n];
+        if (n < 3) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        Projected p = project(lat, lon, n);
+        keep[0] = true;
+        keep[n - 1] = true;
+        double eps2 = epsilonMeters * epsilonMeters;
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(new RdpTask(p.x, p.y, 0, n - 1, eps2, keep));
+        } else {
+            rdpRange(p.x, p.y, 0, n - 1, eps2, keep);
+        }
+        return keep;
+    }
+
+    /**
+     * @param targetPoints points to keep (at least 2); everything is kept when n is not larger
+     */
+    public static boolean[] visvalingam(double[] lat, double[] lon, int n, int targetPoints) {
+        boolean[] keep = new boolean[n];
+        Arrays.fill(keep, true);
+        int target = Math.max(2, targetPoints);
+        if (n <= target) return keep;
+
+        Projected p = project(lat, lon, n);
+        int[] prev = new int[n];
+        int[] next = new int[n];
+        double[] area = new double[n];
+        for (int i = 0; i < n; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+        }
+        for (int i = 1; i < n - 1; i++) {
+            area[i] = triangleArea(p.x, p.y, i - 1, i, i + 1);
+        }
+
+        // indexed min-heap over the interior points, keyed by area
+        AreaHeap heap = new AreaHeap(area, n);
+        for (int i = 1; i < n - 1; i++) heap.append(i);
+        heap.heapify();
+
+        int remaining = n;
+        double lastArea = 0;
+        while (remaining > target && !heap.isEmpty()) {
+            int i = heap.poll();
+            // effective area never decreases, so a point is not removed before its removed neighbour
+            lastArea = Math.max(lastArea, area[i]);
+            keep[i] = false;
+            remaining--;
+
+            int a = prev[i];
+            int b = next[i];
+            next[a] = b;
+            prev[b] = a;
+            if (a > 0) {
+                area[a] = Math.max(lastArea, triangleArea(p.x, p.y, prev[a], a, b));
+                heap.update(a);
+            }
+            if (b < n - 1) {
+                area[b] = Math.max(lastArea, triangleArea(p.x, p.y, a, b, next[b]));
+                heap.update(b);
+            }
+        }
+        return keep;
+    }
+
+    private static Projected project(double[] lat, double[] lon, int n) {
+        double ky = Math.toRadians(1) * GeoMath.R;
+        double kx = ky * Math.cos(Math.toRadians(lat[0])); // reference latitude for projection
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = lon[i] * kx;
+            y[i] = lat[i] * ky;
+        }
+        return new Projected(x, y);
+    }
+
+    /** Sequential RDP over [start, end] with an explicit stack of pending ranges */
+    private static void rdpRange(double[] x, double[] y, int start, int end, double eps2, boolean[] keep) {
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = start;
+        stack[top++] = end;
+        while (top > 0) {
+            int e = stack[--top];
+            int s = stack[--top];
+            int index = farthest(x, y, s, e, eps2);
+            if (index < 0) continue;
+            keep[index] = true;
+            if (top + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = s;
+            stack[top++] = index;
+            stack[top++] = index;
+            stack[top++] = e;
+        }
+    }
+
+    /** Index of the point farthest from segment s-e if it is beyond epsilon, else -1 */
+    private static int farthest(double[] x, double[] y, int s, int e, double eps2) {
+        if (e <= s + 1) return -1;
+        double ax = x[s], ay = y[s];
+        double dx = x[e] - ax, dy = y[e] - ay;
+        double len2 = dx * dx + dy * dy;
+
+        double max = -1;
+        int index = -1;
+        for (int i = s + 1; i < e; i++) {
+            double px = x[i] - ax, py = y[i] - ay;
+            double d2;
+            if (len2 == 0) {
+                d2 = px * px + py * py;
+            } else {
+                double t = Math.max(0, Math.min(1, (px * dx + py * dy) / len2));
+                double ex = px - t * dx, ey = py - t * dy;
+                d2 = ex * ex + ey * ey;
+            }
+            if (d2 > max) {
+                max = d2;
+                index = i;
+            }
+        }
+        return max > eps2 ? index : -1;
+    }
+
+    private static double triangleArea(double[] x, double[] y, int a, int b, int c) {
+        return Math.abs((x[b] - x[a]) * (y[c] - y[a]) - (x[c] - x[a]) * (y[b] - y[a])) / 2;
+    }
+
+    private record Projected(double[] x, double[] y) {}
+
+    /** Splits at the farthest point while the range is large, large sides become separate tasks */
+    private static final class RdpTask extends RecursiveAction {
+        private final double[] x;
+        private final double[] y;
+        private final int start;
+        private final int end;
+        private final double eps2;
+        private final boolean[] keep;
+
+        RdpTask(double[] x, double[] y, int start, int end, double eps2, boolean[] keep) {
+            this.x = x;
+            this.y = y;
+            this.start = start;
+            this.end = end;
+            this.eps2 = eps2;
+            this.keep = keep;
+        }
+
+        @Override
+        protected void compute() {
+            // Keep splitting the larger side here and fork the other one when it is large too;
+            // a lopsided split (farthest point next to an end) then loops instead of nesting tasks
+            List<RdpTask> forked = new ArrayList<>();
+            int s = start;
+            int e = end;
+            while (e - s >= FORK_THRESHOLD) {
+                int index = farthest(x, y, s, e, eps2);
+                if (index < 0) {
+                    s = e;
+                    break;
+                }
+                // tasks write disjoint index ranges of keep; join() publishes them
+                keep[index] = true;
+                boolean leftLarger = index - s >= e - index;
+                int os = leftLarger ? index : s;
+                int oe = leftLarger ? e : index;
+                if (oe - os >= FORK_THRESHOLD) {
+                    RdpTask other = new RdpTask(x, y, os, oe, eps2, keep);
+                    other.fork();
+                    forked.add(other);
+                } else {
+                    rdpRange(x, y, os, oe, eps2, keep);
+                }
+                if (leftLarger) e = index;
+                else s = index;
+            }
+            rdpRange(x, y, s, e, eps2, keep);
+            forked.forEach(RdpTask::join);
+        }
+    }
+
+    /**
+     * Binary min-heap of point indices ordered by area[index], with positions for key updates.
+     * Keys are copied next to the indices so sifting does not chase area[] across memory.
+     */
+    private static final class AreaHeap {
+        private final double[] area;
+        private final int[] heap;
+        private final double[] keys;
+        private final int[] pos;
+        private int size;
+
+        AreaHeap(double[] area, int n) {
+            this.area = area;
+            this.heap = new int[n];
+            this.keys = new double[n];
+            this.pos = new int[n];
+        }
+
+        void append(int i) {
+            move(i, area[i], size++);
+        }
+
+        void heapify() {
+            for (int k = size / 2 - 1; k >= 0; k--) siftDown(k, heap[k], keys[k]);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int poll() {
+            int top = heap[0];
+            size--;
+            if (size > 0) {
+                siftDown(0, heap[size], keys[size]);
+            }
+            pos[top] = -1;
+            return top;
+        }
+
+        void update(int i) {
+            int k = pos[i];
+            if (k < 0) return;
+            double key = area[i];
+            if (k > 0 && key < keys[(k - 1) >>> 1]) {
+                siftUp(k, i, key);
+            } else {
+                siftDown(k, i, key);
+            }
+        }
+
+        private void siftUp(int k, int i, double key) {
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                move(heap[parent], keys[parent], k);
+                k = parent;
+            }
+            move(i, key, k);
+        }
+
+        private void siftDown(int k, int i, double key) {
+            int half = size >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int right = child + 1;
+                if (right < size && keys[right] < keys[child]) child = right;
+                if (key <= keys[child]) break;
+                move(heap[child], keys[child], k);
+                k = child;
+            }
+            move(i, key, k);
+        }
+
+        private void move(int i, double key, int k) {
+            heap[k] = i;
+            keys[k] = key;
+            pos[i] = k;
+        }
+    }
+}
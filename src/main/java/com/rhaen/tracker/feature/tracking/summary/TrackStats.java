@@ -0,0 +1,30 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import java.time.Instant;
+
+/**
+ * Aggregates of a session's points in device time order: count, haversine distance, bbox,
+ * max reported/estimated speed, first and last point (see {@link TrackAccumulator}).
+ */
+public record TrackStats(
+        long count,
+        double distanceM,
+        double minLat,
+        double minLon,
+        double maxLat,
+        double maxLon,
+        Double maxSpeedMps,
+        double maxEstSpeedMps,
+        double firstLat,
+        double firstLon,
+        Instant firstAt,
+        double lastLat,
+        double lastLon,
+        Instant lastAt
+) {
+
+    /** Max speed as the summary reports it: device speed when any point had one, else estimated */
+    public double effectiveMaxSpeedMps() {
+        return maxSpeedMps != null ? maxSpeedMps : maxEstSpeedMps;
+    }
+}
@@ -2,8 +2,44 @@ package com.rhaen.tracker.feature.tracking.summary;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.List;
+
 @ConfigurationProperties(prefix = "app.tracking.summary")
 public record TrackingSummaryProperties(
         double simplifyEpsilonM,
-        int maxPolylinePoints
-) {}
+        int maxPolylinePoints,
+        int rebuildFetchSize,
+        Jobs jobs,
+        Lod lod
+) {
+    public TrackingSummaryProperties {
+        if (jobs == null) {
+            jobs = new Jobs(2, 1000, 300, 5, 5000);
+        }
+        if (lod == null) {
+            lod = new Lod(List.of(2d, 4d, 8d, 16d, 32d, 64d, 128d, 256d, 512d), 2000);
+        }
+    }
+
+    /**
+     * Summary finalize queue (summary_jobs): workers = rebuilds running at once on this node,
+     * leaseSeconds = how long a dead worker's job waits (extended while a rebuild runs), failed jobs retry
+     * after retryBackoffMs * 2^n until maxAttempts.
+     */
+    public record Jobs(
+            int workers,
+            long pollIntervalMs,
+            long leaseSeconds,
+            int maxAttempts,
+            long retryBackoffMs
+    ) {}
+
+    /**
+     * Track pyramid (session_track_lod): one level per RDP tolerance, finest first; each level is
+     * stored in segments of at most segmentPoints source points. Empty epsilonsM disables it.
+     */
+    public record Lod(
+            List<Double> epsilonsM,
+            int segmentPoints
+    ) {}
+}
@@ -0,0 +1,12 @@
+package com.rhaen.tracker.feature.tracking.tiles;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.tracking.tiles")
+public record VectorTileProperties(
+        long cacheMaxBytes,
+        long cacheTtlSeconds,
+        long liveCacheTtlMs,
+        int extent,
+        int buffer
+) {}
@@ -0,0 +1,119 @@
+package com.rhaen.tracker.feature.tracking.tiles;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds Mapbox Vector Tiles in PostGIS (ST_AsMVT), one statement per tile.
+ * <ul>
+ *   <li>tracks: finished sessions whose summary bbox touches the tile (gist_summary_bbox), drawn from
+ *       the session_track_lod level matching the tile resolution; only segments overlapping the
+ *       time window are decoded.</li>
+ *   <li>live: last_point of ACTIVE sessions inside the tile (gist_sessions_active_last_point).</li>
+ * </ul>
+ * Work per tile depends on what is inside the viewport, not on fleet size or track length.
+ */
+@Component
+@RequiredArgsConstructor
+public class VectorTileReader {
+
+    private static final String LIVE_SQL = """
+            WITH bounds AS (SELECT ST_TileEnvelope(?, ?, ?) AS geom)
+            SELECT ST_AsMVT(t, 'live', ?, 'geom')
+              FROM (SELECT s.id::text AS session_id,
+                           s.user_id::text AS user_id,
+                           EXTRACT(EPOCH FROM s.last_point_at)::bigint AS ts,
+                           s.last_point_at < now() - make_interval(secs => ?) AS stale,
+                           ST_AsMVTGeom(ST_Transform(s.last_point::geometry, 3857), b.geom, ?, ?, true) AS geom
+                      FROM tracking_sessions s, bounds b
+                     WHERE s.status = 'ACTIVE'
+                       AND s.last_point::geometry && ST_Transform(b.geom, 4326)) t
+             WHERE t.geom IS NOT NULL
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final VectorTileProperties props;
+
+    /**
+     * @param toleranceM tracks are taken from the coarsest pyramid level within this tolerance
+     * @param userId     only this user's sessions when not null
+     */
+    public byte[] tracks(int z, int x, int y, double toleranceM, UUID userId, Instant from, Instant to) {
+        List<Object> args = new ArrayList<>(List.of(z, x, y));
+        StringBuilder sessionFilter = new StringBuilder();
+        if (userId != null) {
+            sessionFilter.append(" AND s.user_id = ?");
+            args.add(userId);
+        }
+        if (from != null) {
+            sessionFilter.append(" AND (s.stop_time IS NULL OR s.stop_time >= ?)");
+            args.add(from.atOffset(ZoneOffset.UTC));
+        }
+        if (to != null) {
+            sessionFilter.append(" AND s.start_time <= ?");
+            args.add(to.atOffset(ZoneOffset.UTC));
+        }
+        args.add(toleranceM);
+        args.add(props.extent());
+        args.add(props.extent());
+        args.add(props.buffer());
+        StringBuilder segmentFilter = new StringBuilder();
+        if (from != null) {
+            segmentFilter.append(" AND l.end_ts >= ?");
+            args.add(from.atOffset(ZoneOffset.UTC));
+        }
+        if (to != null) {
+            segmentFilter.append(" AND l.start_ts <= ?");
+            args.add(to.atOffset(ZoneOffset.UTC));
+        }
+
+        String sql = """
+                WITH bounds AS (SELECT ST_TileEnvelope(?, ?, ?) AS geom),
+                sessions AS (
+                    SELECT s.id, s.user_id, s.status
+                      FROM session_summary ss
+                      JOIN tracking_sessions s ON s.id = ss.session_id, bounds b
+                     WHERE ss.bbox_min_lat IS NOT NULL
+                       AND ST_MakeEnvelope(ss.bbox_min_lon, ss.bbox_min_lat, ss.bbox_max_lon, ss.bbox_max_lat, 4326)
+                           && ST_Transform(b.geom, 4326)%s
+                ),
+                levels AS (
+                    SELECT x.*, COALESCE((SELECT max(level)
+                                            FROM session_track_lod
+                                           WHERE session_id = x.id AND epsilon_m <= ?), 0) AS level
+                      FROM sessions x
+                )
+                SELECT ST_AsMVT(t, 'tracks', ?, 'geom')
+                  FROM (SELECT v.id::text AS session_id,
+                               v.user_id::text AS user_id,
+                               v.status,
+                               l.seg_index AS seg,
+                               EXTRACT(EPOCH FROM l.start_ts)::bigint AS start_ts,
+                               EXTRACT(EPOCH FROM l.end_ts)::bigint AS end_ts,
+                               ST_AsMVTGeom(ST_Transform(ST_LineFromEncodedPolyline(l.polyline, 5), 3857),
+                                            b.geom, ?, ?, true) AS geom
+                          FROM levels v
+                          JOIN session_track_lod l ON l.session_id = v.id AND l.level = v.level, bounds b
+                         WHERE l.points_count >= 2%s) t
+                 WHERE t.geom IS NOT NULL
+                """.formatted(sessionFilter, segmentFilter);
+        return tile(sql, args.toArray());
+    }
+
+    /** @param staleSeconds points older than this get {@code stale = true} */
+    public byte[] live(int z, int x, int y, long staleSeconds) {
+        return tile(LIVE_SQL, z, x, y, props.extent(), staleSeconds, props.extent(), props.buffer());
+    }
+
+    private byte[] tile(String sql, Object... args) {
+        byte[] tile = jdbc.queryForObject(sql, byte[].class, args);
+        return tile != null ? tile : new byte[0];
+    }
+}
@@ -0,0 +1,168 @@
+package com.rhaen.tracker.feature.tracking.tiles;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rhaen.tracker.common.cache.ClusterInvalidation;
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admin map tiles with an in-process cache per layer.
+ * Track tiles live until a summary rebuild touches their area: the rebuilt session's old and new
+ * bbox evict every cached tile they intersect, here and (via Redis pub/sub) on other nodes.
+ * Live tiles are only cached for a moment so concurrent viewers of a viewport share one query.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VectorTileService implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "tracker:tiles:invalidate";
+    public static final String MVT_VALUE = "application/vnd.mapbox-vector-tile";
+    public static final MediaType MVT = MediaType.parseMediaType(MVT_VALUE);
+
+    // web mercator ground resolution at the equator, zoom 0, 256 px tiles
+    private static final double METERS_PER_PIXEL_Z0 = 156_543.03392;
+    private static final int MAX_ZOOM = 22;
+
+    private final VectorTileReader reader;
+    private final VectorTileProperties props;
+    private final LastLocationProperties lastLocationProps;
+    private final StringRedisTemplate redis;
+    private final MeterRegistry meterRegistry;
+
+    // bumped by every track eviction: a load that overlapped one is served but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<TrackTileKey, byte[]> trackTiles;
+    private Cache<TileKey, byte[]> liveTiles;
+    private ClusterInvalidation invalidation;
+
+    private Counter hits;
+    private Counter misses;
+
+    record TileKey(int z, int x, int y) {}
+
+    record TrackTileKey(TileKey tile, UUID userId, Instant from, Instant to) {}
+
+    @PostConstruct
+    void init() {
+        trackTiles = Caffeine.newBuilder()
+                .maximumWeight(props.cacheMaxBytes())
+                .weigher((TrackTileKey k, byte[] v) -> v.length + 64)
+                .expireAfterWrite(Duration.ofSeconds(props.cacheTtlSeconds()))
+                .build();
+        liveTiles = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(props.liveCacheTtlMs()))
+                .build();
+        invalidation = new ClusterInvalidation(redis, INVALIDATION_CHANNEL);
+
+        hits = meterRegistry.counter("tracker.tiles.cache.hits.total");
+        misses = meterRegistry.counter("tracker.tiles.cache.misses.total");
+    }
+
+    /** Session tracks (layer "tracks"), optionally one user's and/or overlapping [from, to] */
+    public byte[] tracks(int z, int x, int y, UUID userId, Instant from, Instant to) {
+        TileKey tile = tile(z, x, y);
+        return cached(trackTiles, new TrackTileKey(tile, userId, from, to),
+                () -> reader.tracks(z, x, y, toleranceMeters(tile), userId, from, to));
+    }
+
+    /** Last points of active sessions (layer "live") */
+    public byte[] live(int z, int x, int y) {
+        TileKey tile = tile(z, x, y);
+        return cached(liveTiles, tile, () -> reader.live(z, x, y, lastLocationProps.staleSeconds()));
+    }
+
+    /** A summary changed inside this bbox: drop the track tiles that show it (after commit, on all nodes) */
+    public void invalidateTracks(double minLat, double minLon, double maxLat, double maxLon) {
+        String message = minLat + "," + minLon + "," + maxLat + "," + maxLon;
+        invalidation.invalidate(() -> evict(minLat, minLon, maxLat, maxLon), message);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            String[] p = body.split(",");
+            evict(Double.parseDouble(p[0]), Double.parseDouble(p[1]), Double.parseDouble(p[2]),
+                    Double.parseDouble(p[3]));
+        } catch (RuntimeException ex) {
+            log.warn("Ignoring malformed tile invalidation: {}", body);
+        }
+    }
+
+    private <K> byte[] cached(Cache<K, byte[]> cache, K key, Supplier<byte[]> load) {
+        byte[] tile = cache.getIfPresent(key);
+        if (tile != null) {
+            hits.increment();
+            return tile;
+        }
+        misses.increment();
+        long loadedAt = generation.get();
+        tile = load.get();
+        if (generation.get() == loadedAt) {
+            cache.put(key, tile);
+        }
+        return tile;
+    }
+
+    private void evict(double minLat, double minLon, double maxLat, double maxLon) {
+        generation.incrementAndGet();
+        trackTiles.asMap().keySet().removeIf(k -> intersects(k.tile(), minLat, minLon, maxLat, maxLon));
+    }
+
+    /** Tile bounds plus the clip buffer against a lat/lon bbox */
+    private boolean intersects(TileKey t, double minLat, double minLon, double maxLat, double maxLon) {
+        double n = 1L << t.z();
+        double pad = (double) props.buffer() / props.extent();
+        double west = tileLon(t.x() - pad, n);
+        double east = tileLon(t.x() + 1 + pad, n);
+        double north = tileLat(t.y() - pad, n);
+        double south = tileLat(t.y() + 1 + pad, n);
+        return west <= maxLon && east >= minLon && south <= maxLat && north >= minLat;
+    }
+
+    private static TileKey tile(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new BadRequestException("z must be between 0 and " + MAX_ZOOM);
+        }
+        long n = 1L << z;
+        if (x < 0 || x >= n || y < 0 || y >= n) {
+            throw new BadRequestException("Tile " + z + "/" + x + "/" + y + " does not exist");
+        }
+        return new TileKey(z, x, y);
+    }
+
+    // one screen pixel at the tile centre
+    static double toleranceMeters(TileKey t) {
+        double n = 1L << t.z();
+        return METERS_PER_PIXEL_Z0 * Math.cos(Math.toRadians(tileLat(t.y() + 0.5, n))) / n;
+    }
+
+    private static double tileLon(double x, double n) {
+        return x / n * 360.0 - 180.0;
+    }
+
+    private static double tileLat(double y, double n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+    }
+}
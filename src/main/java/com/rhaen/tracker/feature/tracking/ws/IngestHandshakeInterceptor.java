@@ -0,0 +1,84 @@
+package com.rhaen.tracker.feature.tracking.ws;
+
+import com.rhaen.tracker.feature.tracking.persistence.SessionMeta;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The upgrade request is authenticated by the regular security chain (Authorization: Bearer ...),
+ * once per connection. Here the user id and target session are resolved and checked before upgrading;
+ * the token expiry is kept for {@link IngestWebSocketHandler} to enforce.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestHandshakeInterceptor implements HandshakeInterceptor {
+
+    static final String ATTR_USER_ID = "tracker.userId";
+    static final String ATTR_SESSION_ID = "tracker.sessionId";
+    static final String ATTR_EXPIRES_AT = "tracker.expiresAt";
+
+    private final SessionMetaCache sessionMetaCache;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!(request.getPrincipal() instanceof JwtAuthenticationToken auth)) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        UUID userId;
+        UUID sessionId;
+        try {
+            userId = UUID.fromString(auth.getToken().getClaimAsString("uid"));
+            sessionId = UUID.fromString(UriComponentsBuilder.fromUri(request.getURI()).build()
+                    .getQueryParams().getFirst("sessionId"));
+        } catch (RuntimeException ex) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+
+        Optional<SessionMeta> meta = sessionMetaCache.get(sessionId);
+        if (meta.isEmpty()) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return false;
+        }
+        if (!meta.get().userId().equals(userId)) {
+            log.warn("WebSocket ingest rejected: session {} does not belong to user {}", sessionId, userId);
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+        if (meta.get().status() != TrackingSessionEntity.Status.ACTIVE) {
+            response.setStatusCode(HttpStatus.CONFLICT);
+            return false;
+        }
+
+        attributes.put(ATTR_USER_ID, userId);
+        attributes.put(ATTR_SESSION_ID, sessionId);
+        // the connection outlives the request: the handler closes it when the token expires
+        if (auth.getToken().getExpiresAt() != null) {
+            attributes.put(ATTR_EXPIRES_AT, auth.getToken().getExpiresAt());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,320 @@
+package com.rhaen.tracker.feature.tracking.ws;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.common.exception.TooManyRequestsException;
+import com.rhaen.tracker.common.exception.TrackerException;
+import com.rhaen.tracker.feature.tracking.command.TrackingCommandService;
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import com.rhaen.tracker.feature.tracking.ingest.PointBatchCodec;
+import com.rhaen.tracker.feature.tracking.ingest.PointColumns;
+import com.rhaen.tracker.feature.tracking.ingest.TrackingIngestProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Device ingest over one long-lived WebSocket per tracking session.
+ * Text frames carry the JSON batch ({"points":[...]}), binary frames the {@link PointBatchCodec} format;
+ * both go through {@link TrackingCommandService#ingestColumns} (validation, dedupe, rate limit, insert).
+ * <p>
+ * Every frame gets exactly one reply, in order, with the server-assigned frame number (seq, from 1):
+ * {"type":"ack",...counts} or {"type":"error","status":...}. Flow control: a connection may have at most
+ * {@code window} unacked frames, extra frames are rejected with status 429 (in seq order with the acks; a
+ * client that keeps sending past another full window of rejections is closed); slow readers are closed by
+ * the send decorator (time/buffer limit).
+ * <p>
+ * The connection is closed with POLICY_VIOLATION when the JWT it was opened with expires; the client
+ * reconnects with a fresh token.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestWebSocketHandler extends AbstractWebSocketHandler {
+
+    private static final CloseStatus TOKEN_EXPIRED = CloseStatus.POLICY_VIOLATION.withReason("Token expired");
+
+    private final TrackingCommandService trackingCommandService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final IngestWebSocketProperties props;
+    private final TrackingIngestProperties ingestProps;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService workers;
+    private ScheduledExecutorService expiry;
+    private Counter framesReceived;
+    private Counter framesRejected;
+
+    @PostConstruct
+    void init() {
+        // virtual: one cheap thread per draining connection, DB/Redis access is bounded by the bulkheads
+        workers = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-ingest-", 0).factory())
+                : Executors.newFixedThreadPool(props.workers(), Thread.ofPlatform().name("ws-ingest-", 0).factory());
+        expiry = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("ws-ingest-expiry").factory());
+
+        Gauge.builder("tracker.ws.ingest.connections", connections, Map::size)
+                .description("Open device ingest WebSocket connections")
+                .register(meterRegistry);
+        framesReceived = meterRegistry.counter("tracker.ws.ingest.frames.total");
+        framesRejected = meterRegistry.counter("tracker.ws.ingest.frames.rejected.total");
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        expiry.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Connection c = new Connection(
+                (UUID) session.getAttributes().get(IngestHandshakeInterceptor.ATTR_USER_ID),
+                (UUID) session.getAttributes().get(IngestHandshakeInterceptor.ATTR_SESSION_ID),
+                (Instant) session.getAttributes().get(IngestHandshakeInterceptor.ATTR_EXPIRES_AT),
+                new ConcurrentWebSocketSessionDecorator(session, (int) props.sendTimeLimitMs(), props.sendBufferBytes()),
+                new Semaphore(props.window()), new Semaphore(props.window()));
+        connections.put(session.getId(), c);
+        send(c, Reply.hello(c.sessionId, props.window()));
+        if (c.expiresAt != null) {
+            long delayMs = Math.max(0, c.expiresAt.toEpochMilli() - System.currentTimeMillis());
+            c.expiryTask = expiry.schedule(() -> close(c, TOKEN_EXPIRED), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        enqueue(session, message.getPayload(), null);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        // copied: processing happens on a worker after the container may reuse the buffer
+        ByteBuffer payload = message.getPayload();
+        byte[] body = new byte[payload.remaining()];
+        payload.get(body);
+        enqueue(session, null, body);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("WebSocket ingest transport error on {}: {}", session.getId(), exception.toString());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection c = connections.remove(session.getId());
+        if (c == null) return;
+        c.frames.clear();
+        if (c.expiryTask != null) c.expiryTask.cancel(false);
+    }
+
+    private void enqueue(WebSocketSession session, String text, byte[] binary) {
+        Connection c = connections.get(session.getId());
+        if (c == null) return;
+
+        // the scheduled close may not have run yet
+        if (c.expiresAt != null && !Instant.now().isBefore(c.expiresAt)) {
+            close(c, TOKEN_EXPIRED);
+            return;
+        }
+
+        long seq = c.seq.incrementAndGet();
+        framesReceived.increment();
+        Frame frame;
+        if (c.credits.tryAcquire()) {
+            frame = new Frame(seq, text, binary, null);
+        } else {
+            framesRejected.increment();
+            // the payload is dropped, the rejection waits behind the earlier frames' acks
+            if (!c.rejections.tryAcquire()) {
+                close(c, CloseStatus.POLICY_VIOLATION.withReason("Flow control window ignored"));
+                return;
+            }
+            frame = new Frame(seq, null, null, Reply.error(seq, new TooManyRequestsException(
+                    "Flow control window exceeded: max " + props.window() + " unacked frames")));
+        }
+
+        c.frames.add(frame);
+        if (c.draining.compareAndSet(false, true)) {
+            workers.execute(() -> drain(c));
+        }
+    }
+
+    /** One drain task per connection at a time, so frames are ingested (and acked) in arrival order */
+    private void drain(Connection c) {
+        do {
+            Frame f;
+            while ((f = c.frames.poll()) != null) {
+                if (f.rejected() != null) {
+                    c.rejections.release();
+                    send(c, f.rejected());
+                    continue;
+                }
+                Reply reply = process(c, f);
+                // credit back before the reply so an immediate next frame is not rejected
+                c.credits.release();
+                send(c, reply);
+                if (reply.status() != null && closesConnection(reply.status())) {
+                    close(c, CloseStatus.POLICY_VIOLATION);
+                }
+            }
+            c.draining.set(false);
+        } while (!c.frames.isEmpty() && c.draining.compareAndSet(false, true));
+    }
+
+    private Reply process(Connection c, Frame f) {
+        try {
+            PointColumns points = f.binary() != null
+                    ? PointBatchCodec.decode(f.binary(), Instant.now(), ingestProps.maxBatchSize())
+                    : parseJson(f.text());
+            return Reply.ack(f.seq(), trackingCommandService.ingestColumns(c.sessionId, c.userId, points));
+        } catch (TrackerException ex) {
+            return Reply.error(f.seq(), ex);
+        } catch (Exception ex) {
+            log.error("WebSocket ingest failed for session {}: {}", c.sessionId, ex.getMessage(), ex);
+            return new Reply("error", f.seq(), null, null, null, null, null, null, null, 500, "An unexpected error occurred",
+                    null);
+        }
+    }
+
+    private PointColumns parseJson(String text) {
+        TrackingDtos.IngestPointsRequest req;
+        try {
+            req = objectMapper.readValue(text, TrackingDtos.IngestPointsRequest.class);
+        } catch (JsonProcessingException ex) {
+            throw new BadRequestException("Malformed JSON frame: " + ex.getOriginalMessage());
+        }
+        var violations = validator.validate(req);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException("Validation failed: " + violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .collect(Collectors.joining(", ")));
+        }
+        return PointColumns.fromDtos(req.points());
+    }
+
+    /** Session gone or not owned: further frames cannot succeed */
+    private static boolean closesConnection(int status) {
+        return status == HttpStatus.NOT_FOUND.value() || status == HttpStatus.FORBIDDEN.value();
+    }
+
+    private void send(Connection c, Reply reply) {
+        if (!c.out.isOpen()) return;
+        try {
+            c.out.sendMessage(new TextMessage(objectMapper.writeValueAsString(reply)));
+        } catch (IOException | RuntimeException ex) {
+            // SessionLimitExceededException: the decorator already closed the slow connection
+            log.debug("WebSocket ingest reply to {} failed: {}", c.out.getId(), ex.toString());
+        }
+    }
+
+    private void close(Connection c, CloseStatus status) {
+        try {
+            c.out.close(status);
+        } catch (IOException ex) {
+            log.debug("WebSocket ingest close of {} failed: {}", c.out.getId(), ex.toString());
+        }
+    }
+
+    /** @param rejected reply of a frame rejected on arrival, sent in its turn; null for frames to ingest */
+    private record Frame(long seq, String text, byte[] binary, Reply rejected) {}
+
+    private static final class Connection {
+        final UUID userId;
+        final UUID sessionId;
+        final Instant expiresAt;
+        final WebSocketSession out;
+        final Semaphore credits;
+        final Semaphore rejections;
+        final Queue<Frame> frames = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicLong seq = new AtomicLong();
+        volatile ScheduledFuture<?> expiryTask;
+
+        Connection(UUID userId, UUID sessionId, Instant expiresAt, WebSocketSession out, Semaphore credits,
+                   Semaphore rejections) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+            this.expiresAt = expiresAt;
+            this.out = out;
+            this.credits = credits;
+            this.rejections = rejections;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Reply(
+            String type,
+            Long seq,
+            UUID sessionId,
+            Integer window,
+            Integer accepted,
+            Integer inserted,
+            Integer queued,
+            Integer duplicates,
+            Integer filtered,
+            Integer status,
+            String message,
+            Long retryAfterSeconds
+    ) {
+        static Reply hello(UUID sessionId, int window) {
+            return new Reply("hello", null, sessionId, window, null, null, null, null, null, null, null, null);
+        }
+
+        static Reply ack(long seq, TrackingDtos.IngestResponse resp) {
+            return new Reply("ack", seq, null, null, resp.accepted(), resp.inserted(), resp.queued(), resp.duplicates(),
+                    resp.filtered(), null, null, null);
+        }
+
+        static Reply error(long seq, TrackerException ex) {
+            Long retryAfter = ex instanceof TooManyRequestsException tmr && tmr.getRetryAfterSeconds() > 0
+                    ? tmr.getRetryAfterSeconds() : null;
+            return new Reply("error", seq, null, null, null, null, null, null, null, ex.getStatus().value(), ex.getMessage(),
+                    retryAfter);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.rhaen.tracker.feature.tracking.ws;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Device ingest WebSocket (/ws/v1/tracking/ingest).
+ * window: frames a connection may have queued/unacked; further frames are rejected until acks come back.
+ */
+@ConfigurationProperties(prefix = "app.tracking.ingest.websocket")
+public record IngestWebSocketProperties(
+        int window,
+        int workers,
+        long sendTimeLimitMs,
+        int sendBufferBytes,
+        int maxFrameBytes
+) {
+    public IngestWebSocketProperties {
+        if (window <= 0) window = 8;
+        if (workers <= 0) workers = 4;
+        if (sendTimeLimitMs <= 0) sendTimeLimitMs = 10_000;
+        if (sendBufferBytes <= 0) sendBufferBytes = 64 * 1024;
+        if (maxFrameBytes <= 0) maxFrameBytes = 256 * 1024;
+    }
+}
@@ -50,6 +50,7 @@ public class SecurityConfig {
 
                                                 .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
                                                 .requestMatchers("/api/v1/tracking/**").hasAnyRole("USER", "ADMIN")
+                                                .requestMatchers("/ws/v1/tracking/**").hasAnyRole("USER", "ADMIN")
 
                                                 .anyRequest().denyAll())
 
@@ -0,0 +1,37 @@
+-- running aggregates of ACTIVE sessions, merged from every ingest batch (SessionTrackStatsUpdater);
+-- summary finalize uses them instead of recomputing from all points, row is removed afterwards
+CREATE TABLE IF NOT EXISTS session_track_stats (
+    session_id UUID PRIMARY KEY REFERENCES tracking_sessions(id) ON DELETE CASCADE,
+
+    points_count BIGINT NOT NULL,
+    distance_m DOUBLE PRECISION NOT NULL,
+
+    bbox_min_lat DOUBLE PRECISION NOT NULL,
+    bbox_min_lon DOUBLE PRECISION NOT NULL,
+    bbox_max_lat DOUBLE PRECISION NOT NULL,
+    bbox_max_lon DOUBLE PRECISION NOT NULL,
+
+    max_speed_mps DOUBLE PRECISION NULL,       -- device reported, NULL when no point had speed
+    max_est_speed_mps DOUBLE PRECISION NOT NULL, -- from consecutive points
+
+    first_lat DOUBLE PRECISION NOT NULL,
+    first_lon DOUBLE PRECISION NOT NULL,
+    first_at TIMESTAMPTZ NOT NULL,
+    last_lat DOUBLE PRECISION NOT NULL,
+    last_lon DOUBLE PRECISION NOT NULL,
+    last_at TIMESTAMPTZ NOT NULL,
+
+    -- a batch older than last_at arrived: distance/speed are unreliable, finalize does a full rebuild
+    needs_rebuild BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- same formula and radius as GeoMath.haversineMeters
+CREATE OR REPLACE FUNCTION tracker_haversine_m(lat1 DOUBLE PRECISION, lon1 DOUBLE PRECISION,
+                                               lat2 DOUBLE PRECISION, lon2 DOUBLE PRECISION)
+RETURNS DOUBLE PRECISION
+LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$
+    SELECT 2 * 6371000.0 * atan2(sqrt(a), sqrt(1 - a))
+      FROM (SELECT sin(radians(lat2 - lat1) / 2) ^ 2
+                   + cos(radians(lat1)) * cos(radians(lat2)) * sin(radians(lon2 - lon1) / 2) ^ 2 AS a) h
+$$;
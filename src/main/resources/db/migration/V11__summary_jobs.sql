@@ -0,0 +1,12 @@
+-- durable summary finalize queue: stop/expiry insert a row in their own transaction,
+-- SummaryJobWorkers claim rows with FOR UPDATE SKIP LOCKED and delete them together with the summary write.
+-- One row per session, so racing stop/expiry/retries enqueue (and run) the rebuild once.
+CREATE TABLE IF NOT EXISTS summary_jobs (
+    session_id UUID PRIMARY KEY REFERENCES tracking_sessions(id) ON DELETE CASCADE,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at TIMESTAMPTZ NOT NULL DEFAULT now(), -- retry backoff
+    last_error TEXT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_summary_jobs_available_at ON summary_jobs(available_at);
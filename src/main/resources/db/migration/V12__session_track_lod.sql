@@ -0,0 +1,16 @@
+-- precomputed track pyramid, written with session_summary: level 0 is the finest tolerance,
+-- every next level is simplified further from the previous one. A level is split into segments of
+-- consecutive points (neighbours share the boundary point), so a time window reads only its segments.
+CREATE TABLE IF NOT EXISTS session_track_lod (
+    session_id UUID NOT NULL REFERENCES tracking_sessions(id) ON DELETE CASCADE,
+    level SMALLINT NOT NULL,
+    seg_index INT NOT NULL,
+
+    epsilon_m DOUBLE PRECISION NOT NULL, -- RDP tolerance of the level
+    start_ts TIMESTAMPTZ NOT NULL,
+    end_ts TIMESTAMPTZ NOT NULL,
+    points_count INT NOT NULL,
+    polyline TEXT NOT NULL,              -- encoded polyline (1e5)
+
+    PRIMARY KEY (session_id, level, seg_index)
+);
@@ -0,0 +1,8 @@
+-- vector tiles: only summaries / live sessions whose geometry touches the tile are read
+CREATE INDEX IF NOT EXISTS gist_summary_bbox
+    ON session_summary USING gist (ST_MakeEnvelope(bbox_min_lon, bbox_min_lat, bbox_max_lon, bbox_max_lat, 4326))
+    WHERE bbox_min_lat IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS gist_sessions_active_last_point
+    ON tracking_sessions USING gist ((last_point::geometry))
+    WHERE status = 'ACTIVE';
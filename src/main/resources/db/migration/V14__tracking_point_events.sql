@@ -0,0 +1,18 @@
+-- Exact (session_id, event_id) dedup again: the V9 unique key also holds device_timestamp (partition key),
+-- so a reused eventId with another timestamp got in. This table is not partitioned and is written in the
+-- same statement as the point (the point is inserted only if its event row was new).
+-- Rows are needed only while the session can ingest; retention deletes them after the session stops.
+
+CREATE TABLE tracking_point_events (
+    session_id UUID NOT NULL REFERENCES tracking_sessions(id) ON DELETE CASCADE,
+    event_id   UUID NOT NULL,
+    CONSTRAINT tracking_point_events_pkey PRIMARY KEY (session_id, event_id)
+);
+
+-- only ACTIVE sessions can still receive retries
+INSERT INTO tracking_point_events (session_id, event_id)
+SELECT p.session_id, p.event_id
+  FROM tracking_points p
+  JOIN tracking_sessions s ON s.id = p.session_id
+ WHERE s.status = 'ACTIVE'
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,6 @@
+-- terminal state of a summary job: set by the worker when the last allowed attempt fails
+-- (or its lease ran out), such rows are never claimed again and are reported as FAILED
+ALTER TABLE summary_jobs ADD COLUMN IF NOT EXISTS failed_at TIMESTAMPTZ NULL;
+
+DROP INDEX IF EXISTS idx_summary_jobs_available_at;
+CREATE INDEX IF NOT EXISTS idx_summary_jobs_due ON summary_jobs(available_at) WHERE failed_at IS NULL;
@@ -0,0 +1,46 @@
+-- tracking_point_events (V14) -> daily RANGE partitions on the session's start day (UTC days), like V9.
+-- All keys of one session sit in one day partition; retention drops a day once no session started that day
+-- is still ACTIVE, instead of DELETE loops. session_start is tracking_sessions.start_time (set once, at start):
+-- it is copied only to be the partition key, and is in the primary key because a partitioned unique key
+-- must contain it (uniqueness per session_id is unchanged).
+
+ALTER TABLE tracking_point_events RENAME TO tracking_point_events_legacy;
+ALTER INDEX tracking_point_events_pkey RENAME TO tracking_point_events_legacy_pkey;
+
+CREATE TABLE tracking_point_events (
+    session_id    UUID        NOT NULL REFERENCES tracking_sessions(id) ON DELETE CASCADE,
+    event_id      UUID        NOT NULL,
+    session_start TIMESTAMPTZ NOT NULL,
+    CONSTRAINT tracking_point_events_pkey PRIMARY KEY (session_id, event_id, session_start)
+) PARTITION BY RANGE (session_start);
+
+-- sessions started before the oldest day partition land here (pruned row-wise, stays small)
+CREATE TABLE tracking_point_events_default PARTITION OF tracking_point_events DEFAULT;
+
+-- one partition per day from the oldest ACTIVE session up to 7 days ahead
+DO $$
+DECLARE
+    d TIMESTAMPTZ;
+    last_day TIMESTAMPTZ := date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' + INTERVAL '7 days';
+BEGIN
+    SELECT COALESCE(date_trunc('day', min(start_time) AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+                    date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC')
+      INTO d
+      FROM tracking_sessions
+     WHERE status = 'ACTIVE';
+
+    WHILE d <= last_day LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF tracking_point_events FOR VALUES FROM (%L) TO (%L)',
+                       'tracking_point_events_p' || to_char(d AT TIME ZONE 'UTC', 'YYYYMMDD'), d, d + INTERVAL '1 day');
+        d := d + INTERVAL '1 day';
+    END LOOP;
+END $$;
+
+-- keys of stopped sessions are not needed any more
+INSERT INTO tracking_point_events (session_id, event_id, session_start)
+SELECT e.session_id, e.event_id, s.start_time
+  FROM tracking_point_events_legacy e
+  JOIN tracking_sessions s ON s.id = e.session_id
+ WHERE s.status = 'ACTIVE';
+
+DROP TABLE tracking_point_events_legacy;
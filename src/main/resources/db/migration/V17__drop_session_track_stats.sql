@@ -0,0 +1,4 @@
+-- Ingest-time aggregates (V10) are gone: finalize has to stream every point for the polylines and the
+-- track pyramid anyway, and computes the aggregates in that same pass.
+DROP TABLE IF EXISTS session_track_stats;
+DROP FUNCTION IF EXISTS tracker_haversine_m(DOUBLE PRECISION, DOUBLE PRECISION, DOUBLE PRECISION, DOUBLE PRECISION);
@@ -0,0 +1,3 @@
+-- an enqueue while the job is pending or running sets requeue instead of being dropped (ON CONFLICT);
+-- claiming clears it, so when the running rebuild completes with requeue set the job is put back
+ALTER TABLE summary_jobs ADD COLUMN IF NOT EXISTS requeue BOOLEAN NOT NULL DEFAULT FALSE;
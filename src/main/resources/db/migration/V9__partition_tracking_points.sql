@@ -0,0 +1,69 @@
+-- tracking_points -> daily RANGE partitions on device_timestamp (UTC days).
+-- Retention drops whole partitions instead of DELETE loops; TrackingPointPartitions creates days ahead.
+-- Unique keys of a partitioned table must contain the partition key, so dedup is
+-- (session_id, event_id, device_timestamp): a retried point carries the same timestamp and still conflicts.
+
+ALTER TABLE tracking_points RENAME TO tracking_points_legacy;
+ALTER INDEX tracking_points_pkey RENAME TO tracking_points_legacy_pkey;
+
+CREATE TABLE tracking_points (
+    id BIGINT NOT NULL DEFAULT nextval('tracking_points_id_seq'),
+    session_id UUID NOT NULL REFERENCES tracking_sessions(id) ON DELETE CASCADE,
+
+    event_id UUID NOT NULL DEFAULT gen_random_uuid(),
+    device_timestamp TIMESTAMPTZ NOT NULL,
+    received_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+
+    point geography(Point, 4326) NOT NULL,
+    accuracy_m REAL NULL,
+    speed_mps REAL NULL,
+    heading_deg REAL NULL,
+    provider VARCHAR(16) NULL,
+    is_mock BOOLEAN NOT NULL DEFAULT FALSE,
+
+    CONSTRAINT tracking_points_pkey PRIMARY KEY (id, device_timestamp),
+    CONSTRAINT uk_points_session_event_ts UNIQUE (session_id, event_id, device_timestamp),
+    CONSTRAINT chk_points_accuracy CHECK (accuracy_m IS NULL OR accuracy_m >= 0),
+    CONSTRAINT chk_points_speed CHECK (speed_mps IS NULL OR speed_mps >= 0),
+    CONSTRAINT chk_points_heading CHECK (heading_deg IS NULL OR (heading_deg >= 0 AND heading_deg < 360))
+) PARTITION BY RANGE (device_timestamp);
+
+-- late points older than the oldest day partition land here (pruned row-wise, stays small)
+CREATE TABLE tracking_points_default PARTITION OF tracking_points DEFAULT;
+
+-- one partition per day from the oldest existing point up to 7 days ahead
+DO $$
+DECLARE
+    d TIMESTAMPTZ;
+    last_day TIMESTAMPTZ := date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' + INTERVAL '7 days';
+BEGIN
+    SELECT COALESCE(date_trunc('day', min(device_timestamp) AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+                    date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC')
+      INTO d
+      FROM tracking_points_legacy;
+
+    WHILE d <= last_day LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF tracking_points FOR VALUES FROM (%L) TO (%L)',
+                       'tracking_points_p' || to_char(d AT TIME ZONE 'UTC', 'YYYYMMDD'), d, d + INTERVAL '1 day');
+        d := d + INTERVAL '1 day';
+    END LOOP;
+END $$;
+
+INSERT INTO tracking_points
+  (id, session_id, event_id, device_timestamp, received_at, point, accuracy_m, speed_mps, heading_deg, provider, is_mock)
+SELECT id, session_id, event_id, device_timestamp, received_at, point, accuracy_m, speed_mps, heading_deg, provider, is_mock
+  FROM tracking_points_legacy;
+
+ALTER SEQUENCE tracking_points_id_seq OWNED BY tracking_points.id;
+DROP TABLE tracking_points_legacy;
+
+-- (session_id, device_timestamp) serves both scan directions, the V6 DESC copy is not recreated;
+-- the V5 device_timestamp index is replaced by partition pruning
+CREATE INDEX IF NOT EXISTS idx_points_session_device_ts
+    ON tracking_points(session_id, device_timestamp);
+
+CREATE INDEX IF NOT EXISTS idx_points_received_at
+    ON tracking_points(received_at);
+
+CREATE INDEX IF NOT EXISTS gist_points_point
+    ON tracking_points USING GIST (point);
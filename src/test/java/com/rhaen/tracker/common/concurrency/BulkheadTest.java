@@ -0,0 +1,89 @@
+package com.rhaen.tracker.common.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void whenNoWaitingAllowed_rejectsImmediately_andCounts() {
+        Bulkhead bulkhead = new Bulkhead("db", new BulkheadProperties.Limits(true, 1, 0, 1000), registry);
+        bulkhead.acquire();
+
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(BulkheadFullException.class);
+        assertThat(registry.get("tracker.bulkhead.rejected.total").tag("name", "db").counter().count()).isEqualTo(1);
+        assertThat(registry.get("tracker.bulkhead.active").tag("name", "db").gauge().value()).isEqualTo(1);
+
+        bulkhead.release();
+        bulkhead.run(() -> { });
+    }
+
+    @Test
+    void waitingCaller_getsPermit_whenReleasedInTime() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("redis", new BulkheadProperties.Limits(true, 1, 1, 2000), registry);
+        bulkhead.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread.ofVirtual().start(() -> {
+            bulkhead.acquire();
+            acquired.countDown();
+        });
+        Thread.sleep(50);
+        bulkhead.release();
+
+        assertThat(acquired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(registry.get("tracker.bulkhead.wait").tag("name", "redis").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingCaller_isRejected_afterMaxWait() {
+        Bulkhead bulkhead = new Bulkhead("db", new BulkheadProperties.Limits(true, 1, 5, 20), registry);
+        bulkhead.acquire();
+
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(BulkheadFullException.class);
+    }
+
+    @Test
+    void disabled_passesThrough() {
+        Bulkhead bulkhead = new Bulkhead("db", new BulkheadProperties.Limits(false, 1, 0, 1), registry);
+
+        bulkhead.acquire();
+        bulkhead.acquire();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dataSource_holdsPermitUntilConnectionClose_once() throws Exception {
+        Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(
+                new BulkheadProperties.Limits(true, 1, 0, 1000), null), registry);
+        ObjectProvider<Bulkheads> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(bulkheads);
+        DataSource target = mock(DataSource.class);
+        Connection raw = mock(Connection.class);
+        when(target.getConnection()).thenReturn(raw);
+        BulkheadDataSource dataSource = new BulkheadDataSource(target, provider);
+
+        Connection con = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(BulkheadFullException.class);
+
+        con.close();
+        con.close();
+        verify(raw).close();
+        dataSource.getConnection().close();
+        assertThat(registry.get("tracker.bulkhead.active").tag("name", "db").gauge().value()).isZero();
+    }
+}
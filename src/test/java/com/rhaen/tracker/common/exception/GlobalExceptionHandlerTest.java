@@ -25,6 +25,13 @@ class GlobalExceptionHandlerTest {
         assertThat(Objects.requireNonNull(resp.getBody()).message()).isEqualTo("not found");
     }
 
+    @Test
+    void handlesTooManyRequests_withRetryAfterHeader() {
+        var resp = handler.handleTrackerException(new TooManyRequestsException("slow down", 7));
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(resp.getHeaders().getFirst("Retry-After")).isEqualTo("7");
+    }
+
     @Test
     void handlesAccessDenied() {
         var resp = handler.handleAccessDenied(new org.springframework.security.access.AccessDeniedException("denied"));
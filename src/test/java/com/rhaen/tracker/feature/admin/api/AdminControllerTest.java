@@ -4,16 +4,21 @@ import com.rhaen.tracker.feature.admin.command.AdminCommandService;
 import com.rhaen.tracker.feature.admin.dto.AdminDtos;
 import com.rhaen.tracker.feature.admin.query.AdminQueryService;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.ResponseEntity;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,22 +30,41 @@ class AdminControllerTest {
     @Mock
     private AdminCommandService commandService;
 
+    @Mock
+    private SessionResponseCache responseCache;
+
     @Test
     void delegates_allEndpoints() {
-        AdminController controller = new AdminController(queryService, commandService);
+        AdminController controller = new AdminController(queryService, commandService, responseCache);
         when(queryService.listUsers(anyInt(), anyInt())).thenReturn(new AdminDtos.UserPage(List.of(), 0, 10, 0, 0));
         when(queryService.listLastLocations()).thenReturn(List.of());
         when(queryService.getSessionPoints(any(), any(), any(), any())).thenReturn(List.of());
         when(queryService.getSessionSummary(any())).thenReturn(null);
         when(queryService.listSessions(any(), any(), any(), any(), anyInt(), anyInt())).thenReturn(null);
         when(queryService.listAuditLogs(anyInt(), anyInt())).thenReturn(new PageImpl<>(List.of()));
+        when(queryService.getTrackTile(anyInt(), anyInt(), anyInt(), any(), any(), any())).thenReturn(new byte[]{1});
+        when(queryService.getLiveTile(anyInt(), anyInt(), anyInt())).thenReturn(new byte[0]);
+        when(responseCache.respond(any(), isNull(), isNull(), any())).thenAnswer(inv -> {
+            inv.<Supplier<?>>getArgument(3).get();
+            return ResponseEntity.ok(new byte[0]);
+        });
+        when(responseCache.respond(any(), isNull(), isNull(), any(), any())).thenAnswer(inv -> {
+            inv.<Supplier<?>>getArgument(3).get();
+            return ResponseEntity.ok(new byte[0]);
+        });
 
         assertThat(controller.users(0, 10).message()).isEqualTo("OK");
         assertThat(controller.lastLocations().message()).isEqualTo("OK");
-        assertThat(controller.sessionPoints(java.util.UUID.randomUUID(), null, null, null).message()).isEqualTo("OK");
-        assertThat(controller.sessionSummary(java.util.UUID.randomUUID()).message()).isEqualTo("OK");
+        assertThat(controller.sessionPoints(java.util.UUID.randomUUID(), null, null, null, null).getStatusCode().value())
+                .isEqualTo(200);
+        assertThat(controller.sessionSummary(java.util.UUID.randomUUID(), null).getStatusCode().value()).isEqualTo(200);
         assertThat(controller.sessions(null, TrackingSessionEntity.Status.ACTIVE, null, null, 0, 20).message())
                 .isEqualTo("OK");
         assertThat(controller.auditLogs(0, 20).message()).isEqualTo("OK");
+        assertThat(controller.trackTile(10, 708, 382, null, null, null).getHeaders().getContentType())
+                .isEqualTo(VectorTileService.MVT);
+        assertThat(controller.liveTile(10, 708, 382).getBody()).isEmpty();
+        verify(queryService).getSessionPoints(any(), isNull(), isNull(), isNull());
+        verify(queryService).getSessionSummary(any());
     }
 }
@@ -1,10 +1,16 @@
 package com.rhaen.tracker.feature.admin.api;
 
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.feature.admin.dto.AdminDtos;
 import com.rhaen.tracker.feature.admin.query.AdminQueryService;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationBroadcaster;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationBus;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationFilter;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationStreamProperties;
 import com.rhaen.tracker.security.jwt.StreamTokenService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -13,20 +19,29 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class AdminStreamControllerTest {
 
     @Mock private LastLocationBroadcaster broadcaster;
+    @Mock private LastLocationBus bus;
     @Mock private AdminQueryService queryService;
     @Mock private StreamTokenService streamTokenService;
 
     @Test
     void streamToken_returnsShortLivedToken() {
-        AdminStreamController controller = new AdminStreamController(broadcaster, queryService, streamTokenService);
+        AdminStreamController controller = new AdminStreamController(broadcaster, bus, queryService, streamTokenService);
         Jwt jwt = new Jwt("src", Instant.now(), Instant.now().plusSeconds(60), Map.of("alg", "HS256"), Map.of("sub", "admin"));
         when(streamTokenService.issue(jwt)).thenReturn(new StreamTokenService.StreamToken("abc", Instant.now().plusSeconds(300)));
 
@@ -36,26 +51,55 @@ class AdminStreamControllerTest {
     }
 
     @Test
-    void streamLastLocations_returnsEmitter_evenWhenInitFails() {
-        AdminStreamController controller = new AdminStreamController(broadcaster, queryService, streamTokenService);
+    void streamLastLocations_subscribesWithDefaultOverflow() {
+        AdminStreamController controller = new AdminStreamController(broadcaster, bus, queryService, streamTokenService);
         SseEmitter emitter = new SseEmitter(0L);
-        when(broadcaster.subscribe()).thenReturn(emitter);
-        when(queryService.listLastLocations()).thenThrow(new RuntimeException("boom"));
+        when(broadcaster.subscribe(isNull(), isNull(), eq(LastLocationFilter.ALL), any())).thenReturn(emitter);
 
-        SseEmitter out = controller.streamLastLocations();
+        SseEmitter out = controller.streamLastLocations(null, null, null, null);
 
         assertThat(out).isSameAs(emitter);
     }
 
     @Test
-    void streamLastLocations_sendsInit_whenDataAvailable() {
-        AdminStreamController controller = new AdminStreamController(broadcaster, queryService, streamTokenService);
-        SseEmitter emitter = new SseEmitter(0L);
-        when(broadcaster.subscribe()).thenReturn(emitter);
-        when(queryService.listLastLocations()).thenReturn(List.of());
+    void streamLastLocations_initIsTheFilteredFleet_withSubscriptionId() {
+        AdminStreamController controller = new AdminStreamController(broadcaster, bus, queryService, streamTokenService);
+        UUID followed = UUID.randomUUID();
+        LastLocationFilter filter = LastLocationFilter.of("69.1,41.2,69.4,41.4", List.of(followed));
+        when(broadcaster.subscribe(eq(LastLocationStreamProperties.Overflow.DISCONNECT), eq(500L), eq(filter), any()))
+                .thenReturn(new SseEmitter(0L));
+        when(queryService.listLastLocations(filter)).thenReturn(List.of());
 
-        SseEmitter out = controller.streamLastLocations();
+        controller.streamLastLocations(LastLocationStreamProperties.Overflow.DISCONNECT, 500L,
+                "69.1,41.2,69.4,41.4", List.of(followed));
 
-        assertThat(out).isSameAs(emitter);
+        ArgumentCaptor<BiFunction<String, LastLocationFilter, ?>> init = ArgumentCaptor.captor();
+        verify(broadcaster).subscribe(eq(LastLocationStreamProperties.Overflow.DISCONNECT), eq(500L), eq(filter),
+                init.capture());
+        assertThat(init.getValue().apply("sub-1", filter)).isInstanceOfSatisfying(AdminDtos.StreamInitResponse.class,
+                r -> {
+                    assertThat(r.subscriptionId()).isEqualTo("sub-1");
+                    assertThat(r.items()).isEmpty();
+                });
+    }
+
+    @Test
+    void updateFilter_goesThroughTheBus() {
+        AdminStreamController controller = new AdminStreamController(broadcaster, bus, queryService, streamTokenService);
+
+        controller.updateFilter("sub-1", new AdminDtos.StreamFilterRequest(
+                new AdminDtos.Bbox(41.2, 69.1, 41.4, 69.4), null));
+
+        verify(bus).updateFilter("sub-1", new LastLocationFilter(new LastLocationFilter.Area(41.2, 69.1, 41.4, 69.4), null));
+    }
+
+    @Test
+    void updateFilter_withIncompleteBbox_isBadRequest() {
+        AdminStreamController controller = new AdminStreamController(broadcaster, bus, queryService, streamTokenService);
+
+        assertThatThrownBy(() -> controller.updateFilter("sub-1", new AdminDtos.StreamFilterRequest(
+                new AdminDtos.Bbox(41.2, null, 41.4, 69.4), null)))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(bus);
     }
 }
@@ -12,7 +12,10 @@ import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationCache;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationFilter;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationSnapshot;
+import com.rhaen.tracker.feature.tracking.summary.SummaryJobQueue;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import com.rhaen.tracker.feature.user.persistence.UserEntity;
 import com.rhaen.tracker.feature.user.persistence.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -43,8 +46,12 @@ class AdminQueryServiceTest {
     @Mock
     private SessionSummaryRepository summaryRepository;
     @Mock
+    private SummaryJobQueue summaryJobQueue;
+    @Mock
     private SessionHistoryService historyService;
     @Mock
+    private VectorTileService vectorTileService;
+    @Mock
     private LastLocationCache lastLocationCache;
     @Mock
     private AdminAuditLogRepository auditRepository;
@@ -53,8 +60,8 @@ class AdminQueryServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new AdminQueryService(userRepository, sessionRepository, summaryRepository, historyService,
-                lastLocationCache, auditRepository);
+        service = new AdminQueryService(userRepository, sessionRepository, summaryRepository, summaryJobQueue, historyService,
+                vectorTileService, lastLocationCache, auditRepository);
     }
 
     @Test
@@ -96,6 +103,21 @@ class AdminQueryServiceTest {
         assertThat(rows.get(0).ts()).isAfterOrEqualTo(rows.get(1).ts());
     }
 
+    @Test
+    void listLastLocations_filtered_readsOnlyTheUsers_andAppliesTheArea() {
+        LastLocationSnapshot inside = new LastLocationSnapshot(UUID.randomUUID(), UUID.randomUUID(), "ACTIVE", true,
+                41.3, 69.2, Instant.now(), null, null, null);
+        LastLocationSnapshot outside = new LastLocationSnapshot(UUID.randomUUID(), UUID.randomUUID(), "ACTIVE", true,
+                39.6, 66.9, Instant.now(), null, null, null);
+        LastLocationFilter filter = LastLocationFilter.of("69.1,41.2,69.4,41.4", List.of(inside.userId(), outside.userId()));
+        when(lastLocationCache.getAll(filter.userIds())).thenReturn(List.of(inside, outside));
+
+        List<AdminDtos.LastLocationRow> rows = service.listLastLocations(filter);
+
+        assertThat(rows).extracting(AdminDtos.LastLocationRow::userId).containsExactly(inside.userId());
+        verify(lastLocationCache, never()).getAll();
+    }
+
     @Test
     void listSessions_mapsPage() {
         UUID userId = UUID.randomUUID();
@@ -149,6 +171,19 @@ class AdminQueryServiceTest {
 
         assertThat(out.bbox().minLat()).isEqualTo(1.0);
         assertThat(out.polyline()).isEqualTo("p");
+        assertThat(out.status()).isEqualTo("READY");
+    }
+
+    @Test
+    void getSessionSummary_reportsPendingWhileQueued() {
+        UUID sessionId = UUID.randomUUID();
+        when(summaryJobQueue.find(sessionId)).thenReturn(Optional.of(new SummaryJobQueue.Job(0, null, false)));
+        when(summaryRepository.findById(sessionId)).thenReturn(Optional.empty());
+
+        AdminDtos.SessionSummaryResponse out = service.getSessionSummary(sessionId);
+
+        assertThat(out.status()).isEqualTo("PENDING");
+        assertThat(out.polyline()).isNull();
     }
 
     @Test
@@ -11,14 +11,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -99,6 +104,99 @@ class TrackingControllerIntegrationTest extends BaseIntegrationTest {
                                 .andExpect(status().isForbidden());
         }
 
+        @Test
+        void pointsStream_pagesWithKeysetCursor() throws Exception {
+                String token = registerAndLogin("trk4");
+                String startBody = mockMvc.perform(post("/api/v1/tracking/sessions/start")
+                                .header("Authorization", "Bearer " + token))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+                UUID sessionId = UUID
+                                .fromString(objectMapper.readTree(startBody).path("data").path("sessionId").asText());
+
+                Instant t0 = Instant.now().minusSeconds(30);
+                var points = List.of(
+                                new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.3111, 69.2797, t0, 3f, null, null, "gps", false),
+                                new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.3112, 69.2798, t0.plusSeconds(1), 3f, 1.5f, null, "gps", false),
+                                new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.3113, 69.2799, t0.plusSeconds(2), 3f, 1.5f, null, "gps", false));
+                mockMvc.perform(post("/api/v1/tracking/sessions/" + sessionId + "/points")
+                                .header("Authorization", "Bearer " + token)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(new TrackingDtos.IngestPointsRequest(points))))
+                                .andExpect(status().isOk());
+
+                List<JsonNode> page1 = streamLines(token, "/api/v1/tracking/sessions/" + sessionId + "/points/stream?limit=2");
+                assertThat(page1).hasSize(3);
+                assertThat(page1.get(0).path("lat").asDouble()).isEqualTo(41.3111);
+                assertThat(page1.get(0).path("speedMps").isNull()).isTrue();
+                String next = page1.get(2).path("next").asText();
+                assertThat(next).isNotBlank();
+
+                List<JsonNode> page2 = streamLines(token,
+                                "/api/v1/tracking/sessions/" + sessionId + "/points/stream?limit=2&cursor=" + next);
+                assertThat(page2).hasSize(2);
+                assertThat(page2.get(0).path("lat").asDouble()).isEqualTo(41.3113);
+                assertThat(page2.get(1).path("next").isNull()).isTrue();
+        }
+
+        @Test
+        void points_areDownsampledInDatabase() throws Exception {
+                String token = registerAndLogin("trk5");
+                String startBody = mockMvc.perform(post("/api/v1/tracking/sessions/start")
+                                .header("Authorization", "Bearer " + token))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+                UUID sessionId = UUID
+                                .fromString(objectMapper.readTree(startBody).path("data").path("sessionId").asText());
+
+                Instant t0 = Instant.now().minusSeconds(60);
+                List<TrackingDtos.LocationPoint> points = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                        points.add(new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.3100 + i * 0.0001, 69.2797,
+                                        t0.plusSeconds(i), 3f, null, null, "gps", false));
+                }
+                mockMvc.perform(post("/api/v1/tracking/sessions/" + sessionId + "/points")
+                                .header("Authorization", "Bearer " + token)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(new TrackingDtos.IngestPointsRequest(points))))
+                                .andExpect(status().isOk());
+
+                // step = ceil(10 / 3) = 4: rows 1, 5, 9 and the last one
+                JsonNode sampled = pointsData(token, sessionId, "max=3&simplifyEpsM=0");
+                assertThat(sampled.path("total").asLong()).isEqualTo(10);
+                assertThat(sampled.path("truncated").asBoolean()).isTrue();
+                assertThat(sampled.path("points")).hasSize(4);
+                assertThat(sampled.path("points").get(1).path("lat").asDouble()).isCloseTo(41.3104, within(1e-9));
+                assertThat(sampled.path("points").get(3).path("lat").asDouble()).isCloseTo(41.3109, within(1e-9));
+
+                JsonNode first = pointsData(token, sessionId, "max=3&downsample=false");
+                assertThat(first.path("total").asLong()).isEqualTo(10);
+                assertThat(first.path("points")).hasSize(3);
+                assertThat(first.path("points").get(2).path("lat").asDouble()).isCloseTo(41.3102, within(1e-9));
+        }
+
+        private JsonNode pointsData(String token, UUID sessionId, String query) throws Exception {
+                String body = mockMvc.perform(get("/api/v1/tracking/sessions/" + sessionId + "/points?" + query)
+                                .header("Authorization", "Bearer " + token))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+                return objectMapper.readTree(body).path("data");
+        }
+
+        private List<JsonNode> streamLines(String token, String url) throws Exception {
+                MvcResult started = mockMvc.perform(get(url).header("Authorization", "Bearer " + token))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                String body = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+                List<JsonNode> lines = new ArrayList<>();
+                for (String line : body.split("\n")) {
+                        lines.add(objectMapper.readTree(line));
+                }
+                return lines;
+        }
+
         private String registerAndLogin(String prefix) throws Exception {
                 String suffix = UUID.randomUUID().toString().substring(0, 8);
                 String username = prefix + "_" + suffix;
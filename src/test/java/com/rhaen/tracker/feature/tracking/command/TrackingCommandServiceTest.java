@@ -1,17 +1,27 @@
 package com.rhaen.tracker.feature.tracking.command;
 
 import com.rhaen.tracker.common.audit.AuditService;
+import com.rhaen.tracker.common.exception.BadRequestException;
 import com.rhaen.tracker.common.exception.ConflictException;
+import com.rhaen.tracker.common.exception.ForbiddenException;
 import com.rhaen.tracker.common.exception.NotFoundException;
+import com.rhaen.tracker.common.exception.ServiceUnavailableException;
 import com.rhaen.tracker.common.exception.TooManyRequestsException;
 import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import com.rhaen.tracker.feature.tracking.ingest.IngestDedupProperties;
+import com.rhaen.tracker.feature.tracking.ingest.IngestWriteBehindBuffer;
+import com.rhaen.tracker.feature.tracking.ingest.PointColumns;
+import com.rhaen.tracker.feature.tracking.ingest.RecentEventIdFilter;
 import com.rhaen.tracker.feature.tracking.ingest.RedisRateLimiter;
 import com.rhaen.tracker.feature.tracking.ingest.TrackingIngestProperties;
 import com.rhaen.tracker.feature.tracking.ingest.TrackingPointIngestRepository;
+import com.rhaen.tracker.feature.tracking.persistence.SessionMeta;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationCache;
-import com.rhaen.tracker.feature.tracking.summary.SessionSummaryService;
+import com.rhaen.tracker.feature.tracking.session.SessionLastPointUpdater;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.summary.SummaryJobQueue;
 import com.rhaen.tracker.feature.user.persistence.UserEntity;
 import com.rhaen.tracker.feature.user.persistence.UserRepository;
 import io.micrometer.core.instrument.Counter;
@@ -24,9 +34,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.List;
@@ -36,6 +50,12 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,9 +66,15 @@ class TrackingCommandServiceTest {
     @Mock
     private TrackingSessionRepository sessionRepository;
     @Mock
+    private SessionMetaCache sessionMetaCache;
+    @Mock
+    private SessionLastPointUpdater lastPointUpdater;
+    @Mock
     private LastLocationCache lastLocationCache;
     @Mock
-    private SessionSummaryService sessionSummaryService;
+    private SummaryJobQueue summaryJobQueue;
+    @Mock
+    private PlatformTransactionManager transactionManager;
     @Mock
     private TrackingIngestProperties ingestProps;
     @Mock
@@ -68,22 +94,34 @@ class TrackingCommandServiceTest {
     @Mock
     private Counter pointsInsertedCounter;
     @Mock
+    private Counter pointsDuplicateCounter;
+    @Mock
+    private Counter pointsFilteredCounter;
+    @Mock
     private Timer ingestTimer;
 
+    private RecentEventIdFilter recentEventIdFilter;
     private TrackingCommandService service;
     private final GeometryFactory gf = new GeometryFactory(new PrecisionModel(), 4326);
 
     @BeforeEach
     void setUp() {
         MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        recentEventIdFilter = new RecentEventIdFilter(new IngestDedupProperties(true, 256, 1000, 600));
+        ReflectionTestUtils.invokeMethod(recentEventIdFilter, "init");
         service = new TrackingCommandService(
                 userRepository,
                 sessionRepository,
+                sessionMetaCache,
+                lastPointUpdater,
                 lastLocationCache,
-                sessionSummaryService,
+                summaryJobQueue,
+                new TransactionTemplate(transactionManager),
                 ingestProps,
                 rateLimiter,
                 ingestRepository,
+                Optional.empty(),
+                recentEventIdFilter,
                 auditService,
                 meterRegistry);
         ReflectionTestUtils.setField(service, "sessionStartCounter", sessionStartCounter);
@@ -91,6 +129,8 @@ class TrackingCommandServiceTest {
         ReflectionTestUtils.setField(service, "ingestRequestsCounter", ingestRequestsCounter);
         ReflectionTestUtils.setField(service, "pointsAcceptedCounter", pointsAcceptedCounter);
         ReflectionTestUtils.setField(service, "pointsInsertedCounter", pointsInsertedCounter);
+        ReflectionTestUtils.setField(service, "pointsDuplicateCounter", pointsDuplicateCounter);
+        ReflectionTestUtils.setField(service, "pointsFilteredCounter", pointsFilteredCounter);
         ReflectionTestUtils.setField(service, "ingestTimer", ingestTimer);
     }
 
@@ -127,7 +167,7 @@ class TrackingCommandServiceTest {
     }
 
     @Test
-    void stopSession_buildsSummaryAndStops() {
+    void stopSession_queuesSummaryAndStops() {
         UUID userId = UUID.randomUUID();
         UUID sessionId = UUID.randomUUID();
         UserEntity user = UserEntity.builder().id(userId).build();
@@ -143,10 +183,39 @@ class TrackingCommandServiceTest {
         service.stopSession(sessionId, userId, new TrackingDtos.StopSessionRequest(null, null, null));
 
         assertThat(session.getStatus()).isEqualTo(TrackingSessionEntity.Status.STOPPED);
-        verify(sessionSummaryService).buildOrRebuild(session);
+        verify(lastPointUpdater).flush(sessionId);
+        // the row is locked before the coalesced last point and the status change touch it
+        InOrder order = inOrder(sessionRepository, lastPointUpdater);
+        order.verify(sessionRepository).lockForStatusChange(sessionId);
+        order.verify(lastPointUpdater).flush(sessionId);
+        order.verify(sessionRepository).save(session);
+        verify(summaryJobQueue).enqueue(session.getId());
+        verify(sessionMetaCache).invalidate(sessionId);
         verify(sessionStopCounter).increment();
     }
 
+    @Test
+    void stopSession_writeBehind_waitsForBufferBeforeTransaction() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        IngestWriteBehindBuffer buffer = mock(IngestWriteBehindBuffer.class);
+        ReflectionTestUtils.setField(service, "writeBehindBuffer", Optional.of(buffer));
+        when(ingestProps.writeBehind()).thenReturn(new TrackingIngestProperties.WriteBehind(true, 100, 1, 100, 10, 2000, 5, 3));
+        TrackingSessionEntity session = TrackingSessionEntity.builder()
+                .id(sessionId)
+                .user(UserEntity.builder().id(userId).build())
+                .status(TrackingSessionEntity.Status.ACTIVE)
+                .build();
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+
+        service.stopSession(sessionId, userId, new TrackingDtos.StopSessionRequest(null, null, null));
+
+        InOrder order = inOrder(buffer, transactionManager);
+        order.verify(buffer).awaitSession(sessionId, 2000);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(transactionManager).commit(any());
+    }
+
     @Test
     void stopSession_whenMissing_throwsNotFound() {
         UUID userId = UUID.randomUUID();
@@ -162,13 +231,7 @@ class TrackingCommandServiceTest {
     void ingestPoints_whenRateLimited_throws429() {
         UUID userId = UUID.randomUUID();
         UUID sessionId = UUID.randomUUID();
-        UserEntity user = UserEntity.builder().id(userId).build();
-        TrackingSessionEntity session = TrackingSessionEntity.builder()
-                .id(sessionId)
-                .user(user)
-                .status(TrackingSessionEntity.Status.ACTIVE)
-                .build();
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
         when(ingestProps.maxBatchSize()).thenReturn(100);
         when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(false, 999));
 
@@ -187,4 +250,192 @@ class TrackingCommandServiceTest {
         assertThatThrownBy(() -> service.ingestPoints(sessionId, userId, req))
                 .isInstanceOf(TooManyRequestsException.class);
     }
+
+    @Test
+    void ingestPoints_whenRateLimited_carriesRetryAfter() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(false, 320, 2100));
+
+        assertThatThrownBy(() -> service.ingestPoints(sessionId, userId, singlePointRequest()))
+                .isInstanceOfSatisfying(TooManyRequestsException.class,
+                        ex -> assertThat(ex.getRetryAfterSeconds()).isEqualTo(3));
+    }
+
+    @Test
+    void ingestPoints_writeBehind_whenBufferFull_throws503() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        IngestWriteBehindBuffer buffer = mock(IngestWriteBehindBuffer.class);
+        ReflectionTestUtils.setField(service, "writeBehindBuffer", Optional.of(buffer));
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        when(buffer.offer(eq(sessionId), any(), any(PointColumns.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> service.ingestPoints(sessionId, userId, singlePointRequest()))
+                .isInstanceOf(ServiceUnavailableException.class);
+        verify(ingestRepository, never()).insertColumns(any(), any(), any());
+    }
+
+    @Test
+    void ingestPoints_writeBehind_queuesInsteadOfInsert() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        IngestWriteBehindBuffer buffer = mock(IngestWriteBehindBuffer.class);
+        ReflectionTestUtils.setField(service, "writeBehindBuffer", Optional.of(buffer));
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        when(buffer.offer(eq(sessionId), any(), any(PointColumns.class))).thenReturn(true);
+
+        var resp = service.ingestPoints(sessionId, userId, singlePointRequest());
+
+        assertThat(resp.accepted()).isEqualTo(1);
+        assertThat(resp.inserted()).isZero();
+        assertThat(resp.queued()).isEqualTo(1);
+        verify(ingestRepository, never()).insertColumns(any(), any(), any());
+        // the cached status decides, no connection is borrowed
+        verify(sessionRepository, never()).isActive(any());
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void ingestPoints_usesCachedMeta_andRecordsCoalescedLastPoint() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        when(ingestRepository.insertColumns(eq(sessionId), any(), any())).thenReturn(1);
+
+        var resp = service.ingestPoints(sessionId, userId, singlePointRequest());
+
+        assertThat(resp.inserted()).isEqualTo(1);
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).save(any());
+        verify(lastPointUpdater).record(eq(sessionId), any(SessionLastPointUpdater.LastPoint.class),
+                any(SessionLastPointUpdater.LastPoint.class));
+        verify(sessionMetaCache).markStartPoint(sessionId);
+    }
+
+    @Test
+    void ingestPoints_whenSessionNotOwned_throws403() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(UUID.randomUUID())));
+
+        assertThatThrownBy(() -> service.ingestPoints(sessionId, UUID.randomUUID(), singlePointRequest()))
+                .isInstanceOf(ForbiddenException.class);
+        verify(ingestRepository, never()).insertColumns(any(), any(), any());
+    }
+
+    @Test
+    void ingestPoints_whenStartPointKnown_recordsOnlyLastPoint() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(
+                new SessionMeta(userId, TrackingSessionEntity.Status.ACTIVE, true)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        when(ingestRepository.insertColumns(eq(sessionId), any(), any())).thenReturn(1);
+
+        service.ingestPoints(sessionId, userId, singlePointRequest());
+
+        verify(lastPointUpdater).record(eq(sessionId), isNull(), any(SessionLastPointUpdater.LastPoint.class));
+        verify(sessionMetaCache, never()).markStartPoint(any());
+    }
+
+    @Test
+    void ingestPoints_dedupesByEventId_andInsertsColumns() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 2)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 2));
+        when(ingestRepository.insertColumns(eq(sessionId), any(), any())).thenReturn(1);
+
+        var point = singlePointRequest().points().get(0);
+        var resp = service.ingestPoints(sessionId, userId, new TrackingDtos.IngestPointsRequest(List.of(point, point)));
+
+        ArgumentCaptor<PointColumns> captor = ArgumentCaptor.forClass(PointColumns.class);
+        verify(ingestRepository).insertColumns(eq(sessionId), any(), captor.capture());
+        assertThat(captor.getValue().size()).isEqualTo(1);
+        assertThat(captor.getValue().eventId(0)).isEqualTo(point.eventId());
+        assertThat(resp.accepted()).isEqualTo(2);
+        assertThat(resp.inserted()).isEqualTo(1);
+        assertThat(resp.duplicates()).isEqualTo(1);
+        assertThat(resp.filtered()).isZero();
+    }
+
+    @Test
+    void ingestPoints_retriedBatch_isDroppedBeforeInsert() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        when(ingestRepository.insertColumns(eq(sessionId), any(), any())).thenReturn(1);
+        var req = singlePointRequest();
+
+        service.ingestPoints(sessionId, userId, req);
+        var retry = service.ingestPoints(sessionId, userId, req);
+
+        assertThat(retry.accepted()).isEqualTo(1);
+        assertThat(retry.inserted()).isZero();
+        assertThat(retry.duplicates()).isZero();
+        assertThat(retry.filtered()).isEqualTo(1);
+        verify(ingestRepository, times(1)).insertColumns(eq(sessionId), any(), any());
+        verify(pointsFilteredCounter).increment(1);
+    }
+
+    @Test
+    void ingestPoints_whenStoppedOnAnotherNode_rejectsAndInvalidatesCache() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId))); // stale
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        // the insert skipped every row: the session row is no longer ACTIVE
+        when(ingestRepository.insertColumns(eq(sessionId), any(), any())).thenReturn(0);
+        when(sessionRepository.isActive(sessionId)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.ingestPoints(sessionId, userId, singlePointRequest()))
+                .isInstanceOf(BadRequestException.class);
+        verify(sessionMetaCache).invalidate(sessionId);
+        verify(lastPointUpdater, never()).record(any(), any(), any());
+    }
+
+    @Test
+    void ingestPoints_whenAllRowsInserted_doesNotReadSessionRow() {
+        UUID userId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        when(sessionMetaCache.get(sessionId)).thenReturn(Optional.of(activeMeta(userId)));
+        when(ingestProps.maxBatchSize()).thenReturn(100);
+        when(rateLimiter.consumePoints(userId, 1)).thenReturn(new RedisRateLimiter.RateLimitResult(true, 1));
+        when(ingestRepository.insertColumns(eq(sessionId), any(), any())).thenReturn(1);
+
+        service.ingestPoints(sessionId, userId, singlePointRequest());
+
+        verify(sessionRepository, never()).isActive(any());
+    }
+
+    private static SessionMeta activeMeta(UUID userId) {
+        return new SessionMeta(userId, TrackingSessionEntity.Status.ACTIVE, false);
+    }
+
+    private static TrackingDtos.IngestPointsRequest singlePointRequest() {
+        return new TrackingDtos.IngestPointsRequest(List.of(
+                new TrackingDtos.LocationPoint(
+                        UUID.randomUUID(),
+                        41.31,
+                        69.27,
+                        Instant.now(),
+                        1f,
+                        1f,
+                        20f,
+                        "gps",
+                        false)));
+    }
 }
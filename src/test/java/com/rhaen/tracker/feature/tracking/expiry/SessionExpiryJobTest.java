@@ -4,7 +4,9 @@ import com.rhaen.tracker.common.util.GeoUtils;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
 import com.rhaen.tracker.feature.tracking.realtime.LastLocationCache;
-import com.rhaen.tracker.feature.tracking.summary.SessionSummaryService;
+import com.rhaen.tracker.feature.tracking.session.SessionLastPointUpdater;
+import com.rhaen.tracker.feature.tracking.session.SessionMetaCache;
+import com.rhaen.tracker.feature.tracking.summary.SummaryJobQueue;
 import com.rhaen.tracker.feature.user.persistence.UserEntity;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -29,10 +31,14 @@ class SessionExpiryJobTest {
     @Mock
     private TrackingSessionRepository sessionRepository;
     @Mock
-    private SessionSummaryService summaryService;
+    private SummaryJobQueue summaryJobQueue;
     @Mock
     private LastLocationCache lastLocationCache;
     @Mock
+    private SessionMetaCache sessionMetaCache;
+    @Mock
+    private SessionLastPointUpdater lastPointUpdater;
+    @Mock
     private MeterRegistry meterRegistry;
     @Mock
     private Counter counter;
@@ -44,8 +50,10 @@ class SessionExpiryJobTest {
         when(meterRegistry.counter("tracker.session.expired.total")).thenReturn(counter);
         job = new SessionExpiryJob(
                 sessionRepository,
-                summaryService,
+                summaryJobQueue,
                 lastLocationCache,
+                sessionMetaCache,
+                lastPointUpdater,
                 new SessionExpiryProperties(300, 600, 60, 100),
                 meterRegistry
         );
@@ -53,7 +61,7 @@ class SessionExpiryJobTest {
     }
 
     @Test
-    void sweep_expiresSessions_andBuildsSummary_andUpdatesCache() {
+    void sweep_expiresSessions_andQueuesSummary_andUpdatesCache() {
         TrackingSessionEntity s1 = activeSession(true, true);
         TrackingSessionEntity s2 = activeSession(false, true);
 
@@ -65,8 +73,12 @@ class SessionExpiryJobTest {
         job.sweep();
 
         verify(sessionRepository, atLeast(2)).save(any(TrackingSessionEntity.class));
-        verify(summaryService, times(2)).buildOrRebuild(any(TrackingSessionEntity.class));
+        verify(summaryJobQueue).enqueue(s1.getId());
+        verify(summaryJobQueue).enqueue(s2.getId());
         verify(lastLocationCache, atLeastOnce()).upsert(any());
+        verify(sessionMetaCache).invalidate(s1.getId());
+        verify(sessionMetaCache).invalidate(s2.getId());
+        verify(lastPointUpdater).flushAll();
         verify(counter, times(2)).increment();
     }
 
@@ -83,7 +95,7 @@ class SessionExpiryJobTest {
         job.sweep();
 
         verify(sessionRepository, never()).save(stopped);
-        verify(summaryService, never()).buildOrRebuild(any());
+        verify(summaryJobQueue, never()).enqueue(any());
         verify(counter, never()).increment();
     }
 
@@ -3,12 +3,13 @@ package com.rhaen.tracker.feature.tracking.history;
 import com.rhaen.tracker.common.exception.BadRequestException;
 import com.rhaen.tracker.common.exception.ForbiddenException;
 import com.rhaen.tracker.common.exception.NotFoundException;
-import com.rhaen.tracker.common.util.GeoUtils;
 import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
-import com.rhaen.tracker.feature.tracking.persistence.TrackingPointEntity;
-import com.rhaen.tracker.feature.tracking.persistence.TrackingPointRepository;
+import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryEntity;
+import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import com.rhaen.tracker.feature.tracking.summary.SessionTrackLodStore;
+import com.rhaen.tracker.feature.tracking.summary.TrackPyramid;
 import com.rhaen.tracker.feature.user.persistence.UserEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,7 +32,13 @@ class SessionHistoryServiceTest {
     @Mock
     private TrackingSessionRepository sessionRepository;
     @Mock
-    private TrackingPointRepository pointRepository;
+    private SessionPointStream pointStream;
+    @Mock
+    private SessionPointSampler pointSampler;
+    @Mock
+    private SessionSummaryRepository summaryRepository;
+    @Mock
+    private SessionTrackLodStore lodStore;
 
     private SessionHistoryService service;
 
@@ -39,8 +46,11 @@ class SessionHistoryServiceTest {
     void setUp() {
         service = new SessionHistoryService(
                 sessionRepository,
-                pointRepository,
-                new TrackingHistoryProperties(3, 10));
+                new TrackingHistoryProperties(3, 10, 0),
+                pointStream,
+                pointSampler,
+                summaryRepository,
+                lodStore);
     }
 
     @Test
@@ -57,7 +67,7 @@ class SessionHistoryServiceTest {
     void getSessionPoints_throws_whenAboveHardLimit() {
         UUID sessionId = UUID.randomUUID();
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, UUID.randomUUID())));
-        when(pointRepository.countBySessionId(sessionId)).thenReturn(11L);
+        when(pointSampler.everyNth(sessionId, null, null, 3)).thenReturn(new SessionPointSampler.Sample(List.of(), 11));
 
         assertThatThrownBy(() -> service.getSessionPoints(sessionId, null, null, null))
                 .isInstanceOf(BadRequestException.class)
@@ -65,25 +75,20 @@ class SessionHistoryServiceTest {
     }
 
     @Test
-    void getSessionPoints_downsamples_and_keepsLast() {
+    void getSessionPoints_returnsDatabaseSample() {
         UUID sessionId = UUID.randomUUID();
+        Instant from = Instant.parse("2026-01-01T00:00:00Z");
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, UUID.randomUUID())));
 
-        List<TrackingPointEntity> points = List.of(
+        List<TrackingDtos.PointRow> sampled = List.of(
                 point(1, 41.0, 69.0),
-                point(2, 41.1, 69.1),
                 point(3, 41.2, 69.2),
-                point(4, 41.3, 69.3),
                 point(5, 41.4, 69.4));
+        when(pointSampler.everyNth(sessionId, from, null, 3)).thenReturn(new SessionPointSampler.Sample(sampled, 5));
 
-        when(pointRepository.countBySessionId(sessionId)).thenReturn(5L);
-        when(pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId)).thenReturn(points);
-
-        List<TrackingDtos.PointRow> result = service.getSessionPoints(sessionId, null, null, 3);
+        List<TrackingDtos.PointRow> result = service.getSessionPoints(sessionId, from, null, 3);
 
-        assertThat(result).hasSize(3);
-        assertThat(result.getLast().lat()).isEqualTo(41.4);
-        assertThat(result.getLast().lon()).isEqualTo(69.4);
+        assertThat(result).isEqualTo(sampled);
     }
 
     @Test
@@ -103,8 +108,7 @@ class SessionHistoryServiceTest {
         UUID sessionId = UUID.randomUUID();
         UUID userId = UUID.randomUUID();
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
-        when(pointRepository.countBySessionId(sessionId)).thenReturn(0L);
-        when(pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId)).thenReturn(List.of());
+        when(pointSampler.everyNth(sessionId, null, null, 20)).thenReturn(new SessionPointSampler.Sample(List.of(), 0));
 
         TrackingDtos.PointsResponse result = service.getSessionPointsForUser(sessionId, userId, false, null, null, 5,
                 true, 5.0);
@@ -115,18 +119,13 @@ class SessionHistoryServiceTest {
     }
 
     @Test
-    void getSessionPointsForUser_nonDownsample_truncatesToMax() {
+    void getSessionPointsForUser_nonDownsample_takesFirstMax() {
         UUID sessionId = UUID.randomUUID();
         UUID userId = UUID.randomUUID();
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
 
-        List<TrackingPointEntity> points = List.of(
-                point(1, 41.0, 69.0),
-                point(2, 41.1, 69.1),
-                point(3, 41.2, 69.2),
-                point(4, 41.3, 69.3));
-        when(pointRepository.countBySessionId(sessionId)).thenReturn(4L);
-        when(pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId)).thenReturn(points);
+        List<TrackingDtos.PointRow> first = List.of(point(1, 41.0, 69.0), point(2, 41.1, 69.1));
+        when(pointSampler.first(sessionId, null, null, 2)).thenReturn(new SessionPointSampler.Sample(first, 4));
 
         TrackingDtos.PointsResponse result = service.getSessionPointsForUser(sessionId, userId, false, null, null, 2,
                 false, 0);
@@ -134,65 +133,111 @@ class SessionHistoryServiceTest {
         assertThat(result.points()).hasSize(2);
         assertThat(result.truncated()).isTrue();
         assertThat(result.total()).isEqualTo(4);
+        verify(pointSampler, never()).everyNth(any(), any(), any(), anyInt());
     }
 
     @Test
-    void getSessionPointsForUser_rangeBranches_work() {
+    void getSessionPointsForUser_stepDownsample_passesRangeAndMax() {
         UUID sessionId = UUID.randomUUID();
         UUID userId = UUID.randomUUID();
         Instant from = Instant.parse("2026-01-01T00:00:00Z");
         Instant to = Instant.parse("2026-01-02T00:00:00Z");
-
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
-
-        when(pointRepository.countBySessionIdAndDeviceTimestampBetween(sessionId, from, to)).thenReturn(1L);
-        when(pointRepository.findBySessionIdAndDeviceTimestampBetweenOrderByDeviceTimestampAsc(sessionId, from, to))
-                .thenReturn(List.of(point(1, 41.0, 69.0)));
+        when(pointSampler.everyNth(sessionId, from, to, 10))
+                .thenReturn(new SessionPointSampler.Sample(List.of(point(1, 41.0, 69.0)), 1));
 
         TrackingDtos.PointsResponse between = service.getSessionPointsForUser(sessionId, userId, false, from, to, 10,
                 true, 0);
-        assertThat(between.points()).hasSize(1);
 
-        when(pointRepository.countBySessionIdAndDeviceTimestampGreaterThanEqual(sessionId, from)).thenReturn(1L);
-        when(pointRepository.findBySessionIdAndDeviceTimestampGreaterThanEqualOrderByDeviceTimestampAsc(sessionId,
-                from))
-                .thenReturn(List.of(point(2, 41.2, 69.2)));
-        TrackingDtos.PointsResponse fromOnly = service.getSessionPointsForUser(sessionId, userId, false, from, null, 10,
-                true, 0);
-        assertThat(fromOnly.points()).hasSize(1);
+        assertThat(between.points()).hasSize(1);
+        assertThat(between.truncated()).isFalse();
+    }
 
-        when(pointRepository.countBySessionIdAndDeviceTimestampLessThanEqual(sessionId, to)).thenReturn(1L);
-        when(pointRepository.findBySessionIdAndDeviceTimestampLessThanEqualOrderByDeviceTimestampAsc(sessionId, to))
-                .thenReturn(List.of(point(3, 41.3, 69.3)));
-        TrackingDtos.PointsResponse toOnly = service.getSessionPointsForUser(sessionId, userId, false, null, to, 10,
-                true, 0);
-        assertThat(toOnly.points()).hasSize(1);
+    @Test
+    void getSessionPointsForUser_throws_whenAboveHardLimit() {
+        UUID sessionId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
+        when(pointSampler.first(sessionId, null, null, 10)).thenReturn(new SessionPointSampler.Sample(List.of(), 11));
 
-        verify(pointRepository).countBySessionIdAndDeviceTimestampBetween(sessionId, from, to);
-        verify(pointRepository).countBySessionIdAndDeviceTimestampGreaterThanEqual(sessionId, from);
-        verify(pointRepository).countBySessionIdAndDeviceTimestampLessThanEqual(sessionId, to);
+        assertThatThrownBy(() -> service.getSessionPointsForUser(sessionId, userId, false, null, null, 50, false, 0))
+                .isInstanceOf(BadRequestException.class);
     }
 
     @Test
-    void getSessionPointsForUser_rdpSimplifies_whenEnabled() {
+    void getSessionPointsForUser_rdpSimplifies_oversampledRows() {
         UUID sessionId = UUID.randomUUID();
         UUID userId = UUID.randomUUID();
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
 
-        List<TrackingPointEntity> points = List.of(
+        List<TrackingDtos.PointRow> points = List.of(
                 point(1, 41.0000, 69.0000),
                 point(2, 41.0004, 69.0000),
                 point(3, 41.0008, 69.0000),
                 point(4, 41.0012, 69.0000),
                 point(5, 41.0016, 69.0000));
-        when(pointRepository.countBySessionId(sessionId)).thenReturn((long) points.size());
-        when(pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId)).thenReturn(points);
+        when(pointSampler.everyNth(sessionId, null, null, 8)).thenReturn(new SessionPointSampler.Sample(points, 9));
 
-        TrackingDtos.PointsResponse result = service.getSessionPointsForUser(sessionId, userId, false, null, null, 10,
+        TrackingDtos.PointsResponse result = service.getSessionPointsForUser(sessionId, userId, false, null, null, 2,
                 true, 50.0);
 
-        assertThat(result.points().size()).isLessThanOrEqualTo(points.size());
-        assertThat(result.total()).isEqualTo(points.size());
+        // straight line: RDP keeps the ends only
+        assertThat(result.points()).containsExactly(points.getFirst(), points.getLast());
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.total()).isEqualTo(9);
+    }
+
+    @Test
+    void streamSessionPointsForUser_checksOwnerBeforeStreaming() {
+        UUID sessionId = UUID.randomUUID();
+        UUID owner = UUID.randomUUID();
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, owner)));
+
+        assertThatThrownBy(() -> service.streamSessionPointsForUser(sessionId, UUID.randomUUID(), false,
+                null, null, null, null))
+                .isInstanceOf(ForbiddenException.class);
+        verifyNoInteractions(pointStream);
+
+        service.streamSessionPointsForUser(sessionId, owner, false, null, null, "c", 100);
+        verify(pointStream).ndjson(sessionId, null, null, "c", 100);
+    }
+
+    @Test
+    void getSessionTrackForUser_zoomBecomesOnePixelAtTrackLatitude() {
+        UUID sessionId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        Instant from = Instant.parse("2026-01-01T00:00:00Z");
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
+        when(summaryRepository.findById(sessionId)).thenReturn(Optional.of(SessionSummaryEntity.builder()
+                .bboxMinLat(60.0).bboxMaxLat(60.0).build()));
+        // zoom 10 at 60 degrees: 156543.03392 * 0.5 / 1024 = ~76.4 m per pixel
+        when(lodStore.find(eq(sessionId), doubleThat(t -> Math.abs(t - 76.437) < 0.01), eq(from), isNull()))
+                .thenReturn(List.of(new TrackPyramid.Segment(5, 64.0, 3, 1_767_225_600_000_000L,
+                        1_767_225_660_500_000L, 12, "_p~iF~ps|U")));
+
+        TrackingDtos.TrackResponse result = service.getSessionTrackForUser(sessionId, userId, false, 10, null,
+                from, null);
+
+        assertThat(result.level()).isEqualTo(5);
+        assertThat(result.epsilonM()).isEqualTo(64.0);
+        assertThat(result.segments()).singleElement().satisfies(seg -> {
+            assertThat(seg.index()).isEqualTo(3);
+            assertThat(seg.startTs()).isEqualTo(from);
+            assertThat(seg.endTs()).isEqualTo(Instant.parse("2026-01-01T00:01:00.5Z"));
+            assertThat(seg.points()).isEqualTo(12);
+        });
+    }
+
+    @Test
+    void getSessionTrackForUser_throws_untilSummaryIsBuilt() {
+        UUID sessionId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session(sessionId, userId)));
+        when(summaryRepository.findById(sessionId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.getSessionTrackForUser(sessionId, userId, false, null, 8.0, null, null))
+                .isInstanceOf(NotFoundException.class);
+        verifyNoInteractions(lodStore);
     }
 
     private static TrackingSessionEntity session(UUID sessionId, UUID userId) {
@@ -206,12 +251,8 @@ class SessionHistoryServiceTest {
                 .build();
     }
 
-    private static TrackingPointEntity point(int second, double lat, double lon) {
-        return TrackingPointEntity.builder()
-                .eventId(UUID.randomUUID())
-                .deviceTimestamp(Instant.parse("2026-01-01T00:00:00Z").plusSeconds(second))
-                .receivedAt(Instant.now())
-                .point(GeoUtils.point(lon, lat))
-                .build();
+    private static TrackingDtos.PointRow point(int second, double lat, double lon) {
+        return new TrackingDtos.PointRow(Instant.parse("2026-01-01T00:00:00Z").plusSeconds(second), lat, lon,
+                null, null, null);
     }
 }
@@ -0,0 +1,37 @@
+package com.rhaen.tracker.feature.tracking.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SessionPointStreamTest {
+
+    private final SessionPointStream stream = new SessionPointStream(mock(JdbcTemplate.class),
+            mock(PlatformTransactionManager.class), new ObjectMapper(), new TrackingHistoryProperties(2000, 200000, 0));
+
+    @Test
+    void keyset_roundTripsMicrosecondTimestampAndId() {
+        var keyset = new SessionPointStream.Keyset(Instant.parse("2026-01-29T10:00:00.123456Z"), 987654321L);
+
+        assertThat(SessionPointStream.Keyset.decode(keyset.encode())).isEqualTo(keyset);
+    }
+
+    @Test
+    void ndjson_rejectsBadCursorAndLimitBeforeStreaming() {
+        UUID sessionId = UUID.randomUUID();
+
+        assertThatThrownBy(() -> stream.ndjson(sessionId, null, null, "not-a-cursor", null))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> stream.ndjson(sessionId, null, null, null, 0))
+                .isInstanceOf(BadRequestException.class);
+    }
+}
@@ -0,0 +1,188 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.BaseIntegrationTest;
+import com.rhaen.tracker.security.jwt.JwtProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 5k simulated devices posting point batches concurrently, platform vs virtual request threads.
+ * Prints throughput, latency percentiles, status codes and bulkhead rejections per mode.
+ * Excluded from the default test task; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = {
+        "server.tomcat.max-connections=10000",
+        "server.tomcat.accept-count=5000"
+})
+abstract class IngestConcurrencyBenchmarkTest extends BaseIntegrationTest {
+
+        private static final int DEVICES = 5_000;
+        private static final int BATCHES_PER_DEVICE = 4;
+        private static final int POINTS_PER_BATCH = 10;
+
+        @LocalServerPort
+        private int port;
+        @Value("${server.servlet.context-path:}")
+        private String contextPath;
+        @Value("${spring.threads.virtual.enabled:false}")
+        private boolean virtualThreads;
+
+        @Autowired
+        private JdbcTemplate jdbc;
+        @Autowired
+        private JwtEncoder jwtEncoder;
+        @Autowired
+        private JwtProperties jwtProperties;
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Test
+        void fiveThousandDevices_ingestConcurrently() throws Exception {
+                List<Device> devices = seedDevices();
+                int requests = DEVICES * BATCHES_PER_DEVICE;
+                AtomicLongArray latenciesMicros = new AtomicLongArray(requests);
+                AtomicInteger index = new AtomicInteger();
+                Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+
+                try (HttpClient client = HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_1_1)
+                                .connectTimeout(Duration.ofSeconds(30))
+                                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                                .build();
+                     var deviceThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+
+                        long start = System.nanoTime();
+                        for (Device d : devices) {
+                                deviceThreads.submit(() -> {
+                                        for (int b = 0; b < BATCHES_PER_DEVICE; b++) {
+                                                long t0 = System.nanoTime();
+                                                int status;
+                                                try {
+                                                        status = client.send(request(d, b), HttpResponse.BodyHandlers.discarding())
+                                                                        .statusCode();
+                                                } catch (Exception e) {
+                                                        status = -1;
+                                                }
+                                                latenciesMicros.set(index.getAndIncrement(), (System.nanoTime() - t0) / 1_000);
+                                                statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                                        }
+                                        return null;
+                                });
+                        }
+                        deviceThreads.shutdown();
+                        assertThat(deviceThreads.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+                        double seconds = (System.nanoTime() - start) / 1e9;
+
+                        long[] sorted = new long[requests];
+                        for (int i = 0; i < requests; i++) sorted[i] = latenciesMicros.get(i);
+                        Arrays.sort(sorted);
+
+                        double rejected = meterRegistry.find("tracker.bulkhead.rejected.total").counters().stream()
+                                        .mapToDouble(c -> c.count()).sum();
+                        System.out.printf("%s threads, %d devices x %d batches: %.0f req/s (%.0f points/s), "
+                                                        + "p50 %d ms, p99 %d ms, max %d ms, statuses %s, bulkhead rejections %.0f%n",
+                                        virtualThreads ? "virtual" : "platform", DEVICES, BATCHES_PER_DEVICE,
+                                        requests / seconds, requests * POINTS_PER_BATCH / seconds,
+                                        sorted[requests / 2] / 1000, sorted[(int) (requests * 0.99)] / 1000,
+                                        sorted[requests - 1] / 1000, statuses, rejected);
+                }
+
+                assertThat(statuses.getOrDefault(200, new AtomicInteger()).get()).isPositive();
+        }
+
+        private HttpRequest request(Device d, int batch) {
+                StringBuilder body = new StringBuilder("{\"points\":[");
+                Instant base = Instant.now().minusSeconds(POINTS_PER_BATCH);
+                for (int i = 0; i < POINTS_PER_BATCH; i++) {
+                        if (i > 0) body.append(',');
+                        body.append("{\"eventId\":\"").append(UUID.randomUUID())
+                                        .append("\",\"lat\":").append(41.31 + batch * 1e-4 + i * 1e-5)
+                                        .append(",\"lon\":").append(69.27 + i * 1e-5)
+                                        .append(",\"deviceTimestamp\":\"").append(base.plusSeconds(i))
+                                        .append("\",\"accuracyM\":5,\"provider\":\"gps\"}");
+                }
+                body.append("]}");
+
+                return HttpRequest.newBuilder()
+                                .uri(URI.create("http://localhost:" + port + contextPath
+                                                + "/api/v1/tracking/sessions/" + d.sessionId() + "/points"))
+                                .timeout(Duration.ofSeconds(60))
+                                .header("Authorization", "Bearer " + d.token())
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                                .build();
+        }
+
+        private List<Device> seedDevices() {
+                String run = UUID.randomUUID().toString().substring(0, 6);
+                List<Object[]> users = new ArrayList<>(DEVICES);
+                List<Object[]> sessions = new ArrayList<>(DEVICES);
+                List<Device> devices = new ArrayList<>(DEVICES);
+                for (int i = 0; i < DEVICES; i++) {
+                        UUID userId = UUID.randomUUID();
+                        UUID sessionId = UUID.randomUUID();
+                        users.add(new Object[]{userId, "dev_" + run + "_" + i, "dev_" + run + "_" + i + "@mail.com"});
+                        sessions.add(new Object[]{sessionId, userId});
+                        devices.add(new Device(sessionId, token(userId)));
+                }
+                jdbc.batchUpdate("INSERT INTO users (id, username, email, password_hash, role) VALUES (?, ?, ?, 'hashed', 'USER')",
+                                users);
+                jdbc.batchUpdate("INSERT INTO tracking_sessions (id, user_id, start_time, status) VALUES (?, ?, now(), 'ACTIVE')",
+                                sessions);
+                return devices;
+        }
+
+        private String token(UUID userId) {
+                Instant now = Instant.now();
+                JwtClaimsSet claims = JwtClaimsSet.builder()
+                                .issuer(jwtProperties.issuer())
+                                .issuedAt(now)
+                                .expiresAt(now.plus(1, ChronoUnit.HOURS))
+                                .subject(userId.toString())
+                                .claim("uid", userId.toString())
+                                .claim("roles", List.of("USER"))
+                                .build();
+                JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).type("JWT").build();
+                return jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        }
+
+        private record Device(UUID sessionId, String token) {}
+
+        @TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+        static class PlatformThreads extends IngestConcurrencyBenchmarkTest {}
+
+        @TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+        static class VirtualThreads extends IngestConcurrencyBenchmarkTest {}
+}
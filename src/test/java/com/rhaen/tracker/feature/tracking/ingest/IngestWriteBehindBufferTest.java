@@ -0,0 +1,220 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngestWriteBehindBufferTest {
+
+    @Mock
+    private TrackingPointIngestRepository ingestRepository;
+
+    private IngestWriteBehindBuffer buffer;
+    private RecentEventIdFilter recentEventIds;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        if (buffer != null) {
+            ReflectionTestUtils.invokeMethod(buffer, "shutdown");
+        }
+    }
+
+    @Test
+    void offer_flushesRowsOfManySessionsThroughRepository() {
+        when(ingestRepository.insertRows(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+        buffer = start(100);
+        UUID s1 = UUID.randomUUID();
+        UUID s2 = UUID.randomUUID();
+
+        assertThat(buffer.offer(s1, Instant.now(), points(2))).isTrue();
+        assertThat(buffer.offer(s2, Instant.now(), points(1))).isTrue();
+
+        assertThat(buffer.awaitSession(s1, 2000)).isTrue();
+        assertThat(buffer.awaitSession(s2, 2000)).isTrue();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TrackingPointIngestRepository.SessionPointRow>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ingestRepository, atLeastOnce()).insertRows(captor.capture());
+        int total = captor.getAllValues().stream().mapToInt(List::size).sum();
+        assertThat(total).isEqualTo(3);
+        assertThat(buffer.queuedPoints()).isZero();
+    }
+
+    @Test
+    void offer_whenCapacityExceeded_rejectsWholeBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(ingestRepository.insertRows(anyList())).thenAnswer(inv -> {
+            release.await(2, TimeUnit.SECONDS);
+            return ((List<?>) inv.getArgument(0)).size();
+        });
+        buffer = start(2);
+        UUID sessionId = UUID.randomUUID();
+
+        assertThat(buffer.offer(sessionId, Instant.now(), points(2))).isTrue();
+        assertThat(buffer.offer(sessionId, Instant.now(), points(1))).isFalse();
+
+        release.countDown();
+        assertThat(buffer.awaitSession(sessionId, 2000)).isTrue();
+        assertThat(buffer.offer(sessionId, Instant.now(), points(1))).isTrue();
+    }
+
+    @Test
+    void flush_remembersEventIds_onlyOnceInserted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(ingestRepository.insertRows(anyList())).thenAnswer(inv -> {
+            release.await(2, TimeUnit.SECONDS);
+            return ((List<?>) inv.getArgument(0)).size();
+        });
+        buffer = start(100);
+        UUID sessionId = UUID.randomUUID();
+        PointColumns batch = points(2);
+
+        buffer.offer(sessionId, Instant.now(), batch);
+        // queued, not inserted: a retry of the batch must still get through
+        assertThat(recentEventIds.dropSeen(sessionId, batch).size()).isEqualTo(2);
+
+        release.countDown();
+        assertThat(buffer.awaitSession(sessionId, 2000)).isTrue();
+        assertThat(recentEventIds.dropSeen(sessionId, batch).size()).isZero();
+    }
+
+    @Test
+    void flush_whenInsertFails_keepsPointsAndRetries() {
+        when(ingestRepository.insertRows(anyList()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+        buffer = start(100);
+        UUID sessionId = UUID.randomUUID();
+
+        buffer.offer(sessionId, Instant.now(), points(2));
+
+        assertThat(buffer.awaitSession(sessionId, 2000)).isTrue();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TrackingPointIngestRepository.SessionPointRow>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ingestRepository, times(2)).insertRows(captor.capture());
+        assertThat(captor.getAllValues().get(1)).hasSize(2);
+        assertThat(buffer.queuedPoints()).isZero();
+    }
+
+    @Test
+    void flush_whenDbUnreachable_retriesBeyondMaxAttempts() {
+        when(ingestRepository.insertRows(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+        buffer = start(100);
+        UUID sessionId = UUID.randomUUID();
+
+        buffer.offer(sessionId, Instant.now(), points(2));
+
+        assertThat(buffer.awaitSession(sessionId, 2000)).isTrue();
+        verify(ingestRepository, times(4)).insertRows(anyList());
+        assertThat(registry.counter("tracker.ingest.buffer.dropped.total").count()).isZero();
+    }
+
+    @Test
+    void flush_badRequest_isIsolated_andDroppedAfterMaxAttempts() {
+        UUID bad = UUID.randomUUID();
+        UUID good = UUID.randomUUID();
+        when(ingestRepository.insertRows(anyList())).thenAnswer(inv -> {
+            List<TrackingPointIngestRepository.SessionPointRow> rows = inv.getArgument(0);
+            if (rows.stream().anyMatch(r -> r.sessionId().equals(bad))) {
+                throw new DataIntegrityViolationException("violates foreign key constraint");
+            }
+            return rows.size();
+        });
+        buffer = start(100);
+
+        buffer.offer(bad, Instant.now(), points(2));
+        buffer.offer(good, Instant.now(), points(1));
+
+        assertThat(buffer.awaitSession(good, 2000)).isTrue();
+        assertThat(buffer.awaitSession(bad, 2000)).isTrue();
+        assertThat(buffer.queuedPoints()).isZero();
+        assertThat(registry.counter("tracker.ingest.buffer.dropped.total").count()).isEqualTo(2);
+        assertThat(registry.counter("tracker.ingest.points.inserted.total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void offer_insideTransaction_queuesOnlyAfterCommit() {
+        buffer = start(100);
+        UUID sessionId = UUID.randomUUID();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(buffer.offer(sessionId, Instant.now(), points(2))).isTrue();
+            assertThat(buffer.queuedPoints()).isEqualTo(2); // capacity reserved
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(buffer.queuedPoints()).isZero();
+        assertThat(buffer.awaitSession(sessionId, 100)).isTrue();
+        verify(ingestRepository, never()).insertRows(anyList());
+    }
+
+    @Test
+    void shutdown_drainsQueuedPoints() {
+        when(ingestRepository.insertRows(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+        buffer = start(100);
+        UUID sessionId = UUID.randomUUID();
+        buffer.offer(sessionId, Instant.now(), points(3));
+
+        ReflectionTestUtils.invokeMethod(buffer, "shutdown");
+
+        assertThat(buffer.queuedPoints()).isZero();
+        assertThat(buffer.offer(sessionId, Instant.now(), points(1))).isFalse();
+        buffer = null;
+    }
+
+    private IngestWriteBehindBuffer start(int capacity) {
+        var props = new TrackingIngestProperties(50, 6000, 60, null, 0,
+                new TrackingIngestProperties.WriteBehind(true, capacity, 1, 1000, 10, 2000, 5, 3),
+                TrackingIngestProperties.InsertStrategy.BATCH, 1000, null);
+        recentEventIds = new RecentEventIdFilter(new IngestDedupProperties(true, 64, 100, 600));
+        ReflectionTestUtils.invokeMethod(recentEventIds, "init");
+        IngestWriteBehindBuffer b = new IngestWriteBehindBuffer(ingestRepository, recentEventIds, props, registry);
+        ReflectionTestUtils.invokeMethod(b, "start");
+        return b;
+    }
+
+    private static PointColumns points(int n) {
+        List<TrackingDtos.LocationPoint> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            points.add(new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.31, 69.27, Instant.now(),
+                    3f, 1f, 90f, "gps", false));
+        }
+        return PointColumns.fromDtos(points);
+    }
+}
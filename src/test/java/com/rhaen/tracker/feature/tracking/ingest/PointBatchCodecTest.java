@@ -0,0 +1,148 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PointBatchCodecTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T12:00:00Z");
+    private static final int MAX = 500;
+
+    @Test
+    void roundTrip_keepsAllFields_atWirePrecision() {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        PointColumns in = PointColumns.fromDtos(List.of(
+                point(id1, 41.2995123, 69.2401234, NOW.minusSeconds(2), 5.5f, 1.25f, 359.9f, "gps", true),
+                point(id2, -33.8688, -151.2093, NOW.minusSeconds(1), null, null, null, null, false)));
+
+        PointColumns out = PointBatchCodec.decode(PointBatchCodec.encode(in), NOW, MAX);
+
+        assertThat(out.size()).isEqualTo(2);
+        assertThat(out.eventId(0)).isEqualTo(id1);
+        assertThat(out.lat(0)).isEqualTo(41.2995123);
+        assertThat(out.lon(0)).isEqualTo(69.2401234);
+        assertThat(out.deviceTimestamp(0)).isEqualTo(NOW.minusSeconds(2));
+        assertThat(out.accuracyM(0)).isEqualTo(5.5f);
+        assertThat(out.speedMps(0)).isEqualTo(1.25f);
+        assertThat(out.headingDeg(0)).isEqualTo(359.9f);
+        assertThat(out.provider(0)).isEqualTo("gps");
+        assertThat(out.mock(0)).isTrue();
+
+        assertThat(out.eventId(1)).isEqualTo(id2);
+        assertThat(out.lat(1)).isEqualTo(-33.8688);
+        assertThat(out.lon(1)).isEqualTo(-151.2093);
+        assertThat(out.accuracyM(1)).isNull();
+        assertThat(out.speedMps(1)).isNull();
+        assertThat(out.headingDeg(1)).isNull();
+        assertThat(out.provider(1)).isNull();
+        assertThat(out.mock(1)).isFalse();
+    }
+
+    @Test
+    void encode_isSeveralTimesSmallerThanPerPointJson() {
+        List<TrackingDtos.LocationPoint> points = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            points.add(point(UUID.randomUUID(), 41.3 + i * 1e-5, 69.24 + i * 1e-5, NOW.minusSeconds(60 - i),
+                    4.8f, 1.4f, 90f, "fused", false));
+        }
+
+        byte[] body = PointBatchCodec.encode(PointColumns.fromDtos(points));
+
+        // ~200 bytes per point as JSON (36-char UUID, ISO timestamp, field names)
+        assertThat(body.length / 50).isLessThan(40);
+    }
+
+    @Test
+    void decode_rejectsTruncatedBody() {
+        byte[] body = PointBatchCodec.encode(PointColumns.fromDtos(List.of(
+                point(UUID.randomUUID(), 1, 2, NOW, null, null, null, null, false))));
+
+        assertThatThrownBy(() -> PointBatchCodec.decode(Arrays.copyOf(body, body.length - 1), NOW, MAX))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void decode_rejectsFutureTimestamp() {
+        byte[] body = PointBatchCodec.encode(PointColumns.fromDtos(List.of(
+                point(UUID.randomUUID(), 1, 2, NOW.plusSeconds(5), null, null, null, null, false))));
+
+        assertThatThrownBy(() -> PointBatchCodec.decode(body, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("future");
+    }
+
+    @Test
+    void decode_rejectsUnknownVersionAndHugeCount() {
+        assertThatThrownBy(() -> PointBatchCodec.decode(new byte[]{2, 0, 1}, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("version");
+
+        // version 1, no providers, count = 400 with no point bytes behind it
+        assertThatThrownBy(() -> PointBatchCodec.decode(new byte[]{1, 0, (byte) 0x90, 0x03}, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("point count");
+    }
+
+    @Test
+    void decode_rejectsCountOverMaxBatchSize_beforeReadingPoints() {
+        // count = 1_000_000, then 2^64 - 1: both over the limit, not negative or truncated ints
+        assertThatThrownBy(() -> PointBatchCodec.decode(new byte[]{1, 0, (byte) 0xC0, (byte) 0x84, 0x3D}, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Too many points");
+        byte[] maxVarint = {1, 0, -1, -1, -1, -1, -1, -1, -1, -1, -1, 0x01};
+        assertThatThrownBy(() -> PointBatchCodec.decode(maxVarint, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Too many points");
+    }
+
+    @Test
+    void decode_rejectsOverflowingTimestampDelta() {
+        // version 1, no providers, 1 point, base Long.MAX_VALUE ms, then a +1 ms delta
+        byte[] body = {1, 0, 1,
+                -2, -1, -1, -1, -1, -1, -1, -1, -1, 0x01,
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0x02, 0, 0};
+
+        assertThatThrownBy(() -> PointBatchCodec.decode(body, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("overflows");
+    }
+
+    @Test
+    void decode_rejectsAccuracyAndSpeedOverMax_includingVarintsThatReadNegative() {
+        assertThatThrownBy(() -> PointBatchCodec.decode(PointBatchCodec.encode(PointColumns.fromDtos(List.of(
+                point(UUID.randomUUID(), 1, 2, NOW, 10_000.1f, null, null, null, false)))), NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("accuracyM");
+        assertThatThrownBy(() -> PointBatchCodec.decode(PointBatchCodec.encode(PointColumns.fromDtos(List.of(
+                point(UUID.randomUUID(), 1, 2, NOW, null, 1_000.01f, null, null, false)))), NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("speedMps");
+
+        // version 1, no providers, 1 point, base 0 ms, speed flag, zero id and deltas, speed 2^64 - 1
+        byte[] body = {1, 0, 1, 0,
+                0x02, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0,
+                -1, -1, -1, -1, -1, -1, -1, -1, -1, 0x01};
+        assertThatThrownBy(() -> PointBatchCodec.decode(body, NOW, MAX))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("speedMps");
+    }
+
+    private static TrackingDtos.LocationPoint point(UUID id, double lat, double lon, Instant ts,
+                                                    Float acc, Float speed, Float heading,
+                                                    String provider, boolean mock) {
+        return new TrackingDtos.LocationPoint(id, lat, lon, ts, acc, speed, heading, provider, mock);
+    }
+}
@@ -0,0 +1,84 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentEventIdFilterTest {
+
+    private RecentEventIdFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RecentEventIdFilter(new IngestDedupProperties(true, 64, 100, 600));
+        ReflectionTestUtils.invokeMethod(filter, "init");
+    }
+
+    @Test
+    void dropSeen_removesOnlyRememberedIds_ofThatSession() {
+        UUID sessionId = UUID.randomUUID();
+        PointColumns first = batch(3);
+        filter.remember(sessionId, first);
+
+        PointColumns retry = filter.dropSeen(sessionId, first);
+        PointColumns fresh = batch(2);
+
+        assertThat(retry.size()).isZero();
+        assertThat(filter.dropSeen(sessionId, fresh)).isSameAs(fresh);
+        assertThat(filter.dropSeen(UUID.randomUUID(), first)).isSameAs(first);
+    }
+
+    @Test
+    void window_keepsRecentIds_andForgetsOldGenerations() {
+        UUID sessionId = UUID.randomUUID();
+        PointColumns old = batch(32);
+        filter.remember(sessionId, old);
+        PointColumns recent = batch(32);
+        filter.remember(sessionId, recent);
+
+        // both generations (32 + 32) are still known
+        assertThat(filter.dropSeen(sessionId, old).size()).isZero();
+        assertThat(filter.dropSeen(sessionId, recent).size()).isZero();
+
+        filter.remember(sessionId, batch(32));
+        assertThat(filter.dropSeen(sessionId, old)).isSameAs(old);
+        assertThat(filter.dropSeen(sessionId, recent).size()).isZero();
+    }
+
+    @Test
+    void remember_insideTransaction_waitsForCommit() {
+        UUID sessionId = UUID.randomUUID();
+        PointColumns points = batch(2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filter.remember(sessionId, points);
+            assertThat(filter.dropSeen(sessionId, points)).isSameAs(points);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(filter.dropSeen(sessionId, points).size()).isZero();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static PointColumns batch(int n) {
+        List<TrackingDtos.LocationPoint> points = new ArrayList<>(n);
+        Instant ts = Instant.now().minusSeconds(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.31, 69.27, ts.plusSeconds(i),
+                    null, null, null, null, false));
+        }
+        return PointColumns.fromDtos(points);
+    }
+}
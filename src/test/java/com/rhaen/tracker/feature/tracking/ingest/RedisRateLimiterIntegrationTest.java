@@ -0,0 +1,114 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.BaseIntegrationTest;
+import com.rhaen.tracker.common.concurrency.Bulkheads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FIXED_WINDOW, LEASE and GCRA Lua scripts on the Redis container. The breaker is fail-open, so a
+ * broken script shows up here as "allowed with current -1".
+ */
+class RedisRateLimiterIntegrationTest extends BaseIntegrationTest {
+
+        private static final long WINDOW_SECONDS = 3600; // no window edge while a test runs
+
+        @Autowired
+        private StringRedisTemplate redis;
+        @Autowired
+        private CircuitBreakerFactory<?, ?> circuitBreakerFactory;
+        @Autowired
+        private Bulkheads bulkheads;
+
+        @Test
+        void fixedWindow_countsPointsAndRejectsOverLimit() {
+                RedisRateLimiter limiter = limiter(TrackingIngestProperties.RateLimitAlgorithm.FIXED_WINDOW, 100, 10, false);
+                UUID userId = UUID.randomUUID();
+
+                var first = limiter.consumePoints(userId, 60);
+                var second = limiter.consumePoints(userId, 50);
+
+                assertThat(first.allowed()).isTrue();
+                assertThat(first.current()).isEqualTo(60);
+                assertThat(second.allowed()).isFalse();
+                assertThat(second.current()).isEqualTo(110);
+                assertThat(second.retryAfterMs()).isPositive().isLessThanOrEqualTo(WINDOW_SECONDS * 1000);
+                assertThat(redis.getExpire(windowKey(userId))).isPositive();
+        }
+
+        @Test
+        void lease_takesChunks_andGivesBackTheRestOfTheOldLease() {
+                // lease = 100 * 0.5 / 1 node = 50 points
+                RedisRateLimiter limiter = limiter(TrackingIngestProperties.RateLimitAlgorithm.FIXED_WINDOW, 100, 10, true);
+                UUID userId = UUID.randomUUID();
+
+                assertThat(limiter.consumePoints(userId, 10).allowed()).isTrue();
+                assertThat(redis.opsForValue().get(windowKey(userId))).isEqualTo("50");
+
+                // 40 left locally: given back, new lease of 50 -> 10 + 50
+                assertThat(limiter.consumePoints(userId, 45).allowed()).isTrue();
+                assertThat(redis.opsForValue().get(windowKey(userId))).isEqualTo("60");
+
+                // 5 left: given back (55), only 45 of the needed 50 remain in the window
+                var rejected = limiter.consumePoints(userId, 50);
+                assertThat(rejected.allowed()).isFalse();
+                assertThat(rejected.retryAfterMs()).isPositive();
+                assertThat(redis.opsForValue().get(windowKey(userId))).isEqualTo("55");
+        }
+
+        @Test
+        void gcra_allowsBurst_thenReturnsExactRetryAfter() {
+                // 1 point/s, burst of 10
+                RedisRateLimiter limiter = limiter(TrackingIngestProperties.RateLimitAlgorithm.GCRA, 3600, 10, false);
+                UUID userId = UUID.randomUUID();
+
+                var burst = limiter.consumePoints(userId, 10);
+                var next = limiter.consumePoints(userId, 1);
+
+                assertThat(burst.allowed()).isTrue();
+                assertThat(next.allowed()).isFalse();
+                assertThat(next.current()).isEqualTo(10);
+                assertThat(next.retryAfterMs()).isPositive().isLessThanOrEqualTo(1000);
+                assertThat(redis.getExpire("rl:gcra:" + userId)).isPositive();
+        }
+
+        @Test
+        void gcraLease_isCappedByBurst_andSpentLocally() {
+                // lease would be 1800 points, the burst allows 10
+                RedisRateLimiter limiter = limiter(TrackingIngestProperties.RateLimitAlgorithm.GCRA, 3600, 10, true);
+                UUID userId = UUID.randomUUID();
+
+                assertThat(limiter.consumePoints(userId, 5).allowed()).isTrue();
+                String tat = redis.opsForValue().get("rl:gcra:" + userId);
+                assertThat(limiter.consumePoints(userId, 5).allowed()).isTrue();
+                assertThat(redis.opsForValue().get("rl:gcra:" + userId)).isEqualTo(tat); // local hit
+
+                var rejected = limiter.consumePoints(userId, 5);
+                assertThat(rejected.allowed()).isFalse();
+                assertThat(rejected.retryAfterMs()).isPositive().isLessThanOrEqualTo(5000);
+        }
+
+        private RedisRateLimiter limiter(TrackingIngestProperties.RateLimitAlgorithm algorithm, long limit,
+                        int burst, boolean localTier) {
+                var props = new TrackingIngestProperties(burst, limit, WINDOW_SECONDS, algorithm, burst, null,
+                                TrackingIngestProperties.InsertStrategy.BATCH, 1000,
+                                new TrackingIngestProperties.LocalTier(localTier, 0.5, 1, 60_000));
+                RedisRateLimiter limiter = new RedisRateLimiter(redis, props, circuitBreakerFactory, Optional.empty(),
+                                new SimpleMeterRegistry(), bulkheads);
+                limiter.initCircuitBreaker();
+                return limiter;
+        }
+
+        private static String windowKey(UUID userId) {
+                return "rl:points:" + userId + ":" + Instant.now().getEpochSecond() / WINDOW_SECONDS;
+        }
+}
@@ -1,6 +1,9 @@
 package com.rhaen.tracker.feature.tracking.ingest;
 
+import com.rhaen.tracker.common.concurrency.BulkheadProperties;
+import com.rhaen.tracker.common.concurrency.Bulkheads;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,6 +26,8 @@ import java.util.function.Supplier;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,7 +51,10 @@ class RedisRateLimiterTest {
     void setUp() {
         when(breakerFactory.create("redis")).thenReturn(breaker);
         when(registry.circuitBreaker("redis")).thenReturn(io.github.resilience4j.circuitbreaker.CircuitBreaker.ofDefaults("redis"));
-        limiter = new RedisRateLimiter(redis, props, breakerFactory, Optional.of(registry));
+        when(props.localTier()).thenReturn(new TrackingIngestProperties.LocalTier(false, 0, 1, 0));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        limiter = new RedisRateLimiter(redis, props, breakerFactory, Optional.of(registry), meterRegistry,
+                new Bulkheads(new BulkheadProperties(null, null), meterRegistry));
         limiter.initCircuitBreaker();
     }
 
@@ -121,4 +129,114 @@ class RedisRateLimiterTest {
         String key = keyCaptor.getValue().getFirst().toString();
         assertThat(key).startsWith("rl:points:11111111-1111-1111-1111-111111111111:");
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void localTier_spendsLeaseWithoutRedis_untilExhausted() {
+        enableLocalTier();
+        // lease = 6000 * 0.05 / 2 = 150 points
+        when(redis.execute(any(DefaultRedisScript.class), any(List.class),
+                any(String.class), any(String.class), any(String.class), any(String.class), any(String.class)))
+                .thenReturn(List.of(150L, 150L), List.of(150L, 300L));
+        UUID userId = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.consumePoints(userId, 50).allowed()).isTrue();
+        }
+        verify(redis, times(1)).execute(any(DefaultRedisScript.class), any(List.class),
+                eq("65"), eq("6000"), eq("150"), eq("50"), eq("0"));
+
+        assertThat(limiter.consumePoints(userId, 50).allowed()).isTrue();
+        verify(redis, times(2)).execute(any(DefaultRedisScript.class), any(List.class),
+                eq("65"), eq("6000"), eq("150"), eq("50"), eq("0"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void localTier_rejected_whenRedisGrantsNothing() {
+        enableLocalTier();
+        when(redis.execute(any(DefaultRedisScript.class), any(List.class),
+                any(String.class), any(String.class), any(String.class), any(String.class), any(String.class)))
+                .thenReturn(List.of(0L, 6010L));
+
+        var result = limiter.consumePoints(UUID.randomUUID(), 50);
+
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.current()).isEqualTo(6010L);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void localTier_failOpen_doesNotCacheLease() {
+        enableLocalTier();
+        when(breaker.run(any(Supplier.class), any(Function.class))).thenAnswer(inv -> {
+            Function<Throwable, List<?>> fallback = inv.getArgument(1);
+            return fallback.apply(new RuntimeException("redis down"));
+        });
+        UUID userId = UUID.randomUUID();
+
+        assertThat(limiter.consumePoints(userId, 50).current()).isEqualTo(-1L);
+        assertThat(limiter.consumePoints(userId, 50).current()).isEqualTo(-1L);
+        verify(breaker, times(2)).run(any(Supplier.class), any(Function.class));
+        verify(redis, never()).execute(any(DefaultRedisScript.class), any(List.class),
+                any(String.class), any(String.class), any(String.class), any(String.class), any(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void enableLocalTier() {
+        when(props.windowSeconds()).thenReturn(60L);
+        when(props.pointsPerMinute()).thenReturn(6000L);
+        when(props.localTier()).thenReturn(new TrackingIngestProperties.LocalTier(true, 0.05, 2, 60_000));
+        when(breaker.run(any(Supplier.class), any(Function.class))).thenAnswer(inv -> {
+            Supplier<List<?>> supplier = inv.getArgument(0);
+            return supplier.get();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void gcra_rejected_returnsExactRetryAfter() {
+        enableGcra();
+        when(redis.execute(any(DefaultRedisScript.class), any(List.class),
+                any(String.class), any(String.class), any(String.class), any(String.class), any(String.class)))
+                .thenReturn(List.of(0L, 1500L, 340L));
+
+        var result = limiter.consumePoints(UUID.fromString("11111111-1111-1111-1111-111111111111"), 50);
+
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.retryAfterMs()).isEqualTo(1500L);
+        assertThat(result.retryAfterSeconds()).isEqualTo(2L);
+        ArgumentCaptor<List> keyCaptor = ArgumentCaptor.forClass(List.class);
+        // 6000 points / 60s -> 10000us per point, burst 300 points
+        verify(redis).execute(any(DefaultRedisScript.class), keyCaptor.capture(),
+                eq("10000.0"), eq("3000000.0"), eq("50"), eq("50"), eq("0"));
+        assertThat(keyCaptor.getValue().getFirst().toString())
+                .isEqualTo("rl:gcra:11111111-1111-1111-1111-111111111111");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void gcra_allowed() {
+        enableGcra();
+        when(redis.execute(any(DefaultRedisScript.class), any(List.class),
+                any(String.class), any(String.class), any(String.class), any(String.class), any(String.class)))
+                .thenReturn(List.of(50L, 0L, 50L));
+
+        var result = limiter.consumePoints(UUID.randomUUID(), 50);
+
+        assertThat(result.allowed()).isTrue();
+        assertThat(result.retryAfterMs()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void enableGcra() {
+        when(props.windowSeconds()).thenReturn(60L);
+        when(props.pointsPerMinute()).thenReturn(6000L);
+        when(props.burstPoints()).thenReturn(300L);
+        when(props.rateLimitAlgorithm()).thenReturn(TrackingIngestProperties.RateLimitAlgorithm.GCRA);
+        when(breaker.run(any(Supplier.class), any(Function.class))).thenAnswer(inv -> {
+            Supplier<List<?>> supplier = inv.getArgument(0);
+            return supplier.get();
+        });
+    }
 }
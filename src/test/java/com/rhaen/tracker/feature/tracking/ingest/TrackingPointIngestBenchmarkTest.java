@@ -0,0 +1,92 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.BaseIntegrationTest;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import com.rhaen.tracker.feature.user.persistence.UserEntity;
+import com.rhaen.tracker.feature.user.persistence.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BATCH vs COPY throughput on a real PostGIS container.
+ * Excluded from the default test task; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class TrackingPointIngestBenchmarkTest extends BaseIntegrationTest {
+
+        private static final int ROWS = 20_000;
+        private static final int CHUNK = 2_000;
+
+        @Autowired
+        private TrackingPointIngestRepository ingestRepository;
+        @Autowired
+        private TrackingSessionRepository sessionRepository;
+        @Autowired
+        private UserRepository userRepository;
+
+        @Test
+        void copyInsert_vsBatchInsert_rowsPerSecond() {
+                UUID batchSession = newSession();
+                UUID copySession = newSession();
+
+                // warm-up (JIT, connection pool, prepared statements)
+                ingestRepository.batchInsert(rows(newSession(), CHUNK));
+                ingestRepository.copyInsert(rows(newSession(), CHUNK));
+
+                double batchRate = measure(batchSession, true);
+                double copyRate = measure(copySession, false);
+                System.out.printf("tracking_points insert: BATCH %.0f rows/s, COPY %.0f rows/s (x%.2f)%n",
+                                batchRate, copyRate, copyRate / batchRate);
+        }
+
+        private double measure(UUID sessionId, boolean batch) {
+                List<TrackingPointIngestRepository.SessionPointRow> all = rows(sessionId, ROWS);
+                long start = System.nanoTime();
+                int inserted = 0;
+                for (int i = 0; i < ROWS; i += CHUNK) {
+                        var chunk = all.subList(i, Math.min(ROWS, i + CHUNK));
+                        inserted += batch ? ingestRepository.batchInsert(chunk) : ingestRepository.copyInsert(chunk);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                assertThat(inserted).isEqualTo(ROWS);
+                return ROWS / seconds;
+        }
+
+        private UUID newSession() {
+                String suffix = UUID.randomUUID().toString().substring(0, 8);
+                UserEntity user = userRepository.save(UserEntity.builder()
+                                .username("bench_" + suffix)
+                                .email("bench_" + suffix + "@mail.com")
+                                .passwordHash("hashed")
+                                .role(UserEntity.Role.USER)
+                                .build());
+                return sessionRepository.save(TrackingSessionEntity.builder()
+                                .user(user)
+                                .startTime(Instant.now())
+                                .status(TrackingSessionEntity.Status.ACTIVE)
+                                .updatedAt(Instant.now())
+                                .build()).getId();
+        }
+
+        private static List<TrackingPointIngestRepository.SessionPointRow> rows(UUID sessionId, int n) {
+                Instant base = Instant.now().minusSeconds(n);
+                Instant receivedAt = Instant.now();
+                List<TrackingPointIngestRepository.SessionPointRow> rows = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                        var point = new TrackingPointIngestRepository.IngestPointRow(
+                                        UUID.randomUUID(), 41.31 + i * 1e-5, 69.27 + i * 1e-5, base.plusSeconds(i),
+                                        5f, 1.5f, i % 2 == 0 ? null : 90f, "gps", false);
+                        rows.add(new TrackingPointIngestRepository.SessionPointRow(sessionId, receivedAt, point));
+                }
+                return rows;
+        }
+}
@@ -0,0 +1,110 @@
+package com.rhaen.tracker.feature.tracking.ingest;
+
+import com.rhaen.tracker.BaseIntegrationTest;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import com.rhaen.tracker.feature.user.persistence.UserEntity;
+import com.rhaen.tracker.feature.user.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackingPointIngestRepositoryTest extends BaseIntegrationTest {
+
+        @Autowired
+        private TrackingPointIngestRepository ingestRepository;
+        @Autowired
+        private TrackingSessionRepository sessionRepository;
+        @Autowired
+        private UserRepository userRepository;
+        @Autowired
+        private JdbcTemplate jdbc;
+
+        @Test
+        void copyInsert_skipsDuplicatesLikeBatchInsert() {
+                List<TrackingPointIngestRepository.SessionPointRow> rows = rows(newSession(), 500);
+
+                assertThat(ingestRepository.copyInsert(rows)).isEqualTo(500);
+                assertThat(ingestRepository.copyInsert(rows)).isZero();
+                assertThat(ingestRepository.batchInsert(rows)).isZero();
+        }
+
+        @Test
+        void reusedEventId_withAnotherTimestamp_isStillADuplicate() {
+                UUID sessionId = newSession();
+                List<TrackingPointIngestRepository.SessionPointRow> rows = rows(sessionId, 10);
+                List<TrackingPointIngestRepository.SessionPointRow> shifted = rows.stream()
+                                .map(r -> new TrackingPointIngestRepository.SessionPointRow(sessionId, r.receivedAt(),
+                                                new TrackingPointIngestRepository.IngestPointRow(r.point().eventId(),
+                                                                r.point().lat(), r.point().lon(),
+                                                                r.point().deviceTimestamp().plusSeconds(1), null, null,
+                                                                null, null, false)))
+                                .toList();
+
+                assertThat(ingestRepository.batchInsert(rows)).isEqualTo(10);
+                assertThat(ingestRepository.batchInsert(shifted)).isZero();
+                assertThat(ingestRepository.copyInsert(shifted)).isZero();
+                assertThat(countPoints(sessionId)).isEqualTo(10);
+        }
+
+        @Test
+        void copyInsert_eventIdTwiceInOneFlush_keepsOnePoint() {
+                UUID sessionId = newSession();
+                List<TrackingPointIngestRepository.SessionPointRow> rows = new ArrayList<>(rows(sessionId, 5));
+                rows.addAll(rows.subList(0, 2));
+
+                assertThat(ingestRepository.copyInsert(rows)).isEqualTo(5);
+                assertThat(countPoints(sessionId)).isEqualTo(5);
+        }
+
+        @Test
+        void copyInsert_stageIsEmptyForEachTransaction() {
+                UUID sessionId = newSession();
+
+                // pooled connections (and their temp table) are reused: earlier rows must not be moved again
+                for (int i = 0; i < 5; i++) {
+                        assertThat(ingestRepository.copyInsert(rows(sessionId, 100))).isEqualTo(100);
+                }
+        }
+
+        private UUID newSession() {
+                String suffix = UUID.randomUUID().toString().substring(0, 8);
+                UserEntity user = userRepository.save(UserEntity.builder()
+                                .username("ingest_" + suffix)
+                                .email("ingest_" + suffix + "@mail.com")
+                                .passwordHash("hashed")
+                                .role(UserEntity.Role.USER)
+                                .build());
+                return sessionRepository.save(TrackingSessionEntity.builder()
+                                .user(user)
+                                .startTime(Instant.now())
+                                .status(TrackingSessionEntity.Status.ACTIVE)
+                                .updatedAt(Instant.now())
+                                .build()).getId();
+        }
+
+        private int countPoints(UUID sessionId) {
+                return jdbc.queryForObject("SELECT count(*) FROM tracking_points WHERE session_id = ?", Integer.class,
+                                sessionId);
+        }
+
+        private static List<TrackingPointIngestRepository.SessionPointRow> rows(UUID sessionId, int n) {
+                Instant base = Instant.now().minusSeconds(n);
+                Instant receivedAt = Instant.now();
+                List<TrackingPointIngestRepository.SessionPointRow> rows = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                        var point = new TrackingPointIngestRepository.IngestPointRow(
+                                        UUID.randomUUID(), 41.31 + i * 1e-5, 69.27 + i * 1e-5, base.plusSeconds(i),
+                                        5f, 1.5f, i % 2 == 0 ? null : 90f, "gps", false);
+                        rows.add(new TrackingPointIngestRepository.SessionPointRow(sessionId, receivedAt, point));
+                }
+                return rows;
+        }
+}
@@ -1,20 +1,56 @@
 package com.rhaen.tracker.feature.tracking.realtime;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class LastLocationBroadcasterTest {
 
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private SimpleMeterRegistry registry;
+    private LastLocationBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        broadcaster = new LastLocationBroadcaster(
+                new LastLocationStreamProperties(2, 8, LastLocationStreamProperties.Overflow.DROP_OLDEST, 0L, 1),
+                objectMapper, registry);
+        ReflectionTestUtils.invokeMethod(broadcaster, "start");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(broadcaster, "stop");
+    }
+
     @Test
     void subscribe_and_callbacks_manage_connection_count() {
-        LastLocationBroadcaster broadcaster = new LastLocationBroadcaster(new SimpleMeterRegistry());
-        ReflectionTestUtils.invokeMethod(broadcaster, "registerMetrics");
-
-        SseEmitter emitter = broadcaster.subscribe();
+        SseEmitter emitter = broadcaster.subscribe(null, null, null, (id, f) -> Map.of());
         assertThat(broadcaster.connections()).isEqualTo(1);
 
         emitter.complete();
@@ -22,14 +58,287 @@ class LastLocationBroadcasterTest {
     }
 
     @Test
-    void broadcast_and_heartbeat_doNotCrash() {
-        LastLocationBroadcaster broadcaster = new LastLocationBroadcaster(new SimpleMeterRegistry());
-        ReflectionTestUtils.invokeMethod(broadcaster, "registerMetrics");
+    void frames_areSentAsynchronously_initFirst() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        broadcaster.subscribe(emitter, null, null, null, (id, f) -> Map.of("items", 0));
+        broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+        broadcaster.heartbeat();
+
+        assertThat(emitter.next()).isEqualTo("init");
+        assertThat(emitter.next()).isEqualTo("update");
+        assertThat(emitter.next()).isEqualTo("ping");
+        assertThat(registry.get("tracker.sse.send.duration").timer().count()).isGreaterThanOrEqualTo(2);
+    }
 
-        broadcaster.subscribe();
-        broadcaster.broadcastUpdate(java.util.Map.of("k", "v"));
+    @Test
+    void update_isEncodedOnce_andTheSameFrameGoesToEverySubscriber() throws Exception {
+        RecordingEmitter first = new RecordingEmitter(null);
+        RecordingEmitter second = new RecordingEmitter(null);
+        broadcaster.subscribe(first, null, null, null, (id, f) -> Map.of());
+        broadcaster.subscribe(second, null, null, null, (id, f) -> Map.of());
+        UUID userId = UUID.randomUUID();
+        broadcaster.broadcastUpdate(event(userId));
+
+        first.next();
+        second.next();
+        assertThat(first.next()).isEqualTo("update");
+        assertThat(second.next()).isEqualTo("update");
+        SseFrame frame = first.frames.get(1);
+        assertThat(second.frames.get(1)).isSameAs(frame);
+
+        byte[] bytes = (byte[]) frame.build().iterator().next().getData();
+        assertThat(new String(bytes, StandardCharsets.UTF_8))
+                .startsWith("event:update\ndata:{\"userId\":\"" + userId + "\"")
+                .endsWith("}\n\n");
+    }
+
+    @Test
+    void heartbeat_isOneSharedCommentFrame() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        broadcaster.subscribe(emitter, null, null, null, (id, f) -> Map.of());
         broadcaster.heartbeat();
 
-        assertThat(broadcaster.connections()).isEqualTo(1);
+        emitter.next();
+        assertThat(emitter.next()).isEqualTo("ping");
+        assertThat(emitter.frames.get(1)).isSameAs(SseFrame.HEARTBEAT);
+        assertThat((byte[]) SseFrame.HEARTBEAT.build().iterator().next().getData())
+                .isEqualTo(":ping\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void tickSubscriber_getsLatestPerUser_inOneFramePerTick() throws Exception {
+        RecordingEmitter ticked = new RecordingEmitter(null);
+        RecordingEmitter raw = new RecordingEmitter(null);
+        broadcaster.subscribe(ticked, null, 1_000L, null, (id, f) -> Map.of());
+        broadcaster.subscribe(raw, null, 0L, null, (id, f) -> Map.of());
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            broadcaster.broadcastUpdate(event(a));
+            broadcaster.broadcastUpdate(event(b));
+        }
+
+        assertThat(ticked.next()).isEqualTo("init");
+        assertThat(ticked.next()).isEqualTo("updates");
+        String frame = new String((byte[]) ticked.frames.get(1).build().iterator().next().getData(),
+                StandardCharsets.UTF_8);
+        JsonNode users = objectMapper.readTree(frame.substring("event:updates\ndata:".length()));
+        assertThat(users).hasSize(2);
+        assertThat(registry.get("tracker.sse.tick.users").summary().max()).isEqualTo(2);
+
+        assertThat(raw.next()).isEqualTo("init");
+        for (int i = 0; i < 20; i++) {
+            assertThat(raw.next()).isEqualTo("update");
+        }
+    }
+
+    @Test
+    void tick_isRoundedAndBounded() {
+        broadcaster.subscribe(new RecordingEmitter(null), null, 149L, null, (id, f) -> Map.of());
+        broadcaster.subscribe(new RecordingEmitter(null), null, 60_000L, null, (id, f) -> Map.of());
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(broadcaster, "ticks")).containsOnlyKeys(100L, 10_000L);
+        assertThatThrownBy(() -> broadcaster.subscribe(null, -1L, null, (id, f) -> Map.of()))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void initFailure_stillStreamsUpdates() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        broadcaster.subscribe(emitter, null, null, null, (id, f) -> {
+            throw new IllegalStateException("redis down");
+        });
+        broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+
+        assertThat(emitter.next()).isEqualTo("update");
+    }
+
+    @Test
+    void slowSubscriber_dropsOldest_withoutBlockingPublisherOrOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        AtomicReference<String> slowId = new AtomicReference<>();
+        broadcaster.subscribe(slow, null, null, null, (id, f) -> {
+            slowId.set(id);
+            return Map.of();
+        });
+        broadcaster.subscribe(fast, null, null, null, (id, f) -> Map.of());
+        assertThat(slow.next()).isEqualTo("init"); // sender now stuck in slow's send
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1_000);
+
+        assertThat(fast.next()).isEqualTo("init");
+        for (int i = 0; i < 8; i++) {
+            assertThat(fast.next()).isEqualTo("update");
+        }
+        assertThat(registry.get("tracker.sse.queue.depth").tag("subscriber", slowId.get()).gauge().value())
+                .isEqualTo(8);
+        assertThat(registry.get("tracker.sse.dropped.total").tags("subscriber", slowId.get(), "reason", "overflow")
+                .counter().count()).isGreaterThanOrEqualTo(92);
+        release.countDown();
+    }
+
+    @Test
+    void disconnectPolicy_closesSubscriberOnOverflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        broadcaster.subscribe(slow, LastLocationStreamProperties.Overflow.DISCONNECT, null, null, (id, f) -> Map.of());
+        assertThat(slow.next()).isEqualTo("init");
+
+        for (int i = 0; i < 9; i++) {
+            broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+        }
+
+        assertThat(broadcaster.connections()).isZero();
+        assertThat(registry.find("tracker.sse.queue.depth").gauges()).isEmpty();
+        release.countDown();
+    }
+
+    @Test
+    void subscribersPastMeteredCap_shareOneTag_andCloseRemovesOnlyOwnMeters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter first = new RecordingEmitter(release);
+        AtomicReference<String> firstId = new AtomicReference<>();
+        broadcaster.subscribe(first, LastLocationStreamProperties.Overflow.DISCONNECT, null, null, (id, f) -> {
+            firstId.set(id);
+            return Map.of();
+        });
+        broadcaster.subscribe(null, null, null, (id, f) -> Map.of());
+        broadcaster.subscribe(null, null, null, (id, f) -> Map.of());
+        assertThat(first.next()).isEqualTo("init");
+
+        assertThat(registry.find("tracker.sse.queue.depth").gauges()).hasSize(1);
+        assertThat(registry.find("tracker.sse.send.duration").timers()).hasSize(2);
+
+        for (int i = 0; i < 9; i++) {
+            broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+        }
+
+        assertThat(broadcaster.connections()).isEqualTo(2);
+        assertThat(registry.find("tracker.sse.dropped.total").tag("subscriber", firstId.get()).counters()).isEmpty();
+        assertThat(registry.find("tracker.sse.queue.depth").gauges()).isEmpty();
+        assertThat(registry.find("tracker.sse.send.duration").tag("subscriber", "other").timer()).isNotNull();
+        release.countDown();
+    }
+
+    @Test
+    void areaSubscriber_getsUsersInside_andTheUpdateTakingThemOut() throws Exception {
+        RecordingEmitter tashkent = new RecordingEmitter(null);
+        RecordingEmitter all = new RecordingEmitter(null);
+        broadcaster.subscribe(tashkent, null, null, LastLocationFilter.of("69.1,41.2,69.4,41.4", null),
+                (id, f) -> Map.of());
+        broadcaster.subscribe(all, null, null, null, (id, f) -> Map.of());
+        UUID user = UUID.randomUUID();
+
+        broadcaster.broadcastUpdate(event(user, 39.65, 66.96)); // Samarkand
+        broadcaster.broadcastUpdate(event(user, 41.3111, 69.2797)); // enters
+        broadcaster.broadcastUpdate(event(user, 41.3112, 69.2798));
+        broadcaster.broadcastUpdate(event(user, 40.78, 72.34)); // leaves: sent once more
+        broadcaster.broadcastUpdate(event(user, 40.79, 72.35));
+
+        assertThat(tashkent.next()).isEqualTo("init");
+        for (int i = 0; i < 3; i++) {
+            assertThat(tashkent.next()).isEqualTo("update");
+        }
+        assertThat(tashkent.names.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        assertThat(all.next()).isEqualTo("init");
+        for (int i = 0; i < 5; i++) {
+            assertThat(all.next()).isEqualTo("update");
+        }
+    }
+
+    @Test
+    void userSubscriber_getsOnlyItsUsers_evenInTickFrames() throws Exception {
+        UUID followed = UUID.randomUUID();
+        RecordingEmitter ticked = new RecordingEmitter(null);
+        RecordingEmitter raw = new RecordingEmitter(null);
+        LastLocationFilter filter = new LastLocationFilter(null, Set.of(followed));
+        broadcaster.subscribe(ticked, null, 100L, filter, (id, f) -> Map.of());
+        broadcaster.subscribe(raw, null, 0L, filter, (id, f) -> Map.of());
+
+        broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+        broadcaster.broadcastUpdate(event(followed));
+        broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+
+        assertThat(raw.next()).isEqualTo("init");
+        assertThat(raw.next()).isEqualTo("update");
+        assertThat(raw.names.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        assertThat(ticked.next()).isEqualTo("init");
+        assertThat(ticked.next()).isEqualTo("updates");
+        JsonNode users = objectMapper.readTree(data(ticked.frames.get(1), "updates"));
+        assertThat(users).hasSize(1);
+        assertThat(users.get(0).get("userId").asText()).isEqualTo(followed.toString());
+    }
+
+    @Test
+    void updateFilter_reindexes_andSendsAFreshInit() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        AtomicReference<String> subscriptionId = new AtomicReference<>();
+        broadcaster.subscribe(emitter, null, null, LastLocationFilter.of("0,0,1,1", null), (id, f) -> {
+            subscriptionId.set(id);
+            return Map.of("area", String.valueOf(f.area()));
+        });
+        assertThat(emitter.next()).isEqualTo("init");
+        broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+        assertThat(emitter.names.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        assertThat(broadcaster.updateFilter(subscriptionId.get(), LastLocationFilter.ALL)).isTrue();
+        broadcaster.broadcastUpdate(event(UUID.randomUUID()));
+
+        assertThat(emitter.next()).isEqualTo("init");
+        assertThat(objectMapper.readTree(data(emitter.frames.get(1), "init")).get("area").asText()).isEqualTo("null");
+        assertThat(emitter.next()).isEqualTo("update");
+        assertThat(broadcaster.updateFilter("unknown", LastLocationFilter.ALL)).isFalse();
+    }
+
+    private static String data(SseFrame frame, String name) {
+        String text = new String((byte[]) frame.build().iterator().next().getData(), StandardCharsets.UTF_8);
+        return text.substring(("event:" + name + "\ndata:").length());
+    }
+
+    private static LastLocationEvent event(UUID userId) {
+        return event(userId, 41.3111, 69.2797);
+    }
+
+    private static LastLocationEvent event(UUID userId, double lat, double lon) {
+        return new LastLocationEvent(userId, UUID.randomUUID(), "ACTIVE", true, false, Instant.now(),
+                lat, lon, 3f, 1.5f, 120f);
+    }
+
+    /** Records event names; with a latch every send blocks until it is released (a stuck client) */
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<String> names = new LinkedBlockingQueue<>();
+        private final List<SseFrame> frames = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            super(0L);
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            SseFrame frame = (SseFrame) builder;
+            frames.add(frame);
+            names.add(frame.name());
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        String next() throws InterruptedException {
+            return names.poll(2, TimeUnit.SECONDS);
+        }
     }
 }
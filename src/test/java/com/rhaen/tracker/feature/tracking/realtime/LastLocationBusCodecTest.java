@@ -0,0 +1,65 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LastLocationBusCodecTest {
+
+    private final UUID nodeId = UUID.randomUUID();
+
+    @Test
+    void roundTrip_keepsEveryField() {
+        LastLocationEvent moving = new LastLocationEvent(UUID.randomUUID(), UUID.randomUUID(), "ACTIVE", true, false,
+                Instant.parse("2026-01-01T10:00:00.123Z"), 41.3111234, -69.2797001, 3.5f, 1.25f, 359.9f);
+        LastLocationEvent stopped = new LastLocationEvent(UUID.randomUUID(), UUID.randomUUID(), "STOPPED", false, true,
+                null, null, null, null, null, null);
+        LastLocationEvent bare = new LastLocationEvent(UUID.randomUUID(), null, null, false, false,
+                null, null, null, null, null, null);
+
+        byte[] bytes = LastLocationBusCodec.encode(nodeId, 1_700_000_000_000L, List.of(moving, stopped, bare));
+        LastLocationBusCodec.Batch batch = LastLocationBusCodec.decode(bytes);
+
+        assertThat(batch.nodeId()).isEqualTo(nodeId);
+        assertThat(batch.sentAtMs()).isEqualTo(1_700_000_000_000L);
+        assertThat(batch.events()).containsExactly(moving, stopped, bare);
+    }
+
+    @Test
+    void message_isMuchSmallerThanTheSseJson() throws Exception {
+        LastLocationEvent event = new LastLocationEvent(UUID.randomUUID(), UUID.randomUUID(), "ACTIVE", true, false,
+                Instant.now(), 41.3111, 69.2797, 3f, 1.5f, 120f);
+        List<LastLocationEvent> events = Collections.nCopies(100, event);
+
+        int bus = LastLocationBusCodec.encode(nodeId, 0, events).length;
+        int json = new ObjectMapper().findAndRegisterModules().writeValueAsBytes(events).length;
+
+        assertThat(bus).isLessThan(json / 3);
+    }
+
+    @Test
+    void malformedMessages_areRejected() {
+        byte[] valid = LastLocationBusCodec.encode(nodeId, 0, List.of(new LastLocationEvent(UUID.randomUUID(),
+                null, "ACTIVE", true, false, null, null, null, null, null, null)));
+        byte[] otherVersion = valid.clone();
+        otherVersion[0] = 9;
+
+        assertThatThrownBy(() -> LastLocationBusCodec.decode(otherVersion))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+        assertThatThrownBy(() -> LastLocationBusCodec.decode(Arrays.copyOf(valid, valid.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LastLocationBusCodec.decode(Arrays.copyOf(valid, valid.length + 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Trailing");
+    }
+}
@@ -0,0 +1,106 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.BaseIntegrationTest;
+import com.rhaen.tracker.TrackerApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application contexts (two nodes) on one Redis: a position ingested on node A reaches an admin
+ * stream held by node B, and node A's own stream gets it once, not again from the bus.
+ */
+class LastLocationBusIntegrationTest extends BaseIntegrationTest {
+
+        @Autowired
+        private Environment env;
+        @Autowired
+        private LastLocationCache lastLocationCache;
+        @Autowired
+        private LastLocationBroadcaster broadcaster;
+
+        private ConfigurableApplicationContext nodeB;
+
+        @BeforeEach
+        void startSecondNode() {
+                nodeB = new SpringApplicationBuilder(TrackerApplication.class)
+                                .profiles("test")
+                                .properties(
+                                                "server.port=0",
+                                                "spring.datasource.url=" + env.getProperty("spring.datasource.url"),
+                                                "spring.datasource.username=" + env.getProperty("spring.datasource.username"),
+                                                "spring.datasource.password=" + env.getProperty("spring.datasource.password"),
+                                                "spring.data.redis.host=" + env.getProperty("spring.data.redis.host"),
+                                                "spring.data.redis.port=" + env.getProperty("spring.data.redis.port"))
+                                .run();
+        }
+
+        @AfterEach
+        void stopSecondNode() {
+                nodeB.close();
+        }
+
+        @Test
+        void updateIngestedOnOneNode_reachesStreamsOfTheOther() throws Exception {
+                FrameRecorder onA = new FrameRecorder();
+                FrameRecorder onB = new FrameRecorder();
+                broadcaster.subscribe(onA, null, 0L, LastLocationFilter.ALL, (id, f) -> Map.of());
+                nodeB.getBean(LastLocationBroadcaster.class)
+                                .subscribe(onB, null, 0L, LastLocationFilter.ALL, (id, f) -> Map.of());
+                assertThat(onA.next()).startsWith("event:init");
+                assertThat(onB.next()).startsWith("event:init");
+
+                UUID userId = UUID.randomUUID();
+                lastLocationCache.upsert(new LastLocationSnapshot(userId, UUID.randomUUID(), "ACTIVE", true,
+                                41.3111, 69.2797, Instant.now(), 3f, 1.5f, 120f));
+
+                String remote = onB.next();
+                assertThat(remote)
+                                .startsWith("event:update\ndata:")
+                                .contains("\"userId\":\"" + userId + "\"", "\"lat\":41.3111", "\"lon\":69.2797");
+                assertThat(nodeB.getBean(MeterRegistry.class).get("tracker.sse.bus.lag").timer().count())
+                                .isPositive();
+
+                assertThat(onA.next()).startsWith("event:update").contains(userId.toString());
+                // node A ignores its own bus message
+                assertThat(onA.frames.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        }
+
+        /** Collects encoded SSE frames as text, without heartbeats */
+        private static class FrameRecorder extends SseEmitter {
+                private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+
+                FrameRecorder() {
+                        super(0L);
+                }
+
+                @Override
+                public void send(SseEventBuilder builder) {
+                        byte[] bytes = (byte[]) builder.build().iterator().next().getData();
+                        String frame = new String(bytes, StandardCharsets.UTF_8);
+                        if (!frame.startsWith(":")) frames.add(frame);
+                }
+
+                String next() throws InterruptedException {
+                        String frame = frames.poll(5, TimeUnit.SECONDS);
+                        assertThat(frame).as("frame within 5 s").isNotNull();
+                        return frame;
+                }
+        }
+}
@@ -0,0 +1,189 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LastLocationBusTest {
+
+    private static final byte[] CHANNEL = LastLocationBus.CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private LastLocationBroadcaster broadcaster;
+    @Mock
+    private StringRedisTemplate redis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private SimpleMeterRegistry registry;
+    private LastLocationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // long batch: the test flushes by hand
+        bus = new LastLocationBus(broadcaster, redis, new LastLocationBusProperties(true, 60_000, 2), registry,
+                objectMapper);
+        ReflectionTestUtils.invokeMethod(bus, "start");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(bus, "stop");
+    }
+
+    @Test
+    void publish_reachesLocalStreamsAtOnce_andOtherNodesOnFlush() {
+        LastLocationEvent event = event(UUID.randomUUID(), now());
+
+        bus.publish(event);
+
+        verify(broadcaster).broadcastUpdate(event);
+        verifyNoInteractions(redis);
+
+        List<byte[]> messages = flushAndCapture(1);
+        LastLocationBusCodec.Batch batch = LastLocationBusCodec.decode(messages.getFirst());
+        assertThat(batch.nodeId()).isEqualTo(bus.nodeId());
+        assertThat(batch.events()).containsExactly(event);
+        assertThat(registry.counter("tracker.sse.bus.messages.total", "direction", "out").count()).isEqualTo(1);
+    }
+
+    @Test
+    void flush_sendsLatestPerUser_splitIntoMaxBatchMessages() {
+        UUID a = UUID.randomUUID();
+        Instant ts = now();
+        bus.publish(event(a, ts.minusSeconds(2)));
+        bus.publish(event(a, ts));
+        bus.publish(event(UUID.randomUUID(), ts));
+        bus.publish(event(UUID.randomUUID(), ts));
+
+        List<byte[]> messages = flushAndCapture(2);
+
+        List<LastLocationEvent> sent = messages.stream()
+                .flatMap(m -> LastLocationBusCodec.decode(m).events().stream())
+                .toList();
+        assertThat(sent).hasSize(3);
+        assertThat(sent).filteredOn(e -> e.userId().equals(a)).singleElement()
+                .extracting(LastLocationEvent::ts).isEqualTo(ts);
+        assertThat(registry.summary("tracker.sse.bus.batch.events").max()).isEqualTo(2);
+    }
+
+    @Test
+    void emptyFlush_publishesNothing() {
+        bus.flush();
+
+        verifyNoInteractions(redis);
+    }
+
+    @Test
+    void otherNodesMessage_isFannedOutLocally_andLagRecorded() {
+        LastLocationEvent event = event(UUID.randomUUID(), now());
+        byte[] body = LastLocationBusCodec.encode(UUID.randomUUID(), System.currentTimeMillis() - 40, List.of(event));
+
+        bus.onMessage(new DefaultMessage(CHANNEL, body), null);
+
+        verify(broadcaster).broadcastUpdate(any());
+        assertThat(registry.timer("tracker.sse.bus.lag").count()).isEqualTo(1);
+        assertThat(registry.counter("tracker.sse.bus.events.total", "direction", "in").count()).isEqualTo(1);
+    }
+
+    @Test
+    void ownAndMalformedMessages_areIgnored() {
+        byte[] own = LastLocationBusCodec.encode(bus.nodeId(), System.currentTimeMillis(),
+                List.of(event(UUID.randomUUID(), now())));
+
+        bus.onMessage(new DefaultMessage(CHANNEL, own), null);
+        bus.onMessage(new DefaultMessage(CHANNEL, new byte[]{1, 2, 3}), null);
+
+        verify(broadcaster, never()).broadcastUpdate(any());
+        assertThat(registry.counter("tracker.sse.bus.errors.total", "op", "decode").count()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledBus_onlyStreamsLocally() {
+        LastLocationBus local = new LastLocationBus(broadcaster, redis,
+                new LastLocationBusProperties(false, 50, 500), new SimpleMeterRegistry(), objectMapper);
+        ReflectionTestUtils.invokeMethod(local, "start");
+        LastLocationEvent event = event(UUID.randomUUID(), now());
+
+        local.publish(event);
+        local.flush();
+
+        verify(broadcaster).broadcastUpdate(event);
+        verifyNoInteractions(redis);
+    }
+
+    @Test
+    void filterUpdate_forAStreamOnAnotherNode_isRelayed_andAppliedWhereItLives() throws Exception {
+        LastLocationFilter filter = LastLocationFilter.of("69.1,41.2,69.4,41.4", null);
+        when(broadcaster.updateFilter("remote", filter)).thenReturn(false);
+
+        assertThat(bus.updateFilter("remote", filter)).isFalse();
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(redis).convertAndSend(eq(LastLocationBus.FILTER_CHANNEL), json.capture());
+        bus.onMessage(new DefaultMessage(LastLocationBus.FILTER_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                json.getValue().getBytes(StandardCharsets.UTF_8)), null);
+        verify(broadcaster, times(2)).updateFilter("remote", filter);
+    }
+
+    @Test
+    void filterUpdate_forALocalStream_isNotRelayed() {
+        when(broadcaster.updateFilter("local", LastLocationFilter.ALL)).thenReturn(true);
+
+        assertThat(bus.updateFilter("local", LastLocationFilter.ALL)).isTrue();
+
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<byte[]> flushAndCapture(int messages) {
+        bus.flush();
+        ArgumentCaptor<RedisCallback<Long>> callbacks = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redis, times(messages)).execute(callbacks.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        callbacks.getAllValues().forEach(callback -> callback.doInRedis(connection));
+        ArgumentCaptor<byte[]> bodies = ArgumentCaptor.forClass(byte[].class);
+        verify(connection, times(messages)).publish(eq(CHANNEL), bodies.capture());
+        return bodies.getAllValues();
+    }
+
+    // the bus carries milliseconds
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static LastLocationEvent event(UUID userId, Instant ts) {
+        return new LastLocationEvent(userId, UUID.randomUUID(), "ACTIVE", true, false, ts,
+                41.3111, 69.2797, 3f, 1.5f, 120f);
+    }
+}
@@ -1,6 +1,9 @@
 package com.rhaen.tracker.feature.tracking.realtime;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rhaen.tracker.common.concurrency.BulkheadProperties;
+import com.rhaen.tracker.common.concurrency.Bulkheads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -31,7 +34,7 @@ class LastLocationCacheTest {
     @Mock
     private StringRedisTemplate redis;
     @Mock
-    private LastLocationBroadcaster broadcaster;
+    private LastLocationBus bus;
     @Mock
     private ValueOperations<String, String> valueOps;
     @Mock
@@ -43,18 +46,19 @@ class LastLocationCacheTest {
     void setUp() {
         when(redis.opsForValue()).thenReturn(valueOps);
         when(redis.opsForSet()).thenReturn(setOps);
-        cache = new LastLocationCache(redis, new ObjectMapper().findAndRegisterModules(), new LastLocationProperties(10, 120), broadcaster);
+        cache = new LastLocationCache(redis, new ObjectMapper().findAndRegisterModules(), new LastLocationProperties(10, 120), bus,
+                new Bulkheads(new BulkheadProperties(null, null), new SimpleMeterRegistry()));
     }
 
     @Test
-    void upsert_writesRedis_andBroadcasts() {
+    void upsert_writesRedis_andPublishes() {
         LastLocationSnapshot snap = snapshot(true, Instant.now());
 
         cache.upsert(snap);
 
         verify(valueOps).set(startsWith("lastloc:"), anyString(), eq(Duration.ofMinutes(10)));
         verify(setOps).add(eq("lastloc:users"), eq(snap.userId().toString()));
-        verify(broadcaster).broadcastUpdate(any());
+        verify(bus).publish(any());
     }
 
     @Test
@@ -93,6 +97,19 @@ class LastLocationCacheTest {
         verify(setOps).remove(eq("lastloc:users"), any());
     }
 
+    @Test
+    void getAll_forUsers_readsOnlyTheirKeys() throws Exception {
+        UUID u1 = UUID.randomUUID();
+        UUID u2 = UUID.randomUUID();
+        String json1 = new ObjectMapper().findAndRegisterModules().writeValueAsString(snapshotForUser(u1));
+        when(valueOps.multiGet(List.of("lastloc:" + u1, "lastloc:" + u2))).thenReturn(java.util.Arrays.asList(json1, null));
+
+        List<LastLocationSnapshot> found = cache.getAll(List.of(u1, u2));
+
+        assertThat(found).extracting(LastLocationSnapshot::userId).containsExactly(u1);
+        verify(setOps, never()).members(anyString());
+    }
+
     @Test
     void isStale_rules_work() {
         assertThat(cache.isStale(snapshot(false, Instant.now().minusSeconds(1000)))).isFalse();
@@ -0,0 +1,40 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LastLocationConflatorTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-29T10:00:00Z");
+
+    @Test
+    void drain_returnsLatestPerUser_once() {
+        LastLocationConflator conflator = new LastLocationConflator();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        conflator.offer(event(a, T0, 41.0));
+        conflator.offer(event(a, T0.plusSeconds(2), 41.2));
+        conflator.offer(event(b, T0, 42.0));
+        // late batch of a: older point must not win
+        conflator.offer(event(a, T0.plusSeconds(1), 41.1));
+
+        assertThat(conflator.drain())
+                .extracting(LastLocationEvent::userId, LastLocationEvent::lat)
+                .containsExactlyInAnyOrder(
+                        tuple(a, 41.2),
+                        tuple(b, 42.0));
+        assertThat(conflator.drain()).isEmpty();
+    }
+
+    private static LastLocationEvent event(UUID userId, Instant ts, double lat) {
+        return new LastLocationEvent(userId, UUID.randomUUID(), "ACTIVE", true, false, ts, lat, 69.0,
+                null, null, null);
+    }
+}
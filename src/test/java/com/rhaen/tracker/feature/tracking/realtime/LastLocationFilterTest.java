@@ -0,0 +1,58 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.common.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LastLocationFilterTest {
+
+    @Test
+    void bbox_isParsedInGeoJsonOrder_edgesIncluded() {
+        LastLocationFilter filter = LastLocationFilter.of(" 69.1, 41.2 ,69.4,41.4", null);
+        UUID anyone = UUID.randomUUID();
+
+        assertThat(filter.area()).isEqualTo(new LastLocationFilter.Area(41.2, 69.1, 41.4, 69.4));
+        assertThat(filter.matches(anyone, 41.3, 69.2)).isTrue();
+        assertThat(filter.matches(anyone, 41.4, 69.1)).isTrue();
+        assertThat(filter.matches(anyone, 41.5, 69.2)).isFalse();
+        assertThat(filter.matches(anyone, null, null)).isFalse();
+    }
+
+    @Test
+    void usersAndArea_mustBothMatch() {
+        UUID followed = UUID.randomUUID();
+        LastLocationFilter filter = LastLocationFilter.of("69.1,41.2,69.4,41.4", List.of(followed));
+
+        assertThat(filter.matches(followed, 41.3, 69.2)).isTrue();
+        assertThat(filter.matches(followed, 40.0, 69.2)).isFalse();
+        assertThat(filter.matches(UUID.randomUUID(), 41.3, 69.2)).isFalse();
+    }
+
+    @Test
+    void noAreaAndNoUsers_isUnfiltered() {
+        assertThat(LastLocationFilter.of(null, null).unfiltered()).isTrue();
+        assertThat(LastLocationFilter.of(" ", List.of()).unfiltered()).isTrue();
+        assertThat(LastLocationFilter.ALL.matches(UUID.randomUUID(), null, null)).isTrue();
+    }
+
+    @Test
+    void invalidInput_isBadRequest() {
+        for (String bbox : List.of("1,2,3", "a,b,c,d", "0,0,200,1", "0,1,1,0", "NaN,0,1,1")) {
+            assertThatThrownBy(() -> LastLocationFilter.of(bbox, null)).as(bbox)
+                    .isInstanceOf(BadRequestException.class);
+        }
+        assertThatThrownBy(() -> LastLocationFilter.Area.of(1.0, null, 2.0, 2.0))
+                .isInstanceOf(BadRequestException.class);
+
+        List<UUID> tooMany = Stream.generate(UUID::randomUUID).limit(LastLocationFilter.MAX_USER_IDS + 1).toList();
+        assertThatThrownBy(() -> LastLocationFilter.of(null, tooMany)).isInstanceOf(BadRequestException.class);
+        assertThat(LastLocationFilter.of(null, Collections.nCopies(3, tooMany.getFirst())).userIds()).hasSize(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseSubscriberTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Counter overflow = registry.counter("overflow");
+    private final Counter coalesced = registry.counter("coalesced");
+
+    @Test
+    void coalesce_keepsLatestPerUser_inArrivalOrder() {
+        SseSubscriber s = subscriber(LastLocationStreamProperties.Overflow.COALESCE, 8);
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+
+        s.offer(frame("a1"), a);
+        s.offer(frame("b1"), b);
+        s.offer(frame("p"), null);
+        s.offer(frame("a2"), a);
+
+        assertThat(drain(s)).containsExactly("b1", "p", "a2");
+        assertThat(coalesced.count()).isEqualTo(1);
+        assertThat(overflow.count()).isZero();
+    }
+
+    @Test
+    void dropOldest_keepsCapacity_butInitStaysFirst() {
+        SseSubscriber s = subscriber(LastLocationStreamProperties.Overflow.DROP_OLDEST, 3);
+        for (int i = 0; i < 5; i++) {
+            assertThat(s.offer(frame("u" + i), UUID.randomUUID())).isTrue();
+        }
+        s.offerFirst(frame("init"));
+
+        assertThat(drain(s)).containsExactly("init", "u2", "u3", "u4");
+        assertThat(overflow.count()).isEqualTo(2);
+    }
+
+    @Test
+    void disconnect_rejectsWhenFull() {
+        SseSubscriber s = subscriber(LastLocationStreamProperties.Overflow.DISCONNECT, 2);
+
+        assertThat(s.offer(frame("u0"), null)).isTrue();
+        assertThat(s.offer(frame("u1"), null)).isTrue();
+        assertThat(s.offer(frame("u2"), null)).isFalse();
+    }
+
+    @Test
+    void onlyOneSender_drainsAtATime() {
+        SseSubscriber s = subscriber(LastLocationStreamProperties.Overflow.DROP_OLDEST, 8);
+        assertThat(s.claim()).isFalse(); // held until subscribe has queued init
+        assertThat(s.release()).isFalse();
+
+        s.offer(frame("p"), null);
+        assertThat(s.claim()).isTrue();
+        assertThat(s.claim()).isFalse();
+
+        // a frame that arrives while the sender finishes is not left behind
+        s.offer(frame("p"), null);
+        assertThat(s.release()).isTrue();
+    }
+
+    private SseSubscriber subscriber(LastLocationStreamProperties.Overflow policy, int capacity) {
+        return new SseSubscriber("1", new SseEmitter(0L), policy, capacity, 0, overflow, coalesced,
+                registry.timer("send"), LastLocationFilter.ALL, filter -> Map.of());
+    }
+
+    private static SseFrame frame(String name) {
+        return new SseFrame(name, new byte[0]);
+    }
+
+    private static List<String> drain(SseSubscriber s) {
+        List<String> names = new ArrayList<>();
+        SseFrame frame;
+        while ((frame = s.poll()) != null) {
+            names.add(frame.name());
+        }
+        return names;
+    }
+}
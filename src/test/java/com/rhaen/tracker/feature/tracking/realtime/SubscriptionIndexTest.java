@@ -0,0 +1,126 @@
+package com.rhaen.tracker.feature.tracking.realtime;
+
+import com.rhaen.tracker.feature.tracking.realtime.dto.LastLocationEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionIndexTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DistributionSummary candidates = registry.summary("candidates");
+    private final SubscriptionIndex index = new SubscriptionIndex(candidates);
+
+    @Test
+    void areaSubscriber_isOnlyTestedAgainstUpdatesInItsCells() {
+        SseSubscriber tashkent = subscriber(LastLocationFilter.of("69.1,41.2,69.4,41.4", null));
+        index.add(tashkent);
+
+        assertThat(index.route(event(UUID.randomUUID(), 39.65, 66.96), 0)).isEmpty();
+        assertThat(candidates.max()).isZero();
+        assertThat(index.route(event(UUID.randomUUID(), 41.31, 69.27), 0)).containsExactly(tashkent);
+        // same cell, outside the box: tested, not sent
+        assertThat(index.route(event(UUID.randomUUID(), 41.45, 69.45), 0)).isEmpty();
+        assertThat(candidates.count()).isEqualTo(3);
+        assertThat(candidates.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void hugeArea_andUnfiltered_areTestedAgainstEverything() {
+        SseSubscriber half = subscriber(LastLocationFilter.of("-180,0,180,90", null));
+        SseSubscriber all = subscriber(LastLocationFilter.ALL);
+        index.add(half);
+        index.add(all);
+
+        assertThat(index.route(event(UUID.randomUUID(), -33.9, 18.4), 0)).containsExactly(all);
+        assertThat(index.route(event(UUID.randomUUID(), 41.3, 69.2), 0)).containsExactlyInAnyOrder(half, all);
+    }
+
+    @Test
+    void unfilteredSubscribers_ofAnotherTick_areNotTested() {
+        SseSubscriber raw = subscriber(LastLocationFilter.ALL);
+        index.add(raw);
+        index.add(subscriber(LastLocationFilter.ALL, 1000));
+        index.add(subscriber(LastLocationFilter.of("-180,0,180,90", null), 1000));
+
+        assertThat(index.route(event(UUID.randomUUID(), 41.3, 69.2), 0)).containsExactly(raw);
+        assertThat(candidates.max()).isEqualTo(1);
+    }
+
+    @Test
+    void removeRacingAnAreaMatch_leavesNoViewerEntry() throws Exception {
+        UUID user = UUID.randomUUID();
+        SseSubscriber s = subscriber(LastLocationFilter.of("69.1,41.2,69.4,41.4", null));
+        index.add(s);
+
+        Thread router;
+        synchronized (s.visible()) {
+            router = new Thread(() -> index.route(event(user, 41.3, 69.2), 0));
+            router.start();
+            while (router.getState() != Thread.State.BLOCKED && router.isAlive()) {
+                Thread.onSpinWait();
+            }
+            index.remove(s); // the stream closes while the update is being routed to it
+        }
+        router.join(5000);
+
+        assertThat(index.route(event(user, 10.0, 10.0), 0)).isEmpty();
+        assertThat(s.visible()).isEmpty();
+    }
+
+    @Test
+    void userSubscriber_isIndexedByUser_andTickMustMatch() {
+        UUID followed = UUID.randomUUID();
+        SseSubscriber raw = subscriber(new LastLocationFilter(null, Set.of(followed)), 0);
+        SseSubscriber ticked = subscriber(new LastLocationFilter(null, Set.of(followed)), 1000);
+        index.add(raw);
+        index.add(ticked);
+
+        assertThat(index.route(event(followed, 41.3, 69.2), 0)).containsExactly(raw);
+        assertThat(index.route(event(followed, 41.3, 69.2), 1000)).containsExactly(ticked);
+        assertThat(index.route(event(UUID.randomUUID(), 41.3, 69.2), 0)).isEmpty();
+    }
+
+    @Test
+    void leavingTheArea_isSentOnce_andUpdateOrRemoveForgetsViewers() {
+        UUID user = UUID.randomUUID();
+        SseSubscriber s = subscriber(LastLocationFilter.of("69.1,41.2,69.4,41.4", null));
+        index.add(s);
+
+        assertThat(index.route(event(user, 41.3, 69.2), 0)).containsExactly(s);
+        assertThat(index.route(event(user, 10.0, 10.0), 0)).containsExactly(s);
+        assertThat(index.route(event(user, 10.1, 10.1), 0)).isEmpty();
+
+        index.route(event(user, 41.3, 69.2), 0);
+        index.update(s, LastLocationFilter.of("0,0,1,1", null));
+        assertThat(s.visible()).isEmpty();
+        assertThat(index.route(event(user, 10.0, 10.0), 0)).isEmpty();
+        assertThat(index.route(event(user, 0.5, 0.5), 0)).containsExactly(s);
+
+        index.remove(s);
+        assertThat(index.route(event(user, 0.5, 0.5), 0)).isEmpty();
+    }
+
+    private SseSubscriber subscriber(LastLocationFilter filter) {
+        return subscriber(filter, 0);
+    }
+
+    private SseSubscriber subscriber(LastLocationFilter filter, long tickMs) {
+        return new SseSubscriber(UUID.randomUUID().toString(), new SseEmitter(0L),
+                LastLocationStreamProperties.Overflow.COALESCE, 8, tickMs, registry.counter("overflow"),
+                registry.counter("coalesced"), registry.timer("send"), filter, f -> Map.of());
+    }
+
+    private static LastLocationEvent event(UUID userId, double lat, double lon) {
+        return new LastLocationEvent(userId, UUID.randomUUID(), "ACTIVE", true, false, Instant.now(),
+                lat, lon, null, null, null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.rhaen.tracker.feature.tracking.retention;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingPointPartitionsTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TrackingPointPartitions partitions;
+
+    @BeforeEach
+    void setUp() {
+        partitions = new TrackingPointPartitions(jdbc, transactionManager);
+    }
+
+    @Test
+    void createAhead_attachesOnlyMissingDays() {
+        when(jdbc.queryForList(anyString(), eq(String.class), eq("tracking_points")))
+                .thenReturn(List.of("tracking_points_default", "tracking_points_p20261018"));
+
+        int created = partitions.createAhead(TrackingPointPartitions.Table.POINTS, LocalDate.parse("2026-10-18"), 2);
+
+        assertThat(created).isEqualTo(2);
+        List<String> ddl = executed();
+        assertThat(ddl).noneMatch(sql -> sql.contains("tracking_points_p20261018"));
+        assertThat(ddl).anyMatch(sql -> sql.contains("ATTACH PARTITION tracking_points_p20261019 "
+                + "FOR VALUES FROM ('2026-10-19T00:00:00Z') TO ('2026-10-20T00:00:00Z')"));
+        assertThat(ddl).anyMatch(sql -> sql.contains("ATTACH PARTITION tracking_points_p20261020 "));
+    }
+
+    @Test
+    void dropBefore_dropsOnlyDaysEndedBeforeCutoff_oldestFirst() {
+        when(jdbc.queryForList(anyString(), eq(String.class), eq("tracking_points"))).thenReturn(List.of(
+                "tracking_points_p20261017", "tracking_points_p20261015", "tracking_points_p20261016",
+                "tracking_points_default"));
+
+        int dropped = partitions.dropBefore(Instant.parse("2026-10-17T06:00:00Z"));
+
+        assertThat(dropped).isEqualTo(2);
+        assertThat(executed()).filteredOn(sql -> sql.startsWith("ALTER TABLE")).containsExactly(
+                "ALTER TABLE tracking_points DETACH PARTITION tracking_points_p20261015; DROP TABLE tracking_points_p20261015",
+                "ALTER TABLE tracking_points DETACH PARTITION tracking_points_p20261016; DROP TABLE tracking_points_p20261016");
+    }
+
+    @Test
+    void dropBefore_lockTimeout_stopsUntilNextSweep() {
+        when(jdbc.queryForList(anyString(), eq(String.class), eq("tracking_points")))
+                .thenReturn(List.of("tracking_points_p20261015", "tracking_points_p20261016"));
+        lenient().doThrow(new CannotAcquireLockException("lock timeout"))
+                .when(jdbc).execute(startsWith("ALTER TABLE tracking_points DETACH PARTITION tracking_points_p20261015"));
+
+        assertThat(partitions.dropBefore(Instant.parse("2026-10-18T00:00:00Z"))).isZero();
+        assertThat(executed()).noneMatch(sql -> sql.contains("tracking_points_p20261016"));
+    }
+
+    @Test
+    void createAhead_events_movesDefaultRowsBySessionStart() {
+        when(jdbc.queryForList(anyString(), eq(String.class), eq("tracking_point_events")))
+                .thenReturn(List.of("tracking_point_events_default"));
+
+        assertThat(partitions.createAhead(TrackingPointPartitions.Table.EVENTS, LocalDate.parse("2026-10-18"), 0))
+                .isEqualTo(1);
+        assertThat(executed()).anyMatch(sql -> sql.contains("DELETE FROM tracking_point_events_default")
+                && sql.contains("session_start >= '2026-10-18T00:00:00Z'")
+                && sql.contains("ATTACH PARTITION tracking_point_events_p20261018 "));
+    }
+
+    @Test
+    void dropIdleEventDays_keepsDaysWithActiveSessions_andToday() {
+        when(jdbc.queryForList(anyString(), eq(String.class), eq("tracking_point_events"))).thenReturn(List.of(
+                "tracking_point_events_p20261018", "tracking_point_events_p20261016", "tracking_point_events_p20261015",
+                "tracking_point_events_p20261017", "tracking_point_events_default"));
+        when(jdbc.queryForList(anyString(), eq(LocalDate.class))).thenReturn(List.of(LocalDate.parse("2026-10-16")));
+
+        int dropped = partitions.dropIdleEventDays(LocalDate.parse("2026-10-18"));
+
+        assertThat(dropped).isEqualTo(2);
+        assertThat(executed()).filteredOn(sql -> sql.startsWith("ALTER TABLE")).containsExactly(
+                "ALTER TABLE tracking_point_events DETACH PARTITION tracking_point_events_p20261015; "
+                        + "DROP TABLE tracking_point_events_p20261015",
+                "ALTER TABLE tracking_point_events DETACH PARTITION tracking_point_events_p20261017; "
+                        + "DROP TABLE tracking_point_events_p20261017");
+    }
+
+    private List<String> executed() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc, atLeastOnce()).execute(sql.capture());
+        return sql.getAllValues();
+    }
+}
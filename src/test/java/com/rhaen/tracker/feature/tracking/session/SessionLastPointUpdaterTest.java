@@ -0,0 +1,134 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionLastPointUpdaterTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SessionLastPointUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        updater = new SessionLastPointUpdater(jdbc, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(updater, "init");
+    }
+
+    @Test
+    void flushAll_coalescesBatchesOfSameSession_intoOneRow() {
+        UUID sessionId = UUID.randomUUID();
+        Instant t0 = Instant.parse("2026-01-01T10:00:00Z");
+        var first = new SessionLastPointUpdater.LastPoint(69.20, 41.30, t0);
+        updater.record(sessionId, first, new SessionLastPointUpdater.LastPoint(69.21, 41.31, t0.plusSeconds(5)));
+        updater.record(sessionId, null, new SessionLastPointUpdater.LastPoint(69.23, 41.33, t0.plusSeconds(15)));
+        // late (out of order) batch must not win
+        updater.record(sessionId, null, new SessionLastPointUpdater.LastPoint(69.22, 41.32, t0.plusSeconds(10)));
+
+        updater.flushAll();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc, times(1)).update(anyString(), args.capture());
+        assertThat(args.getValue()).containsExactly(
+                sessionId, 69.20, 41.30, 69.23, 41.33, t0.plusSeconds(15).atOffset(ZoneOffset.UTC));
+    }
+
+    @Test
+    void flush_writesOnlyRequestedSession_andFailedFlushIsRetried() {
+        UUID s1 = UUID.randomUUID();
+        UUID s2 = UUID.randomUUID();
+        Instant now = Instant.now();
+        updater.record(s1, null, new SessionLastPointUpdater.LastPoint(69.2, 41.3, now));
+        updater.record(s2, null, new SessionLastPointUpdater.LastPoint(69.3, 41.4, now));
+        when(jdbc.update(anyString(), any(Object[].class)))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(1);
+
+        updater.flush(s1); // fails, s1 goes back to pending
+        updater.flushAll();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc, times(2)).update(anyString(), args.capture());
+        assertThat(args.getAllValues().get(1)).hasSize(12).contains(s1, s2);
+    }
+
+    @Test
+    void flushAll_whenNothingPending_doesNotTouchDb() {
+        updater.flushAll();
+
+        verify(jdbc, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void flushAll_writesSessionsInIdOrder() {
+        Instant now = Instant.now();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            updater.record(id, null, new SessionLastPointUpdater.LastPoint(69.2, 41.3, now));
+        }
+
+        updater.flushAll();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).update(anyString(), args.capture());
+        List<Object> written = new ArrayList<>();
+        for (int i = 0; i < args.getValue().length; i += 6) {
+            written.add(args.getValue()[i]);
+        }
+        Collections.sort(ids);
+        assertThat(written).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void flush_insideCallerTransaction_joinsIt_andPutsBackOnRollback() {
+        UUID sessionId = UUID.randomUUID();
+        updater.record(sessionId, null, new SessionLastPointUpdater.LastPoint(69.2, 41.3, Instant.now()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            updater.flush(sessionId);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(transactionManager, never()).getTransaction(any());
+
+        updater.flushAll(); // rolled back entry is pending again
+
+        verify(jdbc, times(2)).update(anyString(), any(Object[].class));
+    }
+}
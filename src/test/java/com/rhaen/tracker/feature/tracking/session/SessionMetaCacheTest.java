@@ -0,0 +1,97 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import com.rhaen.tracker.feature.tracking.persistence.SessionMeta;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionMetaCacheTest {
+
+    @Mock
+    private TrackingSessionRepository sessionRepository;
+    @Mock
+    private StringRedisTemplate redis;
+
+    private SimpleMeterRegistry registry;
+    private SessionMetaCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new SessionMetaCache(sessionRepository, redis, new SessionCacheProperties(1000, 300), registry);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @Test
+    void get_loadsOnce_thenServesFromCache() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionRepository.findMetaById(sessionId)).thenReturn(Optional.of(meta(UUID.randomUUID())));
+
+        assertThat(cache.get(sessionId)).isPresent();
+        assertThat(cache.get(sessionId)).isPresent();
+
+        verify(sessionRepository, times(1)).findMetaById(sessionId);
+        assertThat(registry.counter("tracker.session.cache.hits.total").count()).isEqualTo(1);
+        assertThat(registry.counter("tracker.session.cache.misses.total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidate_dropsEntry_andPublishes() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionRepository.findMetaById(sessionId)).thenReturn(Optional.of(meta(UUID.randomUUID())));
+        cache.get(sessionId);
+
+        cache.invalidate(sessionId);
+        cache.get(sessionId);
+
+        verify(sessionRepository, times(2)).findMetaById(sessionId);
+        verify(redis).convertAndSend(eq(SessionMetaCache.INVALIDATION_CHANNEL), eq("s:" + sessionId));
+    }
+
+    @Test
+    void onMessage_fromOtherNode_evictsSessionsAndUsers() {
+        UUID userId = UUID.randomUUID();
+        UUID s1 = UUID.randomUUID();
+        UUID s2 = UUID.randomUUID();
+        when(sessionRepository.findMetaById(s1)).thenReturn(Optional.of(meta(userId)));
+        when(sessionRepository.findMetaById(s2)).thenReturn(Optional.of(meta(userId)));
+        cache.get(s1);
+        cache.get(s2);
+
+        cache.onMessage(message("s:" + s1), null);
+        cache.get(s1);
+        verify(sessionRepository, times(2)).findMetaById(s1);
+
+        cache.onMessage(message("u:" + userId), null);
+        cache.get(s2);
+        verify(sessionRepository, times(2)).findMetaById(s2);
+    }
+
+    private static SessionMeta meta(UUID userId) {
+        return new SessionMeta(userId, TrackingSessionEntity.Status.ACTIVE, true);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(SessionMetaCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
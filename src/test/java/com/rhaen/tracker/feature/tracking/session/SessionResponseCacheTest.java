@@ -0,0 +1,204 @@
+package com.rhaen.tracker.feature.tracking.session;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.rhaen.tracker.common.exception.ForbiddenException;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionResponseCacheTest {
+
+    private static final Instant UPDATED = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Mock
+    private JdbcTemplate jdbc;
+    @Mock
+    private StringRedisTemplate redis;
+
+    private SimpleMeterRegistry registry;
+    private SessionResponseCache cache;
+
+    private final UUID sessionId = UUID.randomUUID();
+    private final UUID ownerId = UUID.randomUUID();
+    private final SessionResponseCache.Key key = new SessionResponseCache.Key("summary", sessionId, "");
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<Map<String, Integer>> load = () -> Map.of("n", loads.incrementAndGet());
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new SessionResponseCache(jdbc, JsonMapper.builder().findAndAddModules().build(), redis,
+                new SessionResponseCacheProperties(1 << 20, 3600, 86400), registry);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @Test
+    void finishedSession_isServedFromCache_withImmutableEtag() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+
+        ResponseEntity<byte[]> first = cache.respond(key, null, null, load);
+        ResponseEntity<byte[]> second = cache.respond(key, null, null, load);
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.getBody()).isSameAs(first.getBody());
+        assertThat(new String(first.getBody(), StandardCharsets.UTF_8)).contains("\"data\":{\"n\":1}");
+        assertThat(first.getHeaders().getETag()).startsWith("\"stopped-");
+        assertThat(first.getHeaders().getCacheControl()).contains("immutable", "private", "max-age=86400");
+        assertThat(registry.counter("tracker.response.cache.hits.total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void matchingIfNoneMatch_returns304WithoutBody() {
+        version(TrackingSessionEntity.Status.ARCHIVED, UPDATED);
+        String etag = cache.respond(key, null, null, load).getHeaders().getETag();
+
+        ResponseEntity<byte[]> notModified = cache.respond(key, null, "\"other\", W/" + etag, load);
+
+        assertThat(notModified.getStatusCode().value()).isEqualTo(304);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void missWithMatchingIfNoneMatch_returns304WithoutLoading() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+        String etag = SessionResponseCache.etag(key,
+                new SessionResponseCache.Version(ownerId, TrackingSessionEntity.Status.STOPPED, UPDATED));
+
+        ResponseEntity<byte[]> notModified = cache.respond(key, new SessionResponseCache.Access(ownerId, false), etag, load);
+
+        assertThat(notModified.getStatusCode().value()).isEqualTo(304);
+        assertThat(loads).hasValue(0);
+        assertThatThrownBy(() -> cache.respond(key, new SessionResponseCache.Access(UUID.randomUUID(), false), etag, load))
+                .isInstanceOf(ForbiddenException.class);
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void pointsResponse_mustBeRevalidated() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+        var pointsKey = new SessionResponseCache.Key("points", sessionId, "null|null|2000", true);
+
+        ResponseEntity<byte[]> points = cache.respond(pointsKey, null, null, load);
+
+        assertThat(points.getHeaders().getETag()).isNotNull();
+        assertThat(points.getHeaders().getCacheControl()).contains("no-cache", "private").doesNotContain("immutable");
+    }
+
+    @Test
+    void activeOrUnsummarizedSession_isNotCached() {
+        version(TrackingSessionEntity.Status.ACTIVE, UPDATED);
+        ResponseEntity<byte[]> active = cache.respond(key, null, null, load);
+        cache.respond(key, null, null, load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(active.getHeaders().containsKey(HttpHeaders.ETAG)).isFalse();
+
+        version(TrackingSessionEntity.Status.STOPPED, null);
+        cache.respond(key, null, null, load);
+        cache.respond(key, null, null, load);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void rejectedBody_isNotCached() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+
+        cache.respond(key, null, null, load, body -> false);
+        cache.respond(key, null, null, load, body -> false);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void cachedHit_checksOwnership() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+        cache.respond(key, new SessionResponseCache.Access(ownerId, false), null, load);
+
+        assertThatThrownBy(() -> cache.respond(key, new SessionResponseCache.Access(UUID.randomUUID(), false), null, load))
+                .isInstanceOf(ForbiddenException.class);
+        assertThat(cache.respond(key, new SessionResponseCache.Access(UUID.randomUUID(), true), null, load)
+                .getStatusCode().value()).isEqualTo(200);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidate_dropsSessionEntries_andPublishes() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+        cache.respond(key, null, null, load);
+
+        cache.invalidate(sessionId);
+        cache.respond(key, null, null, load);
+
+        assertThat(loads).hasValue(2);
+        verify(redis).convertAndSend(SessionResponseCache.INVALIDATION_CHANNEL, "s:" + sessionId);
+    }
+
+    @Test
+    void onMessage_evictsUserAndAll() {
+        version(TrackingSessionEntity.Status.STOPPED, UPDATED);
+        cache.respond(key, null, null, load);
+
+        cache.onMessage(message("u:" + ownerId), null);
+        cache.respond(key, null, null, load);
+        cache.onMessage(message("*"), null);
+        cache.respond(key, null, null, load);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void etag_changesWithSummaryVersionAndRequest() {
+        var v1 = new SessionResponseCache.Version(ownerId, TrackingSessionEntity.Status.STOPPED, UPDATED);
+        var v2 = new SessionResponseCache.Version(ownerId, TrackingSessionEntity.Status.STOPPED, UPDATED.plusMillis(1));
+        var archived = new SessionResponseCache.Version(ownerId, TrackingSessionEntity.Status.ARCHIVED, UPDATED);
+        var otherKey = new SessionResponseCache.Key("points", sessionId, "null|null|500");
+
+        assertThat(SessionResponseCache.etag(key, v1)).isEqualTo(SessionResponseCache.etag(key, v1))
+                .isNotEqualTo(SessionResponseCache.etag(key, v2))
+                .isNotEqualTo(SessionResponseCache.etag(key, archived))
+                .isNotEqualTo(SessionResponseCache.etag(otherKey, v1));
+        assertThat(SessionResponseCache.matches("*", "\"a\"")).isTrue();
+        assertThat(SessionResponseCache.matches("\"b\"", "\"a\"")).isFalse();
+        assertThat(SessionResponseCache.matches(null, "\"a\"")).isFalse();
+    }
+
+    private void version(TrackingSessionEntity.Status status, Instant summaryUpdatedAt) {
+        when(jdbc.query(anyString(), ArgumentMatchers.<RowMapper<SessionResponseCache.Version>>any(), eq(sessionId)))
+                .thenReturn(List.of(new SessionResponseCache.Version(ownerId, status, summaryUpdatedAt)));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(SessionResponseCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
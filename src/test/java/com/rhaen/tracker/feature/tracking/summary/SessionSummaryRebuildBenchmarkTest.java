@@ -0,0 +1,141 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import com.rhaen.tracker.BaseIntegrationTest;
+import com.rhaen.tracker.feature.tracking.ingest.TrackingPointIngestRepository;
+import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingPointEntity;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingPointRepository;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import com.rhaen.tracker.feature.user.persistence.UserEntity;
+import com.rhaen.tracker.feature.user.persistence.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Full summary rebuild of a 500k-point session: entity list (previous implementation) vs the streamed
+ * cursor into primitive arrays. Prints wall time and bytes allocated by the calling thread.
+ * Excluded from the default test task; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class SessionSummaryRebuildBenchmarkTest extends BaseIntegrationTest {
+
+        private static final int POINTS = 500_000;
+        private static final int CHUNK = 10_000;
+
+        @Autowired
+        private TrackingPointIngestRepository ingestRepository;
+        @Autowired
+        private TrackingPointRepository pointRepository;
+        @Autowired
+        private TrackingSessionRepository sessionRepository;
+        @Autowired
+        private SessionSummaryRepository summaryRepository;
+        @Autowired
+        private UserRepository userRepository;
+        @Autowired
+        private SessionSummaryService summaryService;
+        @Autowired
+        private TrackingSummaryProperties props;
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Test
+        void streamedRebuild_vsEntityRebuild_500kPoints() {
+                TrackingSessionEntity session = newSessionWithPoints();
+
+                // warm-up both paths once
+                entityRebuild(session.getId());
+                summaryService.buildOrRebuild(session);
+
+                Measured entity = measure(() -> entityRebuild(session.getId()));
+                Measured streamed = measure(() -> summaryService.buildOrRebuild(session));
+
+                System.out.printf("summary rebuild, %d points: entities %d ms / %d MB allocated, "
+                                                + "streamed %d ms / %d MB allocated%n",
+                                POINTS, entity.millis(), entity.allocatedMb(), streamed.millis(), streamed.allocatedMb());
+
+                var summary = summaryRepository.findById(session.getId()).orElseThrow();
+                assertThat(summary.getPointsCount()).isEqualTo(POINTS);
+                assertThat(summary.getSimplifiedPolyline()).isNotBlank();
+        }
+
+        /** Previous implementation: all rows as entities (JTS Point each), then LatLon lists */
+        private void entityRebuild(UUID sessionId) {
+                transactionTemplate.executeWithoutResult(status -> {
+                        List<TrackingPointEntity> points = pointRepository.findBySessionIdOrderByDeviceTimestampAsc(sessionId);
+                        List<PolylineEncoder.LatLon> latlons = new ArrayList<>(points.size());
+                        double distance = 0;
+                        for (TrackingPointEntity p : points) {
+                                latlons.add(new PolylineEncoder.LatLon(p.getPoint().getY(), p.getPoint().getX()));
+                        }
+                        for (int i = 1; i < latlons.size(); i++) {
+                                var a = latlons.get(i - 1);
+                                var b = latlons.get(i);
+                                distance += GeoMath.haversineMeters(a.lat(), a.lon(), b.lat(), b.lon());
+                        }
+                        String simplified = PolylineEncoder.encode(RdpSimplifier.simplify(latlons, props.simplifyEpsilonM()));
+                        assertThat(distance).isPositive();
+                        assertThat(simplified).isNotBlank();
+                });
+        }
+
+        private static Measured measure(Runnable run) {
+                var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                long tid = Thread.currentThread().threadId();
+                long allocated = threads.getThreadAllocatedBytes(tid);
+                long start = System.nanoTime();
+                run.run();
+                return new Measured((System.nanoTime() - start) / 1_000_000,
+                                (threads.getThreadAllocatedBytes(tid) - allocated) / (1024 * 1024));
+        }
+
+        private TrackingSessionEntity newSessionWithPoints() {
+                String suffix = UUID.randomUUID().toString().substring(0, 8);
+                UserEntity user = userRepository.save(UserEntity.builder()
+                                .username("bench_" + suffix)
+                                .email("bench_" + suffix + "@mail.com")
+                                .passwordHash("hashed")
+                                .role(UserEntity.Role.USER)
+                                .build());
+                // 10 Hz, so the whole track stays inside the retention window
+                Instant base = Instant.now().minusMillis(POINTS * 100L);
+                TrackingSessionEntity session = sessionRepository.save(TrackingSessionEntity.builder()
+                                .user(user)
+                                .startTime(base)
+                                .status(TrackingSessionEntity.Status.ACTIVE)
+                                .updatedAt(Instant.now())
+                                .build());
+
+                Instant receivedAt = Instant.now();
+                for (int from = 0; from < POINTS; from += CHUNK) {
+                        List<TrackingPointIngestRepository.SessionPointRow> rows = new ArrayList<>(CHUNK);
+                        for (int i = from; i < Math.min(POINTS, from + CHUNK); i++) {
+                                // slow wiggle north-east, so RDP keeps a realistic share of points
+                                double lat = 41.2 + i * 2e-6 + Math.sin(i / 50.0) * 1e-4;
+                                double lon = 69.2 + i * 2e-6 + Math.cos(i / 70.0) * 1e-4;
+                                rows.add(new TrackingPointIngestRepository.SessionPointRow(session.getId(), receivedAt,
+                                                new TrackingPointIngestRepository.IngestPointRow(UUID.randomUUID(), lat, lon,
+                                                                base.plusMillis(i * 100L), 5f, i % 3 == 0 ? null : 1.5f, null,
+                                                                "gps", false)));
+                        }
+                        ingestRepository.insertRows(rows);
+                }
+                // the insert skips non-ACTIVE sessions, so stop only once the track is written
+                session.setStatus(TrackingSessionEntity.Status.STOPPED);
+                session.setStopTime(Instant.now());
+                return sessionRepository.save(session);
+        }
+
+        private record Measured(long millis, long allocatedMb) {}
+}
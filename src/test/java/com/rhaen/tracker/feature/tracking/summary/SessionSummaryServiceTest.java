@@ -2,15 +2,12 @@ package com.rhaen.tracker.feature.tracking.summary;
 
 import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryEntity;
 import com.rhaen.tracker.feature.tracking.persistence.SessionSummaryRepository;
-import com.rhaen.tracker.feature.tracking.persistence.TrackingPointEntity;
-import com.rhaen.tracker.feature.tracking.persistence.TrackingPointRepository;
 import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.session.SessionResponseCache;
+import com.rhaen.tracker.feature.tracking.tiles.VectorTileService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.PrecisionModel;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -24,27 +21,36 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
 class SessionSummaryServiceTest {
-    @Mock
-    private TrackingPointRepository pointRepository;
     @Mock
     private SessionSummaryRepository summaryRepository;
     @Mock
     private TrackingSummaryProperties props;
+    @Mock
+    private SessionTrackReader trackReader;
+    @Mock
+    private SessionTrackLodStore lodStore;
+    @Mock
+    private VectorTileService vectorTiles;
+    @Mock
+    private SessionResponseCache responseCache;
 
     private SessionSummaryService service;
-    private final GeometryFactory gf = new GeometryFactory(new PrecisionModel(), 4326);
 
     @BeforeEach
     void setUp() {
-        service = new SessionSummaryService(pointRepository, summaryRepository, props);
+        service = new SessionSummaryService(summaryRepository, props, trackReader, lodStore,
+                vectorTiles, responseCache);
         when(props.maxPolylinePoints()).thenReturn(10000);
         when(props.simplifyEpsilonM()).thenReturn(10.0);
+        when(props.lod()).thenReturn(new TrackingSummaryProperties.Lod(List.of(2d, 32d), 2000));
     }
 
     @Test
@@ -55,7 +61,7 @@ class SessionSummaryServiceTest {
                 .startTime(Instant.now())
                 .stopTime(Instant.now())
                 .build();
-        when(pointRepository.findBySessionIdOrderByDeviceTimestampAsc(id)).thenReturn(List.of());
+        when(trackReader.readTrack(id)).thenReturn(new SessionTrackReader.Track(null, new TrackCoords(0)));
         when(summaryRepository.findById(id)).thenReturn(Optional.empty());
 
         service.buildOrRebuild(session);
@@ -70,6 +76,7 @@ class SessionSummaryServiceTest {
         assertThat(s.getMaxSpeedMps()).isEqualTo(0d);
         assertThat(s.getPolyline()).isEqualTo("");
         assertThat(s.getSimplifiedPolyline()).isEqualTo("");
+        verify(lodStore).replace(id, List.of());
     }
 
     @Test
@@ -83,17 +90,11 @@ class SessionSummaryServiceTest {
                 .stopTime(t1)
                 .build();
 
-        TrackingPointEntity p1 = TrackingPointEntity.builder()
-                .point(gf.createPoint(new Coordinate(69.2797, 41.3111)))
-                .deviceTimestamp(t0)
-                .speedMps(3.0f)
-                .build();
-        TrackingPointEntity p2 = TrackingPointEntity.builder()
-                .point(gf.createPoint(new Coordinate(69.2807, 41.3121)))
-                .deviceTimestamp(t1)
-                .speedMps(4.0f)
-                .build();
-        when(pointRepository.findBySessionIdOrderByDeviceTimestampAsc(id)).thenReturn(List.of(p1, p2));
+        TrackCoords coords = new TrackCoords(2);
+        TrackAccumulator acc = new TrackAccumulator(coords);
+        acc.add(41.3111, 69.2797, micros(t0), 3.0f);
+        acc.add(41.3121, 69.2807, micros(t1), 4.0f);
+        when(trackReader.readTrack(id)).thenReturn(new SessionTrackReader.Track(acc.toStats(), coords));
         when(summaryRepository.findById(id)).thenReturn(Optional.empty());
         when(summaryRepository.save(any(SessionSummaryEntity.class))).thenAnswer(inv -> inv.getArgument(0));
 
@@ -108,5 +109,45 @@ class SessionSummaryServiceTest {
         assertThat(summary.getMaxSpeedMps()).isEqualTo(4.0);
         assertThat(summary.getPolyline()).isNotBlank();
         assertThat(summary.getSimplifiedPolyline()).isNotBlank();
+        verify(lodStore).replace(eq(id), argThat(segments -> segments.size() == 2
+                && segments.stream().allMatch(seg -> seg.pointsCount() == 2 && seg.startMicros() == micros(t0))));
+        verify(vectorTiles).invalidateTracks(41.3111, 69.2797, 41.3121, 69.2807);
+        verify(responseCache).invalidate(id);
+    }
+
+    @Test
+    void buildOrRebuild_withoutDeviceSpeed_estimatesMaxSpeedFromSegments() {
+        UUID id = UUID.randomUUID();
+        Instant t0 = Instant.parse("2026-01-01T10:00:00Z");
+        var session = TrackingSessionEntity.builder().id(id).startTime(t0).stopTime(t0.plusSeconds(30)).build();
+
+        TrackCoords coords = new TrackCoords(3);
+        TrackAccumulator acc = new TrackAccumulator(coords);
+        acc.add(41.3000, 69.2700, micros(t0), Float.NaN);
+        acc.add(41.3010, 69.2700, micros(t0.plusSeconds(10)), Float.NaN);
+        acc.add(41.3030, 69.2700, micros(t0.plusSeconds(20)), Float.NaN);
+        TrackStats stats = acc.toStats();
+        when(trackReader.readTrack(id)).thenReturn(new SessionTrackReader.Track(stats, coords));
+
+        service.buildOrRebuild(session);
+
+        ArgumentCaptor<SessionSummaryEntity> captor = ArgumentCaptor.forClass(SessionSummaryEntity.class);
+        verify(summaryRepository).save(captor.capture());
+        double secondSegment = GeoMath.haversineMeters(41.3010, 69.2700, 41.3030, 69.2700);
+        assertThat(captor.getValue().getMaxSpeedMps()).isEqualTo(secondSegment / 10);
+        assertThat(captor.getValue().getPointsCount()).isEqualTo(3);
+    }
+
+    @Test
+    void downsample_keepsEveryStepAndLastPoint() {
+        assertThat(SessionSummaryService.downsample(5, 10)).isNull();
+
+        boolean[] keep = SessionSummaryService.downsample(10, 4);
+
+        assertThat(keep).containsExactly(true, false, false, true, false, false, true, false, false, true);
+    }
+
+    private static long micros(Instant t) {
+        return t.getEpochSecond() * 1_000_000L + t.getNano() / 1_000;
     }
 }
@@ -0,0 +1,60 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryJobQueueTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    private SummaryJobQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new SummaryJobQueue(jdbc, new TrackingSummaryProperties(10, 10000, 5000, null, null));
+    }
+
+    @Test
+    void complete_deletesJobNotEnqueuedAgain() {
+        UUID id = UUID.randomUUID();
+        when(jdbc.update(startsWith("DELETE FROM summary_jobs"), eq(id))).thenReturn(1);
+
+        queue.complete(id);
+
+        verify(jdbc, never()).update(startsWith("UPDATE summary_jobs"), eq(id));
+    }
+
+    @Test
+    void complete_jobEnqueuedWhileRunning_isPutBack() {
+        UUID id = UUID.randomUUID();
+        when(jdbc.update(startsWith("DELETE FROM summary_jobs"), eq(id))).thenReturn(0);
+
+        queue.complete(id);
+
+        verify(jdbc).update(startsWith("UPDATE summary_jobs"), eq(id));
+    }
+
+    @Test
+    void failExhausted_usesConfiguredMaxAttempts() {
+        queue = new SummaryJobQueue(jdbc, new TrackingSummaryProperties(10, 10000, 5000,
+                new TrackingSummaryProperties.Jobs(2, 1000, 300, 3, 5000), null));
+
+        queue.failExhausted();
+
+        verify(jdbc).update(startsWith("UPDATE summary_jobs"), eq(3));
+    }
+}
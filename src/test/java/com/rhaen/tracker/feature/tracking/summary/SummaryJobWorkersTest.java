@@ -0,0 +1,130 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionEntity;
+import com.rhaen.tracker.feature.tracking.persistence.TrackingSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryJobWorkersTest {
+
+    @Mock
+    private SummaryJobQueue queue;
+    @Mock
+    private SessionSummaryService summaryService;
+    @Mock
+    private TrackingSessionRepository sessionRepository;
+
+    private final ScheduledExecutorService leases = Executors.newSingleThreadScheduledExecutor();
+
+    private SummaryJobWorkers newWorkers() {
+        return newWorkers(null);
+    }
+
+    private SummaryJobWorkers newWorkers(TrackingSummaryProperties.Jobs jobs) {
+        var workers = new SummaryJobWorkers(queue, summaryService, sessionRepository,
+                new TrackingSummaryProperties(10, 10000, 5000, jobs, null),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        // start() would spawn the pool; runOne is exercised directly
+        ReflectionTestUtils.setField(workers, "rebuildTx", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(workers, "completedCounter", new SimpleMeterRegistry().counter("c"));
+        ReflectionTestUtils.setField(workers, "failedCounter", new SimpleMeterRegistry().counter("f"));
+        ReflectionTestUtils.setField(workers, "rebuildTimer", new SimpleMeterRegistry().timer("t"));
+        ReflectionTestUtils.setField(workers, "leases", leases);
+        return workers;
+    }
+
+    @AfterEach
+    void tearDown() {
+        leases.shutdownNow();
+    }
+
+    @Test
+    void runOne_noDueJob_returnsFalse() {
+        when(queue.claim()).thenReturn(Optional.empty());
+
+        assertThat(newWorkers().runOne()).isFalse();
+    }
+
+    @Test
+    void runOne_rebuildsAndCompletesClaimedJob() {
+        UUID id = UUID.randomUUID();
+        TrackingSessionEntity session = TrackingSessionEntity.builder().id(id).build();
+        when(queue.claim()).thenReturn(Optional.of(new SummaryJobQueue.Claim(id, 1)));
+        when(sessionRepository.findById(id)).thenReturn(Optional.of(session));
+
+        assertThat(newWorkers().runOne()).isTrue();
+
+        verify(summaryService).buildOrRebuild(session);
+        verify(queue).complete(id);
+        verify(queue, never()).fail(eq(id), eq(1), anyString());
+    }
+
+    @Test
+    void runOne_failedRebuild_backsOffInsteadOfCompleting() {
+        UUID id = UUID.randomUUID();
+        TrackingSessionEntity session = TrackingSessionEntity.builder().id(id).build();
+        when(queue.claim()).thenReturn(Optional.of(new SummaryJobQueue.Claim(id, 2)));
+        when(sessionRepository.findById(id)).thenReturn(Optional.of(session));
+        doThrow(new IllegalStateException("boom")).when(summaryService).buildOrRebuild(session);
+
+        assertThat(newWorkers().runOne()).isTrue();
+
+        verify(queue, never()).complete(id);
+        verify(queue).fail(eq(id), eq(2), anyString());
+    }
+
+    @Test
+    void runOne_longRebuild_extendsLeaseUntilDone() {
+        UUID id = UUID.randomUUID();
+        TrackingSessionEntity session = TrackingSessionEntity.builder().id(id).build();
+        when(queue.claim()).thenReturn(Optional.of(new SummaryJobQueue.Claim(id, 1)));
+        when(sessionRepository.findById(id)).thenReturn(Optional.of(session));
+        // lease 3 s: a beat every second
+        SummaryJobWorkers workers = newWorkers(new TrackingSummaryProperties.Jobs(1, 1000, 3, 5, 5000));
+        doAnswer(inv -> {
+            Thread.sleep(2500);
+            return null;
+        }).when(summaryService).buildOrRebuild(session);
+
+        workers.runOne();
+
+        verify(queue, atLeast(2)).extendLease(id);
+        verify(queue).complete(id);
+    }
+
+    @Test
+    void runOne_jobWhoseLastAttemptNeverReported_isMarkedFailedWithoutRebuild() {
+        UUID id = UUID.randomUUID();
+        when(queue.claim()).thenReturn(Optional.of(new SummaryJobQueue.Claim(id, 6)));
+
+        assertThat(newWorkers().runOne()).isTrue();
+
+        verify(summaryService, never()).buildOrRebuild(any());
+        verify(queue).fail(eq(id), eq(6), anyString());
+    }
+}
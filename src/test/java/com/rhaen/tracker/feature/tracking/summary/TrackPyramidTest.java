@@ -0,0 +1,78 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackPyramidTest {
+
+    @Test
+    void build_segmentsShareBoundaries_andCoarserLevelsKeepFewerPoints() {
+        int n = 5_001;
+        TrackCoords coords = randomWalk(n);
+
+        List<TrackPyramid.Segment> segments = TrackPyramid.build(coords, List.of(32d, 2d, 8d), 2_000);
+
+        // 3 chunks (0-2000, 2000-4000, 4000-5000) per level, level 0 = finest tolerance
+        assertThat(segments).hasSize(9);
+        assertThat(segments).extracting(TrackPyramid.Segment::level).containsExactly(0, 0, 0, 1, 1, 1, 2, 2, 2);
+        assertThat(segments).extracting(TrackPyramid.Segment::epsilonM)
+                .containsExactly(2d, 2d, 2d, 8d, 8d, 8d, 32d, 32d, 32d);
+        for (int level = 0; level < 3; level++) {
+            TrackPyramid.Segment first = segments.get(level * 3);
+            TrackPyramid.Segment second = segments.get(level * 3 + 1);
+            TrackPyramid.Segment last = segments.get(level * 3 + 2);
+            assertThat(first.startMicros()).isEqualTo(coords.tsMicros(0));
+            assertThat(first.endMicros()).isEqualTo(second.startMicros()).isEqualTo(coords.tsMicros(2_000));
+            assertThat(last.endMicros()).isEqualTo(coords.tsMicros(n - 1));
+        }
+        for (int seg = 0; seg < 3; seg++) {
+            assertThat(segments.get(seg).pointsCount())
+                    .isGreaterThan(segments.get(3 + seg).pointsCount())
+                    .isLessThanOrEqualTo(2_001);
+            assertThat(segments.get(3 + seg).pointsCount()).isGreaterThan(segments.get(6 + seg).pointsCount());
+        }
+    }
+
+    @Test
+    void build_straightLine_keepsOnlySegmentEnds() {
+        TrackCoords coords = new TrackCoords(5);
+        for (int i = 0; i < 5; i++) coords.add(41.0 + i * 0.0002, 69.0, i * 1_000_000L);
+
+        List<TrackPyramid.Segment> segments = TrackPyramid.build(coords, List.of(5d), 100);
+
+        assertThat(segments).singleElement().satisfies(s -> {
+            assertThat(s.pointsCount()).isEqualTo(2);
+            assertThat(s.polyline()).isEqualTo(PolylineEncoder.encode(List.of(
+                    new PolylineEncoder.LatLon(41.0, 69.0), new PolylineEncoder.LatLon(41.0008, 69.0))));
+        });
+    }
+
+    @Test
+    void build_emptyTrackOrNoLevels_returnsNothing() {
+        TrackCoords one = new TrackCoords(1);
+        one.add(41.0, 69.0, 0L);
+
+        assertThat(TrackPyramid.build(new TrackCoords(0), List.of(2d), 100)).isEmpty();
+        assertThat(TrackPyramid.build(one, List.of(), 100)).isEmpty();
+        assertThat(TrackPyramid.build(one, List.of(2d), 100)).singleElement()
+                .extracting(TrackPyramid.Segment::pointsCount).isEqualTo(1);
+    }
+
+    private static TrackCoords randomWalk(int n) {
+        Random random = new Random(11);
+        TrackCoords coords = new TrackCoords(n);
+        double la = 41.311, lo = 69.240, heading = 0;
+        for (int i = 0; i < n; i++) {
+            heading += random.nextGaussian() * 0.2;
+            double step = 1 + random.nextDouble() * 14;
+            la += Math.cos(heading) * step / 111_320;
+            lo += Math.sin(heading) * step / 83_600;
+            coords.add(la, lo, 1_767_225_600_000_000L + i * 1_000_000L);
+        }
+        return coords;
+    }
+}
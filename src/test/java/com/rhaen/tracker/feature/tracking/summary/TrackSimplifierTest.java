@@ -0,0 +1,93 @@
+package com.rhaen.tracker.feature.tracking.summary;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackSimplifierTest {
+
+    @Test
+    void rdp_straightLine_keepsOnlyEndpoints() {
+        double[] lat = {41.0000, 41.0002, 41.0004, 41.0006};
+        double[] lon = {69.0, 69.0, 69.0, 69.0};
+
+        assertThat(TrackSimplifier.rdp(lat, lon, 4, 20.0)).containsExactly(true, false, false, true);
+    }
+
+    @Test
+    void rdp_smallInputs_keepEverything() {
+        assertThat(TrackSimplifier.rdp(new double[]{41.0, 41.1}, new double[]{69.0, 69.1}, 2, 5.0))
+                .containsExactly(true, true);
+    }
+
+    @Test
+    void rdp_parallel_matchesSequential() {
+        int n = 300_000;
+        double[][] walk = randomWalk(n);
+
+        boolean[] sequential = TrackSimplifier.rdp(walk[0], walk[1], n, 10.0, false);
+        boolean[] parallel = TrackSimplifier.rdp(walk[0], walk[1], n, 10.0, true);
+
+        assertThat(parallel).isEqualTo(sequential);
+    }
+
+    @Test
+    void rdp_lopsidedTrack_doesNotOverflowStack() {
+        // every split lands next to the end: the old recursion went n levels deep
+        int n = 200_000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 41.0 + i * 1e-5;
+            lon[i] = 69.0 + Math.pow(i / (double) n, 50) * 0.1;
+        }
+
+        boolean[] keep = TrackSimplifier.rdp(lat, lon, n, 0.0, false);
+
+        assertThat(keep[0]).isTrue();
+        assertThat(keep[n - 1]).isTrue();
+    }
+
+    @Test
+    void visvalingam_keepsTargetCountAndCorner() {
+        // L shape: the corner (index 3) carries the largest triangle
+        double[] lat = {41.0000, 41.0010, 41.0020, 41.0030, 41.0030, 41.0030, 41.0030};
+        double[] lon = {69.0000, 69.0000, 69.0001, 69.0000, 69.0010, 69.0020, 69.0030};
+
+        boolean[] keep = TrackSimplifier.visvalingam(lat, lon, 7, 3);
+
+        assertThat(keep).containsExactly(true, false, false, true, false, false, true);
+    }
+
+    @Test
+    void visvalingam_largeInput_keepsExactlyTarget() {
+        int n = 50_000;
+        double[][] walk = randomWalk(n);
+
+        boolean[] keep = TrackSimplifier.visvalingam(walk[0], walk[1], n, 1_000);
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        assertThat(kept).isEqualTo(1_000);
+        assertThat(keep[0]).isTrue();
+        assertThat(keep[n - 1]).isTrue();
+    }
+
+    private static double[][] randomWalk(int n) {
+        Random random = new Random(7);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double la = 41.311, lo = 69.240, heading = 0;
+        for (int i = 0; i < n; i++) {
+            heading += random.nextGaussian() * 0.2;
+            double step = 1 + random.nextDouble() * 14;
+            la += Math.cos(heading) * step / 111_320;
+            lo += Math.sin(heading) * step / 83_600;
+            lat[i] = la;
+            lon[i] = lo;
+        }
+        return new double[][]{lat, lon};
+    }
+}
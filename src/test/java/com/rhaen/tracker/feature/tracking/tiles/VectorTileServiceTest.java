@@ -0,0 +1,128 @@
+package com.rhaen.tracker.feature.tracking.tiles;
+
+import com.rhaen.tracker.common.exception.BadRequestException;
+import com.rhaen.tracker.feature.tracking.realtime.LastLocationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VectorTileServiceTest {
+
+    // Tashkent (41.31, 69.24) at zoom 10
+    private static final int Z = 10, X = 708, Y = 382;
+
+    @Mock
+    private VectorTileReader reader;
+    @Mock
+    private StringRedisTemplate redis;
+
+    private SimpleMeterRegistry registry;
+    private VectorTileService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        service = new VectorTileService(reader, new VectorTileProperties(1 << 20, 600, 60_000, 4096, 64),
+                new LastLocationProperties(10, 60), redis, registry);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @Test
+    void tracks_areCachedPerTile() {
+        byte[] tile = {1, 2, 3};
+        when(reader.tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull())).thenReturn(tile);
+
+        assertThat(service.tracks(Z, X, Y, null, null, null)).isSameAs(tile);
+        assertThat(service.tracks(Z, X, Y, null, null, null)).isSameAs(tile);
+
+        verify(reader, times(1)).tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull());
+        assertThat(registry.counter("tracker.tiles.cache.hits.total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateTracks_evictsOnlyIntersectingTiles_andPublishes() {
+        when(reader.tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull())).thenReturn(new byte[]{1});
+        service.tracks(Z, X, Y, null, null, null);
+
+        // Sydney is nowhere near: the Tashkent tile stays
+        service.invalidateTracks(-33.87, 151.19, -33.85, 151.21);
+        service.tracks(Z, X, Y, null, null, null);
+        verify(reader, times(1)).tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull());
+
+        service.invalidateTracks(41.30, 69.23, 41.32, 69.25);
+        service.tracks(Z, X, Y, null, null, null);
+        verify(reader, times(2)).tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull());
+        verify(redis).convertAndSend(VectorTileService.INVALIDATION_CHANNEL, "41.3,69.23,41.32,69.25");
+    }
+
+    @Test
+    void trackLoad_overlappingAnInvalidation_isServedButNotCached() {
+        when(reader.tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull())).thenAnswer(inv -> {
+            service.invalidateTracks(41.30, 69.23, 41.32, 69.25); // summary rebuilt while the query ran
+            return new byte[]{1};
+        });
+
+        assertThat(service.tracks(Z, X, Y, null, null, null)).containsExactly(1);
+        service.tracks(Z, X, Y, null, null, null);
+
+        verify(reader, times(2)).tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull());
+    }
+
+    @Test
+    void onMessage_evictsLikeLocalInvalidation() {
+        when(reader.tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull())).thenReturn(new byte[]{1});
+        service.tracks(Z, X, Y, null, null, null);
+
+        service.onMessage(new DefaultMessage(VectorTileService.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "41.30,69.23,41.32,69.25".getBytes(StandardCharsets.UTF_8)), null);
+        service.tracks(Z, X, Y, null, null, null);
+
+        verify(reader, times(2)).tracks(eq(Z), eq(X), eq(Y), anyDouble(), isNull(), isNull(), isNull());
+    }
+
+    @Test
+    void live_usesStaleSecondsAndShortCache() {
+        when(reader.live(Z, X, Y, 60)).thenReturn(new byte[0]);
+
+        service.live(Z, X, Y);
+        service.live(Z, X, Y);
+
+        verify(reader, times(1)).live(Z, X, Y, 60);
+    }
+
+    @Test
+    void tiles_outsideTheGrid_areRejected() {
+        assertThatThrownBy(() -> service.tracks(2, 4, 0, null, null, null)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.live(23, 0, 0)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(reader);
+    }
+
+    @Test
+    void toleranceMeters_isOnePixelAtTileCentre() {
+        assertThat(VectorTileService.toleranceMeters(new VectorTileService.TileKey(0, 0, 0)))
+                .isCloseTo(156_543.03392, within(1e-6));
+        // zoom 10 at ~41.3 degrees: 152.87 m/px * cos(41.3)
+        assertThat(VectorTileService.toleranceMeters(new VectorTileService.TileKey(Z, X, Y)))
+                .isCloseTo(114.8, within(0.5));
+    }
+}
@@ -0,0 +1,169 @@
+package com.rhaen.tracker.feature.tracking.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rhaen.tracker.common.exception.ForbiddenException;
+import com.rhaen.tracker.feature.tracking.command.TrackingCommandService;
+import com.rhaen.tracker.feature.tracking.dto.TrackingDtos;
+import com.rhaen.tracker.feature.tracking.ingest.PointBatchCodec;
+import com.rhaen.tracker.feature.tracking.ingest.PointColumns;
+import com.rhaen.tracker.feature.tracking.ingest.TrackingIngestProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngestWebSocketHandlerTest {
+
+    @Mock
+    private TrackingCommandService commandService;
+    @Mock
+    private WebSocketSession session;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final UUID userId = UUID.randomUUID();
+    private final UUID sessionId = UUID.randomUUID();
+    private IngestWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new IngestWebSocketHandler(commandService, mapper,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new IngestWebSocketProperties(1, 1, 1000, 65536, 65536),
+                new TrackingIngestProperties(50, 6000, 60, null, 0, null, null, 1000, null),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(handler, "init");
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(IngestHandshakeInterceptor.ATTR_USER_ID, userId);
+        attributes.put(IngestHandshakeInterceptor.ATTR_SESSION_ID, sessionId);
+        lenient().when(session.getId()).thenReturn("ws-1");
+        lenient().when(session.getAttributes()).thenReturn(attributes);
+        lenient().when(session.isOpen()).thenReturn(true);
+
+        handler.afterConnectionEstablished(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(handler, "shutdown");
+    }
+
+    @Test
+    void jsonAndBinaryFrames_areIngested_andAckedInOrder() throws Exception {
+        when(commandService.ingestColumns(eq(sessionId), eq(userId), any()))
+                .thenReturn(new TrackingDtos.IngestResponse(1, 1, 0, 0, 0));
+
+        handler.handleTextMessage(session, new TextMessage(mapper.writeValueAsString(
+                new TrackingDtos.IngestPointsRequest(List.of(point())))));
+        awaitReplies(2);
+        handler.handleBinaryMessage(session, new BinaryMessage(
+                PointBatchCodec.encode(PointColumns.fromDtos(List.of(point())))));
+
+        List<Map<?, ?>> replies = awaitReplies(3);
+        assertThat(replies.get(0)).containsEntry("type", "hello").containsEntry("window", 1);
+        assertThat(replies.get(1)).containsEntry("type", "ack").containsEntry("seq", 1).containsEntry("inserted", 1);
+        assertThat(replies.get(2)).containsEntry("type", "ack").containsEntry("seq", 2);
+    }
+
+    @Test
+    void invalidJsonFrame_getsErrorReply_withoutIngest() throws Exception {
+        handler.handleTextMessage(session, new TextMessage("{\"points\":[]}"));
+
+        List<Map<?, ?>> replies = awaitReplies(2);
+        assertThat(replies.get(1)).containsEntry("type", "error").containsEntry("status", 400);
+        verify(commandService, never()).ingestColumns(any(), any(), any());
+    }
+
+    @Test
+    void frameBeyondWindow_isRejected_untilAcked() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(commandService.ingestColumns(eq(sessionId), eq(userId), any())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new TrackingDtos.IngestResponse(1, 1, 0, 0, 0);
+        });
+        TextMessage frame = new TextMessage(mapper.writeValueAsString(
+                new TrackingDtos.IngestPointsRequest(List.of(point()))));
+
+        handler.handleTextMessage(session, frame);
+        handler.handleTextMessage(session, frame);
+        release.countDown();
+
+        // the 429 does not overtake the ack of the frame before it
+        List<Map<?, ?>> replies = awaitReplies(3);
+        assertThat(replies.get(1)).containsEntry("type", "ack").containsEntry("seq", 1);
+        assertThat(replies.get(2)).containsEntry("type", "error").containsEntry("seq", 2).containsEntry("status", 429);
+        verify(commandService).ingestColumns(any(), any(), any());
+    }
+
+    @Test
+    void expiredToken_closesConnection_withoutIngest() throws Exception {
+        session.getAttributes().put(IngestHandshakeInterceptor.ATTR_EXPIRES_AT, Instant.now().plusMillis(200));
+        handler.afterConnectionEstablished(session);
+
+        verify(session, timeout(2000)).close(CloseStatus.POLICY_VIOLATION.withReason("Token expired"));
+        handler.handleTextMessage(session, new TextMessage(mapper.writeValueAsString(
+                new TrackingDtos.IngestPointsRequest(List.of(point())))));
+        verify(commandService, never()).ingestColumns(any(), any(), any());
+    }
+
+    @Test
+    void forbidden_closesConnection() throws Exception {
+        when(commandService.ingestColumns(any(), any(), any()))
+                .thenThrow(new ForbiddenException("Session does not belong to user"));
+
+        handler.handleTextMessage(session, new TextMessage(mapper.writeValueAsString(
+                new TrackingDtos.IngestPointsRequest(List.of(point())))));
+
+        verify(session, timeout(2000)).close(CloseStatus.POLICY_VIOLATION);
+    }
+
+    private List<Map<?, ?>> awaitReplies(int count) throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, timeout(2000).times(count)).sendMessage(captor.capture());
+        return captor.getAllValues().stream()
+                .map(m -> (Map<?, ?>) readMap(m.getPayload()))
+                .toList();
+    }
+
+    private Map<?, ?> readMap(String json) {
+        try {
+            return mapper.readValue(json, Map.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TrackingDtos.LocationPoint point() {
+        return new TrackingDtos.LocationPoint(UUID.randomUUID(), 41.31, 69.27, Instant.now().minusSeconds(1),
+                3f, 1f, 90f, "gps", false);
+    }
+}